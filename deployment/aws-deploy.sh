@@ -53,6 +53,7 @@ Environment=DB_HOST=${DB_HOST}
 Environment=DB_USERNAME=${DB_USERNAME}
 Environment=DB_PASSWORD=${DB_PASSWORD}
 Environment=JWT_SECRET=${JWT_SECRET}
+Environment=PIGGYBANK_NODE_ID=${PIGGYBANK_NODE_ID:-0}
 Environment=CORS_ALLOWED_ORIGINS=${CORS_ALLOWED_ORIGINS:-https://yourdomain.com}
 
 [Install]
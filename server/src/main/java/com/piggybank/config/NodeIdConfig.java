@@ -0,0 +1,43 @@
+package com.piggybank.config;
+
+import com.piggybank.entity.id.TimeOrderedIds;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+
+/**
+ * Startup check for the node id in TimeOrderedIds. Two instances with the same node id
+ * can generate the same ids, so outside the dev and test profiles (or a local run with
+ * no profile) the server does not start unless one was configured.
+ */
+@Configuration
+public class NodeIdConfig {
+
+    @Autowired
+    private Environment environment;
+
+    @PostConstruct
+    public void checkNodeId() {
+        // Spring also sees --piggybank.node-id arguments, which TimeOrderedIds cannot read
+        String springNodeId = environment.getProperty("piggybank.node-id");
+        if (springNodeId != null && !springNodeId.isBlank()
+                && (!TimeOrderedIds.isNodeIdConfigured() || Long.parseLong(springNodeId.trim()) != TimeOrderedIds.nodeId())) {
+            throw new IllegalStateException("piggybank.node-id must be set as a JVM system property "
+                    + "(-Dpiggybank.node-id) or the PIGGYBANK_NODE_ID environment variable");
+        }
+
+        boolean localRun = environment.getActiveProfiles().length == 0
+                || environment.acceptsProfiles(Profiles.of("dev", "test"));
+        if (!TimeOrderedIds.isNodeIdConfigured() && !localRun) {
+            throw new IllegalStateException("No node id configured: set PIGGYBANK_NODE_ID (0-15) to a value "
+                    + "unique among the instances sharing this database");
+        }
+    }
+
+    // Setter methods for dependency injection
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+}
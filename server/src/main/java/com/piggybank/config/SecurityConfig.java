@@ -1,10 +1,16 @@
 package com.piggybank.config;
 
+import com.piggybank.security.ActuatorTokenFilter;
 import com.piggybank.security.JwtAuthenticationEntryPoint;
 import com.piggybank.security.JwtRequestFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -32,9 +38,17 @@ public class SecurityConfig {
     @Autowired
     private JwtRequestFilter jwtRequestFilter;
 
+    // BCrypt cost factor for new PIN hashes; existing hashes are upgraded on the next login
+    @Value("${piggybank.pin-hash.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    // Static bearer token for metrics scrapers; blank leaves only /actuator/health reachable
+    @Value("${piggybank.actuator.scrape-token:}")
+    private String actuatorScrapeToken;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean
@@ -56,11 +70,45 @@ public class SecurityConfig {
         return source;
     }
 
+    /**
+     * The JWT filter only runs inside the API filter chain. Left to Spring Boot it would also be
+     * registered for every request, including actuator ones, where a user token must not count.
+     */
+    @Bean
+    public FilterRegistrationBean<JwtRequestFilter> jwtRequestFilterRegistration(JwtRequestFilter filter) {
+        FilterRegistrationBean<JwtRequestFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    /**
+     * Actuator endpoints have their own credential: health is public for container checks,
+     * everything else needs the scrape token. User JWTs grant nothing here.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http) throws Exception {
+        http.securityMatcher(EndpointRequest.toAnyEndpoint())
+                .csrf(csrf -> csrf.disable())
+                .authorizeHttpRequests(authz -> authz
+                        .requestMatchers(EndpointRequest.to("health")).permitAll()
+                        .anyRequest().hasRole(ActuatorTokenFilter.SCRAPE_ROLE))
+                .exceptionHandling(ex -> ex.authenticationEntryPoint(jwtAuthenticationEntryPoint))
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+
+        http.addFilterBefore(new ActuatorTokenFilter(actuatorScrapeToken), UsernamePasswordAuthenticationFilter.class);
+
+        return http.build();
+    }
+
     @Bean
+    @Order(2)
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http.cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(authz -> authz
+                        // Async dispatches (streamed exports) were already authorized on the original request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Public endpoints - no authentication required
                         .requestMatchers("/api/auth/signup", "/api/auth/login", "/api/auth/validate").permitAll()
                         .requestMatchers("/api/settings/**", "/api/transactions/**", "/api/balances/**").authenticated()
@@ -0,0 +1,171 @@
+package com.piggybank.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds virtual threads pinned to their carrier thread. A virtual thread that blocks
+ * inside a synchronized block (or a native frame) cannot unmount, so it holds one of the
+ * few carrier threads for the whole wait; JDBC drivers and logging appenders that block
+ * on I/O under a monitor are the usual cause.
+ *
+ * Listens to the JDK's jdk.VirtualThreadPinned JFR events in-process. Each new pinning
+ * site (the first non-JDK frame) is logged once with its stack; every pinning is timed in
+ * piggybank.virtual.threads.pinned. Does nothing on runtimes before Java 21.
+ */
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${piggybank.virtual-threads.pinning-monitor.enabled:false}")
+    private boolean enabled;
+
+    @Value("${piggybank.virtual-threads.pinning-monitor.threshold:20ms}")
+    private Duration threshold;
+
+    @Value("${piggybank.virtual-threads.pinning-monitor.stack-depth:16}")
+    private int stackDepth;
+
+    private final ConcurrentMap<String, LongAdder> pinnedSites = new ConcurrentHashMap<>();
+    private final LongAdder pinnedEvents = new LongAdder();
+    private RecordingStream stream;
+    private Timer pinnedTimer;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (Runtime.version().feature() < 21) {
+            logger.warn("Virtual thread pinning monitor needs Java 21 or later, running on {}; not started",
+                    Runtime.version());
+            return;
+        }
+
+        if (meterRegistry != null) {
+            pinnedTimer = Timer.builder("piggybank.virtual.threads.pinned")
+                    .description("Virtual threads blocked while pinned to their carrier thread")
+                    .register(meterRegistry);
+        }
+
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        logger.info("Virtual thread pinning monitor started, reporting pins longer than {}ms",
+                threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        if (pinnedTimer != null) {
+            pinnedTimer.record(event.getDuration());
+        }
+
+        List<RecordedFrame> frames = frames(event.getStackTrace());
+        String site = site(frames);
+        LongAdder count = pinnedSites.computeIfAbsent(site, key -> new LongAdder());
+        count.increment();
+
+        if (count.sum() == 1) {
+            StringBuilder stack = new StringBuilder();
+            for (int i = 0; i < Math.min(stackDepth, frames.size()); i++) {
+                stack.append(System.lineSeparator()).append("\tat ").append(describe(frames.get(i)));
+            }
+            logger.warn("Virtual thread pinned for {}ms at new site {}{}",
+                    event.getDuration().toMillis(), site, stack);
+        } else {
+            logger.debug("Virtual thread pinned for {}ms at {}", event.getDuration().toMillis(), site);
+        }
+    }
+
+    private static List<RecordedFrame> frames(RecordedStackTrace stackTrace) {
+        return stackTrace == null ? List.of() : stackTrace.getFrames();
+    }
+
+    /**
+     * The first frame outside the JDK, which is where the driver, library or application
+     * code that holds the monitor (or calls into it) can be found
+     */
+    private static String site(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return describe(frame);
+            }
+        }
+        return frames.isEmpty() ? "unknown" : describe(frames.get(0));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+
+    /**
+     * Number of pinnings seen at each site since startup
+     */
+    public Map<String, Long> getPinnedSites() {
+        Map<String, Long> sites = new TreeMap<>();
+        pinnedSites.forEach((site, count) -> sites.put(site, count.sum()));
+        return sites;
+    }
+
+    public long getPinnedEvents() {
+        return pinnedEvents.sum();
+    }
+
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    // Setter methods for dependency injection
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Setter methods for configuration
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setThreshold(Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    public void setStackDepth(int stackDepth) {
+        this.stackDepth = stackDepth;
+    }
+}
@@ -4,13 +4,17 @@ import com.piggybank.response.AuthResponse;
 import com.piggybank.request.LoginRequest;
 import com.piggybank.request.SignupRequest;
 import com.piggybank.entity.User;
+import com.piggybank.security.AuthenticatedUser;
 import com.piggybank.service.JwtTokenService;
 import com.piggybank.service.LoggingService;
+import com.piggybank.service.PinEncryptionService;
 import com.piggybank.service.UserService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -53,6 +57,9 @@ public class AuthController {
             return ResponseEntity.ok(new AuthResponse(
                     true, "Account created successfully!", token, user.getId(), user.getPhoneNumber(), user.getName()));
 
+        } catch (PinEncryptionService.SaturatedException e) {
+            logger.warn("Signup rejected for phone number: {} - PIN hashing saturated", request.getPhoneNumber());
+            return serviceUnavailable(e);
         } catch (IllegalArgumentException e) {
             logger.error("Signup failed for phone number: {} - {}", request.getPhoneNumber(), e.getMessage());
             return ResponseEntity.badRequest().body(new AuthResponse(false, e.getMessage()));
@@ -80,6 +87,9 @@ public class AuthController {
             return ResponseEntity.ok(new AuthResponse(
                     true, "Login successful!", token, user.getId(), user.getPhoneNumber()));
 
+        } catch (PinEncryptionService.SaturatedException e) {
+            logger.warn("Login rejected for phone number: {} - PIN hashing saturated", request.getPhoneNumber());
+            return serviceUnavailable(e);
         } catch (IllegalArgumentException e) {
             logger.warn("Login failed for phone number: {} - {}", request.getPhoneNumber(), e.getMessage());
             loggingService.logUserLogin(request.getPhoneNumber(), null, false);
@@ -102,8 +112,9 @@ public class AuthController {
             }
 
             String token = authHeader.substring(7);
-            String phoneNumber = jwtTokenService.getPhoneNumberFromToken(token);
-            Long userId = jwtTokenService.getUserIdFromToken(token);
+            AuthenticatedUser tokenUser = jwtTokenService.authenticate(token);
+            String phoneNumber = tokenUser.getPhoneNumber();
+            Long userId = tokenUser.getUserId();
 
             // Log successful token validation
             loggingService.logJwtTokenValidation(phoneNumber, true);
@@ -118,4 +129,13 @@ public class AuthController {
             return ResponseEntity.badRequest().body(new AuthResponse(false, "Invalid token"));
         }
     }
+
+    /**
+     * 503 with a short Retry-After, so clients back off instead of piling on more hashing work
+     */
+    private static ResponseEntity<AuthResponse> serviceUnavailable(PinEncryptionService.SaturatedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new AuthResponse(false, e.getMessage()));
+    }
 }
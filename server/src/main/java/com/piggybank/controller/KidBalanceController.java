@@ -1,12 +1,13 @@
 package com.piggybank.controller;
 
 import com.piggybank.dto.KidBalanceDTO;
-import com.piggybank.service.JwtTokenService;
+import com.piggybank.security.AuthenticatedUser;
 import com.piggybank.service.KidBalanceService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -21,18 +22,14 @@ public class KidBalanceController {
     @Autowired
     private KidBalanceService kidBalanceService;
 
-    @Autowired
-    private JwtTokenService jwtTokenService;
-
     /**
      * Get balance details for a specific kid
      */
     @GetMapping("/kid/{kidId}")
-    public ResponseEntity<?> getKidBalance(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> getKidBalance(@AuthenticationPrincipal AuthenticatedUser currentUser,
             @PathVariable Long kidId) {
         try {
-            String token = authHeader.substring(7);
-            Long userId = jwtTokenService.getUserIdFromToken(token);
+            Long userId = currentUser.getUserId();
 
             logger.debug("Getting balance for user: {}, kid: {}", userId, kidId);
 
@@ -53,10 +50,9 @@ public class KidBalanceController {
      * Get all kid balances for a user
      */
     @GetMapping("/all")
-    public ResponseEntity<?> getAllKidBalances(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getAllKidBalances(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String token = authHeader.substring(7);
-            Long userId = jwtTokenService.getUserIdFromToken(token);
+            Long userId = currentUser.getUserId();
 
             logger.debug("Getting all balances for user: {}", userId);
 
@@ -75,10 +71,9 @@ public class KidBalanceController {
      * Get total balances across all kids for a user
      */
     @GetMapping("/totals")
-    public ResponseEntity<?> getTotalBalances(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getTotalBalances(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String token = authHeader.substring(7);
-            Long userId = jwtTokenService.getUserIdFromToken(token);
+            Long userId = currentUser.getUserId();
 
             logger.debug("Getting total balances for user: {}", userId);
 
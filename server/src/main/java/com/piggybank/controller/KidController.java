@@ -2,7 +2,7 @@ package com.piggybank.controller;
 
 import com.piggybank.response.KidResponse;
 import com.piggybank.entity.Kid;
-import com.piggybank.service.JwtTokenService;
+import com.piggybank.security.AuthenticatedUser;
 import com.piggybank.service.KidService;
 import com.piggybank.service.LoggingService;
 import jakarta.validation.Valid;
@@ -10,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -27,16 +28,13 @@ public class KidController {
     @Autowired
     private KidService kidService;
     
-    @Autowired
-    private JwtTokenService jwtTokenService;
-    
     @Autowired
     private LoggingService loggingService;
     
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getKids(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<Map<String, Object>> getKids(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            Long userId = extractUserIdFromToken(authHeader);
+            Long userId = currentUser.getUserId();
             List<Kid> kids = kidService.getKidsByUserId(userId);
             
             // Convert to DTOs to avoid circular references
@@ -63,10 +61,10 @@ public class KidController {
     
     @PostMapping
     public ResponseEntity<Map<String, Object>> addKid(
-            @RequestHeader("Authorization") String authHeader,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @Valid @RequestBody Map<String, Object> request) {
         try {
-            Long userId = extractUserIdFromToken(authHeader);
+            Long userId = currentUser.getUserId();
             String name = (String) request.get("name");
             Integer age = (Integer) request.get("age");
             
@@ -102,11 +100,11 @@ public class KidController {
     
     @PutMapping("/{kidId}")
     public ResponseEntity<Map<String, Object>> updateKid(
-            @RequestHeader("Authorization") String authHeader,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @PathVariable Long kidId,
             @Valid @RequestBody Map<String, Object> request) {
         try {
-            Long userId = extractUserIdFromToken(authHeader);
+            Long userId = currentUser.getUserId();
             String name = (String) request.get("name");
             Integer age = (Integer) request.get("age");
             
@@ -143,10 +141,10 @@ public class KidController {
     
     @DeleteMapping("/{kidId}")
     public ResponseEntity<Map<String, Object>> deleteKid(
-            @RequestHeader("Authorization") String authHeader,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @PathVariable Long kidId) {
         try {
-            Long userId = extractUserIdFromToken(authHeader);
+            Long userId = currentUser.getUserId();
             
             // Verify the kid belongs to the user
             Kid existingKid = kidService.getKidById(kidId)
@@ -178,12 +176,4 @@ public class KidController {
         }
     }
     
-    private Long extractUserIdFromToken(String authHeader) {
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            throw new IllegalArgumentException("Invalid authorization header");
-        }
-        
-        String token = authHeader.substring(7);
-        return jwtTokenService.getUserIdFromToken(token);
-    }
-} 
\ No newline at end of file
+}
@@ -2,12 +2,13 @@ package com.piggybank.controller;
 
 import com.piggybank.dto.UserSettingsDTO;
 import com.piggybank.entity.UserSettings;
-import com.piggybank.service.JwtTokenService;
+import com.piggybank.security.AuthenticatedUser;
 import com.piggybank.service.UserSettingsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
@@ -23,18 +24,14 @@ public class SettingsController {
     @Autowired
     private UserSettingsService userSettingsService;
     
-    @Autowired
-    private JwtTokenService jwtTokenService;
-    
     /**
      * Get user settings
      */
     @GetMapping
-    public ResponseEntity<?> getUserSettings(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getUserSettings(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String token = authHeader.substring(7);
-            Long userId = jwtTokenService.getUserIdFromToken(token);
-            String phoneNumber = jwtTokenService.getPhoneNumberFromToken(token);
+            Long userId = currentUser.getUserId();
+            String phoneNumber = currentUser.getPhoneNumber();
             
             logger.debug("Getting settings for user: {}", userId);
             
@@ -76,12 +73,11 @@ public class SettingsController {
      * Create or update user settings
      */
     @PostMapping
-    public ResponseEntity<?> saveSettings(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> saveSettings(@AuthenticationPrincipal AuthenticatedUser currentUser,
                                         @Valid @RequestBody UserSettingsDTO settingsDTO) {
         try {
-            String token = authHeader.substring(7);
-            Long userId = jwtTokenService.getUserIdFromToken(token);
-            String phoneNumber = jwtTokenService.getPhoneNumberFromToken(token);
+            Long userId = currentUser.getUserId();
+            String phoneNumber = currentUser.getPhoneNumber();
             
             logger.debug("Saving settings for user: {}", userId);
             
@@ -111,10 +107,9 @@ public class SettingsController {
      * Delete user settings
      */
     @DeleteMapping
-    public ResponseEntity<?> deleteSettings(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> deleteSettings(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String token = authHeader.substring(7);
-            Long userId = jwtTokenService.getUserIdFromToken(token);
+            Long userId = currentUser.getUserId();
             
             logger.debug("Deleting settings for user: {}", userId);
             
@@ -132,10 +127,9 @@ public class SettingsController {
      * Check if user has valid settings
      */
     @GetMapping("/validate")
-    public ResponseEntity<?> validateSettings(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> validateSettings(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String token = authHeader.substring(7);
-            Long userId = jwtTokenService.getUserIdFromToken(token);
+            Long userId = currentUser.getUserId();
             
             boolean hasValidSettings = userSettingsService.hasValidSettings(userId);
             
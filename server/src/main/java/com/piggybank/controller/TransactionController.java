@@ -1,19 +1,33 @@
 package com.piggybank.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.piggybank.dto.BatchDepositResultDTO;
 import com.piggybank.dto.KidDetailsDTO;
 import com.piggybank.dto.TransactionDTO;
+import com.piggybank.dto.TransactionPageDTO;
 import com.piggybank.entity.Transaction;
-import com.piggybank.service.JwtTokenService;
+import com.piggybank.security.AuthenticatedUser;
+import com.piggybank.service.IdempotencyService;
+import com.piggybank.service.KidWriteCoordinator;
+import com.piggybank.service.TransactionExportService;
 import com.piggybank.service.TransactionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -22,31 +36,49 @@ public class TransactionController {
 
     private static final Logger logger = LoggerFactory.getLogger(TransactionController.class);
 
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     @Autowired
     private TransactionService transactionService;
 
     @Autowired
-    private JwtTokenService jwtTokenService;
+    private KidWriteCoordinator kidWriteCoordinator;
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     /**
-     * Process a deposit transaction
+     * Process a deposit transaction. A retry with the same Idempotency-Key gets the
+     * original response back instead of a second deposit.
      */
     @PostMapping("/deposit")
-    public ResponseEntity<?> processDeposit(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> processDeposit(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody TransactionDTO transactionDTO) {
         try {
-            String token = authHeader.substring(7);
-            Long userId = jwtTokenService.getUserIdFromToken(token);
-            String phoneNumber = jwtTokenService.getPhoneNumberFromToken(token);
+            Long userId = currentUser.getUserId();
+            String phoneNumber = currentUser.getPhoneNumber();
 
             logger.debug("Processing deposit for user: {}, kid: {}, amount: {}",
                     userId, transactionDTO.getKidId(), transactionDTO.getAmount());
 
-            Transaction transaction = transactionService.processDeposit(userId, transactionDTO, phoneNumber);
+            IdempotencyService.Result result = idempotencyService.execute(userId, idempotencyKey, "deposit",
+                    transactionDTO, transactionDTO.getKidId(),
+                    () -> new ApiResponse(true, "Deposit processed successfully", new TransactionResponse(
+                            transactionService.processDeposit(userId, transactionDTO, phoneNumber))));
 
-            return ResponseEntity.ok(new ApiResponse(true, "Deposit processed successfully",
-                    new TransactionResponse(transaction)));
+            return idempotentResponse(result);
 
+        } catch (KidWriteCoordinator.BusyException e) {
+            logger.warn("Deposit rejected for user: {} - too many concurrent writes", currentUser.getUserId());
+            return serviceUnavailable(e);
         } catch (IllegalArgumentException e) {
             logger.warn("Invalid deposit data: {}", e.getMessage());
             return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
@@ -58,25 +90,79 @@ public class TransactionController {
     }
 
     /**
-     * Process a withdrawal transaction
+     * Process a batch of deposits, e.g. from a scheduled allowance run.
+     * Each item gets its own result so one bad item does not fail the batch.
+     */
+    @PostMapping("/deposits:batch")
+    public ResponseEntity<?> processDepositBatch(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestBody List<TransactionDTO> transactionDTOs) {
+        try {
+            Long userId = currentUser.getUserId();
+            String phoneNumber = currentUser.getPhoneNumber();
+
+            logger.debug("Processing deposit batch for user: {}, items: {}", userId, transactionDTOs.size());
+
+            Set<Long> kidIds = new HashSet<>();
+            for (TransactionDTO transactionDTO : transactionDTOs) {
+                if (transactionDTO != null) {
+                    kidIds.add(transactionDTO.getKidId());
+                }
+            }
+
+            List<BatchDepositResultDTO> results = kidWriteCoordinator.executeAll(kidIds,
+                    () -> transactionService.processDepositBatch(userId, transactionDTOs, phoneNumber));
+
+            List<BatchItemResponse> itemResponses = new ArrayList<>(results.size());
+            int succeeded = 0;
+            for (BatchDepositResultDTO result : results) {
+                itemResponses.add(new BatchItemResponse(result));
+                if (result.isSuccess()) {
+                    succeeded++;
+                }
+            }
+
+            return ResponseEntity.ok(new ApiResponse(true,
+                    "Processed " + succeeded + " of " + results.size() + " deposits", itemResponses));
+
+        } catch (KidWriteCoordinator.BusyException e) {
+            logger.warn("Deposit batch rejected for user: {} - too many concurrent writes", currentUser.getUserId());
+            return serviceUnavailable(e);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid deposit batch: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error processing deposit batch: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, "Failed to process deposit batch: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Process a withdrawal transaction. A retry with the same Idempotency-Key gets the
+     * original response back instead of a second withdrawal.
      */
     @PostMapping("/withdraw")
-    public ResponseEntity<?> processWithdrawal(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> processWithdrawal(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody TransactionDTO transactionDTO) {
         try {
-            String token = authHeader.substring(7);
-            Long userId = jwtTokenService.getUserIdFromToken(token);
-            String phoneNumber = jwtTokenService.getPhoneNumberFromToken(token);
+            Long userId = currentUser.getUserId();
+            String phoneNumber = currentUser.getPhoneNumber();
 
             logger.debug("Processing withdrawal for user: {}, kid: {}, component: {}, amount: {}",
                     userId, transactionDTO.getKidId(), transactionDTO.getWithdrawalComponent(),
                     transactionDTO.getAmount());
 
-            Transaction transaction = transactionService.processWithdrawal(userId, transactionDTO, phoneNumber);
+            IdempotencyService.Result result = idempotencyService.execute(userId, idempotencyKey, "withdraw",
+                    transactionDTO, transactionDTO.getKidId(),
+                    () -> new ApiResponse(true, "Withdrawal processed successfully", new TransactionResponse(
+                            transactionService.processWithdrawal(userId, transactionDTO, phoneNumber))));
 
-            return ResponseEntity.ok(new ApiResponse(true, "Withdrawal processed successfully",
-                    new TransactionResponse(transaction)));
+            return idempotentResponse(result);
 
+        } catch (KidWriteCoordinator.BusyException e) {
+            logger.warn("Withdrawal rejected for user: {} - too many concurrent writes", currentUser.getUserId());
+            return serviceUnavailable(e);
         } catch (IllegalArgumentException e) {
             logger.warn("Invalid withdrawal data: {}", e.getMessage());
             return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
@@ -91,11 +177,10 @@ public class TransactionController {
      * Get kid details with balances and recent transactions
      */
     @GetMapping("/kid/{kidId}")
-    public ResponseEntity<?> getKidDetails(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> getKidDetails(@AuthenticationPrincipal AuthenticatedUser currentUser,
             @PathVariable Long kidId) {
         try {
-            String token = authHeader.substring(7);
-            Long userId = jwtTokenService.getUserIdFromToken(token);
+            Long userId = currentUser.getUserId();
 
             logger.debug("Getting kid details for user: {}, kid: {}", userId, kidId);
 
@@ -117,11 +202,10 @@ public class TransactionController {
      * Get all transactions for a kid with component details
      */
     @GetMapping("/kid/{kidId}/all")
-    public ResponseEntity<?> getAllTransactionsForKid(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> getAllTransactionsForKid(@AuthenticationPrincipal AuthenticatedUser currentUser,
             @PathVariable Long kidId) {
         try {
-            String token = authHeader.substring(7);
-            Long userId = jwtTokenService.getUserIdFromToken(token);
+            Long userId = currentUser.getUserId();
 
             logger.debug("Getting all transactions for user: {}, kid: {}", userId, kidId);
 
@@ -140,16 +224,77 @@ public class TransactionController {
         }
     }
 
+    /**
+     * Get one page of a kid's transaction history. Pass the returned nextCursor
+     * as cursor to fetch the following page.
+     */
+    @GetMapping("/kid/{kidId}/page")
+    public ResponseEntity<?> getTransactionHistoryPage(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @PathVariable Long kidId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            Long userId = currentUser.getUserId();
+
+            logger.debug("Getting transaction page for user: {}, kid: {}, size: {}", userId, kidId, size);
+
+            TransactionPageDTO page = transactionService.getTransactionHistoryPage(userId, kidId, cursor, size);
+
+            return ResponseEntity.ok(new ApiResponse(true, "Transactions retrieved successfully", page));
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid transaction page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error getting transaction page: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, "Failed to get transactions: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Export a kid's full transaction history as NDJSON (default) or CSV.
+     * Rows are streamed from the database to the response as they are read.
+     */
+    @GetMapping("/kid/{kidId}/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @PathVariable Long kidId,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            Long userId = currentUser.getUserId();
+
+            logger.debug("Exporting transactions for user: {}, kid: {}, format: {}", userId, kidId, format);
+
+            TransactionExportService.ExportFormat exportFormat = TransactionExportService.ExportFormat
+                    .fromParameter(format);
+            transactionExportService.checkKidAccess(userId, kidId);
+
+            StreamingResponseBody body = out -> transactionExportService.export(userId, kidId, exportFormat, out);
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"kid-" + kidId
+                            + "-transactions." + exportFormat.getFileExtension() + "\"")
+                    .body(body);
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid export request: {}", e.getMessage());
+            return errorBody(new ApiResponse(false, e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error exporting transactions: {}", e.getMessage());
+            return errorBody(new ApiResponse(false, "Failed to export transactions: " + e.getMessage()));
+        }
+    }
+
     /**
      * Get available balance for a specific component
      */
     @GetMapping("/balance/{kidId}/{component}")
-    public ResponseEntity<?> getAvailableBalance(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> getAvailableBalance(@AuthenticationPrincipal AuthenticatedUser currentUser,
             @PathVariable Long kidId,
             @PathVariable String component) {
         try {
-            String token = authHeader.substring(7);
-            Long userId = jwtTokenService.getUserIdFromToken(token);
+            Long userId = currentUser.getUserId();
 
             logger.debug("Getting balance for user: {}, kid: {}, component: {}", userId, kidId, component);
 
@@ -168,6 +313,31 @@ public class TransactionController {
         }
     }
 
+    private ResponseEntity<StreamingResponseBody> errorBody(ApiResponse response) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, response));
+    }
+
+    /**
+     * 503 with a short Retry-After, so clients back off instead of queueing more writes for the kid
+     */
+    private static ResponseEntity<ApiResponse> serviceUnavailable(KidWriteCoordinator.BusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ApiResponse(false, e.getMessage()));
+    }
+
+    /**
+     * 200 with the write's response, flagged with a header when it was replayed from an earlier request
+     */
+    private static ResponseEntity<?> idempotentResponse(IdempotencyService.Result result) {
+        if (result.isReplayed()) {
+            return ResponseEntity.ok().header(IDEMPOTENT_REPLAYED_HEADER, "true").body(result.getBody());
+        }
+        return ResponseEntity.ok(result.getBody());
+    }
+
     // Inner classes for API responses
     public static class ApiResponse {
         private boolean success;
@@ -298,6 +468,55 @@ public class TransactionController {
         }
     }
 
+    public static class BatchItemResponse {
+        private int index;
+        private boolean success;
+        private String message;
+        private TransactionResponse transaction;
+
+        public BatchItemResponse(BatchDepositResultDTO result) {
+            this.index = result.getIndex();
+            this.success = result.isSuccess();
+            this.message = result.getMessage();
+            if (result.getTransaction() != null) {
+                this.transaction = new TransactionResponse(result.getTransaction());
+            }
+        }
+
+        // Getters and Setters
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public void setSuccess(boolean success) {
+            this.success = success;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+
+        public TransactionResponse getTransaction() {
+            return transaction;
+        }
+
+        public void setTransaction(TransactionResponse transaction) {
+            this.transaction = transaction;
+        }
+    }
+
     public static class BalanceResponse {
         private String component;
         private BigDecimal balance;
@@ -0,0 +1,63 @@
+package com.piggybank.dto;
+
+import com.piggybank.entity.Transaction;
+
+public class BatchDepositResultDTO {
+
+    private int index;
+    private boolean success;
+    private String message;
+    private Transaction transaction;
+
+    // Constructors
+    public BatchDepositResultDTO() {
+    }
+
+    public BatchDepositResultDTO(int index, boolean success, String message, Transaction transaction) {
+        this.index = index;
+        this.success = success;
+        this.message = message;
+        this.transaction = transaction;
+    }
+
+    public static BatchDepositResultDTO success(int index, Transaction transaction) {
+        return new BatchDepositResultDTO(index, true, "Deposit processed successfully", transaction);
+    }
+
+    public static BatchDepositResultDTO failure(int index, String message) {
+        return new BatchDepositResultDTO(index, false, message, null);
+    }
+
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public void setTransaction(Transaction transaction) {
+        this.transaction = transaction;
+    }
+}
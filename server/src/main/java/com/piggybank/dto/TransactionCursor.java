@@ -0,0 +1,68 @@
+package com.piggybank.dto;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Position in a kid's transaction history, handed to clients as an opaque token.
+ * Points at the last transaction of a page; the next page starts strictly after it
+ * in (transactionDate DESC, id DESC) order.
+ */
+public class TransactionCursor {
+
+    private static final int ENCODED_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    private final LocalDateTime transactionDate;
+    private final Long transactionId;
+
+    public TransactionCursor(LocalDateTime transactionDate, Long transactionId) {
+        this.transactionDate = transactionDate;
+        this.transactionId = transactionId;
+    }
+
+    /**
+     * Encode as a URL-safe token
+     */
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_BYTES);
+        buffer.putLong(transactionDate.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(transactionDate.getNano());
+        buffer.putLong(transactionId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}
+     */
+    public static TransactionCursor decode(String token) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (bytes.length != ENCODED_BYTES) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long epochSecond = buffer.getLong();
+        int nano = buffer.getInt();
+        long transactionId = buffer.getLong();
+        try {
+            return new TransactionCursor(LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC), transactionId);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public LocalDateTime getTransactionDate() {
+        return transactionDate;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+}
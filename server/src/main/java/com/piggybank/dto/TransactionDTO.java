@@ -2,6 +2,7 @@ package com.piggybank.dto;
 
 import com.piggybank.entity.Transaction;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
@@ -18,6 +19,7 @@ public class TransactionDTO {
 
     @NotNull(message = "Amount is required")
     @DecimalMin(value = "0.01", message = "Amount must be greater than 0")
+    @Digits(integer = 8, fraction = 2, message = "Amount must have at most 2 decimal places")
     private BigDecimal amount;
 
     private Transaction.ComponentType withdrawalComponent;
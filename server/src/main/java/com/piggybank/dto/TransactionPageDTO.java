@@ -0,0 +1,45 @@
+package com.piggybank.dto;
+
+import java.util.List;
+
+public class TransactionPageDTO {
+
+    private List<KidDetailsDTO.TransactionSummaryDTO> transactions;
+    private String nextCursor;
+    private boolean hasMore;
+
+    // Constructors
+    public TransactionPageDTO() {
+    }
+
+    public TransactionPageDTO(List<KidDetailsDTO.TransactionSummaryDTO> transactions, String nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    // Getters and Setters
+    public List<KidDetailsDTO.TransactionSummaryDTO> getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(List<KidDetailsDTO.TransactionSummaryDTO> transactions) {
+        this.transactions = transactions;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,81 @@
+package com.piggybank.dto;
+
+import com.piggybank.entity.UserSettings;
+import com.piggybank.service.DepositSplitEngine;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable copy of a user's settings, safe to share between threads through the settings cache
+ */
+public final class UserSettingsSnapshot {
+
+    private final Long userId;
+    private final BigDecimal charityPercentage;
+    private final BigDecimal spendPercentage;
+    private final BigDecimal savingsPercentage;
+    private final BigDecimal investmentPercentage;
+    private final int savingsMonthlyWithdrawalLimit;
+    private final int investmentMonthlyWithdrawalLimit;
+    private final DepositSplitEngine.SplitPlan splitPlan;
+
+    public UserSettingsSnapshot(Long userId, BigDecimal charityPercentage, BigDecimal spendPercentage,
+            BigDecimal savingsPercentage, BigDecimal investmentPercentage,
+            int savingsMonthlyWithdrawalLimit, int investmentMonthlyWithdrawalLimit) {
+        this.userId = userId;
+        this.charityPercentage = charityPercentage;
+        this.spendPercentage = spendPercentage;
+        this.savingsPercentage = savingsPercentage;
+        this.investmentPercentage = investmentPercentage;
+        this.savingsMonthlyWithdrawalLimit = savingsMonthlyWithdrawalLimit;
+        this.investmentMonthlyWithdrawalLimit = investmentMonthlyWithdrawalLimit;
+        this.splitPlan = DepositSplitEngine.compile(charityPercentage, spendPercentage,
+                savingsPercentage, investmentPercentage);
+    }
+
+    public static UserSettingsSnapshot from(UserSettings settings) {
+        return new UserSettingsSnapshot(
+                settings.getUserId(),
+                settings.getCharityPercentage(),
+                settings.getSpendPercentage(),
+                settings.getSavingsPercentage(),
+                settings.getInvestmentPercentage(),
+                settings.getSavingsMonthlyWithdrawalLimit(),
+                settings.getInvestmentMonthlyWithdrawalLimit());
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public BigDecimal getCharityPercentage() {
+        return charityPercentage;
+    }
+
+    public BigDecimal getSpendPercentage() {
+        return spendPercentage;
+    }
+
+    public BigDecimal getSavingsPercentage() {
+        return savingsPercentage;
+    }
+
+    public BigDecimal getInvestmentPercentage() {
+        return investmentPercentage;
+    }
+
+    public int getSavingsMonthlyWithdrawalLimit() {
+        return savingsMonthlyWithdrawalLimit;
+    }
+
+    public int getInvestmentMonthlyWithdrawalLimit() {
+        return investmentMonthlyWithdrawalLimit;
+    }
+
+    /**
+     * Deposit split plan compiled from the percentages when the snapshot was built
+     */
+    public DepositSplitEngine.SplitPlan getSplitPlan() {
+        return splitPlan;
+    }
+}
@@ -0,0 +1,204 @@
+package com.piggybank.entity;
+
+import com.piggybank.entity.id.TimeOrderedId;
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A kid whose kid_balances row did not match the transactions ledger during a
+ * reconciliation run: the balances summed from the ledger next to the recorded ones
+ */
+@Entity
+@Table(name = "balance_discrepancies", indexes = {
+        @Index(name = "idx_balance_discrepancies_run_id", columnList = "run_id"),
+        @Index(name = "idx_balance_discrepancies_kid_id", columnList = "kid_id")
+})
+public class BalanceDiscrepancy {
+
+    @Id
+    @TimeOrderedId
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "kid_id", nullable = false)
+    private Long kidId;
+
+    // Newest ledger row the balances were compared at; the snapshot position for LEDGER balances
+    @Column(name = "ledger_transaction_id", nullable = false)
+    private Long ledgerTransactionId;
+
+    @Column(name = "ledger_charity", precision = 12, scale = 2, nullable = false)
+    private BigDecimal ledgerCharity;
+
+    @Column(name = "ledger_spend", precision = 12, scale = 2, nullable = false)
+    private BigDecimal ledgerSpend;
+
+    @Column(name = "ledger_savings", precision = 12, scale = 2, nullable = false)
+    private BigDecimal ledgerSavings;
+
+    @Column(name = "ledger_investment", precision = 12, scale = 2, nullable = false)
+    private BigDecimal ledgerInvestment;
+
+    // Recorded balances are null when the kid had no kid_balances row
+    @Column(name = "recorded_charity", precision = 10, scale = 2)
+    private BigDecimal recordedCharity;
+
+    @Column(name = "recorded_spend", precision = 10, scale = 2)
+    private BigDecimal recordedSpend;
+
+    @Column(name = "recorded_savings", precision = 10, scale = 2)
+    private BigDecimal recordedSavings;
+
+    @Column(name = "recorded_investment", precision = 10, scale = 2)
+    private BigDecimal recordedInvestment;
+
+    @Column(name = "recorded_total", precision = 10, scale = 2)
+    private BigDecimal recordedTotal;
+
+    @Column(name = "detected_at", nullable = false)
+    private LocalDateTime detectedAt;
+
+    // Set when the row was overwritten with the ledger balances
+    @Column(name = "repaired_at")
+    private LocalDateTime repairedAt;
+
+    // Constructors
+    public BalanceDiscrepancy() {
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getRunId() {
+        return runId;
+    }
+
+    public void setRunId(Long runId) {
+        this.runId = runId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getKidId() {
+        return kidId;
+    }
+
+    public void setKidId(Long kidId) {
+        this.kidId = kidId;
+    }
+
+    public Long getLedgerTransactionId() {
+        return ledgerTransactionId;
+    }
+
+    public void setLedgerTransactionId(Long ledgerTransactionId) {
+        this.ledgerTransactionId = ledgerTransactionId;
+    }
+
+    public BigDecimal getLedgerCharity() {
+        return ledgerCharity;
+    }
+
+    public void setLedgerCharity(BigDecimal ledgerCharity) {
+        this.ledgerCharity = ledgerCharity;
+    }
+
+    public BigDecimal getLedgerSpend() {
+        return ledgerSpend;
+    }
+
+    public void setLedgerSpend(BigDecimal ledgerSpend) {
+        this.ledgerSpend = ledgerSpend;
+    }
+
+    public BigDecimal getLedgerSavings() {
+        return ledgerSavings;
+    }
+
+    public void setLedgerSavings(BigDecimal ledgerSavings) {
+        this.ledgerSavings = ledgerSavings;
+    }
+
+    public BigDecimal getLedgerInvestment() {
+        return ledgerInvestment;
+    }
+
+    public void setLedgerInvestment(BigDecimal ledgerInvestment) {
+        this.ledgerInvestment = ledgerInvestment;
+    }
+
+    public BigDecimal getRecordedCharity() {
+        return recordedCharity;
+    }
+
+    public void setRecordedCharity(BigDecimal recordedCharity) {
+        this.recordedCharity = recordedCharity;
+    }
+
+    public BigDecimal getRecordedSpend() {
+        return recordedSpend;
+    }
+
+    public void setRecordedSpend(BigDecimal recordedSpend) {
+        this.recordedSpend = recordedSpend;
+    }
+
+    public BigDecimal getRecordedSavings() {
+        return recordedSavings;
+    }
+
+    public void setRecordedSavings(BigDecimal recordedSavings) {
+        this.recordedSavings = recordedSavings;
+    }
+
+    public BigDecimal getRecordedInvestment() {
+        return recordedInvestment;
+    }
+
+    public void setRecordedInvestment(BigDecimal recordedInvestment) {
+        this.recordedInvestment = recordedInvestment;
+    }
+
+    public BigDecimal getRecordedTotal() {
+        return recordedTotal;
+    }
+
+    public void setRecordedTotal(BigDecimal recordedTotal) {
+        this.recordedTotal = recordedTotal;
+    }
+
+    public LocalDateTime getDetectedAt() {
+        return detectedAt;
+    }
+
+    public void setDetectedAt(LocalDateTime detectedAt) {
+        this.detectedAt = detectedAt;
+    }
+
+    public LocalDateTime getRepairedAt() {
+        return repairedAt;
+    }
+
+    public void setRepairedAt(LocalDateTime repairedAt) {
+        this.repairedAt = repairedAt;
+    }
+}
@@ -1,6 +1,7 @@
 package com.piggybank.entity;
 
 import com.piggybank.entity.base.AuditableEntity;
+import com.piggybank.entity.id.TimeOrderedId;
 import jakarta.persistence.*;
 import org.hibernate.envers.AuditOverride;
 import org.hibernate.envers.Audited;
@@ -13,7 +14,7 @@ import java.time.LocalDateTime;
 @AuditOverride(forClass = AuditableEntity.class)
 public class Kid extends AuditableEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @Column(nullable = false)
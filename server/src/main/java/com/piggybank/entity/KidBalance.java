@@ -1,19 +1,26 @@
 package com.piggybank.entity;
 
+import com.piggybank.entity.id.TimeOrderedId;
 import jakarta.persistence.*;
-import org.hibernate.envers.Audited;
-import org.hibernate.envers.RelationTargetAuditMode;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+/**
+ * A kid's current balances, derived from the transactions ledger. Not audited with Envers:
+ * balances only change through atomic bulk UPDATEs, which Envers never sees. Their history
+ * is the transactions ledger; kid_balances_aud only holds revisions written before that
+ * change. Ledger rows written through Hibernate also get transactions_aud revisions, but
+ * deposits written by the JDBC fast path (piggybank.deposit.jdbc-fast-path.enabled) do not.
+ */
 @Entity
-@Table(name = "kid_balances")
-@Audited(targetAuditMode = RelationTargetAuditMode.NOT_AUDITED)
+@Table(name = "kid_balances", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_kid_balances_user_kid", columnNames = { "user_id", "kid_id" })
+})
 public class KidBalance {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @Column(name = "user_id", nullable = false)
@@ -37,6 +44,14 @@ public class KidBalance {
     @Column(name = "total_balance", precision = 10, scale = 2, nullable = false)
     private BigDecimal totalBalance;
 
+    /**
+     * With piggybank.balance.source=LEDGER, the id of the last ledger transaction included
+     * in the balances above; later transactions are added on read. Null while the row
+     * itself is kept up to date (ROW).
+     */
+    @Column(name = "last_applied_transaction_id")
+    private Long lastAppliedTransactionId;
+
     @Column(name = "last_updated", nullable = false)
     private LocalDateTime lastUpdated;
 
@@ -173,6 +188,14 @@ public class KidBalance {
         this.totalBalance = totalBalance;
     }
 
+    public Long getLastAppliedTransactionId() {
+        return lastAppliedTransactionId;
+    }
+
+    public void setLastAppliedTransactionId(Long lastAppliedTransactionId) {
+        this.lastAppliedTransactionId = lastAppliedTransactionId;
+    }
+
     public LocalDateTime getLastUpdated() {
         return lastUpdated;
     }
@@ -0,0 +1,172 @@
+package com.piggybank.entity;
+
+import com.piggybank.entity.id.TimeOrderedId;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One pass of BalanceReconciliationService over every kid. The checkpoint is the highest
+ * kid ID up to which every kid has been checked, so an interrupted run resumes from there.
+ * A running run is leased to the instance working on it until lease_until.
+ */
+@Entity
+@Table(name = "reconciliation_runs")
+public class ReconciliationRun {
+
+    @Id
+    @TimeOrderedId
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status;
+
+    @Column(name = "checkpoint_kid_id", nullable = false)
+    private Long checkpointKidId;
+
+    @Column(name = "kids_checked", nullable = false)
+    private Long kidsChecked;
+
+    @Column(name = "ledger_rows", nullable = false)
+    private Long ledgerRows;
+
+    @Column(name = "discrepancies", nullable = false)
+    private Long discrepancies;
+
+    @Column(name = "repaired", nullable = false)
+    private Long repaired;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // Instance that holds or last held the lease
+    @Column(name = "owner")
+    private String owner;
+
+    // Null once the run has completed
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    // Constructors
+    public ReconciliationRun() {
+    }
+
+    public ReconciliationRun(LocalDateTime startedAt) {
+        this.status = Status.RUNNING;
+        this.checkpointKidId = 0L;
+        this.kidsChecked = 0L;
+        this.ledgerRows = 0L;
+        this.discrepancies = 0L;
+        this.repaired = 0L;
+        this.startedAt = startedAt;
+        this.updatedAt = startedAt;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getCheckpointKidId() {
+        return checkpointKidId;
+    }
+
+    public void setCheckpointKidId(Long checkpointKidId) {
+        this.checkpointKidId = checkpointKidId;
+    }
+
+    public Long getKidsChecked() {
+        return kidsChecked;
+    }
+
+    public void setKidsChecked(Long kidsChecked) {
+        this.kidsChecked = kidsChecked;
+    }
+
+    public Long getLedgerRows() {
+        return ledgerRows;
+    }
+
+    public void setLedgerRows(Long ledgerRows) {
+        this.ledgerRows = ledgerRows;
+    }
+
+    public Long getDiscrepancies() {
+        return discrepancies;
+    }
+
+    public void setDiscrepancies(Long discrepancies) {
+        this.discrepancies = discrepancies;
+    }
+
+    public Long getRepaired() {
+        return repaired;
+    }
+
+    public void setRepaired(Long repaired) {
+        this.repaired = repaired;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(LocalDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    public enum Status {
+        RUNNING, COMPLETED
+    }
+}
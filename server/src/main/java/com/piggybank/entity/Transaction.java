@@ -1,5 +1,6 @@
 package com.piggybank.entity;
 
+import com.piggybank.entity.id.TimeOrderedId;
 import jakarta.persistence.*;
 import org.hibernate.envers.Audited;
 import org.hibernate.envers.RelationTargetAuditMode;
@@ -8,12 +9,14 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_user_kid_date_id", columnList = "user_id, kid_id, transaction_date, id")
+})
 @Audited(targetAuditMode = RelationTargetAuditMode.NOT_AUDITED)
 public class Transaction {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
     
     @Column(name = "user_id", nullable = false)
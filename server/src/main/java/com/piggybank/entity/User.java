@@ -1,6 +1,7 @@
 package com.piggybank.entity;
 
 import com.piggybank.entity.base.AuditableEntity;
+import com.piggybank.entity.id.TimeOrderedId;
 import jakarta.persistence.*;
 import org.hibernate.envers.AuditOverride;
 import org.hibernate.envers.Audited;
@@ -14,7 +15,7 @@ import java.util.List;
 @AuditOverride(forClass = AuditableEntity.class)
 public class User extends AuditableEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -26,6 +27,7 @@ public class User extends AuditableEntity {
     @Column(nullable = false)
     private String pinHash;
 
+    // Logins are no longer written here; see UserLoginStats
     @Column(name = "last_login")
     private LocalDateTime lastLogin;
 
@@ -0,0 +1,53 @@
+package com.piggybank.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Last login time and login count per user. Kept out of the audited users table so
+ * logins do not create Envers revisions; written in batches by LoginActivityRecorder.
+ */
+@Entity
+@Table(name = "user_login_stats")
+public class UserLoginStats {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "last_login", nullable = false)
+    private LocalDateTime lastLogin;
+
+    @Column(name = "login_count", nullable = false)
+    private Long loginCount;
+
+    // Constructors
+    public UserLoginStats() {
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getLastLogin() {
+        return lastLogin;
+    }
+
+    public void setLastLogin(LocalDateTime lastLogin) {
+        this.lastLogin = lastLogin;
+    }
+
+    public Long getLoginCount() {
+        return loginCount;
+    }
+
+    public void setLoginCount(Long loginCount) {
+        this.loginCount = loginCount;
+    }
+}
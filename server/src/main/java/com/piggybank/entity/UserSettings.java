@@ -1,5 +1,6 @@
 package com.piggybank.entity;
 
+import com.piggybank.entity.id.TimeOrderedId;
 import jakarta.persistence.*;
 import org.hibernate.envers.Audited;
 import org.hibernate.envers.RelationTargetAuditMode;
@@ -13,7 +14,7 @@ import java.time.LocalDateTime;
 public class UserSettings {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
     
     @Column(name = "user_id", nullable = false)
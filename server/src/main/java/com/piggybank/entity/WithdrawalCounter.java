@@ -0,0 +1,121 @@
+package com.piggybank.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Number of withdrawals made from a limited component (Savings or Investment)
+ * for one kid in one calendar month. Maintained inside the withdrawal transaction
+ * so the monthly limit check does not have to count the ledger.
+ */
+@Entity
+@Table(name = "withdrawal_counters")
+@IdClass(WithdrawalCounter.Key.class)
+public class WithdrawalCounter {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Id
+    @Column(name = "kid_id", nullable = false)
+    private Long kidId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "component", nullable = false)
+    private Transaction.ComponentType component;
+
+    // Calendar month as yyyymm, e.g. 202510
+    @Id
+    @Column(name = "period", nullable = false)
+    private Integer period;
+
+    @Column(name = "withdrawal_count", nullable = false)
+    private Integer withdrawalCount;
+
+    // Constructors
+    public WithdrawalCounter() {
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getKidId() {
+        return kidId;
+    }
+
+    public void setKidId(Long kidId) {
+        this.kidId = kidId;
+    }
+
+    public Transaction.ComponentType getComponent() {
+        return component;
+    }
+
+    public void setComponent(Transaction.ComponentType component) {
+        this.component = component;
+    }
+
+    public Integer getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(Integer period) {
+        this.period = period;
+    }
+
+    public Integer getWithdrawalCount() {
+        return withdrawalCount;
+    }
+
+    public void setWithdrawalCount(Integer withdrawalCount) {
+        this.withdrawalCount = withdrawalCount;
+    }
+
+    /**
+     * Composite primary key: (user_id, kid_id, component, period)
+     */
+    public static class Key implements Serializable {
+
+        private Long userId;
+        private Long kidId;
+        private Transaction.ComponentType component;
+        private Integer period;
+
+        public Key() {
+        }
+
+        public Key(Long userId, Long kidId, Transaction.ComponentType component, Integer period) {
+            this.userId = userId;
+            this.kidId = kidId;
+            this.component = component;
+            this.period = period;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(userId, key.userId) && Objects.equals(kidId, key.kidId)
+                    && component == key.component && Objects.equals(period, key.period);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, kidId, component, period);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.piggybank.entity.id;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * Hibernate generator behind {@link TimeOrderedId}. Ids are assigned before the
+ * insert, so Hibernate can batch inserts for entities that use it.
+ */
+public class TimeOrderedIdGenerator implements IdentifierGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return TimeOrderedIds.nextId();
+    }
+}
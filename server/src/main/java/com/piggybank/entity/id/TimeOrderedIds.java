@@ -0,0 +1,92 @@
+package com.piggybank.entity.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Source of application-generated, time-ordered ids.
+ *
+ * Layout (53 bits): 41 bits of milliseconds since 2024-01-01T00:00:00Z, 4 bits of
+ * node id and 8 bits of per-millisecond sequence. Keeping ids below 2^53 means the
+ * mobile app can hold them as plain JavaScript numbers without losing precision.
+ * The node id comes from the piggybank.node-id system property or the
+ * PIGGYBANK_NODE_ID environment variable and must be unique per running instance, so at
+ * most 16 instances (node ids 0-15) can write to one database at a time. Unset, it is 0;
+ * NodeIdConfig refuses to start the server that way outside dev and test.
+ */
+public final class TimeOrderedIds {
+
+    public static final long EPOCH_MILLIS = 1704067200000L;
+
+    private static final int NODE_BITS = 4;
+    private static final int SEQUENCE_BITS = 8;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final String CONFIGURED_NODE_ID =
+            System.getProperty("piggybank.node-id", System.getenv("PIGGYBANK_NODE_ID"));
+    private static final long NODE_ID = resolveNodeId();
+
+    // (millis since epoch << SEQUENCE_BITS) | sequence of the last id handed out
+    private static final AtomicLong lastState = new AtomicLong();
+
+    private TimeOrderedIds() {
+    }
+
+    /**
+     * Next id, strictly greater than any id previously returned by this JVM
+     */
+    public static long nextId() {
+        while (true) {
+            long previous = lastState.get();
+            long candidate = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+            // Within the same millisecond bump the sequence; on overflow this borrows the next millisecond
+            long next = Math.max(candidate, previous + 1);
+            if (lastState.compareAndSet(previous, next)) {
+                return compose(next >>> SEQUENCE_BITS, NODE_ID, next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Make every later id from this JVM greater than the given id, which may come from
+     * another node whose clock is ahead of this one
+     */
+    public static void observe(long id) {
+        // The last state of id's millisecond, so the next id starts in the millisecond after it
+        long observed = (((id >>> (NODE_BITS + SEQUENCE_BITS)) + 1) << SEQUENCE_BITS) - 1;
+        lastState.accumulateAndGet(observed, Math::max);
+    }
+
+    /**
+     * Whether a node id was configured rather than defaulted to 0
+     */
+    public static boolean isNodeIdConfigured() {
+        return CONFIGURED_NODE_ID != null && !CONFIGURED_NODE_ID.isBlank();
+    }
+
+    public static long nodeId() {
+        return NODE_ID;
+    }
+
+    /**
+     * Smallest id any node can generate at the given wall-clock time
+     */
+    public static long lowestIdAt(long epochMillis) {
+        return compose(Math.max(0, epochMillis - EPOCH_MILLIS), 0, 0);
+    }
+
+    private static long compose(long millis, long nodeId, long sequence) {
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    private static long resolveNodeId() {
+        if (!isNodeIdConfigured()) {
+            return 0;
+        }
+        long nodeId = Long.parseLong(CONFIGURED_NODE_ID.trim());
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        return nodeId;
+    }
+}
@@ -1,27 +1,41 @@
 package com.piggybank.filter;
 
-import com.piggybank.service.LoggingService;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+import static net.logstash.logback.argument.StructuredArguments.value;
+
+/**
+ * Assigns each request an ID and writes one access log event when it completes.
+ * Errors and slow requests are always logged; fast successful ones are sampled.
+ */
 @Component
 @Order(1)
 public class RequestLoggingFilter implements Filter {
     
+    public static final String REQUEST_ID_HEADER = "X-Request-ID";
+    
     private static final Logger logger = LoggerFactory.getLogger(RequestLoggingFilter.class);
     
     @Autowired
-    private LoggingService loggingService;
+    private RequestIdGenerator requestIdGenerator;
+    
+    @Value("${piggybank.access-log.sample-rate:0.1}")
+    private double sampleRate;
+    
+    @Value("${piggybank.access-log.slow-threshold-ms:1000}")
+    private long slowThresholdMillis;
     
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
@@ -30,49 +44,51 @@ public class RequestLoggingFilter implements Filter {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
         
-        // Generate unique request ID
-        String requestId = UUID.randomUUID().toString().substring(0, 8);
+        // Reuse the caller's request ID when present so logs correlate across services
+        String requestId = requestIdGenerator.resolve(httpRequest.getHeader(REQUEST_ID_HEADER));
         
         // Start time
-        long startTime = System.currentTimeMillis();
-        
-        // Log request start
-        logger.info("Request started - ID: {}, Method: {}, URI: {}, IP: {}, User-Agent: {}", 
-                requestId, 
-                httpRequest.getMethod(), 
-                httpRequest.getRequestURI(),
-                getClientIpAddress(httpRequest),
-                httpRequest.getHeader("User-Agent"));
+        long startTime = System.nanoTime();
         
         try {
             // Add request ID to response headers
-            httpResponse.setHeader("X-Request-ID", requestId);
+            httpResponse.setHeader(REQUEST_ID_HEADER, requestId);
             
             // Continue with the filter chain
             chain.doFilter(request, response);
             
         } finally {
-            // Calculate duration
-            long duration = System.currentTimeMillis() - startTime;
-            
-            // Log request completion
-            logger.info("Request completed - ID: {}, Status: {}, Duration: {}ms", 
-                    requestId, 
-                    httpResponse.getStatus(), 
-                    duration);
+            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            int status = httpResponse.getStatus();
+            boolean slow = duration >= slowThresholdMillis;
             
-            // Log API request for audit
-            String phoneNumber = extractPhoneNumberFromRequest(httpRequest);
-            loggingService.logApiRequest(
-                httpRequest.getMethod(),
-                httpRequest.getRequestURI(),
-                phoneNumber,
-                httpResponse.getStatus(),
-                duration
-            );
+            if (status >= 400 || slow) {
+                logger.warn("Request {} {} {} - Status: {} - Duration: {}ms", 
+                        accessLogArguments(requestId, httpRequest, status, duration));
+            } else if (isSampled()) {
+                logger.info("Request {} {} {} - Status: {} - Duration: {}ms", 
+                        accessLogArguments(requestId, httpRequest, status, duration));
+            }
         }
     }
     
+    private boolean isSampled() {
+        return sampleRate >= 1.0 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+    
+    private Object[] accessLogArguments(String requestId, HttpServletRequest request, int status, long duration) {
+        return new Object[] {
+                value("requestId", requestId),
+                value("apiMethod", request.getMethod()),
+                value("apiEndpoint", request.getRequestURI()),
+                value("statusCode", status),
+                value("duration", duration),
+                value("clientIp", getClientIpAddress(request)),
+                value("phoneNumber", extractPhoneNumberFromRequest(request)),
+                value("userAgent", request.getHeader("User-Agent"))
+        };
+    }
+    
     private String getClientIpAddress(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
@@ -97,4 +113,17 @@ public class RequestLoggingFilter implements Filter {
         }
         return "anonymous";
     }
-} 
\ No newline at end of file
+    
+    // Setter methods for configuration
+    public void setRequestIdGenerator(RequestIdGenerator requestIdGenerator) {
+        this.requestIdGenerator = requestIdGenerator;
+    }
+    
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+    
+    public void setSlowThresholdMillis(long slowThresholdMillis) {
+        this.slowThresholdMillis = slowThresholdMillis;
+    }
+}
@@ -0,0 +1,28 @@
+package com.piggybank.repository;
+
+import com.piggybank.entity.BalanceDiscrepancy;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface BalanceDiscrepancyRepository extends JpaRepository<BalanceDiscrepancy, Long> {
+
+    /**
+     * Discrepancies found by one reconciliation run, in kid order
+     */
+    List<BalanceDiscrepancy> findByRunIdOrderByKidId(Long runId);
+
+    /**
+     * Delete a run's discrepancies past its checkpoint, before those kids are checked again
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM balance_discrepancies WHERE run_id = :runId AND kid_id > :kidId", nativeQuery = true)
+    int deleteByRunIdAfterKid(@Param("runId") Long runId, @Param("kidId") Long kidId);
+}
@@ -0,0 +1,579 @@
+package com.piggybank.repository;
+
+import com.piggybank.dto.KidBalanceDTO;
+import com.piggybank.entity.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Ledger-based balances (piggybank.balance.source=LEDGER). A kid's balance is its
+ * kid_balances snapshot plus the ledger rows after the snapshot's last_applied_transaction_id.
+ * The ledger range reads seek on idx_transactions_user_kid, which InnoDB extends with the
+ * primary key, so they only touch transactions newer than the snapshot.
+ */
+@Repository
+public class KidBalanceJdbcRepository {
+
+    /**
+     * Signed per-component sums of ledger rows: a deposit adds to every component and a
+     * withdrawal subtracts from its own component. Followed by the newest id and date.
+     */
+    private static final String LEDGER_SUMS = "" +
+            "COALESCE(SUM(CASE WHEN t.transaction_type = 'DEPOSIT' THEN t.charity_amount " +
+            "WHEN t.withdrawal_component = 'CHARITY' THEN -t.withdrawal_amount ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN t.transaction_type = 'DEPOSIT' THEN t.spend_amount " +
+            "WHEN t.withdrawal_component = 'SPEND' THEN -t.withdrawal_amount ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN t.transaction_type = 'DEPOSIT' THEN t.savings_amount " +
+            "WHEN t.withdrawal_component = 'SAVINGS' THEN -t.withdrawal_amount ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN t.transaction_type = 'DEPOSIT' THEN t.investment_amount " +
+            "WHEN t.withdrawal_component = 'INVESTMENT' THEN -t.withdrawal_amount ELSE 0 END), 0), " +
+            "MAX(t.id), MAX(t.transaction_date)";
+
+    private static final String SELECT_SNAPSHOTS_SQL = "SELECT k.id, k.name, k.age, " +
+            "kb.charity_balance, kb.spend_balance, kb.savings_balance, kb.investment_balance, " +
+            "kb.last_updated, kb.last_applied_transaction_id " +
+            "FROM kids k LEFT JOIN kid_balances kb ON kb.kid_id = k.id AND kb.user_id = k.user_id " +
+            "WHERE k.user_id = ?";
+
+    private static final String LOCK_SNAPSHOT_SQL = "SELECT charity_balance, spend_balance, savings_balance, " +
+            "investment_balance, last_applied_transaction_id " +
+            "FROM kid_balances WHERE user_id = ? AND kid_id = ? FOR UPDATE";
+
+    /**
+     * A locking read returns the latest committed rows even when the surrounding
+     * transaction's snapshot is older, so no withdrawal committed before the caller
+     * locked the kid's snapshot row can be missed
+     */
+    private static final String LOCK_LEDGER_SQL = "SELECT transaction_type, withdrawal_component, " +
+            "charity_amount, spend_amount, savings_amount, investment_amount, withdrawal_amount " +
+            "FROM transactions WHERE user_id = ? AND kid_id = ? AND id > ? FOR UPDATE";
+
+    private static final String CREATE_SNAPSHOT_SQL = "INSERT INTO kid_balances (id, user_id, kid_id, " +
+            "charity_balance, spend_balance, savings_balance, investment_balance, total_balance, " +
+            "last_applied_transaction_id, last_updated, created_at, updated_at, created_by, updated_by) " +
+            "VALUES (?, ?, ?, 0, 0, 0, 0, 0, 0, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE user_id = user_id";
+
+    /**
+     * Guarded by the snapshot's previous position, so two snapshot runs can never apply
+     * the same ledger rows twice; a row moved on by another run is left alone
+     */
+    private static final String APPLY_SNAPSHOT_SQL = "UPDATE kid_balances SET " +
+            "charity_balance = charity_balance + ?, " +
+            "spend_balance = spend_balance + ?, " +
+            "savings_balance = savings_balance + ?, " +
+            "investment_balance = investment_balance + ?, " +
+            "total_balance = total_balance + ?, " +
+            "last_updated = GREATEST(last_updated, ?), " +
+            "updated_at = ?, " +
+            "updated_by = ?, " +
+            "last_applied_transaction_id = ? " +
+            "WHERE id = ? AND last_applied_transaction_id = ?";
+
+    /**
+     * Each kid's kid_balances row next to its ledger, summed by the same statement so both
+     * come from one consistent read. A snapshot (LEDGER balances) is compared with the
+     * ledger up to its position; ROW balances and missing rows with the whole ledger.
+     */
+    private static final String SELECT_BALANCE_CHECKS_SQL = "SELECT k.id, k.user_id, kb.id, " +
+            "kb.charity_balance, kb.spend_balance, kb.savings_balance, kb.investment_balance, " +
+            "kb.total_balance, kb.last_applied_transaction_id, COUNT(t.id), " + LEDGER_SUMS +
+            " FROM kids k LEFT JOIN kid_balances kb ON kb.kid_id = k.id AND kb.user_id = k.user_id " +
+            "LEFT JOIN transactions t ON t.user_id = k.user_id AND t.kid_id = k.id " +
+            "AND (kb.last_applied_transaction_id IS NULL OR t.id <= kb.last_applied_transaction_id) " +
+            "WHERE k.id IN (%s) " +
+            "GROUP BY k.id, k.user_id, kb.id, kb.charity_balance, kb.spend_balance, kb.savings_balance, " +
+            "kb.investment_balance, kb.total_balance, kb.last_applied_transaction_id ORDER BY k.id";
+
+    private static final String OVERWRITE_BALANCE_SQL = "UPDATE kid_balances SET " +
+            "charity_balance = ?, spend_balance = ?, savings_balance = ?, investment_balance = ?, " +
+            "total_balance = ?, updated_at = ?, updated_by = ? " +
+            "WHERE user_id = ? AND kid_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Balances of all of a user's kids, newest kid first. Kids without a snapshot row
+     * are summed from their whole ledger.
+     */
+    public List<KidBalanceDTO> findBalanceSummaries(Long userId) {
+        List<Snapshot> snapshots = jdbcTemplate.query(SELECT_SNAPSHOTS_SQL + " ORDER BY k.created_date DESC",
+                (rs, rowNum) -> mapSnapshot(rs), userId);
+        return addLedger(userId, snapshots);
+    }
+
+    /**
+     * Balance of one kid, empty if the kid does not belong to the user
+     */
+    public Optional<KidBalanceDTO> findBalanceSummary(Long userId, Long kidId) {
+        List<Snapshot> snapshots = jdbcTemplate.query(SELECT_SNAPSHOTS_SQL + " AND k.id = ?",
+                (rs, rowNum) -> mapSnapshot(rs), userId, kidId);
+        return addLedger(userId, snapshots).stream().findFirst();
+    }
+
+    private List<KidBalanceDTO> addLedger(Long userId, List<Snapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return List.of();
+        }
+
+        // One statement for all kids; each (kid_id, id) pair is its own index range
+        StringBuilder sql = new StringBuilder("SELECT t.kid_id, ").append(LEDGER_SUMS)
+                .append(" FROM transactions t WHERE t.user_id = ? AND (");
+        List<Object> args = new ArrayList<>(1 + snapshots.size() * 2);
+        args.add(userId);
+        for (int i = 0; i < snapshots.size(); i++) {
+            sql.append(i == 0 ? "" : " OR ").append("(t.kid_id = ? AND t.id > ?)");
+            args.add(snapshots.get(i).kidId);
+            args.add(snapshots.get(i).lastAppliedTransactionId);
+        }
+        sql.append(") GROUP BY t.kid_id");
+
+        Map<Long, LedgerDelta> deltas = new HashMap<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            LedgerDelta delta = mapDelta(rs, 2);
+            delta.kidId = rs.getLong(1);
+            deltas.put(delta.kidId, delta);
+        }, args.toArray());
+
+        List<KidBalanceDTO> balances = new ArrayList<>(snapshots.size());
+        for (Snapshot snapshot : snapshots) {
+            LedgerDelta delta = deltas.get(snapshot.kidId);
+            if (delta != null) {
+                snapshot.add(delta);
+            }
+            balances.add(snapshot.toBalance());
+        }
+        return balances;
+    }
+
+    /**
+     * Lock a kid's snapshot row for the rest of the transaction and return it,
+     * empty if the kid has none yet
+     */
+    public Optional<Snapshot> lockSnapshot(Long userId, Long kidId) {
+        return jdbcTemplate.query(LOCK_SNAPSHOT_SQL, (rs, rowNum) -> {
+            Snapshot snapshot = new Snapshot();
+            snapshot.kidId = kidId;
+            snapshot.charityBalance = rs.getBigDecimal(1);
+            snapshot.spendBalance = rs.getBigDecimal(2);
+            snapshot.savingsBalance = rs.getBigDecimal(3);
+            snapshot.investmentBalance = rs.getBigDecimal(4);
+            snapshot.lastAppliedTransactionId = rs.getLong(5);
+            return snapshot;
+        }, userId, kidId).stream().findFirst();
+    }
+
+    /**
+     * Lock the given kids' snapshot rows for the rest of the transaction, in kid order so
+     * that lockers of overlapping sets cannot deadlock. Kids without a snapshot are skipped.
+     */
+    public void lockSnapshots(Collection<Long> kidIds) {
+        jdbcTemplate.queryForList("SELECT id FROM kid_balances WHERE kid_id IN (" + placeholders(kidIds.size()) +
+                ") ORDER BY kid_id FOR UPDATE", Long.class, kidIds.toArray());
+    }
+
+    /**
+     * Sum the kid's ledger rows after the given id with a locking read
+     */
+    public LedgerDelta lockLedgerAfter(Long userId, Long kidId, long afterTransactionId) {
+        LedgerDelta delta = new LedgerDelta();
+        delta.kidId = kidId;
+        jdbcTemplate.query(LOCK_LEDGER_SQL, rs -> {
+            if (Transaction.TransactionType.DEPOSIT.name().equals(rs.getString(1))) {
+                delta.charityAmount = delta.charityAmount.add(rs.getBigDecimal(3));
+                delta.spendAmount = delta.spendAmount.add(rs.getBigDecimal(4));
+                delta.savingsAmount = delta.savingsAmount.add(rs.getBigDecimal(5));
+                delta.investmentAmount = delta.investmentAmount.add(rs.getBigDecimal(6));
+            } else {
+                delta.add(Transaction.ComponentType.valueOf(rs.getString(2)), rs.getBigDecimal(7).negate());
+            }
+        }, userId, kidId, afterTransactionId);
+        return delta;
+    }
+
+    /**
+     * Create an all-zero snapshot that includes no ledger rows yet. Safe to race:
+     * concurrent callers fall through the unique key instead of failing.
+     */
+    public void createSnapshotIfAbsent(Long id, Long userId, Long kidId, LocalDateTime now, String createdBy) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        jdbcTemplate.update(CREATE_SNAPSHOT_SQL, id, userId, kidId, timestamp, timestamp, timestamp,
+                createdBy, createdBy);
+    }
+
+    /**
+     * Of the given kids, those without a kid_balances row, as [kidId, userId] pairs
+     */
+    public List<Long[]> findKidsWithoutSnapshot(Collection<Long> kidIds) {
+        return jdbcTemplate.query("SELECT k.id, k.user_id FROM kids k " +
+                "LEFT JOIN kid_balances kb ON kb.kid_id = k.id AND kb.user_id = k.user_id " +
+                "WHERE k.id IN (" + placeholders(kidIds.size()) + ") AND kb.id IS NULL",
+                (rs, rowNum) -> new Long[] { rs.getLong(1), rs.getLong(2) }, kidIds.toArray());
+    }
+
+    /**
+     * Kids with ledger rows after the given id
+     */
+    public List<Long> findKidIdsWithTransactionsAfter(long afterTransactionId) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT kid_id FROM transactions WHERE id > ?",
+                Long.class, afterTransactionId);
+    }
+
+    /**
+     * Ledger rows up to the given id not yet in the given kids' snapshots, one entry per
+     * snapshot row in kid order. Rows without a snapshot position (ROW balances) are skipped.
+     * Call with the snapshot rows locked, so no withdrawal for these kids is in flight, and
+     * with an id no deposit still in flight can have.
+     */
+    public List<LedgerDelta> findPendingSnapshots(Collection<Long> kidIds, long upToTransactionId) {
+        List<Object> args = new ArrayList<>(kidIds.size() + 1);
+        args.add(upToTransactionId);
+        args.addAll(kidIds);
+        return jdbcTemplate.query("SELECT kb.id, kb.kid_id, kb.last_applied_transaction_id, " + LEDGER_SUMS +
+                " FROM kid_balances kb JOIN transactions t ON t.user_id = kb.user_id AND t.kid_id = kb.kid_id " +
+                "AND t.id > kb.last_applied_transaction_id AND t.id <= ? " +
+                "WHERE kb.kid_id IN (" + placeholders(kidIds.size()) + ") " +
+                "AND kb.last_applied_transaction_id IS NOT NULL " +
+                "GROUP BY kb.id, kb.kid_id, kb.last_applied_transaction_id ORDER BY kb.kid_id",
+                (rs, rowNum) -> {
+                    LedgerDelta delta = mapDelta(rs, 4);
+                    delta.balanceId = rs.getLong(1);
+                    delta.kidId = rs.getLong(2);
+                    delta.afterTransactionId = rs.getLong(3);
+                    return delta;
+                }, args.toArray());
+    }
+
+    /**
+     * Fold pending ledger rows into their snapshots as a single JDBC batch.
+     * Returns the number of snapshots moved on.
+     */
+    public int applySnapshots(List<LedgerDelta> deltas, LocalDateTime now, String updatedBy) {
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        for (LedgerDelta delta : deltas) {
+            batchArgs.add(new Object[] {
+                    delta.charityAmount, delta.spendAmount, delta.savingsAmount, delta.investmentAmount,
+                    delta.getTotalAmount(), Timestamp.valueOf(delta.lastTransactionDate), timestamp, updatedBy,
+                    delta.lastTransactionId, delta.balanceId, delta.afterTransactionId });
+        }
+        int applied = 0;
+        for (int count : jdbcTemplate.batchUpdate(APPLY_SNAPSHOT_SQL, batchArgs)) {
+            // Drivers that rewrite batches report SUCCESS_NO_INFO (-2) instead of counts
+            applied += count == 0 ? 0 : 1;
+        }
+        return applied;
+    }
+
+    /**
+     * True if any kid_balances row is kept up to date in place (ROW balances)
+     */
+    public boolean hasRowBalances() {
+        return !jdbcTemplate.queryForList("SELECT id FROM kid_balances " +
+                "WHERE last_applied_transaction_id IS NULL LIMIT 1", Long.class).isEmpty();
+    }
+
+    /**
+     * True if any kid_balances row is a ledger snapshot (LEDGER balances)
+     */
+    public boolean hasSnapshots() {
+        return !jdbcTemplate.queryForList("SELECT id FROM kid_balances " +
+                "WHERE last_applied_transaction_id IS NOT NULL LIMIT 1", Long.class).isEmpty();
+    }
+
+    /**
+     * Turn in-place balance rows into snapshots of the whole ledger they already include.
+     * Only valid while no node writes with ROW balances.
+     */
+    public int convertToSnapshots(Collection<Long> kidIds) {
+        return jdbcTemplate.update("UPDATE kid_balances SET last_applied_transaction_id = COALESCE(" +
+                "(SELECT MAX(t.id) FROM transactions t " +
+                "WHERE t.user_id = kid_balances.user_id AND t.kid_id = kid_balances.kid_id), 0) " +
+                "WHERE kid_id IN (" + placeholders(kidIds.size()) + ") AND last_applied_transaction_id IS NULL",
+                kidIds.toArray());
+    }
+
+    /**
+     * Mark snapshots as in-place balance rows. Only valid once every ledger row has
+     * been folded into them and while no node writes with LEDGER balances.
+     */
+    public int convertToRowBalances(Collection<Long> kidIds) {
+        return jdbcTemplate.update("UPDATE kid_balances SET last_applied_transaction_id = NULL " +
+                "WHERE kid_id IN (" + placeholders(kidIds.size()) + ") AND last_applied_transaction_id IS NOT NULL",
+                kidIds.toArray());
+    }
+
+    /**
+     * Compare the given kids' kid_balances rows with their ledgers, in kid order
+     */
+    public List<BalanceCheck> findBalanceChecks(Collection<Long> kidIds) {
+        return jdbcTemplate.query(String.format(SELECT_BALANCE_CHECKS_SQL, placeholders(kidIds.size())),
+                (rs, rowNum) -> {
+                    BalanceCheck check = new BalanceCheck();
+                    check.kidId = rs.getLong(1);
+                    check.userId = rs.getLong(2);
+                    check.balanceId = rs.getObject(3) == null ? null : rs.getLong(3);
+                    check.charityBalance = rs.getBigDecimal(4);
+                    check.spendBalance = rs.getBigDecimal(5);
+                    check.savingsBalance = rs.getBigDecimal(6);
+                    check.investmentBalance = rs.getBigDecimal(7);
+                    check.totalBalance = rs.getBigDecimal(8);
+                    check.lastAppliedTransactionId = rs.getObject(9) == null ? null : rs.getLong(9);
+                    check.ledgerRows = rs.getLong(10);
+                    check.ledger = mapDelta(rs, 11);
+                    check.ledger.kidId = check.kidId;
+                    return check;
+                }, kidIds.toArray());
+    }
+
+    /**
+     * Sum the kid's ledger rows up to and including the given id
+     */
+    public LedgerDelta sumLedgerUpTo(Long userId, Long kidId, long upToTransactionId) {
+        LedgerDelta delta = jdbcTemplate.queryForObject("SELECT " + LEDGER_SUMS +
+                " FROM transactions t WHERE t.user_id = ? AND t.kid_id = ? AND t.id <= ?",
+                (rs, rowNum) -> mapDelta(rs, 1), userId, kidId, upToTransactionId);
+        delta.kidId = kidId;
+        return delta;
+    }
+
+    /**
+     * Replace a kid's balances with the given ledger sums, keeping its snapshot position.
+     * The caller must hold the row lock taken by lockSnapshot.
+     */
+    public int overwriteBalance(Long userId, Long kidId, LedgerDelta ledger, LocalDateTime now, String updatedBy) {
+        return jdbcTemplate.update(OVERWRITE_BALANCE_SQL, ledger.charityAmount, ledger.spendAmount,
+                ledger.savingsAmount, ledger.investmentAmount, ledger.getTotalAmount(), Timestamp.valueOf(now),
+                updatedBy, userId, kidId);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static Snapshot mapSnapshot(ResultSet rs) throws SQLException {
+        Snapshot snapshot = new Snapshot();
+        snapshot.kidId = rs.getLong(1);
+        snapshot.kidName = rs.getString(2);
+        snapshot.kidAge = rs.getInt(3);
+        snapshot.charityBalance = zeroIfNull(rs.getBigDecimal(4));
+        snapshot.spendBalance = zeroIfNull(rs.getBigDecimal(5));
+        snapshot.savingsBalance = zeroIfNull(rs.getBigDecimal(6));
+        snapshot.investmentBalance = zeroIfNull(rs.getBigDecimal(7));
+        Timestamp lastUpdated = rs.getTimestamp(8);
+        snapshot.lastUpdated = lastUpdated == null ? null : lastUpdated.toLocalDateTime();
+        // Null without a snapshot row, read as 0 so the kid's whole ledger is added
+        snapshot.lastAppliedTransactionId = rs.getLong(9);
+        return snapshot;
+    }
+
+    private static LedgerDelta mapDelta(ResultSet rs, int firstColumn) throws SQLException {
+        LedgerDelta delta = new LedgerDelta();
+        delta.charityAmount = rs.getBigDecimal(firstColumn);
+        delta.spendAmount = rs.getBigDecimal(firstColumn + 1);
+        delta.savingsAmount = rs.getBigDecimal(firstColumn + 2);
+        delta.investmentAmount = rs.getBigDecimal(firstColumn + 3);
+        delta.lastTransactionId = rs.getLong(firstColumn + 4);
+        // Null when no ledger rows were summed
+        Timestamp lastTransactionDate = rs.getTimestamp(firstColumn + 5);
+        delta.lastTransactionDate = lastTransactionDate == null ? null : lastTransactionDate.toLocalDateTime();
+        return delta;
+    }
+
+    private static BigDecimal zeroIfNull(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+
+    // Setter methods for dependency injection
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * A kid's kid_balances snapshot and the position in the ledger it was taken at
+     */
+    public static class Snapshot {
+        private Long kidId;
+        private String kidName;
+        private Integer kidAge;
+        private BigDecimal charityBalance;
+        private BigDecimal spendBalance;
+        private BigDecimal savingsBalance;
+        private BigDecimal investmentBalance;
+        private LocalDateTime lastUpdated;
+        private long lastAppliedTransactionId;
+
+        public void add(LedgerDelta delta) {
+            charityBalance = charityBalance.add(delta.charityAmount);
+            spendBalance = spendBalance.add(delta.spendAmount);
+            savingsBalance = savingsBalance.add(delta.savingsAmount);
+            investmentBalance = investmentBalance.add(delta.investmentAmount);
+            if (delta.lastTransactionDate != null
+                    && (lastUpdated == null || delta.lastTransactionDate.isAfter(lastUpdated))) {
+                lastUpdated = delta.lastTransactionDate;
+            }
+        }
+
+        public BigDecimal getBalance(Transaction.ComponentType component) {
+            return switch (component) {
+                case CHARITY -> charityBalance;
+                case SPEND -> spendBalance;
+                case SAVINGS -> savingsBalance;
+                case INVESTMENT -> investmentBalance;
+            };
+        }
+
+        public long getLastAppliedTransactionId() {
+            return lastAppliedTransactionId;
+        }
+
+        private KidBalanceDTO toBalance() {
+            BigDecimal totalBalance = charityBalance.add(spendBalance).add(savingsBalance).add(investmentBalance);
+            return new KidBalanceDTO(kidId, kidName, kidAge, charityBalance, spendBalance, savingsBalance,
+                    investmentBalance, totalBalance, lastUpdated);
+        }
+    }
+
+    /**
+     * Signed component amounts of a run of ledger rows for one kid
+     */
+    public static class LedgerDelta {
+        private Long balanceId;
+        private Long kidId;
+        private long afterTransactionId;
+        private BigDecimal charityAmount = BigDecimal.ZERO;
+        private BigDecimal spendAmount = BigDecimal.ZERO;
+        private BigDecimal savingsAmount = BigDecimal.ZERO;
+        private BigDecimal investmentAmount = BigDecimal.ZERO;
+        private long lastTransactionId;
+        private LocalDateTime lastTransactionDate;
+
+        private void add(Transaction.ComponentType component, BigDecimal amount) {
+            switch (component) {
+                case CHARITY -> charityAmount = charityAmount.add(amount);
+                case SPEND -> spendAmount = spendAmount.add(amount);
+                case SAVINGS -> savingsAmount = savingsAmount.add(amount);
+                case INVESTMENT -> investmentAmount = investmentAmount.add(amount);
+            }
+        }
+
+        public Long getKidId() {
+            return kidId;
+        }
+
+        public BigDecimal getAmount(Transaction.ComponentType component) {
+            return switch (component) {
+                case CHARITY -> charityAmount;
+                case SPEND -> spendAmount;
+                case SAVINGS -> savingsAmount;
+                case INVESTMENT -> investmentAmount;
+            };
+        }
+
+        public BigDecimal getTotalAmount() {
+            return charityAmount.add(spendAmount).add(savingsAmount).add(investmentAmount);
+        }
+
+        public long getLastTransactionId() {
+            return lastTransactionId;
+        }
+    }
+
+    /**
+     * A kid's recorded kid_balances row next to the balances summed from its ledger
+     */
+    public static class BalanceCheck {
+        private Long kidId;
+        private Long userId;
+        private Long balanceId;
+        private BigDecimal charityBalance;
+        private BigDecimal spendBalance;
+        private BigDecimal savingsBalance;
+        private BigDecimal investmentBalance;
+        private BigDecimal totalBalance;
+        private Long lastAppliedTransactionId;
+        private long ledgerRows;
+        private LedgerDelta ledger;
+
+        /**
+         * True if every recorded component and the total equal the ledger. A kid without
+         * a kid_balances row matches while its ledger sums to zero.
+         */
+        public boolean matchesLedger() {
+            return same(charityBalance, ledger.charityAmount)
+                    && same(spendBalance, ledger.spendAmount)
+                    && same(savingsBalance, ledger.savingsAmount)
+                    && same(investmentBalance, ledger.investmentAmount)
+                    && same(totalBalance, ledger.getTotalAmount());
+        }
+
+        private static boolean same(BigDecimal recorded, BigDecimal ledger) {
+            return zeroIfNull(recorded).compareTo(ledger) == 0;
+        }
+
+        public Long getKidId() {
+            return kidId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public boolean hasBalanceRow() {
+            return balanceId != null;
+        }
+
+        public BigDecimal getCharityBalance() {
+            return charityBalance;
+        }
+
+        public BigDecimal getSpendBalance() {
+            return spendBalance;
+        }
+
+        public BigDecimal getSavingsBalance() {
+            return savingsBalance;
+        }
+
+        public BigDecimal getInvestmentBalance() {
+            return investmentBalance;
+        }
+
+        public BigDecimal getTotalBalance() {
+            return totalBalance;
+        }
+
+        /**
+         * Null for ROW balances and kids without a kid_balances row
+         */
+        public Long getLastAppliedTransactionId() {
+            return lastAppliedTransactionId;
+        }
+
+        public long getLedgerRows() {
+            return ledgerRows;
+        }
+
+        public LedgerDelta getLedger() {
+            return ledger;
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package com.piggybank.repository;
 
+import com.piggybank.dto.KidBalanceDTO;
 import com.piggybank.entity.KidBalance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +26,29 @@ public interface KidBalanceRepository extends JpaRepository<KidBalance, Long> {
      */
     List<KidBalance> findByUserIdOrderByLastUpdatedDesc(Long userId);
 
+    /**
+     * Balance summaries for all of a user's kids in one query, newest kid first.
+     * Kids without a balance row yet come back with zero balances.
+     */
+    @Query("SELECT new com.piggybank.dto.KidBalanceDTO(k.id, k.name, k.age, " +
+            "COALESCE(kb.charityBalance, 0bd), COALESCE(kb.spendBalance, 0bd), " +
+            "COALESCE(kb.savingsBalance, 0bd), COALESCE(kb.investmentBalance, 0bd), " +
+            "COALESCE(kb.totalBalance, 0bd), kb.lastUpdated) " +
+            "FROM Kid k LEFT JOIN KidBalance kb ON kb.kidId = k.id AND kb.userId = :userId " +
+            "WHERE k.user.id = :userId ORDER BY k.createdDate DESC")
+    List<KidBalanceDTO> findBalanceSummariesByUserId(@Param("userId") Long userId);
+
+    /**
+     * Balance summary for one kid, empty if the kid does not belong to the user
+     */
+    @Query("SELECT new com.piggybank.dto.KidBalanceDTO(k.id, k.name, k.age, " +
+            "COALESCE(kb.charityBalance, 0bd), COALESCE(kb.spendBalance, 0bd), " +
+            "COALESCE(kb.savingsBalance, 0bd), COALESCE(kb.investmentBalance, 0bd), " +
+            "COALESCE(kb.totalBalance, 0bd), kb.lastUpdated) " +
+            "FROM Kid k LEFT JOIN KidBalance kb ON kb.kidId = k.id AND kb.userId = :userId " +
+            "WHERE k.id = :kidId AND k.user.id = :userId")
+    Optional<KidBalanceDTO> findBalanceSummary(@Param("userId") Long userId, @Param("kidId") Long kidId);
+
     /**
      * Check if kid balance exists for a user and kid
      */
@@ -54,4 +80,69 @@ public interface KidBalanceRepository extends JpaRepository<KidBalance, Long> {
 
     @Query("SELECT COALESCE(SUM(kb.investmentBalance), 0) FROM KidBalance kb WHERE kb.userId = :userId")
     BigDecimal getTotalInvestmentBalance(@Param("userId") Long userId);
+
+    /**
+     * Create an all-zero balance row unless one already exists. Safe to race:
+     * concurrent callers fall through the unique key instead of failing.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO kid_balances (id, user_id, kid_id, charity_balance, spend_balance, savings_balance, " +
+            "investment_balance, total_balance, last_updated, created_at, updated_at, created_by, updated_by) " +
+            "VALUES (:id, :userId, :kidId, 0, 0, 0, 0, 0, :now, :now, :now, :createdBy, :createdBy) " +
+            "ON DUPLICATE KEY UPDATE user_id = user_id", nativeQuery = true)
+    int createIfAbsent(@Param("id") Long id, @Param("userId") Long userId, @Param("kidId") Long kidId,
+            @Param("now") LocalDateTime now, @Param("createdBy") String createdBy);
+
+    /**
+     * Atomically add amounts to every component. Returns 0 if the balance row does not exist.
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE KidBalance kb SET " +
+            "kb.charityBalance = kb.charityBalance + :charityAmount, " +
+            "kb.spendBalance = kb.spendBalance + :spendAmount, " +
+            "kb.savingsBalance = kb.savingsBalance + :savingsAmount, " +
+            "kb.investmentBalance = kb.investmentBalance + :investmentAmount, " +
+            "kb.totalBalance = kb.totalBalance + :charityAmount + :spendAmount + :savingsAmount + :investmentAmount, " +
+            "kb.lastUpdated = :now, kb.updatedAt = :now, kb.updatedBy = :updatedBy " +
+            "WHERE kb.userId = :userId AND kb.kidId = :kidId")
+    int creditBalances(@Param("userId") Long userId, @Param("kidId") Long kidId,
+            @Param("charityAmount") BigDecimal charityAmount, @Param("spendAmount") BigDecimal spendAmount,
+            @Param("savingsAmount") BigDecimal savingsAmount, @Param("investmentAmount") BigDecimal investmentAmount,
+            @Param("now") LocalDateTime now, @Param("updatedBy") String updatedBy);
+
+    /**
+     * Atomically subtract an amount from one component only if it stays non-negative.
+     * Returns 0 when the balance is insufficient or the row does not exist.
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE KidBalance kb SET kb.charityBalance = kb.charityBalance - :amount, " +
+            "kb.totalBalance = kb.totalBalance - :amount, " +
+            "kb.lastUpdated = :now, kb.updatedAt = :now, kb.updatedBy = :updatedBy " +
+            "WHERE kb.userId = :userId AND kb.kidId = :kidId AND kb.charityBalance >= :amount")
+    int debitCharityBalance(@Param("userId") Long userId, @Param("kidId") Long kidId,
+            @Param("amount") BigDecimal amount, @Param("now") LocalDateTime now, @Param("updatedBy") String updatedBy);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE KidBalance kb SET kb.spendBalance = kb.spendBalance - :amount, " +
+            "kb.totalBalance = kb.totalBalance - :amount, " +
+            "kb.lastUpdated = :now, kb.updatedAt = :now, kb.updatedBy = :updatedBy " +
+            "WHERE kb.userId = :userId AND kb.kidId = :kidId AND kb.spendBalance >= :amount")
+    int debitSpendBalance(@Param("userId") Long userId, @Param("kidId") Long kidId,
+            @Param("amount") BigDecimal amount, @Param("now") LocalDateTime now, @Param("updatedBy") String updatedBy);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE KidBalance kb SET kb.savingsBalance = kb.savingsBalance - :amount, " +
+            "kb.totalBalance = kb.totalBalance - :amount, " +
+            "kb.lastUpdated = :now, kb.updatedAt = :now, kb.updatedBy = :updatedBy " +
+            "WHERE kb.userId = :userId AND kb.kidId = :kidId AND kb.savingsBalance >= :amount")
+    int debitSavingsBalance(@Param("userId") Long userId, @Param("kidId") Long kidId,
+            @Param("amount") BigDecimal amount, @Param("now") LocalDateTime now, @Param("updatedBy") String updatedBy);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE KidBalance kb SET kb.investmentBalance = kb.investmentBalance - :amount, " +
+            "kb.totalBalance = kb.totalBalance - :amount, " +
+            "kb.lastUpdated = :now, kb.updatedAt = :now, kb.updatedBy = :updatedBy " +
+            "WHERE kb.userId = :userId AND kb.kidId = :kidId AND kb.investmentBalance >= :amount")
+    int debitInvestmentBalance(@Param("userId") Long userId, @Param("kidId") Long kidId,
+            @Param("amount") BigDecimal amount, @Param("now") LocalDateTime now, @Param("updatedBy") String updatedBy);
 }
@@ -3,8 +3,11 @@ package com.piggybank.repository;
 import com.piggybank.entity.Kid;
 import com.piggybank.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,5 +18,19 @@ public interface KidRepository extends JpaRepository<Kid, Long> {
 
     Optional<Kid> findByIdAndUserId(Long kidId, Long userId);
 
+    boolean existsByIdAndUserId(Long kidId, Long userId);
+
     List<Kid> findByUserIdOrderByCreatedDateDesc(Long userId);
+
+    /**
+     * Of the given kid IDs, return those that belong to the user
+     */
+    @Query("SELECT k.id FROM Kid k WHERE k.user.id = :userId AND k.id IN :kidIds")
+    List<Long> findIdsByUserIdAndIdIn(@Param("userId") Long userId, @Param("kidIds") Collection<Long> kidIds);
+
+    /**
+     * Next page of kid IDs, in ID order, for jobs that walk every kid
+     */
+    @Query(value = "SELECT id FROM kids WHERE id > :afterId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
 } 
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.piggybank.repository;
+
+import com.piggybank.entity.ReconciliationRun;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+
+    /**
+     * The newest run with the given status, e.g. an unfinished run to resume
+     */
+    Optional<ReconciliationRun> findFirstByStatusOrderByIdDesc(ReconciliationRun.Status status);
+
+    /**
+     * Lock the newest run of any status, so instances starting or resuming a run take turns
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<ReconciliationRun> findFirstByOrderByIdDesc();
+
+    /**
+     * Take the lease on a running run unless another owner holds it until after now.
+     * Returns 0 if the run is leased to someone else or no longer running.
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Transactional
+    @Query("UPDATE ReconciliationRun r SET r.owner = :owner, r.leaseUntil = :leaseUntil, r.updatedAt = :now " +
+            "WHERE r.id = :id AND r.status = RUNNING " +
+            "AND (r.owner IS NULL OR r.owner = :owner OR r.leaseUntil IS NULL OR r.leaseUntil < :now)")
+    int claimLease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Move the checkpoint and renew the lease, only while the owner still holds the run.
+     * Returns 0 if the lease was taken over.
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Transactional
+    @Query("UPDATE ReconciliationRun r SET r.checkpointKidId = :checkpointKidId, r.kidsChecked = :kidsChecked, " +
+            "r.ledgerRows = :ledgerRows, r.discrepancies = :discrepancies, r.repaired = :repaired, " +
+            "r.leaseUntil = :leaseUntil, r.updatedAt = :now " +
+            "WHERE r.id = :id AND r.owner = :owner AND r.status = RUNNING")
+    int checkpoint(@Param("id") Long id, @Param("owner") String owner,
+            @Param("checkpointKidId") Long checkpointKidId, @Param("kidsChecked") Long kidsChecked,
+            @Param("ledgerRows") Long ledgerRows, @Param("discrepancies") Long discrepancies,
+            @Param("repaired") Long repaired, @Param("leaseUntil") LocalDateTime leaseUntil,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Mark the run completed and release its lease, only while the owner still holds it.
+     * Returns 0 if the lease was taken over.
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Transactional
+    @Query("UPDATE ReconciliationRun r SET r.status = COMPLETED, r.finishedAt = :now, r.updatedAt = :now, " +
+            "r.leaseUntil = NULL WHERE r.id = :id AND r.owner = :owner AND r.status = RUNNING")
+    int complete(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
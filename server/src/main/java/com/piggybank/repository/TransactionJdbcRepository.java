@@ -0,0 +1,243 @@
+package com.piggybank.repository;
+
+import com.piggybank.dto.KidDetailsDTO;
+import com.piggybank.entity.Transaction;
+import com.piggybank.entity.id.TimeOrderedIds;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC access to the ledger tables for write paths where the JPA
+ * round trips (entity reloads, Envers revisions) are too expensive.
+ * Rows inserted here are unaudited: no revinfo or transactions_aud rows
+ * are written for them.
+ */
+@Repository
+public class TransactionJdbcRepository {
+
+    private static final String INSERT_TRANSACTION_SQL = "INSERT INTO transactions (" +
+            "id, user_id, kid_id, transaction_type, total_amount, " +
+            "charity_amount, spend_amount, savings_amount, investment_amount, " +
+            "charity_percentage, spend_percentage, savings_percentage, investment_percentage, " +
+            "withdrawal_component, withdrawal_amount, description, transaction_date, created_at, created_by) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Creates the balance row on the first deposit and otherwise adds the
+     * deposit to the existing row in place, relying on uk_kid_balances_user_kid.
+     * The id is only used when the row is created.
+     */
+    private static final String APPLY_DEPOSIT_SQL = "INSERT INTO kid_balances (" +
+            "id, user_id, kid_id, charity_balance, spend_balance, savings_balance, investment_balance, " +
+            "total_balance, last_updated, created_at, updated_at, created_by, updated_by) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "charity_balance = charity_balance + VALUES(charity_balance), " +
+            "spend_balance = spend_balance + VALUES(spend_balance), " +
+            "savings_balance = savings_balance + VALUES(savings_balance), " +
+            "investment_balance = investment_balance + VALUES(investment_balance), " +
+            "total_balance = total_balance + VALUES(total_balance), " +
+            "last_updated = VALUES(last_updated), " +
+            "updated_at = VALUES(updated_at), " +
+            "updated_by = VALUES(updated_by)";
+
+    private static final String SELECT_LEDGER_SQL = "SELECT id, transaction_type, total_amount, " +
+            "charity_amount, spend_amount, savings_amount, investment_amount, " +
+            "withdrawal_component, withdrawal_amount, description, transaction_date " +
+            "FROM transactions WHERE user_id = ? AND kid_id = ? " +
+            "ORDER BY transaction_date DESC, id DESC";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert a transaction row, assigning its id first if it has none
+     */
+    public Transaction insert(Transaction transaction) {
+        assignId(transaction);
+        jdbcTemplate.update(INSERT_TRANSACTION_SQL, ps -> bindTransaction(ps, transaction));
+        return transaction;
+    }
+
+    /**
+     * Insert transaction rows as a single JDBC batch, assigning ids first
+     */
+    public List<Transaction> insertAll(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            assignId(transaction);
+        }
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, transactions, transactions.size(),
+                this::bindTransaction);
+        return transactions;
+    }
+
+    /**
+     * Atomically add deposit amounts to a kid's balance row, creating it if needed
+     */
+    public void applyDeposit(Long userId, Long kidId,
+            BigDecimal charityAmount, BigDecimal spendAmount,
+            BigDecimal savingsAmount, BigDecimal investmentAmount,
+            String updatedBy) {
+        BigDecimal totalAmount = charityAmount.add(spendAmount).add(savingsAmount).add(investmentAmount);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.update(APPLY_DEPOSIT_SQL,
+                TimeOrderedIds.nextId(), userId, kidId,
+                charityAmount, spendAmount, savingsAmount, investmentAmount, totalAmount,
+                now, now, now,
+                updatedBy, updatedBy);
+    }
+
+    /**
+     * Apply several deposits as a single JDBC batch; each entry must be for a distinct kid
+     */
+    public void applyDeposits(Long userId, List<BalanceDelta> deltas, String updatedBy) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        for (BalanceDelta delta : deltas) {
+            batchArgs.add(new Object[] {
+                    TimeOrderedIds.nextId(), userId, delta.getKidId(),
+                    delta.getCharityAmount(), delta.getSpendAmount(),
+                    delta.getSavingsAmount(), delta.getInvestmentAmount(), delta.getTotalAmount(),
+                    now, now, now,
+                    updatedBy, updatedBy });
+        }
+        jdbcTemplate.batchUpdate(APPLY_DEPOSIT_SQL, batchArgs);
+    }
+
+    /**
+     * Stream a kid's full ledger, newest first, handing each row to the consumer as it is read.
+     * No rows are buffered here; with MySQL Connector/J a fetch size of Integer.MIN_VALUE
+     * makes the driver stream rows from the server instead of loading the whole result.
+     */
+    public void streamLedger(Long userId, Long kidId, int fetchSize,
+            Consumer<KidDetailsDTO.TransactionSummaryDTO> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_LEDGER_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setLong(1, userId);
+            ps.setLong(2, kidId);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapSummary(rs)));
+    }
+
+    private KidDetailsDTO.TransactionSummaryDTO mapSummary(ResultSet rs) throws SQLException {
+        boolean deposit = Transaction.TransactionType.DEPOSIT.name().equals(rs.getString("transaction_type"));
+        String withdrawalComponent = rs.getString("withdrawal_component");
+
+        KidDetailsDTO.TransactionSummaryDTO summary = new KidDetailsDTO.TransactionSummaryDTO(
+                rs.getLong("id"),
+                rs.getString("transaction_type"),
+                deposit ? rs.getBigDecimal("total_amount") : rs.getBigDecimal("withdrawal_amount"),
+                deposit ? "ALL" : withdrawalComponent,
+                rs.getString("description"),
+                rs.getTimestamp("transaction_date").toLocalDateTime());
+
+        if (deposit) {
+            summary.setCharityAmount(rs.getBigDecimal("charity_amount"));
+            summary.setSpendAmount(rs.getBigDecimal("spend_amount"));
+            summary.setSavingsAmount(rs.getBigDecimal("savings_amount"));
+            summary.setInvestmentAmount(rs.getBigDecimal("investment_amount"));
+        } else {
+            summary.setWithdrawalComponent(withdrawalComponent);
+        }
+        return summary;
+    }
+
+    private void assignId(Transaction transaction) {
+        if (transaction.getId() == null) {
+            transaction.setId(TimeOrderedIds.nextId());
+        }
+    }
+
+    private void bindTransaction(PreparedStatement ps, Transaction transaction) throws SQLException {
+        ps.setLong(1, transaction.getId());
+        ps.setLong(2, transaction.getUserId());
+        ps.setLong(3, transaction.getKidId());
+        ps.setString(4, transaction.getTransactionType().name());
+        ps.setBigDecimal(5, transaction.getTotalAmount());
+        ps.setBigDecimal(6, transaction.getCharityAmount());
+        ps.setBigDecimal(7, transaction.getSpendAmount());
+        ps.setBigDecimal(8, transaction.getSavingsAmount());
+        ps.setBigDecimal(9, transaction.getInvestmentAmount());
+        ps.setBigDecimal(10, transaction.getCharityPercentage());
+        ps.setBigDecimal(11, transaction.getSpendPercentage());
+        ps.setBigDecimal(12, transaction.getSavingsPercentage());
+        ps.setBigDecimal(13, transaction.getInvestmentPercentage());
+        if (transaction.getWithdrawalComponent() != null) {
+            ps.setString(14, transaction.getWithdrawalComponent().name());
+        } else {
+            ps.setNull(14, Types.VARCHAR);
+        }
+        ps.setBigDecimal(15, transaction.getWithdrawalAmount());
+        ps.setString(16, transaction.getDescription());
+        ps.setTimestamp(17, Timestamp.valueOf(transaction.getTransactionDate()));
+        ps.setTimestamp(18, Timestamp.valueOf(transaction.getCreatedAt()));
+        ps.setString(19, transaction.getCreatedBy());
+    }
+
+    /**
+     * Component amounts to add to one kid's balance row
+     */
+    public static class BalanceDelta {
+        private final Long kidId;
+        private BigDecimal charityAmount = BigDecimal.ZERO;
+        private BigDecimal spendAmount = BigDecimal.ZERO;
+        private BigDecimal savingsAmount = BigDecimal.ZERO;
+        private BigDecimal investmentAmount = BigDecimal.ZERO;
+
+        public BalanceDelta(Long kidId) {
+            this.kidId = kidId;
+        }
+
+        public void add(Transaction deposit) {
+            charityAmount = charityAmount.add(deposit.getCharityAmount());
+            spendAmount = spendAmount.add(deposit.getSpendAmount());
+            savingsAmount = savingsAmount.add(deposit.getSavingsAmount());
+            investmentAmount = investmentAmount.add(deposit.getInvestmentAmount());
+        }
+
+        public Long getKidId() {
+            return kidId;
+        }
+
+        public BigDecimal getCharityAmount() {
+            return charityAmount;
+        }
+
+        public BigDecimal getSpendAmount() {
+            return spendAmount;
+        }
+
+        public BigDecimal getSavingsAmount() {
+            return savingsAmount;
+        }
+
+        public BigDecimal getInvestmentAmount() {
+            return investmentAmount;
+        }
+
+        public BigDecimal getTotalAmount() {
+            return charityAmount.add(spendAmount).add(savingsAmount).add(investmentAmount);
+        }
+    }
+
+    // Setter methods for dependency injection
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+}
@@ -1,6 +1,7 @@
 package com.piggybank.repository;
 
 import com.piggybank.entity.Transaction;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -24,6 +25,28 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      * Find recent transactions by user ID and kid ID with pagination
      */
     Page<Transaction> findByUserIdAndKidIdOrderByTransactionDateDesc(Long userId, Long kidId, Pageable pageable);
+
+    /**
+     * Find the 10 most recent transactions for a kid without a count query
+     */
+    List<Transaction> findTop10ByUserIdAndKidIdOrderByTransactionDateDescIdDesc(Long userId, Long kidId);
+
+    /**
+     * First page of a kid's transaction history, newest first
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.userId = :userId AND t.kidId = :kidId " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> findHistoryPage(@Param("userId") Long userId, @Param("kidId") Long kidId, Limit limit);
+
+    /**
+     * Next page of a kid's transaction history, strictly after the given (date, id) position.
+     * Seeks on idx_transactions_user_kid_date_id, so deep pages cost the same as the first.
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.userId = :userId AND t.kidId = :kidId " +
+           "AND (t.transactionDate < :afterDate OR (t.transactionDate = :afterDate AND t.id < :afterId)) " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> findHistoryPageAfter(@Param("userId") Long userId, @Param("kidId") Long kidId,
+            @Param("afterDate") LocalDateTime afterDate, @Param("afterId") Long afterId, Limit limit);
     
     /**
      * Find transactions by user ID
@@ -0,0 +1,75 @@
+package com.piggybank.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batched upserts into user_login_stats
+ */
+@Repository
+public class UserLoginStatsJdbcRepository {
+
+    /**
+     * Creates the row on a user's first recorded login, otherwise adds the logins
+     * to the count and keeps the later of the two last-login times
+     */
+    private static final String UPSERT_LOGINS_SQL = "INSERT INTO user_login_stats (user_id, last_login, login_count) " +
+            "VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "last_login = GREATEST(last_login, VALUES(last_login)), " +
+            "login_count = login_count + VALUES(login_count)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Apply accumulated logins as a single JDBC batch. Pass the entries sorted by user ID
+     * so concurrent flushes from several nodes lock rows in the same order.
+     */
+    public void upsertLogins(List<LoginDelta> deltas) {
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        for (LoginDelta delta : deltas) {
+            batchArgs.add(new Object[] {
+                    delta.getUserId(), Timestamp.valueOf(delta.getLastLogin()), delta.getLoginCount() });
+        }
+        jdbcTemplate.batchUpdate(UPSERT_LOGINS_SQL, batchArgs);
+    }
+
+    // Setter methods for dependency injection
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Logins recorded for one user since the last flush
+     */
+    public static class LoginDelta {
+        private final Long userId;
+        private final LocalDateTime lastLogin;
+        private final long loginCount;
+
+        public LoginDelta(Long userId, LocalDateTime lastLogin, long loginCount) {
+            this.userId = userId;
+            this.lastLogin = lastLogin;
+            this.loginCount = loginCount;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public LocalDateTime getLastLogin() {
+            return lastLogin;
+        }
+
+        public long getLoginCount() {
+            return loginCount;
+        }
+    }
+}
@@ -2,11 +2,25 @@ package com.piggybank.repository;
 
 import com.piggybank.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByPhoneNumber(String phoneNumber);
     boolean existsByPhoneNumber(String phoneNumber);
+
+    /**
+     * Replace a PIN hash with a stronger hash of the same PIN, unless the PIN changed
+     * in the meantime. A bulk update, so it does not create an audit revision.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.pinHash = :newHash WHERE u.id = :id AND u.pinHash = :oldHash")
+    int updatePinHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
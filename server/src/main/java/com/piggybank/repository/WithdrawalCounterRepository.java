@@ -0,0 +1,57 @@
+package com.piggybank.repository;
+
+import com.piggybank.entity.WithdrawalCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface WithdrawalCounterRepository extends JpaRepository<WithdrawalCounter, WithdrawalCounter.Key> {
+
+    /**
+     * Count one more withdrawal unless the limit is already reached. Returns 1 when
+     * counted and 0 when the limit is reached or the month's row does not exist yet.
+     * The row lock taken here serializes concurrent withdrawals for the same kid and
+     * component until the surrounding transaction ends.
+     */
+    @Modifying
+    @Query(value = "UPDATE withdrawal_counters SET withdrawal_count = withdrawal_count + 1 " +
+            "WHERE user_id = :userId AND kid_id = :kidId AND component = :component AND period = :period " +
+            "AND withdrawal_count < :limit", nativeQuery = true)
+    int incrementIfBelow(@Param("userId") Long userId, @Param("kidId") Long kidId,
+            @Param("component") String component, @Param("period") int period, @Param("limit") int limit);
+
+    /**
+     * Create a zero counter for the month unless one already exists. Safe to race:
+     * concurrent callers fall through the primary key instead of failing.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO withdrawal_counters (user_id, kid_id, component, period, withdrawal_count) " +
+            "VALUES (:userId, :kidId, :component, :period, 0) " +
+            "ON DUPLICATE KEY UPDATE withdrawal_count = withdrawal_count", nativeQuery = true)
+    int createIfAbsent(@Param("userId") Long userId, @Param("kidId") Long kidId,
+            @Param("component") String component, @Param("period") int period);
+
+    /**
+     * Rebuild the counters of a range of kids from their Savings and Investment
+     * withdrawals since the given date. Existing counters are only raised, never
+     * lowered, so withdrawals counted while the backfill runs are kept.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO withdrawal_counters (user_id, kid_id, component, period, withdrawal_count) " +
+            "SELECT user_id, kid_id, withdrawal_component, " +
+            "YEAR(transaction_date) * 100 + MONTH(transaction_date), COUNT(*) " +
+            "FROM transactions WHERE kid_id BETWEEN :fromKidId AND :toKidId " +
+            "AND transaction_type = 'WITHDRAWAL' AND withdrawal_component IN ('SAVINGS', 'INVESTMENT') " +
+            "AND transaction_date >= :since " +
+            "GROUP BY user_id, kid_id, withdrawal_component, " +
+            "YEAR(transaction_date) * 100 + MONTH(transaction_date) " +
+            "ON DUPLICATE KEY UPDATE withdrawal_count = GREATEST(withdrawal_count, VALUES(withdrawal_count))",
+            nativeQuery = true)
+    int backfillKids(@Param("fromKidId") Long fromKidId, @Param("toKidId") Long toKidId,
+            @Param("since") LocalDateTime since);
+}
@@ -0,0 +1,53 @@
+package com.piggybank.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Authenticates metrics scrapers on the actuator filter chain with a static bearer token.
+ * Only a request carrying exactly that token gets {@link #SCRAPE_ROLE}; user JWTs are never
+ * looked at. Not a bean, so it is not registered as a servlet filter for the whole app.
+ */
+public class ActuatorTokenFilter extends OncePerRequestFilter {
+
+    public static final String SCRAPE_ROLE = "METRICS";
+
+    private final byte[] scrapeToken;
+
+    /**
+     * @param scrapeToken the expected token; blank disables token access entirely
+     */
+    public ActuatorTokenFilter(String scrapeToken) {
+        this.scrapeToken = scrapeToken == null || scrapeToken.isBlank()
+                ? null
+                : scrapeToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+            FilterChain chain) throws ServletException, IOException {
+
+        String header = request.getHeader("Authorization");
+        if (scrapeToken != null && header != null && header.startsWith("Bearer ")) {
+            byte[] presented = header.substring(7).getBytes(StandardCharsets.UTF_8);
+            // Constant-time comparison, so the token cannot be guessed byte by byte
+            if (MessageDigest.isEqual(scrapeToken, presented)) {
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                        "metrics-scraper", null, List.of(new SimpleGrantedAuthority("ROLE_" + SCRAPE_ROLE)));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,46 @@
+package com.piggybank.security;
+
+import java.security.Principal;
+import java.time.Instant;
+
+/**
+ * Principal for a request authenticated by a verified JWT.
+ * Controllers receive it with {@code @AuthenticationPrincipal}.
+ */
+public final class AuthenticatedUser implements Principal {
+
+    private final Long userId;
+    private final String phoneNumber;
+    private final Instant expiresAt;
+
+    public AuthenticatedUser(Long userId, String phoneNumber, Instant expiresAt) {
+        this.userId = userId;
+        this.phoneNumber = phoneNumber;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * The phone number, which is also the auditor name for entity changes
+     */
+    @Override
+    public String getName() {
+        return phoneNumber;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticatedUser{userId=" + userId + "}";
+    }
+}
@@ -1,6 +1,9 @@
 package com.piggybank.security;
 
 import com.piggybank.service.JwtTokenService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,14 +11,12 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.User;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Collections;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
@@ -23,55 +24,59 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Autowired
     private JwtTokenService jwtTokenService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer authenticatedTimer;
+    private Timer rejectedTimer;
+
+    @PostConstruct
+    public void initMetrics() {
+        authenticatedTimer = authenticationTimer("authenticated");
+        rejectedTimer = authenticationTimer("rejected");
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
             FilterChain chain) throws ServletException, IOException {
 
         final String requestTokenHeader = request.getHeader("Authorization");
 
-        String phoneNumber = null;
-        String jwtToken = null;
-
         // JWT Token is in the form "Bearer token". Remove Bearer word and get only the
         // Token
         if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
-            jwtToken = requestTokenHeader.substring(7);
-            try {
-                phoneNumber = jwtTokenService.getPhoneNumberFromToken(jwtToken);
-            } catch (Exception e) {
-                logger.warn("Unable to get JWT Token or JWT Token has expired");
-            }
-        } else {
-            logger.warn("JWT Token does not begin with Bearer String");
-        }
-
-        // Once we get the token validate it.
-        if (phoneNumber != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            try {
-                // Validate token
-                Long userId = jwtTokenService.getUserIdFromToken(jwtToken);
-
-                // Create UserDetails from token
-                UserDetails userDetails = User.builder()
-                        .username(phoneNumber)
-                        .password("") // We don't need password for JWT
-                        .authorities(new ArrayList<>())
-                        .build();
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                String jwtToken = requestTokenHeader.substring(7);
+                Timer.Sample sample = Timer.start(meterRegistry);
+                try {
+                    // Verify the token once; controllers read the result via @AuthenticationPrincipal
+                    AuthenticatedUser user = jwtTokenService.authenticate(jwtToken);
 
-                // If token is valid configure Spring Security to manually set authentication
-                UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                usernamePasswordAuthenticationToken
-                        .setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                            user, null, Collections.emptyList());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                // After setting the Authentication in the context, we specify
-                // that the current user is authenticated. So it passes the Spring Security
-                // Configurations successfully.
-                SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
-            } catch (Exception e) {
-                logger.warn("JWT Token validation failed: " + e.getMessage());
+                    // After setting the Authentication in the context, we specify
+                    // that the current user is authenticated. So it passes the Spring Security
+                    // Configurations successfully.
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                    sample.stop(authenticatedTimer);
+                } catch (Exception e) {
+                    sample.stop(rejectedTimer);
+                    logger.warn("JWT Token validation failed: " + e.getMessage());
+                }
             }
+        } else {
+            logger.warn("JWT Token does not begin with Bearer String");
         }
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private Timer authenticationTimer(String outcome) {
+        return Timer.builder("piggybank.auth.jwt")
+                .description("Time spent authenticating a bearer token")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,333 @@
+package com.piggybank.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static net.logstash.logback.argument.StructuredArguments.value;
+
+/**
+ * Writes money-path audit events from a background thread.
+ *
+ * Callers claim a preallocated slot in a bounded ring with a single CAS, copy the
+ * typed fields into it and return: no MDC, string formatting or JSON encoding runs
+ * on the request thread. One daemon thread drains the ring in order and logs each
+ * event with structured arguments, so every field is its own JSON property.
+ */
+@Component
+public class AsyncEventLogger {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingService.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    public enum EventType {
+        TRANSACTION, BALANCE_CREDIT, BALANCE_DEBIT, BALANCE_UPDATE
+    }
+
+    /**
+     * What a caller does when the ring has no room for its event
+     */
+    public enum OverflowPolicy {
+        /** Wait for the writer to free a slot; no events are lost */
+        BLOCK,
+        /** Discard the event */
+        DROP,
+        /** Keep one in sample-rate events once the ring is half full, discard the rest */
+        SAMPLE
+    }
+
+    @Value("${piggybank.audit.buffer-size:8192}")
+    private int bufferSize;
+
+    @Value("${piggybank.audit.overflow-policy:BLOCK}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${piggybank.audit.sample-rate:10}")
+    private int sampleRate;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private Slot[] slots;
+    private int mask;
+
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private volatile long dequeuePosition;
+    private final AtomicLong sampleSequence = new AtomicLong();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder blockedEvents = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    @PostConstruct
+    public void start() {
+        // Round up to a power of two so the slot can be picked with a mask
+        int size = Integer.highestOneBit(Math.max(2, bufferSize) - 1) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(i);
+        }
+        mask = size - 1;
+        sampleRate = Math.max(1, sampleRate);
+
+        if (meterRegistry != null) {
+            registerMetrics(meterRegistry);
+        }
+
+        running = true;
+        writer = new Thread(this::drain, "audit-event-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stop accepting events and flush whatever is still queued
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public void transaction(Long userId, Long kidId, String transactionType, BigDecimal amount, String createdBy) {
+        offer(EventType.TRANSACTION, userId, kidId, transactionType, amount,
+                null, null, null, null, createdBy);
+    }
+
+    public void balanceCredit(Long userId, Long kidId,
+            BigDecimal charityAmount, BigDecimal spendAmount,
+            BigDecimal savingsAmount, BigDecimal investmentAmount,
+            String updatedBy) {
+        offer(EventType.BALANCE_CREDIT, userId, kidId, null, null,
+                charityAmount, spendAmount, savingsAmount, investmentAmount, updatedBy);
+    }
+
+    public void balanceDebit(Long userId, Long kidId, String component, BigDecimal amount, String updatedBy) {
+        offer(EventType.BALANCE_DEBIT, userId, kidId, component, amount,
+                null, null, null, null, updatedBy);
+    }
+
+    public void balanceUpdate(Long userId, Long kidId, String action, String updatedBy) {
+        offer(EventType.BALANCE_UPDATE, userId, kidId, action, null,
+                null, null, null, null, updatedBy);
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    public long getQueuedEvents() {
+        return Math.max(0, enqueuePosition.get() - dequeuePosition);
+    }
+
+    private void offer(EventType type, Long userId, Long kidId, String label, BigDecimal amount,
+            BigDecimal charityAmount, BigDecimal spendAmount,
+            BigDecimal savingsAmount, BigDecimal investmentAmount,
+            String actor) {
+        long position = claim();
+        if (position < 0) {
+            return;
+        }
+
+        Slot slot = slots[(int) (position & mask)];
+        slot.type = type;
+        slot.timestamp = System.currentTimeMillis();
+        slot.userId = userId;
+        slot.kidId = kidId;
+        slot.label = label;
+        slot.amount = amount;
+        slot.charityAmount = charityAmount;
+        slot.spendAmount = spendAmount;
+        slot.savingsAmount = savingsAmount;
+        slot.investmentAmount = investmentAmount;
+        slot.actor = actor;
+
+        // Publishing the sequence hands the slot to the writer
+        slot.sequence = position + 1;
+    }
+
+    /**
+     * Reserve the next ring position, or return -1 if the event is dropped
+     */
+    private long claim() {
+        if (overflowPolicy == OverflowPolicy.SAMPLE && isBacklogged()
+                && sampleSequence.incrementAndGet() % sampleRate != 0) {
+            droppedEvents.increment();
+            return -1;
+        }
+
+        boolean waited = false;
+        long position = enqueuePosition.get();
+        while (true) {
+            Slot slot = slots[(int) (position & mask)];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                // The writer has not yet freed this slot: the ring is full
+                if (overflowPolicy != OverflowPolicy.BLOCK || !running) {
+                    droppedEvents.increment();
+                    return -1;
+                }
+                if (!waited) {
+                    waited = true;
+                    blockedEvents.increment();
+                }
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+                position = enqueuePosition.get();
+            } else {
+                // Another caller claimed this position first
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    private boolean isBacklogged() {
+        return enqueuePosition.get() - dequeuePosition > (mask + 1) / 2;
+    }
+
+    private void drain() {
+        while (running) {
+            if (!writeNext()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        while (writeNext()) {
+            // Flush events queued before shutdown
+        }
+    }
+
+    private boolean writeNext() {
+        long position = dequeuePosition;
+        Slot slot = slots[(int) (position & mask)];
+        if (slot.sequence != position + 1) {
+            return false;
+        }
+
+        try {
+            write(slot);
+        } catch (RuntimeException e) {
+            // Never let a bad event stop the writer
+            logger.warn("Failed to write audit event {}", slot.type, e);
+        } finally {
+            slot.clear();
+            dequeuePosition = position + 1;
+            // Hand the slot back to callers for the next lap of the ring
+            slot.sequence = position + mask + 1;
+        }
+        return true;
+    }
+
+    private void write(Slot slot) {
+        String timestamp = Instant.ofEpochMilli(slot.timestamp).toString();
+        switch (slot.type) {
+            case TRANSACTION -> logger.info("Transaction {}: User ID {} - Kid ID {} - Amount {} - Created by {}",
+                    value("transactionType", slot.label), value("userId", slot.userId),
+                    value("kidId", slot.kidId), value("amount", slot.amount),
+                    value("createdBy", slot.actor), value("timestamp", timestamp));
+            case BALANCE_CREDIT -> logger.info(
+                    "Kid Balance Update: User ID {} - Kid ID {} - Deposit: Charity={}, Spend={}, Savings={}, "
+                            + "Investment={} - Updated by {}",
+                    value("userId", slot.userId), value("kidId", slot.kidId),
+                    value("charityAmount", slot.charityAmount), value("spendAmount", slot.spendAmount),
+                    value("savingsAmount", slot.savingsAmount), value("investmentAmount", slot.investmentAmount),
+                    value("updatedBy", slot.actor), value("timestamp", timestamp));
+            case BALANCE_DEBIT -> logger.info(
+                    "Kid Balance Update: User ID {} - Kid ID {} - Withdrawal {}: {} - Updated by {}",
+                    value("userId", slot.userId), value("kidId", slot.kidId),
+                    value("component", slot.label), value("amount", slot.amount),
+                    value("updatedBy", slot.actor), value("timestamp", timestamp));
+            case BALANCE_UPDATE -> logger.info("Kid Balance Update: User ID {} - Kid ID {} - Action: {} - Updated by {}",
+                    value("userId", slot.userId), value("kidId", slot.kidId),
+                    value("action", slot.label), value("updatedBy", slot.actor),
+                    value("timestamp", timestamp));
+        }
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("piggybank.audit.queue.size", this, AsyncEventLogger::getQueuedEvents)
+                .description("Audit events waiting for the background writer")
+                .register(registry);
+        FunctionCounter.builder("piggybank.audit.events.dropped", droppedEvents, LongAdder::sum)
+                .description("Audit events discarded because the ring was full or sampling")
+                .register(registry);
+        FunctionCounter.builder("piggybank.audit.events.blocked", blockedEvents, LongAdder::sum)
+                .description("Audit events whose caller had to wait for ring space")
+                .register(registry);
+    }
+
+    // Setter methods for configuration
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * One reusable ring entry. The sequence tells callers and the writer whose turn it is.
+     */
+    private static final class Slot {
+        volatile long sequence;
+        EventType type;
+        long timestamp;
+        Long userId;
+        Long kidId;
+        String label;
+        BigDecimal amount;
+        BigDecimal charityAmount;
+        BigDecimal spendAmount;
+        BigDecimal savingsAmount;
+        BigDecimal investmentAmount;
+        String actor;
+
+        Slot(long sequence) {
+            this.sequence = sequence;
+        }
+
+        void clear() {
+            type = null;
+            userId = null;
+            kidId = null;
+            label = null;
+            amount = null;
+            charityAmount = null;
+            spendAmount = null;
+            savingsAmount = null;
+            investmentAmount = null;
+            actor = null;
+        }
+    }
+}
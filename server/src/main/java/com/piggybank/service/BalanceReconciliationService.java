@@ -0,0 +1,501 @@
+package com.piggybank.service;
+
+import com.piggybank.entity.BalanceDiscrepancy;
+import com.piggybank.entity.ReconciliationRun;
+import com.piggybank.entity.Transaction;
+import com.piggybank.entity.id.TimeOrderedIds;
+import com.piggybank.repository.BalanceDiscrepancyRepository;
+import com.piggybank.repository.KidBalanceJdbcRepository;
+import com.piggybank.repository.KidBalanceRepository;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.ReconciliationRunRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks every kid's kid_balances row against the transactions ledger.
+ *
+ * Kids are walked in ID order, chunk-size at a time. Each chunk is one query that sums
+ * the chunk's ledger rows per kid next to their balance rows, so every ledger row is read
+ * once per run and memory is bounded by the chunk size. Chunks run on a few worker
+ * threads, paced to max-ledger-rows-per-second. Mismatches are written to
+ * balance_discrepancies and, with auto-repair, the balance row is overwritten with the
+ * ledger sums.
+ *
+ * The run's checkpoint in reconciliation_runs only moves past a chunk once it and every
+ * earlier chunk are done, so a run interrupted by a restart or failure resumes there.
+ * A running run is leased to one instance at a time: every checkpoint renews the lease
+ * with a conditional update, an instance whose lease was taken over stops, and another
+ * instance resumes a run only once its lease has expired.
+ */
+@Service
+public class BalanceReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceReconciliationService.class);
+
+    private static final String REPAIR_USER = "balance-reconciliation";
+
+    @Autowired
+    private KidBalanceJdbcRepository kidBalanceJdbcRepository;
+
+    @Autowired
+    private KidBalanceRepository kidBalanceRepository;
+
+    @Autowired
+    private KidRepository kidRepository;
+
+    @Autowired
+    private ReconciliationRunRepository reconciliationRunRepository;
+
+    @Autowired
+    private BalanceDiscrepancyRepository balanceDiscrepancyRepository;
+
+    @Autowired
+    private KidBalanceService kidBalanceService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${piggybank.reconciliation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${piggybank.reconciliation.initial-delay:10m}")
+    private Duration initialDelay;
+
+    @Value("${piggybank.reconciliation.interval:24h}")
+    private Duration interval;
+
+    @Value("${piggybank.reconciliation.threads:2}")
+    private int threads;
+
+    @Value("${piggybank.reconciliation.chunk-size:500}")
+    private int chunkSize;
+
+    // 0 means unthrottled
+    @Value("${piggybank.reconciliation.max-ledger-rows-per-second:50000}")
+    private long maxLedgerRowsPerSecond;
+
+    @Value("${piggybank.reconciliation.auto-repair:false}")
+    private boolean autoRepair;
+
+    @Value("${piggybank.reconciliation.lease:5m}")
+    private Duration lease;
+
+    private String owner = ManagementFactory.getRuntimeMXBean().getName();
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService scheduler;
+    private Timer runTimer;
+    private Counter kidsChecked;
+    private Counter discrepanciesFound;
+    private Counter balancesRepaired;
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (meterRegistry != null) {
+            registerMetrics(meterRegistry);
+        }
+        if (!enabled) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcileSafely, initialDelay.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        runTimer = Timer.builder("piggybank.reconciliation.time")
+                .description("Time taken by balance reconciliation runs")
+                .register(registry);
+        kidsChecked = Counter.builder("piggybank.reconciliation.kids")
+                .description("Kids whose balances were checked against the ledger")
+                .register(registry);
+        discrepanciesFound = Counter.builder("piggybank.reconciliation.discrepancies")
+                .description("Kid balances found not to match the ledger")
+                .register(registry);
+        balancesRepaired = Counter.builder("piggybank.reconciliation.repaired")
+                .description("Kid balances overwritten with the ledger balances")
+                .register(registry);
+    }
+
+    private void reconcileSafely() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            // The run keeps its checkpoint and resumes on the next schedule
+            logger.error("Balance reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Check every kid, resuming the newest unfinished run if there is one. Returns the
+     * completed run, or empty if another instance holds the lease on the unfinished run.
+     */
+    public synchronized Optional<ReconciliationRun> reconcile() {
+        long started = System.nanoTime();
+        Optional<ReconciliationRun> claimed = startOrResumeRun();
+        if (claimed.isEmpty()) {
+            return Optional.empty();
+        }
+        ReconciliationRun run = claimed.get();
+        Long runId = run.getId();
+        Throttle throttle = new Throttle(maxLedgerRowsPerSecond);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "balance-reconciler-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Chunks in kid order; at most one per worker is in flight
+        Deque<Future<ChunkResult>> inFlight = new ArrayDeque<>();
+        long afterId = run.getCheckpointKidId();
+        boolean allSubmitted = false;
+
+        try {
+            while (true) {
+                while (!allSubmitted && inFlight.size() < threads) {
+                    List<Long> kidIds = kidRepository.findIdsAfter(afterId, chunkSize);
+                    if (kidIds.isEmpty()) {
+                        allSubmitted = true;
+                    } else {
+                        afterId = kidIds.get(kidIds.size() - 1);
+                        inFlight.add(workers.submit(() -> checkChunk(runId, kidIds, throttle)));
+                    }
+                }
+                if (inFlight.isEmpty()) {
+                    break;
+                }
+                checkpoint(run, await(inFlight.removeFirst()));
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        LocalDateTime finishedAt = LocalDateTime.now();
+        if (reconciliationRunRepository.complete(runId, owner, finishedAt) == 0) {
+            throw leaseLost(runId);
+        }
+        run.setStatus(ReconciliationRun.Status.COMPLETED);
+        run.setFinishedAt(finishedAt);
+        run.setUpdatedAt(finishedAt);
+        run.setLeaseUntil(null);
+
+        if (runTimer != null) {
+            runTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        logger.info("Balance reconciliation run {} finished: {} kids, {} ledger rows, {} discrepancies, {} repaired",
+                runId, run.getKidsChecked(), run.getLedgerRows(), run.getDiscrepancies(), run.getRepaired());
+        return Optional.of(run);
+    }
+
+    /**
+     * Start a run, or take the lease on the unfinished one. The newest run stays locked
+     * until this commits, so two instances cannot both start one.
+     */
+    private Optional<ReconciliationRun> startOrResumeRun() {
+        Optional<ReconciliationRun> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            Optional<ReconciliationRun> newest = reconciliationRunRepository.findFirstByOrderByIdDesc();
+            if (newest.isEmpty() || newest.get().getStatus() != ReconciliationRun.Status.RUNNING) {
+                ReconciliationRun run = new ReconciliationRun(now);
+                run.setOwner(owner);
+                run.setLeaseUntil(now.plus(lease));
+                run = reconciliationRunRepository.save(run);
+                logger.info("Balance reconciliation run {} started by {}", run.getId(), owner);
+                return Optional.of(run);
+            }
+
+            ReconciliationRun unfinished = newest.get();
+            if (reconciliationRunRepository.claimLease(unfinished.getId(), owner, now.plus(lease), now) == 0) {
+                logger.info("Balance reconciliation run {} is leased to {} until {}",
+                        unfinished.getId(), unfinished.getOwner(), unfinished.getLeaseUntil());
+                return Optional.empty();
+            }
+            // Kids past the checkpoint may have been checked before the interruption; check them again
+            balanceDiscrepancyRepository.deleteByRunIdAfterKid(unfinished.getId(), unfinished.getCheckpointKidId());
+            logger.info("Balance reconciliation run {} resumed by {} after kid {} ({} kids already checked)",
+                    unfinished.getId(), owner, unfinished.getCheckpointKidId(), unfinished.getKidsChecked());
+            return reconciliationRunRepository.findById(unfinished.getId());
+        });
+        return claimed == null ? Optional.empty() : claimed;
+    }
+
+    private IllegalStateException leaseLost(Long runId) {
+        return new IllegalStateException("Balance reconciliation run " + runId
+                + " was taken over by another instance after its lease expired");
+    }
+
+    private ChunkResult await(Future<ChunkResult> chunk) {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reconciling balances", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Failed to reconcile balances", e.getCause());
+        }
+    }
+
+    private void checkpoint(ReconciliationRun run, ChunkResult result) {
+        run.setCheckpointKidId(result.lastKidId);
+        run.setKidsChecked(run.getKidsChecked() + result.kids);
+        run.setLedgerRows(run.getLedgerRows() + result.ledgerRows);
+        run.setDiscrepancies(run.getDiscrepancies() + result.discrepancies);
+        run.setRepaired(run.getRepaired() + result.repaired);
+        run.setUpdatedAt(LocalDateTime.now());
+        run.setLeaseUntil(run.getUpdatedAt().plus(lease));
+        if (reconciliationRunRepository.checkpoint(run.getId(), owner, run.getCheckpointKidId(), run.getKidsChecked(),
+                run.getLedgerRows(), run.getDiscrepancies(), run.getRepaired(), run.getLeaseUntil(),
+                run.getUpdatedAt()) == 0) {
+            throw leaseLost(run.getId());
+        }
+
+        if (kidsChecked != null) {
+            kidsChecked.increment(result.kids);
+            discrepanciesFound.increment(result.discrepancies);
+            balancesRepaired.increment(result.repaired);
+        }
+    }
+
+    /**
+     * Compare one chunk of kids with their ledgers and record (and repair) mismatches
+     */
+    private ChunkResult checkChunk(Long runId, List<Long> kidIds, Throttle throttle) throws InterruptedException {
+        boolean ledgerSource = kidBalanceService.isLedgerSource();
+        List<KidBalanceJdbcRepository.BalanceCheck> checks = kidBalanceJdbcRepository.findBalanceChecks(kidIds);
+
+        long ledgerRows = 0;
+        int repaired = 0;
+        List<BalanceDiscrepancy> discrepancies = new ArrayList<>();
+        for (KidBalanceJdbcRepository.BalanceCheck check : checks) {
+            ledgerRows += check.getLedgerRows();
+            // With LEDGER balances a kid without a snapshot is read from its whole ledger
+            if (check.matchesLedger() || (ledgerSource && !check.hasBalanceRow())) {
+                continue;
+            }
+
+            BalanceDiscrepancy discrepancy = toDiscrepancy(runId, check);
+            if (autoRepair && repair(check.getUserId(), check.getKidId(), ledgerSource)) {
+                discrepancy.setRepairedAt(LocalDateTime.now());
+                repaired++;
+            }
+            discrepancies.add(discrepancy);
+            logger.warn("Balances of kid {} (user {}) do not match the ledger up to transaction {}{}",
+                    check.getKidId(), check.getUserId(), discrepancy.getLedgerTransactionId(),
+                    discrepancy.getRepairedAt() != null ? "; repaired" : "");
+        }
+        if (!discrepancies.isEmpty()) {
+            balanceDiscrepancyRepository.saveAll(discrepancies);
+        }
+
+        throttle.acquire(ledgerRows);
+        return new ChunkResult(kidIds.get(kidIds.size() - 1), checks.size(), ledgerRows, discrepancies.size(),
+                repaired);
+    }
+
+    private BalanceDiscrepancy toDiscrepancy(Long runId, KidBalanceJdbcRepository.BalanceCheck check) {
+        KidBalanceJdbcRepository.LedgerDelta ledger = check.getLedger();
+        BalanceDiscrepancy discrepancy = new BalanceDiscrepancy();
+        discrepancy.setRunId(runId);
+        discrepancy.setUserId(check.getUserId());
+        discrepancy.setKidId(check.getKidId());
+        discrepancy.setLedgerTransactionId(check.getLastAppliedTransactionId() != null
+                ? check.getLastAppliedTransactionId() : ledger.getLastTransactionId());
+        discrepancy.setLedgerCharity(ledger.getAmount(Transaction.ComponentType.CHARITY));
+        discrepancy.setLedgerSpend(ledger.getAmount(Transaction.ComponentType.SPEND));
+        discrepancy.setLedgerSavings(ledger.getAmount(Transaction.ComponentType.SAVINGS));
+        discrepancy.setLedgerInvestment(ledger.getAmount(Transaction.ComponentType.INVESTMENT));
+        discrepancy.setRecordedCharity(check.getCharityBalance());
+        discrepancy.setRecordedSpend(check.getSpendBalance());
+        discrepancy.setRecordedSavings(check.getSavingsBalance());
+        discrepancy.setRecordedInvestment(check.getInvestmentBalance());
+        discrepancy.setRecordedTotal(check.getTotalBalance());
+        discrepancy.setDetectedAt(LocalDateTime.now());
+        return discrepancy;
+    }
+
+    /**
+     * Overwrite a kid's balances with its ledger sums. The ledger is summed after the
+     * balance row is locked: writes that changed the row have committed by then, and
+     * writes still to come wait for the lock and apply on top of the repaired balances.
+     */
+    private boolean repair(Long userId, Long kidId, boolean ledgerSource) {
+        Boolean repaired = transactionTemplate.execute(status -> {
+            Optional<KidBalanceJdbcRepository.Snapshot> locked = kidBalanceJdbcRepository.lockSnapshot(userId, kidId);
+            if (locked.isEmpty()) {
+                // A kid with ledger rows but no balance row, which only ROW balances report
+                kidBalanceRepository.createIfAbsent(TimeOrderedIds.nextId(), userId, kidId, LocalDateTime.now(),
+                        REPAIR_USER);
+                locked = kidBalanceJdbcRepository.lockSnapshot(userId, kidId);
+            }
+            if (locked.isEmpty()) {
+                return false;
+            }
+
+            // A snapshot keeps its position; later ledger rows are added to it on read
+            long upToId = ledgerSource ? locked.get().getLastAppliedTransactionId() : Long.MAX_VALUE;
+            KidBalanceJdbcRepository.LedgerDelta ledger = kidBalanceJdbcRepository.sumLedgerUpTo(userId, kidId, upToId);
+            return kidBalanceJdbcRepository.overwriteBalance(userId, kidId, ledger, LocalDateTime.now(),
+                    REPAIR_USER) == 1;
+        });
+        return Boolean.TRUE.equals(repaired);
+    }
+
+    // Setter methods for dependency injection
+    public void setKidBalanceJdbcRepository(KidBalanceJdbcRepository kidBalanceJdbcRepository) {
+        this.kidBalanceJdbcRepository = kidBalanceJdbcRepository;
+    }
+
+    public void setKidBalanceRepository(KidBalanceRepository kidBalanceRepository) {
+        this.kidBalanceRepository = kidBalanceRepository;
+    }
+
+    public void setKidRepository(KidRepository kidRepository) {
+        this.kidRepository = kidRepository;
+    }
+
+    public void setReconciliationRunRepository(ReconciliationRunRepository reconciliationRunRepository) {
+        this.reconciliationRunRepository = reconciliationRunRepository;
+    }
+
+    public void setBalanceDiscrepancyRepository(BalanceDiscrepancyRepository balanceDiscrepancyRepository) {
+        this.balanceDiscrepancyRepository = balanceDiscrepancyRepository;
+    }
+
+    public void setKidBalanceService(KidBalanceService kidBalanceService) {
+        this.kidBalanceService = kidBalanceService;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Setter methods for configuration
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setInitialDelay(Duration initialDelay) {
+        this.initialDelay = initialDelay;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public void setMaxLedgerRowsPerSecond(long maxLedgerRowsPerSecond) {
+        this.maxLedgerRowsPerSecond = maxLedgerRowsPerSecond;
+    }
+
+    public void setAutoRepair(boolean autoRepair) {
+        this.autoRepair = autoRepair;
+    }
+
+    public void setLease(Duration lease) {
+        this.lease = lease;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Paces all workers of a run together: a worker that has scanned ahead of the allowed
+     * rate sleeps until the run is back on it
+     */
+    private static final class Throttle {
+        private final long rowsPerSecond;
+        private final long startedAt = System.nanoTime();
+        private final AtomicLong scannedRows = new AtomicLong();
+
+        private Throttle(long rowsPerSecond) {
+            this.rowsPerSecond = rowsPerSecond;
+        }
+
+        private void acquire(long rows) throws InterruptedException {
+            if (rowsPerSecond <= 0) {
+                return;
+            }
+            long dueAt = startedAt + (long) (scannedRows.addAndGet(rows) * 1_000_000_000d / rowsPerSecond);
+            long waitNanos = dueAt - System.nanoTime();
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+
+    private static final class ChunkResult {
+        private final long lastKidId;
+        private final long kids;
+        private final long ledgerRows;
+        private final long discrepancies;
+        private final long repaired;
+
+        private ChunkResult(long lastKidId, long kids, long ledgerRows, long discrepancies, long repaired) {
+            this.lastKidId = lastKidId;
+            this.kids = kids;
+            this.ledgerRows = ledgerRows;
+            this.discrepancies = discrepancies;
+            this.repaired = repaired;
+        }
+    }
+}
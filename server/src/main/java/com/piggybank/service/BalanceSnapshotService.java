@@ -0,0 +1,274 @@
+package com.piggybank.service;
+
+import com.piggybank.entity.id.TimeOrderedIds;
+import com.piggybank.repository.KidBalanceJdbcRepository;
+import com.piggybank.repository.KidRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the kid_balances snapshots of LEDGER balances close to the ledger, so reads only
+ * add a few recent transactions to them.
+ *
+ * Every interval the snapshots of kids with new transactions are moved on over their
+ * ledger rows older than the settle time. Deposits append without locks but must commit
+ * within piggybank.balance.max-append-time of getting their ids (see
+ * KidBalanceService.beginLedgerAppend), so with a settle time above that plus the clock
+ * skew between nodes, no deposit is in flight below the rows folded and every later one
+ * gets a higher id. Withdrawals hold their kid's snapshot row lock until they commit, and
+ * each chunk of snapshot rows is locked before it is folded. Balances are correct whether
+ * or not this runs; it only bounds how much ledger a read has to add.
+ *
+ * At startup kid_balances is converted to the configured source: ROW balance rows become
+ * snapshots of the ledger they already include, and snapshots are folded up to the end
+ * of the ledger and become ROW balance rows again. Both need every node on the same source.
+ */
+@Service
+public class BalanceSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceSnapshotService.class);
+
+    private static final String SNAPSHOT_USER = "balance-snapshot";
+
+    @Autowired
+    private KidBalanceJdbcRepository kidBalanceJdbcRepository;
+
+    @Autowired
+    private KidRepository kidRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${piggybank.balance.source:ROW}")
+    private KidBalanceService.BalanceSource balanceSource;
+
+    @Value("${piggybank.balance.snapshot.interval:1m}")
+    private Duration interval;
+
+    @Value("${piggybank.balance.snapshot.lookback:2m}")
+    private Duration lookback;
+
+    @Value("${piggybank.balance.snapshot.settle:10s}")
+    private Duration settle;
+
+    @Value("${piggybank.balance.snapshot.chunk-size:500}")
+    private int chunkSize;
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService snapshotter;
+    // Kids are found by their transactions after this id; 0 until the first full pass
+    private long watermark;
+    private Timer snapshotTimer;
+    private Counter snapshotsMoved;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (meterRegistry != null) {
+            snapshotTimer = Timer.builder("piggybank.balance.snapshot.time")
+                    .description("Time taken to move balance snapshots on to the ledger")
+                    .register(meterRegistry);
+            snapshotsMoved = Counter.builder("piggybank.balance.snapshot.moved")
+                    .description("Balance snapshots moved on to newer ledger rows")
+                    .register(meterRegistry);
+        }
+
+        // Both conversions run before the web server accepts requests
+        if (balanceSource == KidBalanceService.BalanceSource.LEDGER) {
+            if (kidBalanceJdbcRepository.hasRowBalances()) {
+                convertToSnapshots();
+            }
+            snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "balance-snapshotter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = interval.toMillis();
+            snapshotter.scheduleWithFixedDelay(this::snapshotSafely, intervalMillis, intervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else if (kidBalanceJdbcRepository.hasSnapshots()) {
+            convertToRowBalances();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+        }
+    }
+
+    private void snapshotSafely() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            // Retried on the next run; reads stay correct meanwhile
+            logger.warn("Failed to update balance snapshots: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Move snapshots on over the ledger rows older than the settle time. The first run
+     * visits every kid; later runs only the kids with transactions from lookback before the
+     * previous run on, so lookback must exceed the settle time. A transaction that commits
+     * later than that is still read, and folded once its kid has a newer one. Returns the
+     * number of snapshots moved on.
+     */
+    public synchronized int snapshot() {
+        long started = System.nanoTime();
+        long now = System.currentTimeMillis();
+        long nextWatermark = TimeOrderedIds.lowestIdAt(now - lookback.toMillis()) - 1;
+        // Every id handed out up to settle ago
+        long foldUpTo = TimeOrderedIds.lowestIdAt(now - settle.toMillis() + 1) - 1;
+        int moved = 0;
+
+        if (watermark == 0) {
+            long afterId = 0;
+            List<Long> kidIds;
+            while (!(kidIds = kidRepository.findIdsAfter(afterId, chunkSize)).isEmpty()) {
+                moved += advance(kidIds, foldUpTo);
+                afterId = kidIds.get(kidIds.size() - 1);
+            }
+        } else {
+            List<Long> kidIds = kidBalanceJdbcRepository.findKidIdsWithTransactionsAfter(watermark);
+            for (int from = 0; from < kidIds.size(); from += chunkSize) {
+                moved += advance(kidIds.subList(from, Math.min(from + chunkSize, kidIds.size())), foldUpTo);
+            }
+        }
+        watermark = Math.max(watermark, nextWatermark);
+
+        if (snapshotTimer != null) {
+            snapshotTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            snapshotsMoved.increment(moved);
+        }
+        logger.debug("Moved {} balance snapshots on to the end of the ledger", moved);
+        return moved;
+    }
+
+    /**
+     * Give the kids snapshots if they have none, then lock them and fold in their ledger
+     * rows up to the given id, in one transaction
+     */
+    private int advance(List<Long> kidIds, long foldUpTo) {
+        Integer moved = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            createMissingSnapshots(kidIds, now);
+            kidBalanceJdbcRepository.lockSnapshots(kidIds);
+            return kidBalanceJdbcRepository.applySnapshots(
+                    kidBalanceJdbcRepository.findPendingSnapshots(kidIds, foldUpTo), now, SNAPSHOT_USER);
+        });
+        return moved == null ? 0 : moved;
+    }
+
+    private void createMissingSnapshots(List<Long> kidIds, LocalDateTime now) {
+        for (Long[] kid : kidBalanceJdbcRepository.findKidsWithoutSnapshot(kidIds)) {
+            kidBalanceJdbcRepository.createSnapshotIfAbsent(TimeOrderedIds.nextId(), kid[1], kid[0], now,
+                    SNAPSHOT_USER);
+        }
+    }
+
+    /**
+     * ROW to LEDGER: mark each balance row as including its kid's whole ledger
+     */
+    private void convertToSnapshots() {
+        long started = System.currentTimeMillis();
+        int converted = 0;
+        long afterId = 0;
+        List<Long> kidIds;
+        while (!(kidIds = kidRepository.findIdsAfter(afterId, chunkSize)).isEmpty()) {
+            List<Long> chunk = kidIds;
+            Integer rows = transactionTemplate.execute(status -> {
+                createMissingSnapshots(chunk, LocalDateTime.now());
+                return kidBalanceJdbcRepository.convertToSnapshots(chunk);
+            });
+            converted += rows == null ? 0 : rows;
+            afterId = kidIds.get(kidIds.size() - 1);
+        }
+        logger.info("Converted {} kid balance rows to ledger snapshots in {}ms",
+                converted, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * LEDGER to ROW: fold the whole ledger into each snapshot, then keep it up to date in place
+     */
+    private void convertToRowBalances() {
+        long started = System.currentTimeMillis();
+        int converted = 0;
+        long afterId = 0;
+        List<Long> kidIds;
+        while (!(kidIds = kidRepository.findIdsAfter(afterId, chunkSize)).isEmpty()) {
+            List<Long> chunk = kidIds;
+            Integer rows = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                createMissingSnapshots(chunk, now);
+                kidBalanceJdbcRepository.lockSnapshots(chunk);
+                // No node is writing yet, so the whole ledger can be folded
+                kidBalanceJdbcRepository.applySnapshots(
+                        kidBalanceJdbcRepository.findPendingSnapshots(chunk, Long.MAX_VALUE), now, SNAPSHOT_USER);
+                return kidBalanceJdbcRepository.convertToRowBalances(chunk);
+            });
+            converted += rows == null ? 0 : rows;
+            afterId = kidIds.get(kidIds.size() - 1);
+        }
+        logger.info("Converted {} ledger snapshots to kid balance rows in {}ms",
+                converted, System.currentTimeMillis() - started);
+    }
+
+    // Setter methods for dependency injection
+    public void setKidBalanceJdbcRepository(KidBalanceJdbcRepository kidBalanceJdbcRepository) {
+        this.kidBalanceJdbcRepository = kidBalanceJdbcRepository;
+    }
+
+    public void setKidRepository(KidRepository kidRepository) {
+        this.kidRepository = kidRepository;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Setter methods for configuration
+    public void setBalanceSource(KidBalanceService.BalanceSource balanceSource) {
+        this.balanceSource = balanceSource;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public void setLookback(Duration lookback) {
+        this.lookback = lookback;
+    }
+
+    public void setSettle(Duration settle) {
+        this.settle = settle;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+}
@@ -0,0 +1,124 @@
+package com.piggybank.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Splits deposit amounts into the four components in whole cents.
+ *
+ * Percentages are compiled once per settings version into a {@link SplitPlan} of
+ * integer weights (basis points). Each split gives every component the floor of its
+ * exact share and hands the leftover cents to the largest remainders, ties going to
+ * the earlier component (charity, spend, savings, investment). The parts therefore
+ * always add up exactly to the deposit and the result is the same on every node.
+ */
+public final class DepositSplitEngine {
+
+    public static final int CHARITY = 0;
+    public static final int SPEND = 1;
+    public static final int SAVINGS = 2;
+    public static final int INVESTMENT = 3;
+
+    private static final int COMPONENTS = 4;
+
+    private DepositSplitEngine() {
+    }
+
+    /**
+     * Compile percentages (scale 2 or less, e.g. 25.00) into a reusable split plan
+     */
+    public static SplitPlan compile(BigDecimal charityPercentage, BigDecimal spendPercentage,
+            BigDecimal savingsPercentage, BigDecimal investmentPercentage) {
+        long[] weights = {
+                toBasisPoints(charityPercentage),
+                toBasisPoints(spendPercentage),
+                toBasisPoints(savingsPercentage),
+                toBasisPoints(investmentPercentage)
+        };
+
+        long totalWeight = 0;
+        for (long weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Split percentages must not be negative");
+            }
+            totalWeight += weight;
+        }
+        if (totalWeight == 0) {
+            throw new IllegalArgumentException("Split percentages must not all be zero");
+        }
+
+        return new SplitPlan(weights, totalWeight);
+    }
+
+    /**
+     * Convert an amount with at most 2 decimal places to cents
+     */
+    public static long toCents(BigDecimal amount) {
+        try {
+            return amount.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount must have at most 2 decimal places");
+        }
+    }
+
+    /**
+     * Convert cents back to an amount at scale 2
+     */
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static long toBasisPoints(BigDecimal percentage) {
+        try {
+            return percentage.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Split percentages must have at most 2 decimal places");
+        }
+    }
+
+    /**
+     * Immutable, thread-safe component weights for one user's settings
+     */
+    public static final class SplitPlan {
+
+        private final long[] weights;
+        private final long totalWeight;
+
+        private SplitPlan(long[] weights, long totalWeight) {
+            this.weights = weights;
+            this.totalWeight = totalWeight;
+        }
+
+        /**
+         * Split a total in cents into component cents, indexed by CHARITY, SPEND, SAVINGS, INVESTMENT
+         */
+        public long[] split(long totalCents) {
+            if (totalCents < 0) {
+                throw new IllegalArgumentException("Amount must not be negative");
+            }
+
+            long[] parts = new long[COMPONENTS];
+            long[] remainders = new long[COMPONENTS];
+            long allocated = 0;
+            for (int i = 0; i < COMPONENTS; i++) {
+                long exact = Math.multiplyExact(totalCents, weights[i]);
+                parts[i] = exact / totalWeight;
+                remainders[i] = exact % totalWeight;
+                allocated += parts[i];
+            }
+
+            // At most COMPONENTS - 1 cents are left over; give each to the largest remaining share
+            for (long leftover = totalCents - allocated; leftover > 0; leftover--) {
+                int largest = 0;
+                for (int i = 1; i < COMPONENTS; i++) {
+                    if (remainders[i] > remainders[largest]) {
+                        largest = i;
+                    }
+                }
+                parts[largest]++;
+                remainders[largest] = -1;
+            }
+
+            return parts;
+        }
+    }
+}
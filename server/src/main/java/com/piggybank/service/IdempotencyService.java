@@ -0,0 +1,392 @@
+package com.piggybank.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.piggybank.entity.IdempotencyRecord;
+import com.piggybank.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates money writes sent with an Idempotency-Key header.
+ *
+ * The first request with a key runs the write under the kid's write stripe and stores its
+ * response in idempotency_keys in the same database transaction, so the ledger entry and
+ * the key commit together. Retries are answered from a bounded in-memory cache, falling
+ * back to the table, without running the write again. Cached entries expire with their
+ * record, so a key is never replayed past its expires_at. A duplicate that arrives while the
+ * first request is still running waits for its result. Only successful responses are
+ * stored: a failed write changed nothing, so its retry simply runs again.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private KidWriteCoordinator kidWriteCoordinator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${piggybank.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${piggybank.idempotency.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${piggybank.idempotency.in-flight-wait:30s}")
+    private Duration inFlightWait;
+
+    @Value("${piggybank.idempotency.purge-interval:1h}")
+    private Duration purgeInterval;
+
+    @Value("${piggybank.idempotency.purge-batch-size:1000}")
+    private int purgeBatchSize;
+
+    private Cache<String, StoredResponse> cache;
+    private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService purger;
+    private Counter replays;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new RecordExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotencyKeys");
+        replays = Counter.builder("piggybank.idempotency.replays")
+                .description("Write requests answered with the stored response of an earlier request")
+                .register(meterRegistry);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-key-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = purgeInterval.toMillis();
+        purger.scheduleWithFixedDelay(this::purgeExpired, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (purger != null) {
+            purger.shutdownNow();
+        }
+    }
+
+    /**
+     * Run a write for a kid at most once per idempotency key. Without a key the write
+     * simply runs. The operation name and request are hashed so a key reused for a
+     * different request is rejected. Exceptions from the write propagate unchanged.
+     */
+    public Result execute(Long userId, String idempotencyKey, String operation, Object request, Long kidId,
+            Supplier<Object> write) {
+        if (idempotencyKey == null) {
+            return new Result(kidWriteCoordinator.execute(kidId, write), false);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String cacheKey = userId + ":" + idempotencyKey;
+        String requestHash = hash(operation, request);
+
+        while (true) {
+            StoredResponse cached = cache.getIfPresent(cacheKey);
+            if (cached != null) {
+                return replay(cached, requestHash);
+            }
+
+            CompletableFuture<StoredResponse> own = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(cacheKey, own);
+            if (running != null) {
+                StoredResponse first = awaitFirst(running);
+                if (first != null) {
+                    return replay(first, requestHash);
+                }
+                // The first request failed and stored nothing; run this one
+                continue;
+            }
+
+            StoredResponse stored = null;
+            try {
+                Optional<IdempotencyRecord> existing = findLive(userId, idempotencyKey);
+                if (existing.isPresent()) {
+                    stored = StoredResponse.of(existing.get());
+                    cache.put(cacheKey, stored);
+                    return replay(stored, requestHash);
+                }
+
+                StoredResponse written = kidWriteCoordinator.execute(kidId,
+                        () -> writeAndStore(userId, idempotencyKey, requestHash, write));
+                stored = new StoredResponse(written.requestHash, written.responseBody, written.expiresAt);
+                cache.put(cacheKey, stored);
+                return written.body != null ? new Result(written.body, false) : replay(stored, requestHash);
+            } catch (DataIntegrityViolationException e) {
+                // Another node stored this key first; its transaction won and ours rolled back
+                IdempotencyRecord winner = idempotencyRecordRepository
+                        .findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                        .orElseThrow(() -> e);
+                stored = StoredResponse.of(winner);
+                cache.put(cacheKey, stored);
+                return replay(stored, requestHash);
+            } finally {
+                own.complete(stored);
+                inFlight.remove(cacheKey, own);
+            }
+        }
+    }
+
+    /**
+     * Delete expired records in batches; the cache expires its entries by itself
+     */
+    public int purgeExpired() {
+        int deleted = 0;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int batch;
+            do {
+                batch = idempotencyRecordRepository.deleteExpired(now, purgeBatchSize);
+                deleted += batch;
+            } while (batch == purgeBatchSize);
+            if (deleted > 0) {
+                logger.debug("Purged {} expired idempotency keys", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to purge expired idempotency keys: {}", e.getMessage());
+        }
+        return deleted;
+    }
+
+    /**
+     * Run the write and store its response in one transaction. If another node stored the
+     * key while this request waited for the kid's stripe, its response is returned instead.
+     */
+    private StoredResponse writeAndStore(Long userId, String idempotencyKey, String requestHash,
+            Supplier<Object> write) {
+        return transactionTemplate.execute(status -> {
+            Optional<IdempotencyRecord> existing = idempotencyRecordRepository
+                    .findByUserIdAndIdempotencyKey(userId, idempotencyKey);
+            if (existing.isPresent()) {
+                IdempotencyRecord record = existing.get();
+                if (record.getExpiresAt().isAfter(LocalDateTime.now())) {
+                    return StoredResponse.of(record);
+                }
+                // An expired record still holds the unique key until the purge removes it
+                idempotencyRecordRepository.delete(record);
+                idempotencyRecordRepository.flush();
+            }
+
+            Object body = write.get();
+            String responseBody = toJson(body);
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = now.plus(ttl);
+            idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(userId, idempotencyKey, requestHash,
+                    responseBody, now, expiresAt));
+            return new StoredResponse(requestHash, responseBody, expiresAt, body);
+        });
+    }
+
+    private Optional<IdempotencyRecord> findLive(Long userId, String idempotencyKey) {
+        return idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .filter(record -> record.getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    private StoredResponse awaitFirst(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.get(inFlightWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("The original request with this Idempotency-Key is still running, please retry");
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private Result replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash.equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency-Key was already used for a different request");
+        }
+        replays.increment();
+        try {
+            return new Result(objectMapper.readTree(stored.responseBody), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response could not be read", e);
+        }
+    }
+
+    private String hash(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to hash request", e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize response", e);
+        }
+    }
+
+    private static final class StoredResponse {
+        private final String requestHash;
+        private final String responseBody;
+        private final LocalDateTime expiresAt;
+        // The original response object; only set for the request that ran the write
+        private final Object body;
+
+        private StoredResponse(String requestHash, String responseBody, LocalDateTime expiresAt) {
+            this(requestHash, responseBody, expiresAt, null);
+        }
+
+        private StoredResponse(String requestHash, String responseBody, LocalDateTime expiresAt, Object body) {
+            this.requestHash = requestHash;
+            this.responseBody = responseBody;
+            this.expiresAt = expiresAt;
+            this.body = body;
+        }
+
+        private static StoredResponse of(IdempotencyRecord record) {
+            return new StoredResponse(record.getRequestHash(), record.getResponseBody(), record.getExpiresAt());
+        }
+    }
+
+    /**
+     * Expire each cache entry when its record expires, however late it was loaded into the cache
+     */
+    private static class RecordExpiry implements Expiry<String, StoredResponse> {
+        @Override
+        public long expireAfterCreate(String key, StoredResponse value, long currentTime) {
+            return Math.max(0, Duration.between(LocalDateTime.now(), value.expiresAt).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, StoredResponse value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, StoredResponse value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Response body of a write, and whether it was replayed from an earlier request
+     */
+    public static class Result {
+        private final Object body;
+        private final boolean replayed;
+
+        public Result(Object body, boolean replayed) {
+            this.body = body;
+            this.replayed = replayed;
+        }
+
+        public Object getBody() {
+            return body;
+        }
+
+        public boolean isReplayed() {
+            return replayed;
+        }
+    }
+
+    // Setter methods for dependency injection
+    public void setIdempotencyRecordRepository(IdempotencyRecordRepository idempotencyRecordRepository) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+    }
+
+    public void setKidWriteCoordinator(KidWriteCoordinator kidWriteCoordinator) {
+        this.kidWriteCoordinator = kidWriteCoordinator;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Setter methods for configuration
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public void setCacheMaxSize(long cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+    }
+
+    public void setInFlightWait(Duration inFlightWait) {
+        this.inFlightWait = inFlightWait;
+    }
+
+    public void setPurgeInterval(Duration purgeInterval) {
+        this.purgeInterval = purgeInterval;
+    }
+
+    public void setPurgeBatchSize(int purgeBatchSize) {
+        this.purgeBatchSize = purgeBatchSize;
+    }
+}
@@ -1,10 +1,19 @@
 package com.piggybank.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.piggybank.security.AuthenticatedUser;
 import io.jsonwebtoken.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -15,9 +24,35 @@ public class JwtTokenService {
     @Autowired
     private SecretKey jwtSigningKey;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    @Value("${piggybank.jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheMaxSize;
+
+    // Parsers are immutable and thread-safe, so one is built and shared
+    private JwtParser jwtParser;
+
+    // Verified tokens keyed by their signature segment; entries expire with the token
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(jwtSigningKey)
+                .build();
+
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwtVerifiedTokens");
+    }
+
     public String generateToken(Long userId, String phoneNumber) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId);
@@ -38,13 +73,33 @@ public class JwtTokenService {
                 .compact();
     }
 
+    /**
+     * Verify a token and return its user. A token already verified and not yet expired
+     * is served from the cache without repeating the HMAC check.
+     */
+    public AuthenticatedUser authenticate(String token) {
+        String signature = signatureOf(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(signature);
+        // The signature alone is not enough: the signed content must match too
+        if (cached != null && cached.token.equals(token) && cached.user.getExpiresAt().isAfter(Instant.now())) {
+            return cached.user;
+        }
+
+        Claims claims = getAllClaimsFromToken(token);
+        AuthenticatedUser user = new AuthenticatedUser(
+                claims.get("userId", Long.class),
+                claims.getSubject(),
+                claims.getExpiration().toInstant());
+        verifiedTokens.put(signature, new VerifiedToken(token, user));
+        return user;
+    }
+
     public String getPhoneNumberFromToken(String token) {
-        return getClaimFromToken(token, Claims::getSubject);
+        return authenticate(token).getPhoneNumber();
     }
 
     public Long getUserIdFromToken(String token) {
-        Claims claims = getAllClaimsFromToken(token);
-        return claims.get("userId", Long.class);
+        return authenticate(token).getUserId();
     }
 
     public <T> T getClaimFromToken(String token, java.util.function.Function<Claims, T> claimsResolver) {
@@ -54,11 +109,7 @@ public class JwtTokenService {
 
     private Claims getAllClaimsFromToken(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(jwtSigningKey)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return jwtParser.parseClaimsJws(token).getBody();
         } catch (ExpiredJwtException e) {
             throw new RuntimeException("JWT token has expired", e);
         } catch (UnsupportedJwtException e) {
@@ -72,6 +123,11 @@ public class JwtTokenService {
         }
     }
 
+    private String signatureOf(String token) {
+        int lastDot = token == null ? -1 : token.lastIndexOf('.');
+        return lastDot >= 0 ? token.substring(lastDot + 1) : String.valueOf(token);
+    }
+
     public Boolean validateToken(String token, String phoneNumber) {
         try {
             final String tokenPhoneNumber = getPhoneNumberFromToken(token);
@@ -89,4 +145,36 @@ public class JwtTokenService {
     public Date getExpirationDateFromToken(String token) {
         return getClaimFromToken(token, Claims::getExpiration);
     }
+
+    // Setter methods for dependency injection
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    private static class VerifiedToken {
+        private final String token;
+        private final AuthenticatedUser user;
+
+        VerifiedToken(String token, AuthenticatedUser user) {
+            this.token = token;
+            this.user = user;
+        }
+    }
+
+    private static class TokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), value.user.getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -1,17 +1,24 @@
 package com.piggybank.service;
 
 import com.piggybank.dto.KidBalanceDTO;
-import com.piggybank.entity.Kid;
 import com.piggybank.entity.KidBalance;
 import com.piggybank.entity.Transaction;
+import com.piggybank.entity.id.TimeOrderedIds;
+import com.piggybank.repository.KidBalanceJdbcRepository;
 import com.piggybank.repository.KidBalanceRepository;
 import com.piggybank.repository.KidRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,15 +26,36 @@ import java.util.Optional;
 @Transactional
 public class KidBalanceService {
 
+    /**
+     * Where balances live. ROW keeps kid_balances up to date on every write. LEDGER treats
+     * the transactions table as the source of truth: writes only insert, and kid_balances
+     * holds periodic snapshots that reads add the newer ledger rows to.
+     */
+    public enum BalanceSource {
+        ROW, LEDGER
+    }
+
     @Autowired
     private KidBalanceRepository kidBalanceRepository;
 
+    @Autowired
+    private KidBalanceJdbcRepository kidBalanceJdbcRepository;
+
     @Autowired
     private KidRepository kidRepository;
 
     @Autowired
     private LoggingService loggingService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${piggybank.balance.source:ROW}")
+    private BalanceSource balanceSource;
+
+    @Value("${piggybank.balance.max-append-time:5s}")
+    private Duration maxAppendTime;
+
     /**
      * Get or create kid balance for a user and kid
      */
@@ -38,13 +66,10 @@ public class KidBalanceService {
             return existingBalance.get();
         }
 
-        // Create new balance record
-        KidBalance newBalance = new KidBalance(userId, kidId, createdBy);
-        KidBalance savedBalance = kidBalanceRepository.save(newBalance);
+        // Create new balance record; a concurrent create for the same kid is absorbed by the unique key
+        createBalanceRecord(userId, kidId, LocalDateTime.now(), createdBy);
 
-        loggingService.logKidBalanceUpdate(userId, kidId, "Balance record created", createdBy);
-
-        return savedBalance;
+        return findBalance(userId, kidId);
     }
 
     /**
@@ -52,19 +77,18 @@ public class KidBalanceService {
      */
     public KidBalance updateBalance(Long userId, Long kidId, Transaction.ComponentType component,
             BigDecimal amount, boolean isDeposit, String updatedBy) {
-        KidBalance balance = getOrCreateKidBalance(userId, kidId, updatedBy);
-
-        // Update the balance
-        balance.updateBalance(component, amount, isDeposit);
-        balance.setUpdatedBy(updatedBy);
-
-        KidBalance updatedBalance = kidBalanceRepository.save(balance);
-
-        String action = isDeposit ? "Deposit" : "Withdrawal";
-        loggingService.logKidBalanceUpdate(userId, kidId,
-                String.format("%s %s: %s", action, component, amount), updatedBy);
+        if (isDeposit) {
+            applyDeposit(userId, kidId,
+                    component == Transaction.ComponentType.CHARITY ? amount : BigDecimal.ZERO,
+                    component == Transaction.ComponentType.SPEND ? amount : BigDecimal.ZERO,
+                    component == Transaction.ComponentType.SAVINGS ? amount : BigDecimal.ZERO,
+                    component == Transaction.ComponentType.INVESTMENT ? amount : BigDecimal.ZERO,
+                    updatedBy);
+        } else {
+            applyWithdrawal(userId, kidId, component, amount, updatedBy);
+        }
 
-        return updatedBalance;
+        return findBalance(userId, kidId);
     }
 
     /**
@@ -74,108 +98,159 @@ public class KidBalanceService {
             BigDecimal charityAmount, BigDecimal spendAmount,
             BigDecimal savingsAmount, BigDecimal investmentAmount,
             String updatedBy) {
-        KidBalance balance = getOrCreateKidBalance(userId, kidId, updatedBy);
+        applyDeposit(userId, kidId, charityAmount, spendAmount, savingsAmount, investmentAmount, updatedBy);
 
-        // Update all components
-        balance.setCharityBalance(balance.getCharityBalance().add(charityAmount));
-        balance.setSpendBalance(balance.getSpendBalance().add(spendAmount));
-        balance.setSavingsBalance(balance.getSavingsBalance().add(savingsAmount));
-        balance.setInvestmentBalance(balance.getInvestmentBalance().add(investmentAmount));
-        balance.setUpdatedBy(updatedBy);
+        return findBalance(userId, kidId);
+    }
 
-        KidBalance updatedBalance = kidBalanceRepository.save(balance);
+    /**
+     * Atomically add a deposit to all components without reloading the balance.
+     * With LEDGER balances the deposit's ledger row is the whole write; the caller must
+     * have called beginLedgerAppend before the row was given its id.
+     */
+    public void applyDeposit(Long userId, Long kidId,
+            BigDecimal charityAmount, BigDecimal spendAmount,
+            BigDecimal savingsAmount, BigDecimal investmentAmount,
+            String updatedBy) {
+        if (!isLedgerSource()) {
+            creditBalances(userId, kidId, charityAmount, spendAmount, savingsAmount, investmentAmount, updatedBy);
+        }
+
+        loggingService.logKidBalanceCredit(userId, kidId,
+                charityAmount, spendAmount, savingsAmount, investmentAmount, updatedBy);
+    }
 
-        loggingService.logKidBalanceUpdate(userId, kidId,
-                String.format("Deposit: Charity=%s, Spend=%s, Savings=%s, Investment=%s",
-                        charityAmount, spendAmount, savingsAmount, investmentAmount),
-                updatedBy);
+    /**
+     * Atomically withdraw from one component. The balance check and the debit are a
+     * single conditional UPDATE, so concurrent withdrawals can never overdraw.
+     * With LEDGER balances this only checks the balance, holding the kid's snapshot row
+     * lock until the withdrawal's ledger row commits.
+     */
+    public void applyWithdrawal(Long userId, Long kidId, Transaction.ComponentType component,
+            BigDecimal amount, String updatedBy) {
+        boolean debited;
+        if (isLedgerSource()) {
+            debited = hasLedgerBalance(userId, kidId, component, amount, updatedBy);
+        } else {
+            LocalDateTime now = LocalDateTime.now();
+            debited = switch (component) {
+                case CHARITY -> kidBalanceRepository.debitCharityBalance(userId, kidId, amount, now, updatedBy);
+                case SPEND -> kidBalanceRepository.debitSpendBalance(userId, kidId, amount, now, updatedBy);
+                case SAVINGS -> kidBalanceRepository.debitSavingsBalance(userId, kidId, amount, now, updatedBy);
+                case INVESTMENT -> kidBalanceRepository.debitInvestmentBalance(userId, kidId, amount, now, updatedBy);
+            } == 1;
+        }
+
+        if (!debited) {
+            meterRegistry.counter("piggybank.withdrawals.rejected",
+                    "reason", "insufficient_balance", "component", component.name()).increment();
+            throw new IllegalArgumentException("Insufficient balance in " + component + " component");
+        }
 
-        return updatedBalance;
+        loggingService.logKidBalanceDebit(userId, kidId, component, amount, updatedBy);
     }
 
     /**
-     * Get kid balance details with kid information
+     * With LEDGER balances, deposits append to the ledger without taking any lock. The
+     * snapshot job only folds rows older than its settle time, so no deposit may still be
+     * in flight by then: one that has not committed max-append-time after this call is
+     * rolled back with a BusyException. Call right before the deposit rows get their ids.
+     * Does nothing with ROW balances.
      */
-    @Transactional(readOnly = true)
-    public KidBalanceDTO getKidBalanceDetails(Long userId, Long kidId) {
-        Optional<KidBalance> balanceOpt = kidBalanceRepository.findByUserIdAndKidId(userId, kidId);
-        Optional<Kid> kidOpt = kidRepository.findByIdAndUserId(kidId, userId);
+    public void beginLedgerAppend() {
+        if (!isLedgerSource()) {
+            return;
+        }
+        long started = System.nanoTime();
+        long limitNanos = maxAppendTime.toNanos();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (System.nanoTime() - started > limitNanos) {
+                    meterRegistry.counter("piggybank.balance.ledger.appends.rejected").increment();
+                    throw new KidWriteCoordinator.BusyException();
+                }
+            }
+        });
+    }
 
-        if (kidOpt.isEmpty()) {
-            throw new IllegalArgumentException("Kid not found");
+    private KidBalanceJdbcRepository.Snapshot lockLedgerSnapshot(Long userId, Long kidId, String updatedBy) {
+        Optional<KidBalanceJdbcRepository.Snapshot> snapshot = kidBalanceJdbcRepository.lockSnapshot(userId, kidId);
+        if (snapshot.isEmpty()) {
+            kidBalanceJdbcRepository.createSnapshotIfAbsent(TimeOrderedIds.nextId(), userId, kidId,
+                    LocalDateTime.now(), updatedBy);
+            snapshot = kidBalanceJdbcRepository.lockSnapshot(userId, kidId);
         }
+        KidBalanceJdbcRepository.Snapshot locked = snapshot
+                .orElseThrow(() -> new IllegalStateException("Balance record missing for kid " + kidId));
+        // The snapshot may have been moved on by a node whose clock is ahead of ours
+        TimeOrderedIds.observe(locked.getLastAppliedTransactionId());
+        return locked;
+    }
 
-        Kid kid = kidOpt.get();
+    /**
+     * Lock the kid's snapshot row, which serializes withdrawals for the kid across nodes and
+     * against the snapshot job, then check the snapshot plus every later ledger row covers
+     * the amount. Deposits committing meanwhile can only raise the balance.
+     */
+    private boolean hasLedgerBalance(Long userId, Long kidId, Transaction.ComponentType component,
+            BigDecimal amount, String updatedBy) {
+        KidBalanceJdbcRepository.Snapshot locked = lockLedgerSnapshot(userId, kidId, updatedBy);
+
+        KidBalanceJdbcRepository.LedgerDelta delta = kidBalanceJdbcRepository.lockLedgerAfter(userId, kidId,
+                locked.getLastAppliedTransactionId());
+        BigDecimal available = locked.getBalance(component).add(delta.getAmount(component));
+        return available.compareTo(amount) >= 0;
+    }
 
-        if (balanceOpt.isEmpty()) {
-            // Return zero balances if no balance record exists
-            return new KidBalanceDTO(
-                    kidId,
-                    kid.getName(),
-                    kid.getAge(),
-                    BigDecimal.ZERO,
-                    BigDecimal.ZERO,
-                    BigDecimal.ZERO,
-                    BigDecimal.ZERO,
-                    BigDecimal.ZERO,
-                    null);
+    private void creditBalances(Long userId, Long kidId,
+            BigDecimal charityAmount, BigDecimal spendAmount,
+            BigDecimal savingsAmount, BigDecimal investmentAmount,
+            String updatedBy) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = kidBalanceRepository.creditBalances(userId, kidId,
+                charityAmount, spendAmount, savingsAmount, investmentAmount, now, updatedBy);
+
+        if (updated == 0) {
+            // First deposit for this kid: create the row, then apply the credit to it
+            createBalanceRecord(userId, kidId, now, updatedBy);
+            kidBalanceRepository.creditBalances(userId, kidId,
+                    charityAmount, spendAmount, savingsAmount, investmentAmount, now, updatedBy);
         }
+    }
 
-        KidBalance balance = balanceOpt.get();
-        return new KidBalanceDTO(
-                kidId,
-                kid.getName(),
-                kid.getAge(),
-                balance.getCharityBalance(),
-                balance.getSpendBalance(),
-                balance.getSavingsBalance(),
-                balance.getInvestmentBalance(),
-                balance.getTotalBalance(),
-                balance.getLastUpdated());
+    private void createBalanceRecord(Long userId, Long kidId, LocalDateTime now, String createdBy) {
+        kidBalanceRepository.createIfAbsent(TimeOrderedIds.nextId(), userId, kidId, now, createdBy);
+        loggingService.logKidBalanceUpdate(userId, kidId, "Balance record created", createdBy);
+    }
+
+    private KidBalance findBalance(Long userId, Long kidId) {
+        return kidBalanceRepository.findByUserIdAndKidId(userId, kidId)
+                .orElseThrow(() -> new IllegalStateException("Balance record missing for kid " + kidId));
+    }
+
+    /**
+     * Get kid balance details with kid information
+     */
+    @Transactional(readOnly = true)
+    public KidBalanceDTO getKidBalanceDetails(Long userId, Long kidId) {
+        Optional<KidBalanceDTO> balance = isLedgerSource()
+                ? kidBalanceJdbcRepository.findBalanceSummary(userId, kidId)
+                : kidBalanceRepository.findBalanceSummary(userId, kidId);
+        return balance.orElseThrow(() -> new IllegalArgumentException("Kid not found"));
     }
 
     /**
      * Get all kid balances for a user
      */
+    @Timed(value = "piggybank.balances.all", histogram = true)
     @Transactional(readOnly = true)
     public List<KidBalanceDTO> getAllKidBalances(Long userId) {
-        // Get all kids for the user
-        List<Kid> allKids = kidRepository.findByUserIdOrderByCreatedDateDesc(userId);
-        List<KidBalanceDTO> balanceDTOs = new ArrayList<>();
-
-        for (Kid kid : allKids) {
-            // Try to find balance record for this kid
-            Optional<KidBalance> balanceOpt = kidBalanceRepository.findByUserIdAndKidId(userId, kid.getId());
-
-            if (balanceOpt.isPresent()) {
-                // Kid has balance record
-                KidBalance balance = balanceOpt.get();
-                balanceDTOs.add(new KidBalanceDTO(
-                        kid.getId(),
-                        kid.getName(),
-                        kid.getAge(),
-                        balance.getCharityBalance(),
-                        balance.getSpendBalance(),
-                        balance.getSavingsBalance(),
-                        balance.getInvestmentBalance(),
-                        balance.getTotalBalance(),
-                        balance.getLastUpdated()));
-            } else {
-                // Kid doesn't have balance record yet - return zero balances
-                balanceDTOs.add(new KidBalanceDTO(
-                        kid.getId(),
-                        kid.getName(),
-                        kid.getAge(),
-                        BigDecimal.ZERO,
-                        BigDecimal.ZERO,
-                        BigDecimal.ZERO,
-                        BigDecimal.ZERO,
-                        BigDecimal.ZERO,
-                        null));
-            }
+        if (isLedgerSource()) {
+            return kidBalanceJdbcRepository.findBalanceSummaries(userId);
         }
-
-        return balanceDTOs;
+        // Kids and balances come back from a single LEFT JOIN; kids without a balance row get zeros
+        return kidBalanceRepository.findBalanceSummariesByUserId(userId);
     }
 
     /**
@@ -183,22 +258,25 @@ public class KidBalanceService {
      */
     @Transactional(readOnly = true)
     public KidBalanceDTO getTotalBalancesForUser(Long userId) {
-        // Get all kid balances (including kids with zero balances)
-        List<KidBalanceDTO> allKidBalances = getAllKidBalances(userId);
-        
+        return sumBalances(getAllKidBalances(userId));
+    }
+
+    /**
+     * Sum per-kid balances into a single "Total" row
+     */
+    private KidBalanceDTO sumBalances(List<KidBalanceDTO> kidBalances) {
         BigDecimal totalCharity = BigDecimal.ZERO;
         BigDecimal totalSpend = BigDecimal.ZERO;
         BigDecimal totalSavings = BigDecimal.ZERO;
         BigDecimal totalInvestment = BigDecimal.ZERO;
-        
-        // Sum up all balances
-        for (KidBalanceDTO kidBalance : allKidBalances) {
+
+        for (KidBalanceDTO kidBalance : kidBalances) {
             totalCharity = totalCharity.add(kidBalance.getCharityBalance());
             totalSpend = totalSpend.add(kidBalance.getSpendBalance());
             totalSavings = totalSavings.add(kidBalance.getSavingsBalance());
             totalInvestment = totalInvestment.add(kidBalance.getInvestmentBalance());
         }
-        
+
         BigDecimal grandTotal = totalCharity.add(totalSpend).add(totalSavings).add(totalInvestment);
 
         return new KidBalanceDTO(
@@ -218,6 +296,17 @@ public class KidBalanceService {
      */
     @Transactional(readOnly = true)
     public BigDecimal getAvailableBalance(Long userId, Long kidId, Transaction.ComponentType component) {
+        if (isLedgerSource()) {
+            return kidBalanceJdbcRepository.findBalanceSummary(userId, kidId)
+                    .map(balance -> switch (component) {
+                        case CHARITY -> balance.getCharityBalance();
+                        case SPEND -> balance.getSpendBalance();
+                        case SAVINGS -> balance.getSavingsBalance();
+                        case INVESTMENT -> balance.getInvestmentBalance();
+                    })
+                    .orElse(BigDecimal.ZERO);
+        }
+
         Optional<KidBalance> balanceOpt = kidBalanceRepository.findByUserIdAndKidId(userId, kidId);
 
         if (balanceOpt.isEmpty()) {
@@ -234,11 +323,19 @@ public class KidBalanceService {
         };
     }
 
+    public boolean isLedgerSource() {
+        return balanceSource == BalanceSource.LEDGER;
+    }
+
     // Setter methods for dependency injection
     public void setKidBalanceRepository(KidBalanceRepository kidBalanceRepository) {
         this.kidBalanceRepository = kidBalanceRepository;
     }
 
+    public void setKidBalanceJdbcRepository(KidBalanceJdbcRepository kidBalanceJdbcRepository) {
+        this.kidBalanceJdbcRepository = kidBalanceJdbcRepository;
+    }
+
     public void setKidRepository(KidRepository kidRepository) {
         this.kidRepository = kidRepository;
     }
@@ -246,4 +343,17 @@ public class KidBalanceService {
     public void setLoggingService(LoggingService loggingService) {
         this.loggingService = loggingService;
     }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Setter methods for configuration
+    public void setBalanceSource(BalanceSource balanceSource) {
+        this.balanceSource = balanceSource;
+    }
+
+    public void setMaxAppendTime(Duration maxAppendTime) {
+        this.maxAppendTime = maxAppendTime;
+    }
 }
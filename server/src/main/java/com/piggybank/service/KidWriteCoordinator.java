@@ -0,0 +1,183 @@
+package com.piggybank.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes money writes per kid inside the JVM before they reach the database.
+ *
+ * Each kid ID hashes to one of a fixed set of fair lock stripes, so writes for the
+ * same kid run one at a time in arrival order while different kids proceed in
+ * parallel. Holding the stripe across the whole service call (including commit)
+ * means concurrent requests for one kid queue here instead of in InnoDB lock waits.
+ * A write that waits longer than max-wait-ms is rejected with a BusyException, which
+ * the transaction endpoints turn into 503 Service Unavailable.
+ */
+@Service
+public class KidWriteCoordinator {
+
+    @Value("${piggybank.write-coordinator.enabled:true}")
+    private boolean enabled;
+
+    @Value("${piggybank.write-coordinator.stripes:64}")
+    private int stripeCount;
+
+    @Value("${piggybank.write-coordinator.max-wait-ms:5000}")
+    private long maxWaitMillis;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private ReentrantLock[] stripes;
+    private int stripeMask;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LongAdder timeouts = new LongAdder();
+    private Timer waitTimer;
+
+    @PostConstruct
+    public void init() {
+        // Round up to a power of two so the stripe can be picked with a mask
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock(true);
+        }
+        stripeMask = size - 1;
+
+        if (meterRegistry != null) {
+            registerMetrics(meterRegistry);
+        }
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("piggybank.write.coordinator.queue.depth", queueDepth, AtomicInteger::get)
+                .description("Writes currently waiting for a kid lock stripe")
+                .register(registry);
+        FunctionCounter.builder("piggybank.write.coordinator.timeouts", timeouts, LongAdder::sum)
+                .description("Writes rejected after waiting too long for a kid lock stripe")
+                .register(registry);
+        waitTimer = Timer.builder("piggybank.write.coordinator.wait")
+                .description("Time spent waiting for a kid lock stripe")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Run a write for one kid, after any earlier writes for kids on the same stripe
+     */
+    public <T> T execute(Long kidId, Supplier<T> write) {
+        if (!enabled || kidId == null) {
+            return write.get();
+        }
+
+        ReentrantLock lock = stripes[stripeIndex(kidId)];
+        acquire(lock);
+        try {
+            return write.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Run a write touching several kids. Stripes are taken in ascending order so
+     * overlapping multi-kid writes cannot deadlock each other.
+     */
+    public <T> T executeAll(Collection<Long> kidIds, Supplier<T> write) {
+        if (!enabled || kidIds.isEmpty()) {
+            return write.get();
+        }
+
+        TreeSet<Integer> stripeIndexes = new TreeSet<>();
+        for (Long kidId : kidIds) {
+            if (kidId != null) {
+                stripeIndexes.add(stripeIndex(kidId));
+            }
+        }
+
+        int acquired = 0;
+        Integer[] ordered = stripeIndexes.toArray(new Integer[0]);
+        try {
+            for (Integer index : ordered) {
+                acquire(stripes[index]);
+                acquired++;
+            }
+            return write.get();
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                stripes[ordered[i]].unlock();
+            }
+        }
+    }
+
+    private void acquire(ReentrantLock lock) {
+        long start = System.nanoTime();
+        queueDepth.incrementAndGet();
+        boolean locked;
+        try {
+            locked = lock.tryLock(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to write", e);
+        } finally {
+            queueDepth.decrementAndGet();
+        }
+
+        long waited = System.nanoTime() - start;
+        if (!locked) {
+            timeouts.increment();
+            throw new BusyException();
+        }
+        if (waitTimer != null) {
+            waitTimer.record(waited, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private int stripeIndex(Long kidId) {
+        long value = kidId;
+        int hash = (int) (value ^ (value >>> 32));
+        // Spread the low bits like HashMap does, since kid IDs are often sequential
+        return (hash ^ (hash >>> 16)) & stripeMask;
+    }
+
+    // Setter methods for configuration
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setStripeCount(int stripeCount) {
+        this.stripeCount = stripeCount;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * A write waited longer than max-wait-ms for its kid's stripe
+     */
+    public static class BusyException extends RuntimeException {
+        public BusyException() {
+            super("Too many concurrent updates for this kid, please try again shortly");
+        }
+    }
+}
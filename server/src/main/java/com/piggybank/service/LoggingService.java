@@ -1,8 +1,10 @@
 package com.piggybank.service;
 
+import com.piggybank.entity.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -16,6 +18,9 @@ public class LoggingService {
     private static final Logger auditLogger = LoggerFactory.getLogger("AUDIT");
     private static final Logger securityLogger = LoggerFactory.getLogger("SECURITY");
 
+    @Autowired
+    private AsyncEventLogger asyncEventLogger;
+
     public void logInfo(String message) {
         logger.info(message);
     }
@@ -146,20 +151,6 @@ public class LoggingService {
         MDC.clear();
     }
 
-    // API request logging
-    public void logApiRequest(String method, String endpoint, String phoneNumber, int statusCode, long duration) {
-        MDC.put("apiMethod", method);
-        MDC.put("apiEndpoint", endpoint);
-        MDC.put("phoneNumber", phoneNumber);
-        MDC.put("statusCode", String.valueOf(statusCode));
-        MDC.put("duration", String.valueOf(duration));
-        MDC.put("timestamp", LocalDateTime.now().toString());
-
-        logger.info("API Request: {} {} - Status: {} - Duration: {}ms", method, endpoint, statusCode, duration);
-
-        MDC.clear();
-    }
-
     /**
      * Log user settings operations
      */
@@ -175,35 +166,40 @@ public class LoggingService {
     }
 
     /**
-     * Log transaction operations
+     * Log transaction operations. Written asynchronously; see AsyncEventLogger.
      */
     public void logTransaction(Long userId, Long kidId, String transactionType, BigDecimal amount, String createdBy) {
-        MDC.put("userId", String.valueOf(userId));
-        MDC.put("kidId", String.valueOf(kidId));
-        MDC.put("transactionType", transactionType);
-        MDC.put("amount", amount.toString());
-        MDC.put("createdBy", createdBy);
-        MDC.put("timestamp", LocalDateTime.now().toString());
-
-        logger.info("Transaction {}: User ID {} - Kid ID {} - Amount {} - Created by {}",
-                transactionType, userId, kidId, amount, createdBy);
-
-        MDC.clear();
+        asyncEventLogger.transaction(userId, kidId, transactionType, amount, createdBy);
     }
 
     /**
-     * Log kid balance operations
+     * Log kid balance operations. Written asynchronously; see AsyncEventLogger.
      */
     public void logKidBalanceUpdate(Long userId, Long kidId, String action, String updatedBy) {
-        MDC.put("userId", String.valueOf(userId));
-        MDC.put("kidId", String.valueOf(kidId));
-        MDC.put("action", action);
-        MDC.put("updatedBy", updatedBy);
-        MDC.put("timestamp", LocalDateTime.now().toString());
+        asyncEventLogger.balanceUpdate(userId, kidId, action, updatedBy);
+    }
 
-        logger.info("Kid Balance Update: User ID {} - Kid ID {} - Action: {} - Updated by {}",
-                userId, kidId, action, updatedBy);
+    /**
+     * Log a deposit credited to a kid's balance components
+     */
+    public void logKidBalanceCredit(Long userId, Long kidId,
+            BigDecimal charityAmount, BigDecimal spendAmount,
+            BigDecimal savingsAmount, BigDecimal investmentAmount,
+            String updatedBy) {
+        asyncEventLogger.balanceCredit(userId, kidId,
+                charityAmount, spendAmount, savingsAmount, investmentAmount, updatedBy);
+    }
 
-        MDC.clear();
+    /**
+     * Log a withdrawal debited from one balance component
+     */
+    public void logKidBalanceDebit(Long userId, Long kidId, Transaction.ComponentType component,
+            BigDecimal amount, String updatedBy) {
+        asyncEventLogger.balanceDebit(userId, kidId, component.name(), amount, updatedBy);
+    }
+
+    // Setter methods for dependency injection
+    public void setAsyncEventLogger(AsyncEventLogger asyncEventLogger) {
+        this.asyncEventLogger = asyncEventLogger;
     }
-}
\ No newline at end of file
+}
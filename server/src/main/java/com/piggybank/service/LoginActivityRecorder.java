@@ -0,0 +1,206 @@
+package com.piggybank.service;
+
+import com.piggybank.repository.UserLoginStatsJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Accumulates successful logins in memory and writes them to user_login_stats in batches,
+ * every flush interval or as soon as flush-threshold users are pending, so a login is a
+ * map update instead of a write to the audited users row.
+ *
+ * Logins still pending when the process dies are lost; that only affects last-login
+ * times and login counts, never balances.
+ */
+@Service
+public class LoginActivityRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginActivityRecorder.class);
+
+    @Autowired
+    private UserLoginStatsJdbcRepository userLoginStatsJdbcRepository;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${piggybank.login-activity.flush-interval:5s}")
+    private Duration flushInterval;
+
+    @Value("${piggybank.login-activity.flush-threshold:500}")
+    private int flushThreshold;
+
+    @Value("${piggybank.login-activity.batch-size:500}")
+    private int batchSize;
+
+    private final ConcurrentMap<Long, PendingLogins> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private ScheduledExecutorService flusher;
+    private Counter flushedLogins;
+    private Counter failedFlushes;
+
+    @PostConstruct
+    public void start() {
+        if (meterRegistry != null) {
+            registerMetrics(meterRegistry);
+        }
+
+        // A single thread runs every flush, so batches never overlap
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "login-activity-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the flusher and write whatever is still pending
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        flush();
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("piggybank.login.activity.pending", pending, ConcurrentMap::size)
+                .description("Users with logins not yet written to user_login_stats")
+                .register(registry);
+        flushedLogins = Counter.builder("piggybank.login.activity.flushed")
+                .description("Logins written to user_login_stats")
+                .register(registry);
+        failedFlushes = Counter.builder("piggybank.login.activity.flush.failures")
+                .description("Login batches that failed to write and were queued again")
+                .register(registry);
+    }
+
+    /**
+     * Record a successful login; returns immediately
+     */
+    public void recordLogin(Long userId) {
+        pending.merge(userId, new PendingLogins(LocalDateTime.now(), 1), PendingLogins::combine);
+
+        if (pending.size() >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RuntimeException e) {
+                // Shutting down; stop() flushes what is left
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Write all pending logins, in batches ordered by user ID. A failed batch is merged
+     * back into the pending logins and retried on the next flush.
+     */
+    public synchronized void flush() {
+        flushRequested.set(false);
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<UserLoginStatsJdbcRepository.LoginDelta> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        for (Long userId : new TreeSet<>(pending.keySet())) {
+            PendingLogins logins = pending.remove(userId);
+            if (logins == null) {
+                continue;
+            }
+            batch.add(new UserLoginStatsJdbcRepository.LoginDelta(userId, logins.lastLogin, logins.count));
+            if (batch.size() >= batchSize) {
+                writeBatch(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    private void writeBatch(List<UserLoginStatsJdbcRepository.LoginDelta> batch) {
+        try {
+            userLoginStatsJdbcRepository.upsertLogins(batch);
+            if (flushedLogins != null) {
+                long logins = 0;
+                for (UserLoginStatsJdbcRepository.LoginDelta delta : batch) {
+                    logins += delta.getLoginCount();
+                }
+                flushedLogins.increment(logins);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to write {} login stats rows, will retry: {}", batch.size(), e.getMessage());
+            if (failedFlushes != null) {
+                failedFlushes.increment();
+            }
+            for (UserLoginStatsJdbcRepository.LoginDelta delta : batch) {
+                pending.merge(delta.getUserId(), new PendingLogins(delta.getLastLogin(), delta.getLoginCount()),
+                        PendingLogins::combine);
+            }
+        }
+    }
+
+    public int getPendingUsers() {
+        return pending.size();
+    }
+
+    // Setter methods for dependency injection
+    public void setUserLoginStatsJdbcRepository(UserLoginStatsJdbcRepository userLoginStatsJdbcRepository) {
+        this.userLoginStatsJdbcRepository = userLoginStatsJdbcRepository;
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Setter methods for configuration
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public void setFlushThreshold(int flushThreshold) {
+        this.flushThreshold = flushThreshold;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    private static final class PendingLogins {
+        private final LocalDateTime lastLogin;
+        private final long count;
+
+        private PendingLogins(LocalDateTime lastLogin, long count) {
+            this.lastLogin = lastLogin;
+            this.count = count;
+        }
+
+        private static PendingLogins combine(PendingLogins a, PendingLogins b) {
+            LocalDateTime latest = a.lastLogin.isAfter(b.lastLogin) ? a.lastLogin : b.lastLogin;
+            return new PendingLogins(latest, a.count + b.count);
+        }
+    }
+}
@@ -1,20 +1,244 @@
 package com.piggybank.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs PIN hashing and verification (BCrypt) on a small dedicated pool, so a burst of
+ * logins or signups can only use that many CPU cores and request threads stay free for
+ * the rest of the API. The pool has a bounded queue: a hash that cannot be queued, or
+ * does not start within max-queue-wait, is rejected with a SaturatedException, which
+ * the auth endpoints turn into 503 Service Unavailable.
+ */
 @Service
 public class PinEncryptionService {
-    
+
+    private static final Logger logger = LoggerFactory.getLogger(PinEncryptionService.class);
+
     @Autowired
     private PasswordEncoder passwordEncoder;
-    
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // 0 means one thread per available processor
+    @Value("${piggybank.pin-hash.threads:0}")
+    private int threads;
+
+    @Value("${piggybank.pin-hash.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${piggybank.pin-hash.max-queue-wait:2s}")
+    private Duration maxQueueWait;
+
+    private ThreadPoolExecutor executor;
+    private Timer queueWaitTimer;
+    private final Map<String, Timer> hashTimers = new HashMap<>();
+    private Counter queueFullRejections;
+    private Counter queueTimeoutRejections;
+
+    @PostConstruct
+    public void start() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "pin-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        if (meterRegistry != null) {
+            registerMetrics(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        queueWaitTimer = Timer.builder("piggybank.pin.hash.queue.wait")
+                .description("Time PIN hashes wait for a hashing thread")
+                .publishPercentileHistogram()
+                .register(registry);
+        for (String operation : new String[] { "encode", "verify", "rehash" }) {
+            hashTimers.put(operation, Timer.builder("piggybank.pin.hash.time")
+                    .description("Time spent computing BCrypt PIN hashes")
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        queueFullRejections = Counter.builder("piggybank.pin.hash.rejected")
+                .description("PIN hashes rejected because the hashing pool was saturated")
+                .tag("reason", "queue_full")
+                .register(registry);
+        queueTimeoutRejections = Counter.builder("piggybank.pin.hash.rejected")
+                .description("PIN hashes rejected because the hashing pool was saturated")
+                .tag("reason", "queue_timeout")
+                .register(registry);
+        Gauge.builder("piggybank.pin.hash.queue.depth", executor, e -> e.getQueue().size())
+                .description("PIN hashes waiting for a hashing thread")
+                .register(registry);
+        Gauge.builder("piggybank.pin.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("PIN hashes currently running")
+                .register(registry);
+    }
+
+    /**
+     * Hash a PIN with the configured BCrypt strength
+     */
     public String encryptPin(String pin) {
-        return passwordEncoder.encode(pin);
+        return run("encode", () -> passwordEncoder.encode(pin));
     }
-    
+
+    /**
+     * Check a PIN against its stored hash
+     */
     public boolean verifyPin(String rawPin, String encryptedPin) {
-        return passwordEncoder.matches(rawPin, encryptedPin);
+        return run("verify", () -> passwordEncoder.matches(rawPin, encryptedPin));
+    }
+
+    /**
+     * True if the hash was made with a lower strength than the one now configured
+     */
+    public boolean needsRehash(String encryptedPin) {
+        return passwordEncoder.upgradeEncoding(encryptedPin);
+    }
+
+    /**
+     * Rehash a just-verified PIN with the current strength in the background and hand
+     * the new hash to the callback. Skipped when the pool is busy; the next login retries.
+     */
+    public void rehashInBackground(String rawPin, Consumer<String> onRehashed) {
+        try {
+            executor.execute(() -> {
+                try {
+                    onRehashed.accept(timed("rehash", () -> passwordEncoder.encode(rawPin)));
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to rehash PIN: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("PIN hashing pool busy, skipping rehash");
+        }
+    }
+
+    private <T> T run(String operation, Supplier<T> hash) {
+        long enqueuedAt = System.nanoTime();
+        AtomicBoolean claimed = new AtomicBoolean();
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> {
+                // The caller may have given up while this was queued
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                if (queueWaitTimer != null) {
+                    queueWaitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                }
+                try {
+                    result.complete(timed(operation, hash));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            increment(queueFullRejections);
+            throw new SaturatedException();
+        }
+
+        try {
+            try {
+                return result.get(maxQueueWait.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (claimed.compareAndSet(false, true)) {
+                    // Still queued: give up on it so the thread that dequeues it skips it
+                    increment(queueTimeoutRejections);
+                    throw new SaturatedException();
+                }
+                // Already hashing; the hash itself takes well under the queue timeout
+                return result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing PIN", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Failed to hash PIN", e.getCause());
+        }
+    }
+
+    private <T> T timed(String operation, Supplier<T> hash) {
+        Timer timer = hashTimers.get(operation);
+        return timer != null ? timer.record(hash) : hash.get();
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    // Setter methods for dependency injection
+    public void setPasswordEncoder(PasswordEncoder passwordEncoder) {
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Setter methods for configuration
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public void setMaxQueueWait(Duration maxQueueWait) {
+        this.maxQueueWait = maxQueueWait;
+    }
+
+    /**
+     * The PIN hashing pool is saturated; the request should be retried shortly
+     */
+    public static class SaturatedException extends RuntimeException {
+        public SaturatedException() {
+            super("Too many sign-in requests right now, please try again shortly");
+        }
     }
 }
@@ -0,0 +1,24 @@
+package com.piggybank.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts settings cache invalidations to other application nodes.
+ *
+ * Single-node deployments need no bus. For multi-node deployments, register a
+ * bean implementing this interface (e.g. over Redis pub/sub or a message broker);
+ * UserSettingsCache publishes every local eviction to it and evicts locally
+ * whatever the bus delivers from other nodes.
+ */
+public interface SettingsInvalidationBus {
+
+    /**
+     * Tell other nodes that the settings for this user changed
+     */
+    void publish(Long userId);
+
+    /**
+     * Register the listener called for invalidations published by other nodes
+     */
+    void subscribe(Consumer<Long> listener);
+}
@@ -0,0 +1,196 @@
+package com.piggybank.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.piggybank.dto.KidDetailsDTO;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.TransactionJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a kid's full ledger straight from a JDBC cursor to an output stream,
+ * so memory use does not grow with the number of transactions.
+ */
+@Service
+public class TransactionExportService {
+
+    private static final String CSV_HEADER = "transactionId,transactionType,transactionDate,amount,component," +
+            "charityAmount,spendAmount,savingsAmount,investmentAmount,withdrawalComponent,description";
+
+    @Autowired
+    private TransactionJdbcRepository transactionJdbcRepository;
+
+    @Autowired
+    private KidRepository kidRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${piggybank.export.fetch-size:-2147483648}")
+    private int fetchSize;
+
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String fileExtension;
+
+        ExportFormat(String contentType, String fileExtension) {
+            this.contentType = contentType;
+            this.fileExtension = fileExtension;
+        }
+
+        public static ExportFormat fromParameter(String format) {
+            for (ExportFormat exportFormat : values()) {
+                if (exportFormat.fileExtension.equalsIgnoreCase(format)) {
+                    return exportFormat;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getFileExtension() {
+            return fileExtension;
+        }
+    }
+
+    /**
+     * Verify the kid belongs to the user; call before the response is committed
+     */
+    public void checkKidAccess(Long userId, Long kidId) {
+        if (!kidRepository.existsByIdAndUserId(kidId, userId)) {
+            throw new IllegalArgumentException("Kid not found");
+        }
+    }
+
+    /**
+     * Write every transaction for the kid, newest first, in the given format
+     */
+    public void export(Long userId, Long kidId, ExportFormat format, OutputStream out) throws IOException {
+        try {
+            if (format == ExportFormat.NDJSON) {
+                exportNdjson(userId, kidId, out);
+            } else {
+                exportCsv(userId, kidId, out);
+            }
+        } catch (UncheckedIOException e) {
+            // Client disconnects surface here from inside the row callback
+            throw e.getCause();
+        }
+    }
+
+    private void exportNdjson(Long userId, Long kidId, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(KidDetailsDTO.TransactionSummaryDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // One object per line, no separator between root values other than the newline
+            generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+
+            transactionJdbcRepository.streamLedger(userId, kidId, fetchSize, summary -> {
+                try {
+                    writer.writeValue(generator, summary);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void exportCsv(Long userId, Long kidId, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+
+        StringBuilder line = new StringBuilder(256);
+        transactionJdbcRepository.streamLedger(userId, kidId, fetchSize, summary -> {
+            line.setLength(0);
+            line.append(summary.getTransactionId()).append(',')
+                    .append(summary.getTransactionType()).append(',')
+                    .append(summary.getTransactionDate()).append(',');
+            appendAmount(line, summary.getAmount());
+            line.append(',').append(summary.getComponent()).append(',');
+            appendAmount(line, summary.getCharityAmount());
+            line.append(',');
+            appendAmount(line, summary.getSpendAmount());
+            line.append(',');
+            appendAmount(line, summary.getSavingsAmount());
+            line.append(',');
+            appendAmount(line, summary.getInvestmentAmount());
+            line.append(',');
+            if (summary.getWithdrawalComponent() != null) {
+                line.append(summary.getWithdrawalComponent());
+            }
+            line.append(',');
+            appendText(line, summary.getDescription());
+            line.append("\r\n");
+
+            try {
+                writer.append(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private void appendAmount(StringBuilder line, BigDecimal amount) {
+        if (amount != null) {
+            line.append(amount.toPlainString());
+        }
+    }
+
+    private void appendText(StringBuilder line, String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        // Keep spreadsheet apps from evaluating descriptions as formulas
+        char first = text.charAt(0);
+        boolean formula = first == '=' || first == '+' || first == '-' || first == '@';
+        boolean quote = formula || text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+                || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+        if (!quote) {
+            line.append(text);
+            return;
+        }
+        line.append('"');
+        if (formula) {
+            line.append('\'');
+        }
+        line.append(text.replace("\"", "\"\"")).append('"');
+    }
+
+    // Setter methods for dependency injection
+    public void setTransactionJdbcRepository(TransactionJdbcRepository transactionJdbcRepository) {
+        this.transactionJdbcRepository = transactionJdbcRepository;
+    }
+
+    public void setKidRepository(KidRepository kidRepository) {
+        this.kidRepository = kidRepository;
+    }
+
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+}
@@ -1,26 +1,35 @@
 package com.piggybank.service;
 
+import com.piggybank.dto.BatchDepositResultDTO;
+import com.piggybank.dto.KidBalanceDTO;
 import com.piggybank.dto.KidDetailsDTO;
+import com.piggybank.dto.TransactionCursor;
 import com.piggybank.dto.TransactionDTO;
+import com.piggybank.dto.TransactionPageDTO;
+import com.piggybank.dto.UserSettingsSnapshot;
 import com.piggybank.entity.Kid;
 import com.piggybank.entity.Transaction;
-import com.piggybank.entity.UserSettings;
 import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.TransactionJdbcRepository;
 import com.piggybank.repository.TransactionRepository;
-import com.piggybank.repository.UserSettingsRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Service
 @Transactional
@@ -30,7 +39,10 @@ public class TransactionService {
     private TransactionRepository transactionRepository;
 
     @Autowired
-    private UserSettingsRepository userSettingsRepository;
+    private TransactionJdbcRepository transactionJdbcRepository;
+
+    @Autowired
+    private UserSettingsService userSettingsService;
 
     @Autowired
     private KidRepository kidRepository;
@@ -38,68 +50,161 @@ public class TransactionService {
     @Autowired
     private KidBalanceService kidBalanceService;
 
+    @Autowired
+    private WithdrawalCounterService withdrawalCounterService;
+
     @Autowired
     private LoggingService loggingService;
 
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Fast-path deposits are unaudited: they get created_at/created_by but no Envers revision
+    @Value("${piggybank.deposit.jdbc-fast-path.enabled:false}")
+    private boolean jdbcDepositFastPath;
+
+    @Value("${piggybank.deposit.batch.max-size:500}")
+    private int maxDepositBatchSize;
+
+    @Value("${piggybank.transactions.page.default-size:50}")
+    private int defaultHistoryPageSize;
+
+    @Value("${piggybank.transactions.page.max-size:200}")
+    private int maxHistoryPageSize;
+
     /**
      * Process a deposit transaction
      */
+    @Timed(value = "piggybank.transactions.deposit", histogram = true)
     public Transaction processDeposit(Long userId, TransactionDTO transactionDTO, String createdBy) {
         // Get user settings
-        UserSettings settings = getUserSettings(userId, createdBy);
+        UserSettingsSnapshot settings = userSettingsService.getOrCreateSettingsSnapshot(userId, createdBy);
+
+        Transaction transaction = buildDeposit(userId, transactionDTO, settings, createdBy);
+        BigDecimal totalAmount = transaction.getTotalAmount();
+        BigDecimal charityAmount = transaction.getCharityAmount();
+        BigDecimal spendAmount = transaction.getSpendAmount();
+        BigDecimal savingsAmount = transaction.getSavingsAmount();
+        BigDecimal investmentAmount = transaction.getInvestmentAmount();
+
+        kidBalanceService.beginLedgerAppend();
+        Transaction savedTransaction;
+        if (jdbcDepositFastPath) {
+            // Plain insert plus in-place balance increment, skipping the balance reload and Envers revisions
+            savedTransaction = transactionJdbcRepository.insert(transaction);
+            if (!kidBalanceService.isLedgerSource()) {
+                transactionJdbcRepository.applyDeposit(userId, transactionDTO.getKidId(),
+                        charityAmount, spendAmount, savingsAmount, investmentAmount, createdBy);
+            }
+            loggingService.logKidBalanceCredit(userId, transactionDTO.getKidId(),
+                    charityAmount, spendAmount, savingsAmount, investmentAmount, createdBy);
+        } else {
+            savedTransaction = transactionRepository.save(transaction);
+
+            // Update kid balance
+            kidBalanceService.applyDeposit(userId, transactionDTO.getKidId(),
+                    charityAmount, spendAmount, savingsAmount, investmentAmount, createdBy);
+        }
 
-        // Calculate component amounts based on percentages
-        BigDecimal totalAmount = transactionDTO.getAmount();
-        BigDecimal charityAmount = totalAmount.multiply(settings.getCharityPercentage()).divide(new BigDecimal("100"));
-        BigDecimal spendAmount = totalAmount.multiply(settings.getSpendPercentage()).divide(new BigDecimal("100"));
-        BigDecimal savingsAmount = totalAmount.multiply(settings.getSavingsPercentage()).divide(new BigDecimal("100"));
-        BigDecimal investmentAmount = totalAmount.multiply(settings.getInvestmentPercentage())
-                .divide(new BigDecimal("100"));
+        loggingService.logTransaction(userId, transactionDTO.getKidId(), "DEPOSIT", totalAmount, createdBy);
 
-        // Create transaction
-        Transaction transaction = new Transaction(
-                userId,
-                transactionDTO.getKidId(),
-                Transaction.TransactionType.DEPOSIT,
-                totalAmount,
-                transactionDTO.getDescription(),
-                createdBy);
+        return savedTransaction;
+    }
 
-        // Set component amounts and percentages
-        transaction.setCharityAmount(charityAmount);
-        transaction.setSpendAmount(spendAmount);
-        transaction.setSavingsAmount(savingsAmount);
-        transaction.setInvestmentAmount(investmentAmount);
-        transaction.setCharityPercentage(settings.getCharityPercentage());
-        transaction.setSpendPercentage(settings.getSpendPercentage());
-        transaction.setSavingsPercentage(settings.getSavingsPercentage());
-        transaction.setInvestmentPercentage(settings.getInvestmentPercentage());
+    /**
+     * Process several deposits for one user in a single database transaction.
+     * Invalid items are reported in their result and do not abort the rest of the batch.
+     */
+    public List<BatchDepositResultDTO> processDepositBatch(Long userId, List<TransactionDTO> transactionDTOs,
+            String createdBy) {
+        if (transactionDTOs.size() > maxDepositBatchSize) {
+            throw new IllegalArgumentException("Batch size exceeds the limit of " + maxDepositBatchSize + " deposits");
+        }
 
-        Transaction savedTransaction = transactionRepository.save(transaction);
+        UserSettingsSnapshot settings = userSettingsService.getOrCreateSettingsSnapshot(userId, createdBy);
 
-        // Update kid balance
-        kidBalanceService.updateBalanceForDeposit(userId, transactionDTO.getKidId(),
-                charityAmount, spendAmount, savingsAmount, investmentAmount, createdBy);
+        // Resolve kid ownership for the whole batch in one query
+        Set<Long> requestedKidIds = new HashSet<>();
+        for (TransactionDTO transactionDTO : transactionDTOs) {
+            if (transactionDTO != null && transactionDTO.getKidId() != null) {
+                requestedKidIds.add(transactionDTO.getKidId());
+            }
+        }
+        Set<Long> ownedKidIds = requestedKidIds.isEmpty() ? Set.of()
+                : new HashSet<>(kidRepository.findIdsByUserIdAndIdIn(userId, requestedKidIds));
+
+        List<BatchDepositResultDTO> results = new ArrayList<>(transactionDTOs.size());
+        List<Transaction> deposits = new ArrayList<>();
+        // Sorted by kid ID so concurrent batches lock kid_balances rows in the same order
+        Map<Long, TransactionJdbcRepository.BalanceDelta> balanceDeltas = new TreeMap<>();
+
+        for (int i = 0; i < transactionDTOs.size(); i++) {
+            TransactionDTO transactionDTO = transactionDTOs.get(i);
+            String error = validateBatchDeposit(transactionDTO, ownedKidIds);
+            if (error != null) {
+                results.add(BatchDepositResultDTO.failure(i, error));
+                continue;
+            }
 
-        loggingService.logTransaction(userId, transactionDTO.getKidId(), "DEPOSIT", totalAmount, createdBy);
+            Transaction deposit = buildDeposit(userId, transactionDTO, settings, createdBy);
+            deposits.add(deposit);
+            balanceDeltas.computeIfAbsent(deposit.getKidId(), TransactionJdbcRepository.BalanceDelta::new)
+                    .add(deposit);
+            results.add(BatchDepositResultDTO.success(i, deposit));
+        }
 
-        return savedTransaction;
+        if (!deposits.isEmpty()) {
+            kidBalanceService.beginLedgerAppend();
+            if (jdbcDepositFastPath) {
+                // One JDBC batch per table, skipping Envers revisions as in processDeposit
+                transactionJdbcRepository.insertAll(deposits);
+                if (!kidBalanceService.isLedgerSource()) {
+                    transactionJdbcRepository.applyDeposits(userId, new ArrayList<>(balanceDeltas.values()),
+                            createdBy);
+                }
+
+                for (TransactionJdbcRepository.BalanceDelta delta : balanceDeltas.values()) {
+                    loggingService.logKidBalanceCredit(userId, delta.getKidId(),
+                            delta.getCharityAmount(), delta.getSpendAmount(),
+                            delta.getSavingsAmount(), delta.getInvestmentAmount(), createdBy);
+                }
+            } else {
+                // Audited inserts, sent in JDBC batches at flush time (hibernate.jdbc.batch_size)
+                transactionRepository.saveAll(deposits);
+
+                for (TransactionJdbcRepository.BalanceDelta delta : balanceDeltas.values()) {
+                    kidBalanceService.applyDeposit(userId, delta.getKidId(),
+                            delta.getCharityAmount(), delta.getSpendAmount(),
+                            delta.getSavingsAmount(), delta.getInvestmentAmount(), createdBy);
+                }
+            }
+            for (Transaction deposit : deposits) {
+                loggingService.logTransaction(userId, deposit.getKidId(), "DEPOSIT", deposit.getTotalAmount(),
+                        createdBy);
+            }
+        }
+
+        return results;
     }
 
     /**
      * Process a withdrawal transaction
      */
+    @Timed(value = "piggybank.transactions.withdrawal", histogram = true)
     public Transaction processWithdrawal(Long userId, TransactionDTO transactionDTO, String createdBy) {
+        if (transactionDTO.getWithdrawalComponent() == null) {
+            throw new IllegalArgumentException("Withdrawal component is required");
+        }
+
         // Validate withdrawal limits
         validateWithdrawalLimits(userId, transactionDTO.getKidId(), transactionDTO.getWithdrawalComponent());
 
-        // Check available balance
-        BigDecimal availableBalance = getAvailableBalance(userId, transactionDTO.getKidId(),
-                transactionDTO.getWithdrawalComponent());
-        if (availableBalance.compareTo(transactionDTO.getAmount()) < 0) {
-            throw new IllegalArgumentException(
-                    "Insufficient balance in " + transactionDTO.getWithdrawalComponent() + " component");
-        }
+        // Debit the balance first; the conditional update rejects insufficient balances atomically
+        kidBalanceService.applyWithdrawal(userId, transactionDTO.getKidId(),
+                transactionDTO.getWithdrawalComponent(), transactionDTO.getAmount(), createdBy);
 
         // Create withdrawal transaction
         Transaction transaction = new Transaction(
@@ -115,10 +220,6 @@ public class TransactionService {
 
         Transaction savedTransaction = transactionRepository.save(transaction);
 
-        // Update kid balance
-        kidBalanceService.updateBalance(userId, transactionDTO.getKidId(),
-                transactionDTO.getWithdrawalComponent(), transactionDTO.getAmount(), false, createdBy);
-
         loggingService.logTransaction(userId, transactionDTO.getKidId(), "WITHDRAWAL", transactionDTO.getAmount(),
                 createdBy);
 
@@ -128,69 +229,28 @@ public class TransactionService {
     /**
      * Get kid details with balances and recent transactions
      */
+    @Timed(value = "piggybank.kids.details", histogram = true)
     @Transactional(readOnly = true)
     public KidDetailsDTO getKidDetails(Long userId, Long kidId) {
-        // Get kid information
-        Optional<Kid> kidOpt = kidRepository.findByIdAndUserId(kidId, userId);
-        if (kidOpt.isEmpty()) {
-            throw new IllegalArgumentException("Kid not found");
-        }
-
-        Kid kid = kidOpt.get();
+        // Kid information and all component balances in one read; throws if the kid is not the user's
+        KidBalanceDTO balance = kidBalanceService.getKidBalanceDetails(userId, kidId);
 
-        // Get component balances from KidBalanceService
-        BigDecimal charityBalance = kidBalanceService.getAvailableBalance(userId, kidId,
-                Transaction.ComponentType.CHARITY);
-        BigDecimal spendBalance = kidBalanceService.getAvailableBalance(userId, kidId, Transaction.ComponentType.SPEND);
-        BigDecimal savingsBalance = kidBalanceService.getAvailableBalance(userId, kidId,
-                Transaction.ComponentType.SAVINGS);
-        BigDecimal investmentBalance = kidBalanceService.getAvailableBalance(userId, kidId,
-                Transaction.ComponentType.INVESTMENT);
-
-        // Create kid details DTO
         KidDetailsDTO kidDetails = new KidDetailsDTO(
                 kidId,
-                kid.getName(),
-                kid.getAge(),
-                charityBalance,
-                spendBalance,
-                savingsBalance,
-                investmentBalance);
-
-        // Get recent transactions (last 10)
-        Pageable pageable = PageRequest.of(0, 10);
-        Page<Transaction> transactions = transactionRepository.findByUserIdAndKidIdOrderByTransactionDateDesc(userId,
-                kidId, pageable);
-
-        List<KidDetailsDTO.TransactionSummaryDTO> recentTransactions = new ArrayList<>();
-        for (Transaction transaction : transactions.getContent()) {
-            String component = transaction.getTransactionType() == Transaction.TransactionType.DEPOSIT ? "ALL"
-                    : transaction.getWithdrawalComponent().toString();
-
-            BigDecimal amount = transaction.getTransactionType() == Transaction.TransactionType.DEPOSIT
-                    ? transaction.getTotalAmount()
-                    : transaction.getWithdrawalAmount();
-
-            KidDetailsDTO.TransactionSummaryDTO transactionSummary = new KidDetailsDTO.TransactionSummaryDTO(
-                    transaction.getId(),
-                    transaction.getTransactionType().toString(),
-                    amount,
-                    component,
-                    transaction.getDescription(),
-                    transaction.getTransactionDate());
-
-            // Set component amounts for deposits
-            if (transaction.getTransactionType() == Transaction.TransactionType.DEPOSIT) {
-                transactionSummary.setCharityAmount(transaction.getCharityAmount());
-                transactionSummary.setSpendAmount(transaction.getSpendAmount());
-                transactionSummary.setSavingsAmount(transaction.getSavingsAmount());
-                transactionSummary.setInvestmentAmount(transaction.getInvestmentAmount());
-            } else {
-                // Set withdrawal component for withdrawals
-                transactionSummary.setWithdrawalComponent(transaction.getWithdrawalComponent().toString());
-            }
-
-            recentTransactions.add(transactionSummary);
+                balance.getKidName(),
+                balance.getKidAge(),
+                balance.getCharityBalance(),
+                balance.getSpendBalance(),
+                balance.getSavingsBalance(),
+                balance.getInvestmentBalance());
+
+        // Get recent transactions (last 10) as a plain list, so no count query is issued
+        List<Transaction> transactions = transactionRepository
+                .findTop10ByUserIdAndKidIdOrderByTransactionDateDescIdDesc(userId, kidId);
+
+        List<KidDetailsDTO.TransactionSummaryDTO> recentTransactions = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            recentTransactions.add(toSummary(transaction));
         }
 
         kidDetails.setRecentTransactions(recentTransactions);
@@ -213,38 +273,85 @@ public class TransactionService {
         List<Transaction> transactions = transactionRepository.findByUserIdAndKidIdOrderByTransactionDateDesc(userId,
                 kidId);
 
-        List<KidDetailsDTO.TransactionSummaryDTO> allTransactions = new ArrayList<>();
+        List<KidDetailsDTO.TransactionSummaryDTO> allTransactions = new ArrayList<>(transactions.size());
         for (Transaction transaction : transactions) {
-            String component = transaction.getTransactionType() == Transaction.TransactionType.DEPOSIT ? "ALL"
-                    : transaction.getWithdrawalComponent().toString();
+            allTransactions.add(toSummary(transaction));
+        }
 
-            BigDecimal amount = transaction.getTransactionType() == Transaction.TransactionType.DEPOSIT
-                    ? transaction.getTotalAmount()
-                    : transaction.getWithdrawalAmount();
+        return allTransactions;
+    }
 
-            KidDetailsDTO.TransactionSummaryDTO transactionSummary = new KidDetailsDTO.TransactionSummaryDTO(
-                    transaction.getId(),
-                    transaction.getTransactionType().toString(),
-                    amount,
-                    component,
-                    transaction.getDescription(),
-                    transaction.getTransactionDate());
+    /**
+     * Get one page of a kid's transaction history, newest first. Pass the previous
+     * page's nextCursor to continue; a null cursor starts from the most recent.
+     */
+    @Transactional(readOnly = true)
+    public TransactionPageDTO getTransactionHistoryPage(Long userId, Long kidId, String cursor, Integer size) {
+        int pageSize = size == null ? defaultHistoryPageSize : size;
+        if (pageSize < 1 || pageSize > maxHistoryPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxHistoryPageSize);
+        }
 
-            // Set component amounts for deposits
-            if (transaction.getTransactionType() == Transaction.TransactionType.DEPOSIT) {
-                transactionSummary.setCharityAmount(transaction.getCharityAmount());
-                transactionSummary.setSpendAmount(transaction.getSpendAmount());
-                transactionSummary.setSavingsAmount(transaction.getSavingsAmount());
-                transactionSummary.setInvestmentAmount(transaction.getInvestmentAmount());
-            } else {
-                // Set withdrawal component for withdrawals
-                transactionSummary.setWithdrawalComponent(transaction.getWithdrawalComponent().toString());
+        // Fetch one extra row to know whether another page follows
+        Limit limit = Limit.of(pageSize + 1);
+        List<Transaction> transactions;
+        if (cursor == null || cursor.isEmpty()) {
+            transactions = transactionRepository.findHistoryPage(userId, kidId, limit);
+            if (transactions.isEmpty() && !kidRepository.existsByIdAndUserId(kidId, userId)) {
+                throw new IllegalArgumentException("Kid not found");
             }
+        } else {
+            TransactionCursor after = TransactionCursor.decode(cursor);
+            transactions = transactionRepository.findHistoryPageAfter(userId, kidId,
+                    after.getTransactionDate(), after.getTransactionId(), limit);
+        }
 
-            allTransactions.add(transactionSummary);
+        boolean hasMore = transactions.size() > pageSize;
+        int count = hasMore ? pageSize : transactions.size();
+
+        List<KidDetailsDTO.TransactionSummaryDTO> page = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            page.add(toSummary(transactions.get(i)));
         }
 
-        return allTransactions;
+        String nextCursor = null;
+        if (hasMore) {
+            Transaction last = transactions.get(count - 1);
+            nextCursor = new TransactionCursor(last.getTransactionDate(), last.getId()).encode();
+        }
+
+        return new TransactionPageDTO(page, nextCursor);
+    }
+
+    /**
+     * Map a transaction to the summary shown in kid transaction lists
+     */
+    private KidDetailsDTO.TransactionSummaryDTO toSummary(Transaction transaction) {
+        boolean deposit = transaction.getTransactionType() == Transaction.TransactionType.DEPOSIT;
+
+        String component = deposit ? "ALL" : transaction.getWithdrawalComponent().toString();
+        BigDecimal amount = deposit ? transaction.getTotalAmount() : transaction.getWithdrawalAmount();
+
+        KidDetailsDTO.TransactionSummaryDTO transactionSummary = new KidDetailsDTO.TransactionSummaryDTO(
+                transaction.getId(),
+                transaction.getTransactionType().toString(),
+                amount,
+                component,
+                transaction.getDescription(),
+                transaction.getTransactionDate());
+
+        if (deposit) {
+            // Set component amounts for deposits
+            transactionSummary.setCharityAmount(transaction.getCharityAmount());
+            transactionSummary.setSpendAmount(transaction.getSpendAmount());
+            transactionSummary.setSavingsAmount(transaction.getSavingsAmount());
+            transactionSummary.setInvestmentAmount(transaction.getInvestmentAmount());
+        } else {
+            // Set withdrawal component for withdrawals
+            transactionSummary.setWithdrawalComponent(transaction.getWithdrawalComponent().toString());
+        }
+
+        return transactionSummary;
     }
 
     /**
@@ -256,7 +363,8 @@ public class TransactionService {
     }
 
     /**
-     * Validate withdrawal limits
+     * Validate withdrawal limits, counting this withdrawal against the monthly limit of
+     * the Savings and Investment components. The count rolls back with the withdrawal.
      */
     private void validateWithdrawalLimits(Long userId, Long kidId, Transaction.ComponentType component) {
         if (component == Transaction.ComponentType.CHARITY || component == Transaction.ComponentType.SPEND) {
@@ -265,48 +373,91 @@ public class TransactionService {
         }
 
         // Get user settings
-        Optional<UserSettings> settingsOpt = userSettingsRepository.findByUserId(userId);
-        if (settingsOpt.isEmpty()) {
-            throw new IllegalArgumentException("User settings not found");
-        }
-
-        UserSettings settings = settingsOpt.get();
-
-        // Get current month start
-        LocalDateTime startOfMonth = YearMonth.now().atDay(1).atStartOfDay();
+        UserSettingsSnapshot settings = userSettingsService.getSettingsSnapshot(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User settings not found"));
 
         // Check withdrawal limits for savings and investment
         if (component == Transaction.ComponentType.SAVINGS) {
-            Long withdrawalsThisMonth = transactionRepository.countWithdrawalsThisMonth(userId, kidId, component,
-                    startOfMonth);
-            if (withdrawalsThisMonth >= settings.getSavingsMonthlyWithdrawalLimit()) {
+            int limit = settings.getSavingsMonthlyWithdrawalLimit();
+            if (!withdrawalCounterService.tryIncrement(userId, kidId, component, limit)) {
+                countLimitRejection(component);
                 throw new IllegalArgumentException("Monthly withdrawal limit reached for Savings component. Limit: " +
-                        settings.getSavingsMonthlyWithdrawalLimit());
+                        limit);
             }
         } else if (component == Transaction.ComponentType.INVESTMENT) {
-            Long withdrawalsThisMonth = transactionRepository.countWithdrawalsThisMonth(userId, kidId, component,
-                    startOfMonth);
-            if (withdrawalsThisMonth >= settings.getInvestmentMonthlyWithdrawalLimit()) {
+            int limit = settings.getInvestmentMonthlyWithdrawalLimit();
+            if (!withdrawalCounterService.tryIncrement(userId, kidId, component, limit)) {
+                countLimitRejection(component);
                 throw new IllegalArgumentException(
-                        "Monthly withdrawal limit reached for Investment component. Limit: " +
-                                settings.getInvestmentMonthlyWithdrawalLimit());
+                        "Monthly withdrawal limit reached for Investment component. Limit: " + limit);
             }
         }
     }
 
+    private void countLimitRejection(Transaction.ComponentType component) {
+        meterRegistry.counter("piggybank.withdrawals.rejected",
+                "reason", "monthly_limit", "component", component.name()).increment();
+    }
+
     /**
-     * Get user settings or create default if not exists
+     * Build a deposit transaction split into components according to the user's settings
      */
-    private UserSettings getUserSettings(Long userId, String createdBy) {
-        Optional<UserSettings> settingsOpt = userSettingsRepository.findByUserId(userId);
-        if (settingsOpt.isEmpty()) {
-            // Create default settings
-            UserSettingsService settingsService = new UserSettingsService();
-            settingsService.setUserSettingsRepository(userSettingsRepository);
-            settingsService.setLoggingService(loggingService);
-            return settingsService.getDefaultSettings(userId, createdBy);
+    private Transaction buildDeposit(Long userId, TransactionDTO transactionDTO, UserSettingsSnapshot settings,
+            String createdBy) {
+        // Split in whole cents; the components always add up exactly to the total
+        long totalCents = DepositSplitEngine.toCents(transactionDTO.getAmount());
+        long[] parts = settings.getSplitPlan().split(totalCents);
+
+        BigDecimal totalAmount = DepositSplitEngine.fromCents(totalCents);
+        BigDecimal charityAmount = DepositSplitEngine.fromCents(parts[DepositSplitEngine.CHARITY]);
+        BigDecimal spendAmount = DepositSplitEngine.fromCents(parts[DepositSplitEngine.SPEND]);
+        BigDecimal savingsAmount = DepositSplitEngine.fromCents(parts[DepositSplitEngine.SAVINGS]);
+        BigDecimal investmentAmount = DepositSplitEngine.fromCents(parts[DepositSplitEngine.INVESTMENT]);
+
+        // Create transaction
+        Transaction transaction = new Transaction(
+                userId,
+                transactionDTO.getKidId(),
+                Transaction.TransactionType.DEPOSIT,
+                totalAmount,
+                transactionDTO.getDescription(),
+                createdBy);
+
+        // Set component amounts and percentages
+        transaction.setCharityAmount(charityAmount);
+        transaction.setSpendAmount(spendAmount);
+        transaction.setSavingsAmount(savingsAmount);
+        transaction.setInvestmentAmount(investmentAmount);
+        transaction.setCharityPercentage(settings.getCharityPercentage());
+        transaction.setSpendPercentage(settings.getSpendPercentage());
+        transaction.setSavingsPercentage(settings.getSavingsPercentage());
+        transaction.setInvestmentPercentage(settings.getInvestmentPercentage());
+
+        return transaction;
+    }
+
+    /**
+     * Validate one item of a deposit batch, returning an error message or null if valid
+     */
+    private String validateBatchDeposit(TransactionDTO transactionDTO, Set<Long> ownedKidIds) {
+        if (transactionDTO == null) {
+            return "Deposit is required";
         }
-        return settingsOpt.get();
+
+        Set<ConstraintViolation<TransactionDTO>> violations = validator.validate(transactionDTO);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+
+        if (transactionDTO.getTransactionType() != Transaction.TransactionType.DEPOSIT) {
+            return "Only deposits are allowed in a deposit batch";
+        }
+
+        if (!ownedKidIds.contains(transactionDTO.getKidId())) {
+            return "Kid not found";
+        }
+
+        return null;
     }
 
     // Setter methods for dependency injection
@@ -314,8 +465,12 @@ public class TransactionService {
         this.transactionRepository = transactionRepository;
     }
 
-    public void setUserSettingsRepository(UserSettingsRepository userSettingsRepository) {
-        this.userSettingsRepository = userSettingsRepository;
+    public void setTransactionJdbcRepository(TransactionJdbcRepository transactionJdbcRepository) {
+        this.transactionJdbcRepository = transactionJdbcRepository;
+    }
+
+    public void setUserSettingsService(UserSettingsService userSettingsService) {
+        this.userSettingsService = userSettingsService;
     }
 
     public void setKidRepository(KidRepository kidRepository) {
@@ -329,4 +484,21 @@ public class TransactionService {
     public void setKidBalanceService(KidBalanceService kidBalanceService) {
         this.kidBalanceService = kidBalanceService;
     }
+
+    public void setWithdrawalCounterService(WithdrawalCounterService withdrawalCounterService) {
+        this.withdrawalCounterService = withdrawalCounterService;
+    }
+
+    public void setValidator(Validator validator) {
+        this.validator = validator;
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Setter methods for configuration
+    public void setJdbcDepositFastPath(boolean jdbcDepositFastPath) {
+        this.jdbcDepositFastPath = jdbcDepositFastPath;
+    }
 }
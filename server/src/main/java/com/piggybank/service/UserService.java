@@ -3,9 +3,7 @@ package com.piggybank.service;
 import com.piggybank.entity.User;
 import com.piggybank.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Service
@@ -14,7 +12,10 @@ public class UserService {
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PinEncryptionService pinEncryptionService;
+
+    @Autowired
+    private LoginActivityRecorder loginActivityRecorder;
 
     public User registerUser(String phoneNumber, String name, String pin) {
         // Check if user already exists
@@ -46,7 +47,7 @@ public class UserService {
         }
 
         // Encrypt PIN using BCrypt
-        String encryptedPin = passwordEncoder.encode(pin);
+        String encryptedPin = pinEncryptionService.encryptPin(pin);
 
         User user = new User(phoneNumber, name, encryptedPin);
         return userRepository.save(user);
@@ -61,13 +62,21 @@ public class UserService {
         User user = userOpt.get();
 
         // Verify PIN using BCrypt
-        if (!passwordEncoder.matches(pin, user.getPinHash())) {
+        if (!pinEncryptionService.verifyPin(pin, user.getPinHash())) {
             throw new IllegalArgumentException("Invalid phone number or PIN");
         }
 
-        // Update last login time
-        user.setLastLogin(LocalDateTime.now());
-        userRepository.save(user);
+        // Hashes made with a lower BCrypt strength are upgraded now that the PIN is known
+        if (pinEncryptionService.needsRehash(user.getPinHash())) {
+            Long userId = user.getId();
+            String oldHash = user.getPinHash();
+            pinEncryptionService.rehashInBackground(pin,
+                    newHash -> userRepository.updatePinHash(userId, oldHash, newHash));
+        }
+
+        // Last login time and login count are written to user_login_stats in the background,
+        // so a login does not update (and create an audit revision for) the users row
+        loginActivityRecorder.recordLogin(user.getId());
 
         return user;
     }
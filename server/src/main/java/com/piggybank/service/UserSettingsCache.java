@@ -0,0 +1,95 @@
+package com.piggybank.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.piggybank.dto.UserSettingsSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of settings snapshots keyed by user ID.
+ * Hit, miss and eviction counts are published as cache.* metrics under the name "userSettings".
+ */
+@Service
+public class UserSettingsCache {
+
+    @Value("${piggybank.cache.user-settings.max-size:10000}")
+    private long maxSize;
+
+    @Value("${piggybank.cache.user-settings.expire-after-write:10m}")
+    private Duration expireAfterWrite;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private SettingsInvalidationBus invalidationBus;
+
+    private Cache<Long, UserSettingsSnapshot> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userSettings");
+
+        if (invalidationBus != null) {
+            invalidationBus.subscribe(cache::invalidate);
+        }
+    }
+
+    /**
+     * Get the cached snapshot, loading it on a miss. A null load result is not cached.
+     */
+    public UserSettingsSnapshot get(Long userId, Function<Long, UserSettingsSnapshot> loader) {
+        return cache.get(userId, loader);
+    }
+
+    /**
+     * Evict a user's entry now and again once the surrounding transaction completes,
+     * so a read racing with the write cannot re-cache the old settings. Other nodes
+     * are notified through the invalidation bus, if one is configured.
+     */
+    public void evict(Long userId) {
+        cache.invalidate(userId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(userId);
+                    publish(userId);
+                }
+            });
+        } else {
+            publish(userId);
+        }
+    }
+
+    private void publish(Long userId) {
+        if (invalidationBus != null) {
+            invalidationBus.publish(userId);
+        }
+    }
+
+    // Setter methods for dependency injection
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void setInvalidationBus(SettingsInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+}
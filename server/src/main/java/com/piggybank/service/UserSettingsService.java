@@ -1,6 +1,7 @@
 package com.piggybank.service;
 
 import com.piggybank.dto.UserSettingsDTO;
+import com.piggybank.dto.UserSettingsSnapshot;
 import com.piggybank.entity.UserSettings;
 import com.piggybank.repository.UserSettingsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +21,9 @@ public class UserSettingsService {
     @Autowired
     private LoggingService loggingService;
     
+    @Autowired
+    private UserSettingsCache userSettingsCache;
+    
     /**
      * Create or update user settings
      */
@@ -66,7 +70,9 @@ public class UserSettingsService {
             loggingService.logUserSettingsUpdate(userId, createdBy, "Settings created");
         }
         
-        return userSettingsRepository.save(settings);
+        UserSettings savedSettings = userSettingsRepository.save(settings);
+        userSettingsCache.evict(userId);
+        return savedSettings;
     }
     
     /**
@@ -77,6 +83,26 @@ public class UserSettingsService {
         return userSettingsRepository.findByUserId(userId);
     }
     
+    /**
+     * Get a cached snapshot of the user's settings, or empty if none exist
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserSettingsSnapshot> getSettingsSnapshot(Long userId) {
+        return Optional.ofNullable(userSettingsCache.get(userId,
+                id -> userSettingsRepository.findByUserId(id).map(UserSettingsSnapshot::from).orElse(null)));
+    }
+    
+    /**
+     * Get a cached snapshot of the user's settings, creating default settings if none exist
+     */
+    public UserSettingsSnapshot getOrCreateSettingsSnapshot(Long userId, String createdBy) {
+        Optional<UserSettingsSnapshot> snapshot = getSettingsSnapshot(userId);
+        if (snapshot.isPresent()) {
+            return snapshot.get();
+        }
+        return UserSettingsSnapshot.from(getDefaultSettings(userId, createdBy));
+    }
+    
     /**
      * Check if user has valid settings
      */
@@ -107,6 +133,7 @@ public class UserSettingsService {
      */
     public void deleteSettings(Long userId) {
         userSettingsRepository.deleteByUserId(userId);
+        userSettingsCache.evict(userId);
         loggingService.logUserSettingsUpdate(userId, "system", "Settings deleted");
     }
     
@@ -118,4 +145,8 @@ public class UserSettingsService {
     public void setLoggingService(LoggingService loggingService) {
         this.loggingService = loggingService;
     }
+    
+    public void setUserSettingsCache(UserSettingsCache userSettingsCache) {
+        this.userSettingsCache = userSettingsCache;
+    }
 }
@@ -0,0 +1,153 @@
+package com.piggybank.service;
+
+import com.piggybank.entity.Transaction;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.WithdrawalCounterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Per-month withdrawal counters for the limited components (Savings and Investment).
+ *
+ * Each limited withdrawal increments its counter with a conditional update inside the
+ * withdrawal transaction, so the limit check is a single keyed row update instead of a
+ * count over the kid's ledger, and a rolled back withdrawal also rolls back its count.
+ * Counters are built from the existing ledger at startup for installs that predate them.
+ */
+@Service
+public class WithdrawalCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WithdrawalCounterService.class);
+
+    @Autowired
+    private WithdrawalCounterRepository withdrawalCounterRepository;
+
+    @Autowired
+    private KidRepository kidRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${piggybank.withdrawal-counters.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    @Value("${piggybank.withdrawal-counters.backfill-months:1}")
+    private int backfillMonths;
+
+    @Value("${piggybank.withdrawal-counters.backfill-chunk-size:1000}")
+    private int backfillChunkSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        // Off the startup path; counters only rise to the ledger count, so live withdrawals are unaffected
+        LocalDateTime since = backfillMonths > 0
+                ? YearMonth.now().minusMonths(backfillMonths - 1).atDay(1).atStartOfDay()
+                : LocalDateTime.of(1970, 1, 1, 0, 0);
+        Thread backfiller = new Thread(() -> {
+            try {
+                backfill(since);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to backfill withdrawal counters: {}", e.getMessage());
+            }
+        }, "withdrawal-counter-backfill");
+        backfiller.setDaemon(true);
+        backfiller.start();
+    }
+
+    /**
+     * Count a withdrawal against this month's limit for the kid and component.
+     * Returns false, counting nothing, if the limit is already reached.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean tryIncrement(Long userId, Long kidId, Transaction.ComponentType component, int limit) {
+        if (limit <= 0) {
+            return false;
+        }
+        int period = period(YearMonth.now());
+        int updated = withdrawalCounterRepository.incrementIfBelow(userId, kidId, component.name(), period, limit);
+
+        if (updated == 0) {
+            // Either the limit is reached or this is the first withdrawal of the month
+            withdrawalCounterRepository.createIfAbsent(userId, kidId, component.name(), period);
+            updated = withdrawalCounterRepository.incrementIfBelow(userId, kidId, component.name(), period, limit);
+        }
+
+        return updated == 1;
+    }
+
+    /**
+     * Build counters from the ledger for all withdrawals since the given date, a page of
+     * kids per transaction. Safe to rerun: counters are only ever raised to the ledger count.
+     */
+    public int backfill(LocalDateTime since) {
+        long started = System.currentTimeMillis();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int kids = 0;
+        int counters = 0;
+        long afterId = 0;
+
+        while (true) {
+            List<Long> kidIds = kidRepository.findIdsAfter(afterId, backfillChunkSize);
+            if (kidIds.isEmpty()) {
+                break;
+            }
+            Long fromKidId = kidIds.get(0);
+            Long toKidId = kidIds.get(kidIds.size() - 1);
+            Integer rows = transactionTemplate.execute(status ->
+                    withdrawalCounterRepository.backfillKids(fromKidId, toKidId, since));
+            counters += rows == null ? 0 : rows;
+            kids += kidIds.size();
+            afterId = toKidId;
+        }
+
+        logger.info("Withdrawal counters backfilled for {} kids since {} ({} rows affected) in {}ms",
+                kids, since.toLocalDate(), counters, System.currentTimeMillis() - started);
+        return counters;
+    }
+
+    private static int period(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    // Setter methods for dependency injection
+    public void setWithdrawalCounterRepository(WithdrawalCounterRepository withdrawalCounterRepository) {
+        this.withdrawalCounterRepository = withdrawalCounterRepository;
+    }
+
+    public void setKidRepository(KidRepository kidRepository) {
+        this.kidRepository = kidRepository;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    // Setter methods for configuration
+    public void setBackfillOnStartup(boolean backfillOnStartup) {
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    public void setBackfillMonths(int backfillMonths) {
+        this.backfillMonths = backfillMonths;
+    }
+
+    public void setBackfillChunkSize(int backfillChunkSize) {
+        this.backfillChunkSize = backfillChunkSize;
+    }
+}
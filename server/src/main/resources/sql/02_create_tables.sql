@@ -132,6 +132,9 @@ CREATE TABLE IF NOT EXISTS `kid_balances` (
     `savings_balance` DECIMAL(10,2) NOT NULL DEFAULT 0.00,
     `investment_balance` DECIMAL(10,2) NOT NULL DEFAULT 0.00,
     `total_balance` DECIMAL(10,2) NOT NULL DEFAULT 0.00,
+    -- NULL when balances are kept in this row (piggybank.balance.source=ROW); otherwise
+    -- the last transaction included in this snapshot of the ledger
+    `last_applied_transaction_id` BIGINT NULL,
     `last_updated` DATETIME NOT NULL,
     `created_at` DATETIME NOT NULL,
     `updated_at` DATETIME NOT NULL,
@@ -146,6 +149,87 @@ CREATE TABLE IF NOT EXISTS `kid_balances` (
     CONSTRAINT `fk_kid_balances_kid_id` FOREIGN KEY (`kid_id`) REFERENCES `kids` (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Create withdrawal_counters table
+-- One row per kid, limited component (Savings/Investment) and calendar month (yyyymm);
+-- incremented inside each withdrawal transaction to enforce the monthly limits
+CREATE TABLE IF NOT EXISTS `withdrawal_counters` (
+    `user_id` BIGINT NOT NULL,
+    `kid_id` BIGINT NOT NULL,
+    `component` ENUM('CHARITY','SPEND','SAVINGS','INVESTMENT') NOT NULL,
+    `period` INT NOT NULL,
+    `withdrawal_count` INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (`user_id`, `kid_id`, `component`, `period`),
+    CONSTRAINT `fk_withdrawal_counters_user_id` FOREIGN KEY (`user_id`) REFERENCES `users` (`id`) ON DELETE CASCADE,
+    CONSTRAINT `fk_withdrawal_counters_kid_id` FOREIGN KEY (`kid_id`) REFERENCES `kids` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Create idempotency_keys table
+-- Stored responses of deposits and withdrawals sent with an Idempotency-Key header
+CREATE TABLE IF NOT EXISTS `idempotency_keys` (
+    `id` BIGINT NOT NULL,
+    `user_id` BIGINT NOT NULL,
+    `idempotency_key` VARCHAR(255) NOT NULL,
+    `request_hash` VARCHAR(64) NOT NULL,
+    `response_body` VARCHAR(4000) NOT NULL,
+    `created_at` DATETIME NOT NULL,
+    `expires_at` DATETIME NOT NULL,
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_idempotency_keys_user_key` (`user_id`, `idempotency_key`),
+    KEY `idx_idempotency_keys_expires_at` (`expires_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Create user_login_stats table
+-- Last login time and login count per user, kept out of the audited users table
+CREATE TABLE IF NOT EXISTS `user_login_stats` (
+    `user_id` BIGINT NOT NULL,
+    `last_login` DATETIME NOT NULL,
+    `login_count` BIGINT NOT NULL,
+    PRIMARY KEY (`user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Create reconciliation_runs table
+-- One pass of the balance reconciliation job; checkpoint_kid_id is where an
+-- interrupted run resumes, and owner holds a running run until lease_until
+CREATE TABLE IF NOT EXISTS `reconciliation_runs` (
+    `id` BIGINT NOT NULL,
+    `status` ENUM('RUNNING','COMPLETED') NOT NULL,
+    `checkpoint_kid_id` BIGINT NOT NULL,
+    `kids_checked` BIGINT NOT NULL,
+    `ledger_rows` BIGINT NOT NULL,
+    `discrepancies` BIGINT NOT NULL,
+    `repaired` BIGINT NOT NULL,
+    `started_at` DATETIME NOT NULL,
+    `updated_at` DATETIME NOT NULL,
+    `finished_at` DATETIME NULL,
+    `owner` VARCHAR(255) NULL,
+    `lease_until` DATETIME NULL,
+    PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Create balance_discrepancies table
+-- Kids whose kid_balances row did not match the transactions ledger, per reconciliation run
+CREATE TABLE IF NOT EXISTS `balance_discrepancies` (
+    `id` BIGINT NOT NULL,
+    `run_id` BIGINT NOT NULL,
+    `user_id` BIGINT NOT NULL,
+    `kid_id` BIGINT NOT NULL,
+    `ledger_transaction_id` BIGINT NOT NULL,
+    `ledger_charity` DECIMAL(12,2) NOT NULL,
+    `ledger_spend` DECIMAL(12,2) NOT NULL,
+    `ledger_savings` DECIMAL(12,2) NOT NULL,
+    `ledger_investment` DECIMAL(12,2) NOT NULL,
+    `recorded_charity` DECIMAL(10,2) NULL,
+    `recorded_spend` DECIMAL(10,2) NULL,
+    `recorded_savings` DECIMAL(10,2) NULL,
+    `recorded_investment` DECIMAL(10,2) NULL,
+    `recorded_total` DECIMAL(10,2) NULL,
+    `detected_at` DATETIME NOT NULL,
+    `repaired_at` DATETIME NULL,
+    PRIMARY KEY (`id`),
+    KEY `idx_balance_discrepancies_run_id` (`run_id`),
+    KEY `idx_balance_discrepancies_kid_id` (`kid_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- Create audit tables for new entities
 -- User settings audit table
 CREATE TABLE IF NOT EXISTS `user_settings_aud` (
@@ -195,6 +279,8 @@ CREATE TABLE IF NOT EXISTS `transactions_aud` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- Kid balances audit table
+-- No longer written: balances change through bulk UPDATEs that Envers does not see, and
+-- their history is the transactions ledger. Kept for the revisions written before that.
 CREATE TABLE IF NOT EXISTS `kid_balances_aud` (
     `id` BIGINT NOT NULL,
     `rev` INT NOT NULL,
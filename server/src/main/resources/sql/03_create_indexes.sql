@@ -19,6 +19,7 @@ CREATE INDEX `idx_revinfo_revtstmp` ON `revinfo` (`revtstmp`);
 CREATE INDEX `idx_user_settings_created_at` ON `user_settings` (`created_at`);
 CREATE INDEX `idx_transactions_withdrawal_component` ON `transactions` (`withdrawal_component`);
 CREATE INDEX `idx_transactions_created_at` ON `transactions` (`created_at`);
+CREATE INDEX `idx_transactions_user_kid_date_id` ON `transactions` (`user_id`, `kid_id`, `transaction_date`, `id`);
 CREATE INDEX `idx_kid_balances_total_balance` ON `kid_balances` (`total_balance`);
 CREATE INDEX `idx_user_settings_aud_rev` ON `user_settings_aud` (`rev`);
 CREATE INDEX `idx_transactions_aud_rev` ON `transactions_aud` (`rev`);
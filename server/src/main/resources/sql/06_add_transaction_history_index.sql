@@ -0,0 +1,9 @@
+-- Add the transaction history paging index to an existing database
+-- This script should be run if your database was created before cursor paging was added
+
+USE `piggy_bank`;
+
+-- Serves GET /api/transactions/kid/{kidId}/page: the (transaction_date, id) keyset
+-- seek and its ORDER BY are resolved inside this index, so deep pages cost the same
+-- as the first page
+CREATE INDEX `idx_transactions_user_kid_date_id` ON `transactions` (`user_id`, `kid_id`, `transaction_date`, `id`);
@@ -0,0 +1,28 @@
+-- Add the withdrawal_counters table to an existing database
+-- This script should be run if your database was created before monthly withdrawal
+-- limits were enforced with counters instead of counting the ledger
+
+USE `piggy_bank`;
+
+CREATE TABLE IF NOT EXISTS `withdrawal_counters` (
+    `user_id` BIGINT NOT NULL,
+    `kid_id` BIGINT NOT NULL,
+    `component` ENUM('CHARITY','SPEND','SAVINGS','INVESTMENT') NOT NULL,
+    `period` INT NOT NULL,
+    `withdrawal_count` INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (`user_id`, `kid_id`, `component`, `period`),
+    CONSTRAINT `fk_withdrawal_counters_user_id` FOREIGN KEY (`user_id`) REFERENCES `users` (`id`) ON DELETE CASCADE,
+    CONSTRAINT `fk_withdrawal_counters_kid_id` FOREIGN KEY (`kid_id`) REFERENCES `kids` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Build counters for the whole ledger, once. The application can also backfill recent
+-- months in the background after startup (piggybank.withdrawal-counters.backfill-on-startup,
+-- off by default); both only raise counters, so running either again is safe.
+INSERT INTO `withdrawal_counters` (`user_id`, `kid_id`, `component`, `period`, `withdrawal_count`)
+SELECT `user_id`, `kid_id`, `withdrawal_component`,
+       YEAR(`transaction_date`) * 100 + MONTH(`transaction_date`), COUNT(*)
+FROM `transactions`
+WHERE `transaction_type` = 'WITHDRAWAL' AND `withdrawal_component` IN ('SAVINGS', 'INVESTMENT')
+GROUP BY `user_id`, `kid_id`, `withdrawal_component`,
+         YEAR(`transaction_date`) * 100 + MONTH(`transaction_date`)
+ON DUPLICATE KEY UPDATE `withdrawal_count` = GREATEST(`withdrawal_count`, VALUES(`withdrawal_count`));
@@ -0,0 +1,18 @@
+-- Add the idempotency_keys table to an existing database
+-- This script should be run if your database was created before deposits and
+-- withdrawals accepted an Idempotency-Key header
+
+USE `piggy_bank`;
+
+CREATE TABLE IF NOT EXISTS `idempotency_keys` (
+    `id` BIGINT NOT NULL,
+    `user_id` BIGINT NOT NULL,
+    `idempotency_key` VARCHAR(255) NOT NULL,
+    `request_hash` VARCHAR(64) NOT NULL,
+    `response_body` VARCHAR(4000) NOT NULL,
+    `created_at` DATETIME NOT NULL,
+    `expires_at` DATETIME NOT NULL,
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_idempotency_keys_user_key` (`user_id`, `idempotency_key`),
+    KEY `idx_idempotency_keys_expires_at` (`expires_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
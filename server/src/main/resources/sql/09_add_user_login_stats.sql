@@ -0,0 +1,17 @@
+-- Add the user_login_stats table to an existing database
+-- This script should be run if your database was created when logins still
+-- updated users.last_login
+
+USE `piggy_bank`;
+
+CREATE TABLE IF NOT EXISTS `user_login_stats` (
+    `user_id` BIGINT NOT NULL,
+    `last_login` DATETIME NOT NULL,
+    `login_count` BIGINT NOT NULL,
+    PRIMARY KEY (`user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Carry over the last login times; earlier logins were never counted, so counts start at 0
+INSERT INTO `user_login_stats` (`user_id`, `last_login`, `login_count`)
+SELECT `id`, `last_login`, 0 FROM `users` WHERE `last_login` IS NOT NULL
+ON DUPLICATE KEY UPDATE `last_login` = GREATEST(`last_login`, VALUES(`last_login`));
@@ -0,0 +1,9 @@
+-- Add the ledger snapshot column to an existing kid_balances table
+-- This script should be run if your database was created before
+-- piggybank.balance.source=LEDGER was added
+
+USE `piggy_bank`;
+
+-- NULL for balances kept in the row (the default ROW source); the application fills it
+-- in when it starts with the LEDGER source
+ALTER TABLE `kid_balances` ADD COLUMN `last_applied_transaction_id` BIGINT NULL AFTER `total_balance`;
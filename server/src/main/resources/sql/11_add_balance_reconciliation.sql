@@ -0,0 +1,48 @@
+-- Add the balance reconciliation tables to an existing database
+-- This script should be run if your database was created before
+-- piggybank.reconciliation was added
+
+USE `piggy_bank`;
+
+-- Create reconciliation_runs table
+-- One pass of the balance reconciliation job; checkpoint_kid_id is where an
+-- interrupted run resumes, and owner holds a running run until lease_until
+CREATE TABLE IF NOT EXISTS `reconciliation_runs` (
+    `id` BIGINT NOT NULL,
+    `status` ENUM('RUNNING','COMPLETED') NOT NULL,
+    `checkpoint_kid_id` BIGINT NOT NULL,
+    `kids_checked` BIGINT NOT NULL,
+    `ledger_rows` BIGINT NOT NULL,
+    `discrepancies` BIGINT NOT NULL,
+    `repaired` BIGINT NOT NULL,
+    `started_at` DATETIME NOT NULL,
+    `updated_at` DATETIME NOT NULL,
+    `finished_at` DATETIME NULL,
+    `owner` VARCHAR(255) NULL,
+    `lease_until` DATETIME NULL,
+    PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Create balance_discrepancies table
+-- Kids whose kid_balances row did not match the transactions ledger, per reconciliation run
+CREATE TABLE IF NOT EXISTS `balance_discrepancies` (
+    `id` BIGINT NOT NULL,
+    `run_id` BIGINT NOT NULL,
+    `user_id` BIGINT NOT NULL,
+    `kid_id` BIGINT NOT NULL,
+    `ledger_transaction_id` BIGINT NOT NULL,
+    `ledger_charity` DECIMAL(12,2) NOT NULL,
+    `ledger_spend` DECIMAL(12,2) NOT NULL,
+    `ledger_savings` DECIMAL(12,2) NOT NULL,
+    `ledger_investment` DECIMAL(12,2) NOT NULL,
+    `recorded_charity` DECIMAL(10,2) NULL,
+    `recorded_spend` DECIMAL(10,2) NULL,
+    `recorded_savings` DECIMAL(10,2) NULL,
+    `recorded_investment` DECIMAL(10,2) NULL,
+    `recorded_total` DECIMAL(10,2) NULL,
+    `detected_at` DATETIME NOT NULL,
+    `repaired_at` DATETIME NULL,
+    PRIMARY KEY (`id`),
+    KEY `idx_balance_discrepancies_run_id` (`run_id`),
+    KEY `idx_balance_discrepancies_kid_id` (`kid_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
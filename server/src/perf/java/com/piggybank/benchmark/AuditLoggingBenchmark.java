@@ -0,0 +1,91 @@
+package com.piggybank.benchmark;
+
+import com.piggybank.service.AsyncEventLogger;
+import com.piggybank.service.LoggingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-thread cost of one transaction audit event. Both variants write JSON to
+ * the same file appender (see logback-test.xml); synchronousMdc is the MDC-based
+ * logTransaction the async writer replaced.
+ *
+ * With BLOCK the caller is throttled to the writer's throughput once the ring is
+ * full, which is what sustained overload looks like; DROP shows the hand-off cost alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuditLoggingBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingService.class);
+
+    private final BigDecimal amount = new BigDecimal("25.00");
+
+    @Benchmark
+    public void asyncEvent(AsyncLogging async) {
+        async.loggingService.logTransaction(7L, 42L, "DEPOSIT", amount, "+15550000007");
+    }
+
+    @Benchmark
+    public void synchronousMdc() {
+        MDC.put("userId", String.valueOf(7L));
+        MDC.put("kidId", String.valueOf(42L));
+        MDC.put("transactionType", "DEPOSIT");
+        MDC.put("amount", amount.toString());
+        MDC.put("createdBy", "+15550000007");
+        MDC.put("timestamp", LocalDateTime.now().toString());
+
+        logger.info("Transaction {}: User ID {} - Kid ID {} - Amount {} - Created by {}",
+                "DEPOSIT", 7L, 42L, amount, "+15550000007");
+
+        MDC.clear();
+    }
+
+    @State(Scope.Benchmark)
+    public static class AsyncLogging {
+
+        @Param({"BLOCK", "DROP"})
+        private AsyncEventLogger.OverflowPolicy overflowPolicy;
+
+        private AsyncEventLogger asyncEventLogger;
+        private LoggingService loggingService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            asyncEventLogger = new AsyncEventLogger();
+            asyncEventLogger.setBufferSize(8192);
+            asyncEventLogger.setOverflowPolicy(overflowPolicy);
+            asyncEventLogger.start();
+
+            loggingService = new LoggingService();
+            loggingService.setAsyncEventLogger(asyncEventLogger);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            asyncEventLogger.stop();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.piggybank.benchmark;
+
+import com.piggybank.entity.Kid;
+import com.piggybank.entity.Transaction;
+import com.piggybank.entity.User;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.TransactionRepository;
+import com.piggybank.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows inserted per second when a unit of work saves many audited entities, with
+ * Hibernate JDBC batching off (batch_size=1, what IDENTITY ids forced) and on.
+ * Each save also writes an Envers _aud row. Scores are rows per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(BatchInsertBenchmark.ROWS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchInsertBenchmark {
+
+    static final int ROWS = 100;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+    private TransactionRepository transactionRepository;
+    private KidRepository kidRepository;
+    private User user;
+    private Long kidId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkContext.start("--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize);
+        transactionTemplate = new TransactionTemplate(BenchmarkContext.bean(PlatformTransactionManager.class));
+        transactionRepository = BenchmarkContext.bean(TransactionRepository.class);
+        kidRepository = BenchmarkContext.bean(KidRepository.class);
+
+        BenchmarkContext.SeededUser seeded = BenchmarkContext.seedUser(1, 0, BigDecimal.ZERO);
+        user = BenchmarkContext.bean(UserRepository.class).findById(seeded.getUserId()).orElseThrow();
+        kidId = seeded.getFirstKidId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.stop();
+    }
+
+    @Benchmark
+    public List<Transaction> insertTransactions() {
+        return transactionTemplate.execute(status -> {
+            List<Transaction> transactions = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                transactions.add(new Transaction(user.getId(), kidId, Transaction.TransactionType.DEPOSIT,
+                        new BigDecimal("1.00"), "Benchmark insert", BenchmarkContext.createdBy()));
+            }
+            return transactionRepository.saveAll(transactions);
+        });
+    }
+
+    @Benchmark
+    public List<Kid> insertKids() {
+        return transactionTemplate.execute(status -> {
+            List<Kid> kids = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                kids.add(new Kid("Kid " + i, 8, user));
+            }
+            return kidRepository.saveAll(kids);
+        });
+    }
+}
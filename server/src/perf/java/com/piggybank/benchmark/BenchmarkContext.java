@@ -0,0 +1,191 @@
+package com.piggybank.benchmark;
+
+import com.piggybank.PiggyBankApplication;
+import com.piggybank.dto.TransactionDTO;
+import com.piggybank.entity.Kid;
+import com.piggybank.entity.Transaction;
+import com.piggybank.entity.User;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.UserRepository;
+import com.piggybank.service.TransactionService;
+import com.piggybank.service.UserSettingsService;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts the application once per benchmark fork against an in-memory H2 database
+ * and seeds users, kids and ledgers for the service benchmarks.
+ */
+public final class BenchmarkContext {
+
+    private static final String CREATED_BY = "benchmark";
+    private static final AtomicInteger userSequence = new AtomicInteger();
+
+    private static ConfigurableApplicationContext context;
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * Start the application without a web server. Extra arguments only apply to the
+     * first call in a fork, so benchmarks that need them call this from their setup first.
+     */
+    public static synchronized ConfigurableApplicationContext start(String... extraArgs) {
+        if (context == null) {
+            context = run(WebApplicationType.NONE, extraArgs);
+        }
+        return context;
+    }
+
+    /**
+     * Start the application with its embedded web server on a random port.
+     * Extra arguments (e.g. "--server.tomcat.threads.max=400") override any setting.
+     */
+    public static synchronized ConfigurableApplicationContext startWebServer(String... extraArgs) {
+        if (context == null) {
+            String[] args = Arrays.copyOf(extraArgs, extraArgs.length + 1);
+            args[extraArgs.length] = "--server.port=0";
+            context = run(WebApplicationType.SERVLET, args);
+        }
+        return context;
+    }
+
+    public static int localPort() {
+        return start().getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    private static ConfigurableApplicationContext run(WebApplicationType type, String[] extraArgs) {
+        // Command-line arguments take precedence over application.properties
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driverClassName=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.properties.hibernate.hbm2ddl.auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--piggybank.export.fetch-size=500",
+                // Quiet logging so SQL and debug output do not dominate the measurements;
+                // audit events still go to the JSON file configured in logback-test.xml
+                "--logging.config=classpath:logback-test.xml",
+                "--logging.level.root=WARN",
+                "--logging.level.com.piggybank=WARN",
+                "--logging.level.com.piggybank.service.LoggingService=INFO",
+                "--logging.level.org.springframework.security=WARN",
+                "--logging.level.org.springframework.web=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"));
+        for (String extraArg : extraArgs) {
+            // Replace rather than repeat a setting; repeated arguments are joined into a list
+            String name = extraArg.substring(0, extraArg.indexOf('=') + 1);
+            args.removeIf(arg -> arg.startsWith(name));
+            args.add(extraArg);
+        }
+
+        SpringApplication application = new SpringApplication(PiggyBankApplication.class);
+        application.setWebApplicationType(type);
+        // Count the statements each benchmark thread executes, for StatementCounter
+        application.addInitializers(applicationContext -> applicationContext.getBeanFactory()
+                .addBeanPostProcessor(new BeanPostProcessor() {
+                    @Override
+                    public Object postProcessAfterInitialization(Object bean, String beanName) {
+                        return bean instanceof DataSource dataSource ? StatementCounter.counting(dataSource) : bean;
+                    }
+                }));
+        return application.run(args.toArray(new String[0]));
+    }
+
+    public static synchronized void stop() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    public static <T> T bean(Class<T> type) {
+        return start().getBean(type);
+    }
+
+    /**
+     * Create a user with default settings and the given number of kids, each credited
+     * with depositsPerKid deposits of depositAmount.
+     */
+    public static SeededUser seedUser(int kidCount, int depositsPerKid, BigDecimal depositAmount) {
+        return seedUser(kidCount, depositsPerKid, depositAmount, "unused");
+    }
+
+    /**
+     * As above, with a real PIN hash so the user can log in over HTTP
+     */
+    public static SeededUser seedUser(int kidCount, int depositsPerKid, BigDecimal depositAmount, String pinHash) {
+        int sequence = userSequence.incrementAndGet();
+        User user = bean(UserRepository.class).save(
+                new User("+1555" + String.format("%07d", sequence), "Benchmark" + sequence, pinHash));
+        bean(UserSettingsService.class).getOrCreateSettingsSnapshot(user.getId(), CREATED_BY);
+
+        KidRepository kidRepository = bean(KidRepository.class);
+        TransactionService transactionService = bean(TransactionService.class);
+        List<Long> kidIds = new ArrayList<>(kidCount);
+        for (int i = 0; i < kidCount; i++) {
+            Kid kid = kidRepository.save(new Kid("Kid " + i, 5 + i % 10, user));
+            kidIds.add(kid.getId());
+            for (int d = 0; d < depositsPerKid; d++) {
+                transactionService.processDeposit(user.getId(), deposit(kid.getId(), depositAmount), CREATED_BY);
+            }
+        }
+        return new SeededUser(user.getId(), user.getPhoneNumber(), kidIds);
+    }
+
+    public static TransactionDTO deposit(Long kidId, BigDecimal amount) {
+        return new TransactionDTO(kidId, Transaction.TransactionType.DEPOSIT, amount, "Benchmark deposit");
+    }
+
+    public static TransactionDTO withdrawal(Long kidId, Transaction.ComponentType component, BigDecimal amount) {
+        TransactionDTO withdrawal = new TransactionDTO(kidId, Transaction.TransactionType.WITHDRAWAL, amount,
+                "Benchmark withdrawal");
+        withdrawal.setWithdrawalComponent(component);
+        return withdrawal;
+    }
+
+    public static String createdBy() {
+        return CREATED_BY;
+    }
+
+    public static class SeededUser {
+        private final Long userId;
+        private final String phoneNumber;
+        private final List<Long> kidIds;
+
+        SeededUser(Long userId, String phoneNumber, List<Long> kidIds) {
+            this.userId = userId;
+            this.phoneNumber = phoneNumber;
+            this.kidIds = kidIds;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public String getPhoneNumber() {
+            return phoneNumber;
+        }
+
+        public List<Long> getKidIds() {
+            return kidIds;
+        }
+
+        public Long getFirstKidId() {
+            return kidIds.get(0);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.piggybank.benchmark;
+
+import com.piggybank.service.DepositSplitEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting a deposit into its four components: the precompiled cent-based plan
+ * used by buildDeposit against the per-component BigDecimal rounding it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DepositSplitBenchmark {
+
+    private static final BigDecimal ONE_HUNDRED = new BigDecimal("100");
+
+    private final BigDecimal charityPercentage = new BigDecimal("10.00");
+    private final BigDecimal spendPercentage = new BigDecimal("33.33");
+    private final BigDecimal savingsPercentage = new BigDecimal("33.33");
+    private final BigDecimal investmentPercentage = new BigDecimal("23.34");
+    private final BigDecimal amount = new BigDecimal("123.45");
+
+    private DepositSplitEngine.SplitPlan plan;
+
+    @Setup
+    public void setUp() {
+        plan = DepositSplitEngine.compile(charityPercentage, spendPercentage, savingsPercentage, investmentPercentage);
+    }
+
+    @Benchmark
+    public void splitPlan(Blackhole blackhole) {
+        long totalCents = DepositSplitEngine.toCents(amount);
+        long[] parts = plan.split(totalCents);
+        blackhole.consume(DepositSplitEngine.fromCents(totalCents));
+        blackhole.consume(DepositSplitEngine.fromCents(parts[DepositSplitEngine.CHARITY]));
+        blackhole.consume(DepositSplitEngine.fromCents(parts[DepositSplitEngine.SPEND]));
+        blackhole.consume(DepositSplitEngine.fromCents(parts[DepositSplitEngine.SAVINGS]));
+        blackhole.consume(DepositSplitEngine.fromCents(parts[DepositSplitEngine.INVESTMENT]));
+    }
+
+    @Benchmark
+    public void bigDecimalPercentages(Blackhole blackhole) {
+        blackhole.consume(amount);
+        blackhole.consume(percentageOf(amount, charityPercentage));
+        blackhole.consume(percentageOf(amount, spendPercentage));
+        blackhole.consume(percentageOf(amount, savingsPercentage));
+        blackhole.consume(percentageOf(amount, investmentPercentage));
+    }
+
+    private static BigDecimal percentageOf(BigDecimal amount, BigDecimal percentage) {
+        return amount.multiply(percentage).divide(ONE_HUNDRED, 2, RoundingMode.HALF_UP);
+    }
+}
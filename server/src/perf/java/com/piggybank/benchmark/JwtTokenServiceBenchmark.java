@@ -0,0 +1,65 @@
+package com.piggybank.benchmark;
+
+import com.piggybank.security.AuthenticatedUser;
+import com.piggybank.service.JwtTokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and verification. verifyUncached parses and checks the HMAC on every
+ * call, which is what each request paid before verified tokens were cached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenServiceBenchmark {
+
+    private JwtTokenService jwtTokenService;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtTokenService = BenchmarkContext.bean(JwtTokenService.class);
+        token = jwtTokenService.generateToken(42L, "+15550000042");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.stop();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtTokenService.generateToken(42L, "+15550000042");
+    }
+
+    @Benchmark
+    public Long getUserIdFromToken() {
+        return jwtTokenService.getUserIdFromToken(token);
+    }
+
+    @Benchmark
+    public AuthenticatedUser authenticate() {
+        return jwtTokenService.authenticate(token);
+    }
+
+    @Benchmark
+    public Long verifyUncached() {
+        return jwtTokenService.getClaimFromToken(token, claims -> claims.get("userId", Long.class));
+    }
+}
@@ -0,0 +1,68 @@
+package com.piggybank.benchmark;
+
+import com.piggybank.dto.KidBalanceDTO;
+import com.piggybank.service.KidBalanceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance list and totals for a user with 1, 10 and 100 kids. Both are a single
+ * projection query, so the time should grow with rows returned, not with round trips;
+ * statements / calls stays at one for every kid count.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KidBalanceServiceBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int kidCount;
+
+    private KidBalanceService kidBalanceService;
+    private Long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        kidBalanceService = BenchmarkContext.bean(KidBalanceService.class);
+        userId = BenchmarkContext.seedUser(kidCount, 1, new BigDecimal("40.00")).getUserId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.stop();
+    }
+
+    @Benchmark
+    public List<KidBalanceDTO> getAllKidBalances(StatementCounter counter) {
+        long before = StatementCounter.executed();
+        List<KidBalanceDTO> balances = kidBalanceService.getAllKidBalances(userId);
+        counter.record(before);
+        return balances;
+    }
+
+    @Benchmark
+    public KidBalanceDTO getTotalBalancesForUser(StatementCounter counter) {
+        long before = StatementCounter.executed();
+        KidBalanceDTO totals = kidBalanceService.getTotalBalancesForUser(userId);
+        counter.record(before);
+        return totals;
+    }
+}
@@ -0,0 +1,74 @@
+package com.piggybank.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.piggybank.dto.KidDetailsDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encoding of the kid details response (balances plus the 10 most recent
+ * transactions) with an ObjectMapper configured the way Spring MVC builds it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KidDetailsSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private KidDetailsDTO kidDetails;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        kidDetails = new KidDetailsDTO(1L, "Benchmark Kid", 8,
+                new BigDecimal("12.50"), new BigDecimal("40.25"),
+                new BigDecimal("130.00"), new BigDecimal("75.75"));
+
+        List<KidDetailsDTO.TransactionSummaryDTO> recent = new ArrayList<>();
+        LocalDateTime date = LocalDateTime.of(2024, 1, 15, 9, 30);
+        for (int i = 0; i < 10; i++) {
+            boolean deposit = i % 3 != 2;
+            KidDetailsDTO.TransactionSummaryDTO summary = new KidDetailsDTO.TransactionSummaryDTO(
+                    1000L + i,
+                    deposit ? "DEPOSIT" : "WITHDRAWAL",
+                    deposit ? new BigDecimal("20.00") : new BigDecimal("3.50"),
+                    deposit ? "ALL" : "SPEND",
+                    deposit ? "Weekly allowance" : "Ice cream",
+                    date.minusDays(i));
+            if (deposit) {
+                summary.setCharityAmount(new BigDecimal("2.00"));
+                summary.setSpendAmount(new BigDecimal("6.00"));
+                summary.setSavingsAmount(new BigDecimal("8.00"));
+                summary.setInvestmentAmount(new BigDecimal("4.00"));
+            } else {
+                summary.setWithdrawalComponent("SPEND");
+            }
+            recent.add(summary);
+        }
+        kidDetails.setRecentTransactions(recent);
+    }
+
+    @Benchmark
+    public byte[] writeKidDetails() throws Exception {
+        return objectMapper.writeValueAsBytes(kidDetails);
+    }
+}
@@ -0,0 +1,103 @@
+package com.piggybank.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Reports the JDBC statements executed and calls made per iteration; statements / calls
+ * is the statement count per call. BenchmarkContext wraps the application's DataSource
+ * so Hibernate and JdbcTemplate statements are both counted, each batch once since it is
+ * a single round trip. Counts are per thread, so background writers do not show up.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class StatementCounter {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private static final ThreadLocal<long[]> executed = ThreadLocal.withInitial(() -> new long[1]);
+
+    public long statements;
+    public long calls;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        statements = 0;
+        calls = 0;
+    }
+
+    /**
+     * Statements executed so far on this thread, to pass to record after the call
+     */
+    static long executed() {
+        return executed.get()[0];
+    }
+
+    public void record(long executedBefore) {
+        statements += executed() - executedBefore;
+        calls++;
+    }
+
+    static DataSource counting(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(),
+                new Class<?>[]{DataSource.class, Closeable.class}, (proxy, method, args) -> {
+                    Object result = invoke(dataSource, method, args);
+                    return result instanceof Connection connection ? counting(connection) : result;
+                });
+    }
+
+    private static Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    return result instanceof Statement statement ? counting(statement) : result;
+                });
+    }
+
+    private static Statement counting(Statement statement) {
+        // Keep the most specific interface so Hibernate can still cast to PreparedStatement
+        return (Statement) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(),
+                new Class<?>[]{mostSpecificInterface(statement)}, (proxy, method, args) -> {
+                    if (EXECUTE_METHODS.contains(method.getName())) {
+                        executed.get()[0]++;
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Class<?> mostSpecificInterface(Statement statement) {
+        if (statement instanceof CallableStatement) {
+            return CallableStatement.class;
+        }
+        if (statement instanceof PreparedStatement) {
+            return PreparedStatement.class;
+        }
+        return Statement.class;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Closeable.class && !(target instanceof Closeable)) {
+            return null;
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.piggybank.benchmark;
+
+import com.piggybank.dto.KidDetailsDTO;
+import com.piggybank.dto.TransactionDTO;
+import com.piggybank.entity.Transaction;
+import com.piggybank.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposit, withdrawal and read paths of TransactionService against seeded H2 data.
+ * Each benchmark method runs in its own fork, so writes from one do not skew another.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionServiceBenchmark {
+
+    private static final int HISTORY_SIZE = 200;
+
+    private TransactionService transactionService;
+    private Long userId;
+    private Long kidId;
+    private TransactionDTO deposit;
+    private TransactionDTO withdrawal;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactionService = BenchmarkContext.bean(TransactionService.class);
+
+        // One large deposit funds the withdrawals, the rest build up a realistic history
+        BenchmarkContext.SeededUser user = BenchmarkContext.seedUser(1, HISTORY_SIZE - 1, new BigDecimal("20.00"));
+        userId = user.getUserId();
+        kidId = user.getFirstKidId();
+        transactionService.processDeposit(userId, BenchmarkContext.deposit(kidId, new BigDecimal("4000000.00")),
+                BenchmarkContext.createdBy());
+
+        deposit = BenchmarkContext.deposit(kidId, new BigDecimal("10.00"));
+        withdrawal = BenchmarkContext.withdrawal(kidId, Transaction.ComponentType.SPEND, new BigDecimal("0.01"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.stop();
+    }
+
+    /**
+     * Runs once per deposit path, JPA save or the JDBC fast path, and reports the
+     * statements executed per deposit for each.
+     */
+    @Benchmark
+    public Transaction processDeposit(DepositPath path, StatementCounter counter) {
+        long before = StatementCounter.executed();
+        Transaction transaction = transactionService.processDeposit(userId, deposit, BenchmarkContext.createdBy());
+        counter.record(before);
+        return transaction;
+    }
+
+    @Benchmark
+    public Transaction processWithdrawal() {
+        return transactionService.processWithdrawal(userId, withdrawal, BenchmarkContext.createdBy());
+    }
+
+    /**
+     * Also reports the statements executed per getKidDetails
+     */
+    @Benchmark
+    public KidDetailsDTO getKidDetails(StatementCounter counter) {
+        long before = StatementCounter.executed();
+        KidDetailsDTO details = transactionService.getKidDetails(userId, kidId);
+        counter.record(before);
+        return details;
+    }
+
+    @Benchmark
+    public List<KidDetailsDTO.TransactionSummaryDTO> getAllTransactionsForKid() {
+        return transactionService.getAllTransactionsForKid(userId, kidId);
+    }
+
+    @State(Scope.Benchmark)
+    public static class DepositPath {
+        // piggybank.deposit.jdbc-fast-path.enabled off and on
+        @Param({"jpa", "jdbc"})
+        public String path;
+
+        @Setup(Level.Trial)
+        public void apply() {
+            BenchmarkContext.bean(TransactionService.class).setJdbcDepositFastPath("jdbc".equals(path));
+        }
+    }
+}
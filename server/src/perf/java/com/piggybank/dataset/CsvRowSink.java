@@ -0,0 +1,91 @@
+package com.piggybank.dataset;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes one CSV file per table for each worker, in the format MySQL's
+ * LOAD DATA reads with the statements in load.sql: comma separated, strings
+ * quoted, NULL as \N.
+ */
+final class CsvRowSink implements RowSink {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Path directory;
+    private final int worker;
+    private final Map<DatasetTable, BufferedWriter> writers = new EnumMap<>(DatasetTable.class);
+
+    CsvRowSink(Path directory, int worker) {
+        this.directory = directory;
+        this.worker = worker;
+    }
+
+    static Path file(Path directory, DatasetTable table, int worker) {
+        return directory.resolve(table.getTableName() + "." + worker + ".csv");
+    }
+
+    @Override
+    public void write(Map<DatasetTable, List<Object[]>> chunk) throws IOException {
+        for (Map.Entry<DatasetTable, List<Object[]>> entry : chunk.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            BufferedWriter writer = writers.get(entry.getKey());
+            if (writer == null) {
+                writer = Files.newBufferedWriter(file(directory, entry.getKey(), worker), StandardCharsets.UTF_8);
+                writers.put(entry.getKey(), writer);
+            }
+            for (Object[] row : entry.getValue()) {
+                writeRow(writer, row);
+            }
+        }
+    }
+
+    private static void writeRow(BufferedWriter writer, Object[] row) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = row[i];
+            if (value == null) {
+                writer.write("\\N");
+            } else if (value instanceof String text) {
+                writer.write('"');
+                writer.write(text.replace("\\", "\\\\").replace("\"", "\"\""));
+                writer.write('"');
+            } else if (value instanceof LocalDateTime dateTime) {
+                writer.write(DATE_TIME.format(dateTime));
+            } else if (value instanceof BigDecimal decimal) {
+                writer.write(decimal.toPlainString());
+            } else {
+                writer.write(value.toString());
+            }
+        }
+        writer.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (BufferedWriter writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
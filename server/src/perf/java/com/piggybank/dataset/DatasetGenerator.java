@@ -0,0 +1,318 @@
+package com.piggybank.dataset;
+
+import com.piggybank.entity.Transaction;
+import com.piggybank.entity.id.TimeOrderedIds;
+import com.piggybank.service.DepositSplitEngine;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic source of users, settings, kids, ledgers and balances.
+ *
+ * Every parent draws from its own random stream seeded by (seed, parent index) and
+ * every id is derived from the parent's index, so a chunk generates the same rows
+ * whichever worker runs it and in whatever order. Ledgers are replayed in date order
+ * with the application's split and limit rules, so each kid_balances row equals the
+ * sum of its kid's transactions and no component ever goes negative.
+ */
+public final class DatasetGenerator {
+
+    private static final int REVTYPE_ADD = 0;
+    private static final int WITHDRAWAL_PERCENT = 30;
+    private static final long MIN_WITHDRAWAL_CENTS = 100;
+    private static final long MAX_WITHDRAWAL_CENTS = 2_000;
+    private static final long[] DEPOSIT_CENTS = {
+            100, 250, 500, 500, 1_000, 1_000, 1_500, 2_000, 2_500, 5_000, 10_000 };
+    private static final Transaction.ComponentType[] COMPONENTS = {
+            Transaction.ComponentType.CHARITY,
+            Transaction.ComponentType.SPEND,
+            Transaction.ComponentType.SAVINGS,
+            Transaction.ComponentType.INVESTMENT
+    };
+
+    // Split presets as charity, spend, savings, investment; the first is the application default
+    private static final String[][] SPLIT_PRESETS = {
+            { "25.00", "25.00", "25.00", "25.00" },
+            { "10.00", "40.00", "30.00", "20.00" },
+            { "5.00", "50.00", "25.00", "20.00" },
+            { "20.00", "30.00", "50.00", "0.00" },
+            { "33.34", "33.33", "33.33", "0.00" }
+    };
+
+    private static final String[] FIRST_NAMES = { "Alex", "Sam", "Jordan", "Taylor", "Morgan", "Casey", "Riley",
+            "Jamie", "Avery", "Quinn", "Priya", "Wei", "Fatima", "Diego", "Olga", "Kwame" };
+    private static final String[] LAST_NAMES = { "Smith", "Garcia", "Chen", "Patel", "Okafor", "Novak", "Kim",
+            "Silva", "Muller", "Haddad", "Johnson", "Tanaka" };
+    private static final String[] KID_NAMES = { "Emma", "Liam", "Mia", "Noah", "Ava", "Leo", "Zoe", "Eli",
+            "Aria", "Max", "Ivy", "Kai", "Nora", "Finn", "Lila", "Omar" };
+    private static final String[] DEPOSIT_DESCRIPTIONS = { "Weekly allowance", "Birthday money", "Chores",
+            "Gift from grandparents", "Tooth fairy", null };
+    private static final String[] WITHDRAWAL_DESCRIPTIONS = { "Toy", "Snacks", "Book", "Donation", "Game",
+            "Savings goal", null };
+
+    private final DatasetOptions options;
+    private final String pinHash;
+    private final IdBase base;
+    private final BigDecimal[][] presetPercentages;
+    private final DepositSplitEngine.SplitPlan[] presetPlans;
+    private final LocalDateTime periodStart;
+    private final long periodSeconds;
+
+    public DatasetGenerator(DatasetOptions options, String pinHash, IdBase base) {
+        this.options = options;
+        this.pinHash = pinHash;
+        this.base = base;
+
+        presetPercentages = new BigDecimal[SPLIT_PRESETS.length][];
+        presetPlans = new DepositSplitEngine.SplitPlan[SPLIT_PRESETS.length];
+        for (int i = 0; i < SPLIT_PRESETS.length; i++) {
+            BigDecimal[] percentages = new BigDecimal[4];
+            for (int c = 0; c < 4; c++) {
+                percentages[c] = new BigDecimal(SPLIT_PRESETS[i][c]);
+            }
+            presetPercentages[i] = percentages;
+            presetPlans[i] = DepositSplitEngine.compile(percentages[0], percentages[1], percentages[2], percentages[3]);
+        }
+
+        periodStart = options.getStart().atStartOfDay();
+        periodSeconds = ChronoUnit.SECONDS.between(periodStart, periodStart.plusMonths(options.getMonths()));
+
+        // Generated ids are dense and must stay below the time-ordered ids the application assigns from now on
+        long kidSlots = (long) options.getUsers() * options.getMaxKidsPerUser();
+        long idCeiling = TimeOrderedIds.lowestIdAt(System.currentTimeMillis());
+        if (base.users + options.getUsers() >= idCeiling
+                || base.settings + options.getUsers() >= idCeiling
+                || base.kids + kidSlots >= idCeiling
+                || base.balances + kidSlots >= idCeiling
+                || base.transactions + kidSlots * options.getMaxTransactionsPerKid() >= idCeiling) {
+            throw new IllegalArgumentException("Generated ids would reach the time-ordered id range; "
+                    + "generate into an empty schema or reduce the dataset size");
+        }
+    }
+
+    /**
+     * All rows for the parents in one chunk, keyed by table in foreign-key order
+     */
+    public Map<DatasetTable, List<Object[]>> generateChunk(int chunkIndex) {
+        Map<DatasetTable, List<Object[]>> rows = new EnumMap<>(DatasetTable.class);
+        for (DatasetTable table : DatasetTable.values()) {
+            if (options.isAudit() || !table.isAudit()) {
+                rows.put(table, new ArrayList<>());
+            }
+        }
+
+        int first = chunkIndex * options.getChunkSize();
+        int last = Math.min(options.getUsers(), first + options.getChunkSize());
+        for (int userIndex = first; userIndex < last; userIndex++) {
+            generateUser(userIndex, rows);
+        }
+
+        if (options.isAudit()) {
+            int revision = (int) (base.revisions + chunkIndex + 1);
+            long timestamp = periodStart.plusMonths(options.getMonths()).toInstant(ZoneOffset.UTC).toEpochMilli()
+                    + chunkIndex;
+            rows.get(DatasetTable.REVINFO).add(new Object[] { revision, timestamp });
+            addAudit(rows, DatasetTable.USERS, DatasetTable.USERS_AUD, revision);
+            addAudit(rows, DatasetTable.USER_SETTINGS, DatasetTable.USER_SETTINGS_AUD, revision);
+            addAudit(rows, DatasetTable.KIDS, DatasetTable.KIDS_AUD, revision);
+            addAudit(rows, DatasetTable.TRANSACTIONS, DatasetTable.TRANSACTIONS_AUD, revision);
+        }
+        return rows;
+    }
+
+    private void generateUser(int userIndex, Map<DatasetTable, List<Object[]>> rows) {
+        SplittableRandom random = new SplittableRandom(mix64(options.getSeed() * 0x9E3779B97F4A7C15L + userIndex));
+
+        long userId = base.users + userIndex + 1;
+        String phoneNumber = "+1" + (2_000_000_000L + userId);
+        String name = pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES);
+        LocalDateTime userCreated = periodStart.minusDays(1 + random.nextInt(30)).plusSeconds(random.nextInt(86_400));
+        rows.get(DatasetTable.USERS).add(new Object[] { userId, phoneNumber, name, pinHash, null,
+                userCreated, userCreated, phoneNumber, phoneNumber });
+
+        // Most parents keep the defaults: 25% each and 2 savings/investment withdrawals a month
+        int preset = random.nextInt(10) < 7 ? 0 : 1 + random.nextInt(SPLIT_PRESETS.length - 1);
+        int savingsLimit = random.nextInt(10) < 7 ? 2 : 1 + random.nextInt(4);
+        int investmentLimit = random.nextInt(10) < 7 ? 2 : 1 + random.nextInt(4);
+        BigDecimal[] percentages = presetPercentages[preset];
+        rows.get(DatasetTable.USER_SETTINGS).add(new Object[] { base.settings + userIndex + 1, userId,
+                percentages[0], percentages[1], percentages[2], percentages[3], savingsLimit, investmentLimit,
+                userCreated, userCreated, phoneNumber, phoneNumber });
+
+        int kidCount = 1 + random.nextInt(options.getMaxKidsPerUser());
+        for (int k = 0; k < kidCount; k++) {
+            long kidSlot = (long) userIndex * options.getMaxKidsPerUser() + k;
+            long kidId = base.kids + kidSlot + 1;
+            LocalDateTime kidCreated = userCreated.plusMinutes(1 + k);
+            rows.get(DatasetTable.KIDS).add(new Object[] { kidId, pick(random, KID_NAMES), 4 + random.nextInt(13),
+                    userId, kidCreated, kidCreated, phoneNumber, phoneNumber });
+
+            generateLedger(random, kidSlot, userId, kidId, phoneNumber, preset,
+                    new int[] { Integer.MAX_VALUE, Integer.MAX_VALUE, savingsLimit, investmentLimit }, rows);
+        }
+    }
+
+    private void generateLedger(SplittableRandom random, long kidSlot, long userId, long kidId, String createdBy,
+            int preset, int[] monthlyLimits, Map<DatasetTable, List<Object[]>> rows) {
+        int maxTransactions = options.getMaxTransactionsPerKid();
+        int count = 1 + random.nextInt(maxTransactions);
+        long[] offsets = new long[count];
+        for (int t = 0; t < count; t++) {
+            offsets[t] = random.nextLong(periodSeconds);
+        }
+        Arrays.sort(offsets);
+
+        BigDecimal[] percentages = presetPercentages[preset];
+        DepositSplitEngine.SplitPlan plan = presetPlans[preset];
+        long[] balances = new long[4];
+        int[] withdrawalMonth = new int[4];
+        int[] withdrawalsInMonth = new int[4];
+        List<Object[]> transactions = rows.get(DatasetTable.TRANSACTIONS);
+        LocalDateTime firstDate = null;
+        LocalDateTime lastDate = null;
+
+        for (int t = 0; t < count; t++) {
+            long transactionId = base.transactions + kidSlot * maxTransactions + t + 1;
+            LocalDateTime date = periodStart.plusSeconds(offsets[t]);
+            if (firstDate == null) {
+                firstDate = date;
+            }
+            lastDate = date;
+
+            // The first entry is always a deposit; a withdrawal that the application would
+            // reject (no funds or monthly limit reached) becomes a deposit instead
+            int component = -1;
+            if (t > 0 && random.nextInt(100) < WITHDRAWAL_PERCENT) {
+                int candidate = random.nextInt(4);
+                int month = date.getYear() * 100 + date.getMonthValue();
+                if (withdrawalMonth[candidate] != month) {
+                    addWithdrawalCounter(rows, userId, kidId, candidate, withdrawalMonth[candidate],
+                            withdrawalsInMonth[candidate]);
+                    withdrawalMonth[candidate] = month;
+                    withdrawalsInMonth[candidate] = 0;
+                }
+                if (balances[candidate] >= MIN_WITHDRAWAL_CENTS
+                        && withdrawalsInMonth[candidate] < monthlyLimits[candidate]) {
+                    component = candidate;
+                }
+            }
+
+            if (component >= 0) {
+                long ceiling = Math.min(balances[component], MAX_WITHDRAWAL_CENTS);
+                long cents = MIN_WITHDRAWAL_CENTS + random.nextLong(ceiling - MIN_WITHDRAWAL_CENTS + 1);
+                balances[component] -= cents;
+                withdrawalsInMonth[component]++;
+                BigDecimal amount = DepositSplitEngine.fromCents(cents);
+                transactions.add(new Object[] { transactionId, userId, kidId,
+                        Transaction.TransactionType.WITHDRAWAL.name(), amount,
+                        null, null, null, null, null, null, null, null,
+                        COMPONENTS[component].name(), amount, pick(random, WITHDRAWAL_DESCRIPTIONS),
+                        date, date, createdBy });
+            } else {
+                long cents = random.nextInt(4) == 0 ? 1 + random.nextInt(9_999) : pick(random, DEPOSIT_CENTS);
+                long[] parts = plan.split(cents);
+                for (int c = 0; c < 4; c++) {
+                    balances[c] += parts[c];
+                }
+                transactions.add(new Object[] { transactionId, userId, kidId,
+                        Transaction.TransactionType.DEPOSIT.name(), DepositSplitEngine.fromCents(cents),
+                        DepositSplitEngine.fromCents(parts[0]), DepositSplitEngine.fromCents(parts[1]),
+                        DepositSplitEngine.fromCents(parts[2]), DepositSplitEngine.fromCents(parts[3]),
+                        percentages[0], percentages[1], percentages[2], percentages[3],
+                        null, null, pick(random, DEPOSIT_DESCRIPTIONS), date, date, createdBy });
+            }
+        }
+
+        for (int c = 0; c < 4; c++) {
+            addWithdrawalCounter(rows, userId, kidId, c, withdrawalMonth[c], withdrawalsInMonth[c]);
+        }
+
+        long total = balances[0] + balances[1] + balances[2] + balances[3];
+        rows.get(DatasetTable.KID_BALANCES).add(new Object[] { base.balances + kidSlot + 1, userId, kidId,
+                DepositSplitEngine.fromCents(balances[0]), DepositSplitEngine.fromCents(balances[1]),
+                DepositSplitEngine.fromCents(balances[2]), DepositSplitEngine.fromCents(balances[3]),
+                DepositSplitEngine.fromCents(total), lastDate, firstDate, lastDate, createdBy, createdBy });
+    }
+
+    /**
+     * withdrawal_counters row for a finished month of a limited component (Savings, Investment)
+     */
+    private static void addWithdrawalCounter(Map<DatasetTable, List<Object[]>> rows, long userId, long kidId,
+            int component, int period, int withdrawals) {
+        if (withdrawals > 0 && (COMPONENTS[component] == Transaction.ComponentType.SAVINGS
+                || COMPONENTS[component] == Transaction.ComponentType.INVESTMENT)) {
+            rows.get(DatasetTable.WITHDRAWAL_COUNTERS).add(new Object[] { userId, kidId,
+                    COMPONENTS[component].name(), period, withdrawals });
+        }
+    }
+
+    private static void addAudit(Map<DatasetTable, List<Object[]>> rows, DatasetTable entity, DatasetTable audit,
+            int revision) {
+        List<Object[]> auditRows = rows.get(audit);
+        for (Object[] row : rows.get(entity)) {
+            Object[] auditRow = Arrays.copyOf(row, row.length + 2);
+            auditRow[row.length] = revision;
+            auditRow[row.length + 1] = REVTYPE_ADD;
+            auditRows.add(auditRow);
+        }
+    }
+
+    private static <T> T pick(SplittableRandom random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static long pick(SplittableRandom random, long[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * SplitMix64 finalizer, so neighbouring parent indexes get unrelated streams
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Highest existing id per table; generated ids start above these
+     */
+    public static final class IdBase {
+        private final long users;
+        private final long settings;
+        private final long kids;
+        private final long balances;
+        private final long transactions;
+        private final long revisions;
+
+        public IdBase(long users, long settings, long kids, long balances, long transactions, long revisions) {
+            this.users = users;
+            this.settings = settings;
+            this.kids = kids;
+            this.balances = balances;
+            this.transactions = transactions;
+            this.revisions = revisions;
+        }
+
+        public static IdBase empty() {
+            return new IdBase(0, 0, 0, 0, 0, 0);
+        }
+
+        public long getUsers() {
+            return users;
+        }
+
+        public long getKids() {
+            return kids;
+        }
+    }
+}
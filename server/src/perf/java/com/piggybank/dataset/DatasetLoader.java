@@ -0,0 +1,259 @@
+package com.piggybank.dataset;
+
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates a synthetic dataset in parallel and streams it to a database (MySQL or H2)
+ * or to CSV files for MySQL's LOAD DATA.
+ *
+ * Chunks of parents are striped across workers (worker w takes chunks w, w + threads, ...).
+ * Each worker owns a connection or its own CSV files, so nothing is shared while writing.
+ * The jdbc target expects the schema the application creates (spring.jpa.hibernate.ddl-auto=update)
+ * and is meant for an empty schema: ids continue from the highest existing id per table.
+ *
+ * Run with:
+ *   mvn -P benchmarks -DskipTests test-compile exec:exec@generate-dataset -Ddataset.args="--users=100000 --jdbc-url=..."
+ */
+public final class DatasetLoader {
+
+    private static final String VERIFY_SQL = "SELECT COUNT(*) FROM kid_balances b LEFT JOIN (" +
+            "SELECT kid_id, " +
+            "SUM(CASE WHEN transaction_type = 'DEPOSIT' THEN charity_amount " +
+            "WHEN withdrawal_component = 'CHARITY' THEN -withdrawal_amount ELSE 0 END) AS charity, " +
+            "SUM(CASE WHEN transaction_type = 'DEPOSIT' THEN spend_amount " +
+            "WHEN withdrawal_component = 'SPEND' THEN -withdrawal_amount ELSE 0 END) AS spend, " +
+            "SUM(CASE WHEN transaction_type = 'DEPOSIT' THEN savings_amount " +
+            "WHEN withdrawal_component = 'SAVINGS' THEN -withdrawal_amount ELSE 0 END) AS savings, " +
+            "SUM(CASE WHEN transaction_type = 'DEPOSIT' THEN investment_amount " +
+            "WHEN withdrawal_component = 'INVESTMENT' THEN -withdrawal_amount ELSE 0 END) AS investment, " +
+            "SUM(CASE WHEN transaction_type = 'DEPOSIT' THEN total_amount ELSE -total_amount END) AS total " +
+            "FROM transactions WHERE kid_id > ? GROUP BY kid_id) l ON l.kid_id = b.kid_id " +
+            "WHERE b.kid_id > ? AND (l.kid_id IS NULL OR b.charity_balance <> l.charity " +
+            "OR b.spend_balance <> l.spend OR b.savings_balance <> l.savings " +
+            "OR b.investment_balance <> l.investment OR b.total_balance <> l.total)";
+
+    private final DatasetOptions options;
+    private final DataSource dataSource;
+    private final Map<DatasetTable, LongAdder> rowCounts = new EnumMap<>(DatasetTable.class);
+
+    public DatasetLoader(DatasetOptions options, DataSource dataSource) {
+        this.options = options;
+        this.dataSource = dataSource;
+        for (DatasetTable table : DatasetTable.values()) {
+            rowCounts.put(table, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        DatasetOptions options = DatasetOptions.parse(args);
+        DataSource dataSource = options.getTarget() == DatasetOptions.Target.JDBC
+                ? new DriverManagerDataSource(options.getJdbcUrl(), options.getJdbcUser(), options.getJdbcPassword())
+                : null;
+        new DatasetLoader(options, dataSource).load();
+    }
+
+    /**
+     * Generate and write the whole dataset, returning the id base it was generated from
+     */
+    public DatasetGenerator.IdBase load() throws Exception {
+        long started = System.nanoTime();
+        DatasetGenerator.IdBase base = options.getTarget() == DatasetOptions.Target.JDBC
+                ? readIdBase() : DatasetGenerator.IdBase.empty();
+        DatasetGenerator generator = new DatasetGenerator(options, hashPin(), base);
+        if (options.getTarget() == DatasetOptions.Target.CSV) {
+            Files.createDirectories(options.getOutputDirectory());
+        }
+
+        int threads = Math.min(options.getThreads(), options.getChunkCount());
+        AtomicInteger completedChunks = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>(threads);
+            for (int w = 0; w < threads; w++) {
+                int worker = w;
+                results.add(workers.submit(() -> {
+                    runWorker(worker, threads, generator, completedChunks);
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        if (options.getTarget() == DatasetOptions.Target.JDBC) {
+            restartIdentityColumns();
+            if (options.isVerify()) {
+                verifyBalances(base);
+            }
+        } else {
+            writeLoadScript(threads);
+        }
+
+        printSummary(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return base;
+    }
+
+    private void runWorker(int worker, int threads, DatasetGenerator generator, AtomicInteger completedChunks)
+            throws Exception {
+        try (RowSink sink = openSink(worker)) {
+            for (int chunk = worker; chunk < options.getChunkCount(); chunk += threads) {
+                Map<DatasetTable, List<Object[]>> rows = generator.generateChunk(chunk);
+                sink.write(rows);
+                rows.forEach((table, tableRows) -> rowCounts.get(table).add(tableRows.size()));
+
+                int completed = completedChunks.incrementAndGet();
+                if (completed % 20 == 0 || completed == options.getChunkCount()) {
+                    System.out.printf("  %d/%d chunks written%n", completed, options.getChunkCount());
+                }
+            }
+        }
+    }
+
+    private RowSink openSink(int worker) throws SQLException {
+        if (options.getTarget() == DatasetOptions.Target.CSV) {
+            return new CsvRowSink(options.getOutputDirectory(), worker);
+        }
+        return new JdbcRowSink(dataSource.getConnection(), options.getBatchSize());
+    }
+
+    /**
+     * One BCrypt hash for every parent, salted from the seed so reruns produce identical rows
+     */
+    private String hashPin() throws NoSuchAlgorithmException {
+        SecureRandom salt = SecureRandom.getInstance("SHA1PRNG");
+        salt.setSeed(options.getSeed());
+        return new BCryptPasswordEncoder(BCryptPasswordEncoder.BCryptVersion.$2A, 10, salt).encode(options.getPin());
+    }
+
+    private DatasetGenerator.IdBase readIdBase() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return new DatasetGenerator.IdBase(
+                    maxValue(connection, "users", "id"),
+                    maxValue(connection, "user_settings", "id"),
+                    maxValue(connection, "kids", "id"),
+                    maxValue(connection, "kid_balances", "id"),
+                    maxValue(connection, "transactions", "id"),
+                    options.isAudit() ? maxValue(connection, "revinfo", "rev") : 0);
+        }
+    }
+
+    private static long maxValue(Connection connection, String table, String column) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(" + column + "), 0) FROM " + table)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    /**
+     * MySQL moves AUTO_INCREMENT past explicitly inserted ids by itself; H2 identity
+     * columns do not, so restart them above the generated ids.
+     */
+    private void restartIdentityColumns() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.getMetaData().getDatabaseProductName().equals("H2")) {
+                return;
+            }
+            List<String[]> identityColumns = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT table_name, column_name "
+                         + "FROM information_schema.columns WHERE is_identity = 'YES'")) {
+                while (resultSet.next()) {
+                    identityColumns.add(new String[] { resultSet.getString(1), resultSet.getString(2) });
+                }
+            }
+            for (DatasetTable table : DatasetTable.values()) {
+                for (String[] identity : identityColumns) {
+                    if (identity[0].equalsIgnoreCase(table.getTableName())) {
+                        long next = maxValue(connection, identity[0], identity[1]) + 1;
+                        try (Statement statement = connection.createStatement()) {
+                            statement.execute("ALTER TABLE " + identity[0] + " ALTER COLUMN " + identity[1]
+                                    + " RESTART WITH " + next);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void verifyBalances(DatasetGenerator.IdBase base) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(VERIFY_SQL)) {
+            statement.setLong(1, base.getKids());
+            statement.setLong(2, base.getKids());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                long mismatches = resultSet.getLong(1);
+                if (mismatches > 0) {
+                    throw new IllegalStateException(mismatches + " kid_balances rows do not match their ledger");
+                }
+            }
+        }
+        System.out.println("Verified: every generated kid_balances row equals the sum of its ledger");
+    }
+
+    /**
+     * load.sql loads every CSV file with LOAD DATA LOCAL INFILE, in foreign-key order
+     */
+    private void writeLoadScript(int threads) throws Exception {
+        Path script = options.getOutputDirectory().resolve("load.sql");
+        try (BufferedWriter writer = Files.newBufferedWriter(script, StandardCharsets.UTF_8)) {
+            writer.write("-- Generated by DatasetLoader; run with: mysql --local-infile=1 piggy_bank < load.sql\n");
+            writer.write("SET FOREIGN_KEY_CHECKS = 0;\nSET UNIQUE_CHECKS = 0;\n");
+            for (DatasetTable table : DatasetTable.values()) {
+                for (int worker = 0; worker < threads; worker++) {
+                    Path file = CsvRowSink.file(options.getOutputDirectory(), table, worker);
+                    if (!Files.exists(file)) {
+                        continue;
+                    }
+                    writer.write("LOAD DATA LOCAL INFILE '" + file.toAbsolutePath() + "' INTO TABLE `"
+                            + table.getTableName() + "` CHARACTER SET utf8mb4 FIELDS TERMINATED BY ',' "
+                            + "OPTIONALLY ENCLOSED BY '\"' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' (`"
+                            + String.join("`, `", table.getColumns()) + "`);\n");
+                }
+            }
+            writer.write("SET UNIQUE_CHECKS = 1;\nSET FOREIGN_KEY_CHECKS = 1;\n");
+        }
+        System.out.println("Load script written to " + script.toAbsolutePath());
+    }
+
+    private void printSummary(long elapsedMillis) {
+        long total = 0;
+        for (Map.Entry<DatasetTable, LongAdder> entry : rowCounts.entrySet()) {
+            long count = entry.getValue().sum();
+            if (count > 0) {
+                System.out.printf("  %-20s %,12d rows%n", entry.getKey().getTableName(), count);
+                total += count;
+            }
+        }
+        System.out.printf("Wrote %,d rows in %,dms (%,d rows/s)%n", total, elapsedMillis,
+                elapsedMillis > 0 ? total * 1000 / elapsedMillis : total);
+    }
+}
@@ -0,0 +1,250 @@
+package com.piggybank.dataset;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Options for the dataset generator, all in --name=value form:
+ *
+ * --users=100000               parents to generate
+ * --max-kids-per-user=3        each parent gets 1..max kids
+ * --transactions-per-kid=20    average ledger length; each kid gets 1..(2 x average - 1)
+ * --seed=42                    same seed and sizes give the same rows
+ * --start=2025-01-01           first day of the ledger period
+ * --months=12                  length of the ledger period
+ * --pin=1234                   PIN every generated parent can log in with
+ * --target=jdbc|csv
+ * --jdbc-url=...               jdbc target; the schema must already exist
+ * --jdbc-user=... --jdbc-password=...
+ * --out=target/dataset         csv target; one file per table and worker plus load.sql
+ * --threads=<cores>            parallel workers
+ * --chunk-size=500             parents per unit of work (one transaction, one Envers revision)
+ * --batch-size=500             rows per multi-row INSERT
+ * --audit=true                 also write revinfo and the _aud tables
+ * --verify=true                jdbc target: check every generated ledger sums to its kid_balances row
+ */
+public final class DatasetOptions {
+
+    public enum Target {
+        JDBC,
+        CSV
+    }
+
+    private int users = 100_000;
+    private int maxKidsPerUser = 3;
+    private int transactionsPerKid = 20;
+    private long seed = 42;
+    private LocalDate start = LocalDate.of(2025, 1, 1);
+    private int months = 12;
+    private String pin = "1234";
+    private Target target = Target.JDBC;
+    private String jdbcUrl;
+    private String jdbcUser = "";
+    private String jdbcPassword = "";
+    private Path outputDirectory = Path.of("target", "dataset");
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = 500;
+    private int batchSize = 500;
+    private boolean audit = true;
+    private boolean verify = true;
+
+    public static DatasetOptions parse(String[] args) {
+        DatasetOptions options = new DatasetOptions();
+        for (String arg : args) {
+            if (arg.isBlank()) {
+                continue;
+            }
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+
+            switch (name) {
+                case "users" -> options.setUsers(Integer.parseInt(value));
+                case "max-kids-per-user" -> options.setMaxKidsPerUser(Integer.parseInt(value));
+                case "transactions-per-kid" -> options.setTransactionsPerKid(Integer.parseInt(value));
+                case "seed" -> options.setSeed(Long.parseLong(value));
+                case "start" -> options.setStart(LocalDate.parse(value));
+                case "months" -> options.setMonths(Integer.parseInt(value));
+                case "pin" -> options.setPin(value);
+                case "target" -> options.setTarget(Target.valueOf(value.toUpperCase()));
+                case "jdbc-url" -> options.setJdbcUrl(value);
+                case "jdbc-user" -> options.setJdbcUser(value);
+                case "jdbc-password" -> options.setJdbcPassword(value);
+                case "out" -> options.setOutputDirectory(Path.of(value));
+                case "threads" -> options.setThreads(Integer.parseInt(value));
+                case "chunk-size" -> options.setChunkSize(Integer.parseInt(value));
+                case "batch-size" -> options.setBatchSize(Integer.parseInt(value));
+                case "audit" -> options.setAudit(Boolean.parseBoolean(value));
+                case "verify" -> options.setVerify(Boolean.parseBoolean(value));
+                default -> throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        if (options.target == Target.JDBC && options.jdbcUrl == null) {
+            throw new IllegalArgumentException("--jdbc-url is required for the jdbc target");
+        }
+        return options;
+    }
+
+    /**
+     * Transactions a single kid can get; ids are reserved per kid up to this bound
+     */
+    int getMaxTransactionsPerKid() {
+        return 2 * transactionsPerKid - 1;
+    }
+
+    int getChunkCount() {
+        return (users + chunkSize - 1) / chunkSize;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getMaxKidsPerUser() {
+        return maxKidsPerUser;
+    }
+
+    public int getTransactionsPerKid() {
+        return transactionsPerKid;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public int getMonths() {
+        return months;
+    }
+
+    public String getPin() {
+        return pin;
+    }
+
+    public Target getTarget() {
+        return target;
+    }
+
+    public String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    public String getJdbcUser() {
+        return jdbcUser;
+    }
+
+    public String getJdbcPassword() {
+        return jdbcPassword;
+    }
+
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isAudit() {
+        return audit;
+    }
+
+    public boolean isVerify() {
+        return verify;
+    }
+
+    // Setter methods for configuration
+    public void setUsers(int users) {
+        if (users < 1) {
+            throw new IllegalArgumentException("--users must be at least 1");
+        }
+        this.users = users;
+    }
+
+    public void setMaxKidsPerUser(int maxKidsPerUser) {
+        if (maxKidsPerUser < 1) {
+            throw new IllegalArgumentException("--max-kids-per-user must be at least 1");
+        }
+        this.maxKidsPerUser = maxKidsPerUser;
+    }
+
+    public void setTransactionsPerKid(int transactionsPerKid) {
+        if (transactionsPerKid < 1) {
+            throw new IllegalArgumentException("--transactions-per-kid must be at least 1");
+        }
+        this.transactionsPerKid = transactionsPerKid;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setStart(LocalDate start) {
+        this.start = start;
+    }
+
+    public void setMonths(int months) {
+        if (months < 1) {
+            throw new IllegalArgumentException("--months must be at least 1");
+        }
+        this.months = months;
+    }
+
+    public void setPin(String pin) {
+        this.pin = pin;
+    }
+
+    public void setTarget(Target target) {
+        this.target = target;
+    }
+
+    public void setJdbcUrl(String jdbcUrl) {
+        this.jdbcUrl = jdbcUrl;
+    }
+
+    public void setJdbcUser(String jdbcUser) {
+        this.jdbcUser = jdbcUser;
+    }
+
+    public void setJdbcPassword(String jdbcPassword) {
+        this.jdbcPassword = jdbcPassword;
+    }
+
+    public void setOutputDirectory(Path outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public void setAudit(boolean audit) {
+        this.audit = audit;
+    }
+
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+}
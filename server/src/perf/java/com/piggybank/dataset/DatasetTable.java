@@ -0,0 +1,67 @@
+package com.piggybank.dataset;
+
+import java.util.List;
+
+/**
+ * Tables written by the dataset generator, in foreign-key order, with the columns
+ * of the schema Hibernate maintains (including the Envers _aud tables).
+ */
+public enum DatasetTable {
+
+    USERS("users", false, "id", "phone_number", "name", "pin_hash", "last_login",
+            "created_date", "last_modified_date", "created_by", "last_modified_by"),
+    USER_SETTINGS("user_settings", false, "id", "user_id", "charity_percentage", "spend_percentage",
+            "savings_percentage", "investment_percentage", "savings_monthly_withdrawal_limit",
+            "investment_monthly_withdrawal_limit", "created_at", "updated_at", "created_by", "updated_by"),
+    KIDS("kids", false, "id", "name", "age", "user_id",
+            "created_date", "last_modified_date", "created_by", "last_modified_by"),
+    TRANSACTIONS("transactions", false, "id", "user_id", "kid_id", "transaction_type", "total_amount",
+            "charity_amount", "spend_amount", "savings_amount", "investment_amount",
+            "charity_percentage", "spend_percentage", "savings_percentage", "investment_percentage",
+            "withdrawal_component", "withdrawal_amount", "description", "transaction_date", "created_at", "created_by"),
+    KID_BALANCES("kid_balances", false, "id", "user_id", "kid_id", "charity_balance", "spend_balance",
+            "savings_balance", "investment_balance", "total_balance", "last_updated",
+            "created_at", "updated_at", "created_by", "updated_by"),
+    WITHDRAWAL_COUNTERS("withdrawal_counters", false, "user_id", "kid_id", "component", "period", "withdrawal_count"),
+    REVINFO("revinfo", true, "rev", "revtstmp"),
+    USERS_AUD("users_aud", true, USERS, "rev", "revtype"),
+    USER_SETTINGS_AUD("user_settings_aud", true, USER_SETTINGS, "rev", "revtype"),
+    KIDS_AUD("kids_aud", true, KIDS, "rev", "revtype"),
+    TRANSACTIONS_AUD("transactions_aud", true, TRANSACTIONS, "rev", "revtype");
+
+    private final String tableName;
+    private final boolean audit;
+    private final List<String> columns;
+
+    DatasetTable(String tableName, boolean audit, String... columns) {
+        this.tableName = tableName;
+        this.audit = audit;
+        this.columns = List.of(columns);
+    }
+
+    /**
+     * An Envers table: the audited entity's columns followed by the revision columns
+     */
+    DatasetTable(String tableName, boolean audit, DatasetTable audited, String... revisionColumns) {
+        this.tableName = tableName;
+        this.audit = audit;
+        String[] columns = audited.columns.toArray(new String[audited.columns.size() + revisionColumns.length]);
+        System.arraycopy(revisionColumns, 0, columns, audited.columns.size(), revisionColumns.length);
+        this.columns = List.of(columns);
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * True for revinfo and the _aud tables, which are skipped when audit rows are off
+     */
+    public boolean isAudit() {
+        return audit;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+}
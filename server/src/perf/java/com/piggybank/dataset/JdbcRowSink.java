@@ -0,0 +1,98 @@
+package com.piggybank.dataset;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes chunks with multi-row INSERT statements (batchSize rows per statement)
+ * over one connection, committing once per chunk.
+ */
+final class JdbcRowSink implements RowSink {
+
+    private final Connection connection;
+    private final int batchSize;
+    // Full-size statements are reused; the shorter tail of each table is prepared per chunk
+    private final Map<DatasetTable, PreparedStatement> fullBatchStatements = new EnumMap<>(DatasetTable.class);
+
+    JdbcRowSink(Connection connection, int batchSize) throws SQLException {
+        this.connection = connection;
+        this.batchSize = batchSize;
+        connection.setAutoCommit(false);
+    }
+
+    @Override
+    public void write(Map<DatasetTable, List<Object[]>> chunk) throws SQLException {
+        try {
+            for (Map.Entry<DatasetTable, List<Object[]>> entry : chunk.entrySet()) {
+                insert(entry.getKey(), entry.getValue());
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+    }
+
+    private void insert(DatasetTable table, List<Object[]> rows) throws SQLException {
+        int offset = 0;
+        while (rows.size() - offset >= batchSize) {
+            PreparedStatement statement = fullBatchStatements.get(table);
+            if (statement == null) {
+                statement = connection.prepareStatement(insertSql(table, batchSize));
+                fullBatchStatements.put(table, statement);
+            }
+            bind(statement, rows, offset, batchSize);
+            statement.executeUpdate();
+            offset += batchSize;
+        }
+        int remaining = rows.size() - offset;
+        if (remaining > 0) {
+            try (PreparedStatement statement = connection.prepareStatement(insertSql(table, remaining))) {
+                bind(statement, rows, offset, remaining);
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement statement, List<Object[]> rows, int offset, int count)
+            throws SQLException {
+        int index = 1;
+        for (int r = offset; r < offset + count; r++) {
+            for (Object value : rows.get(r)) {
+                statement.setObject(index++, value instanceof LocalDateTime dateTime
+                        ? Timestamp.valueOf(dateTime) : value);
+            }
+        }
+    }
+
+    static String insertSql(DatasetTable table, int rowCount) {
+        List<String> columns = table.getColumns();
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table.getTableName())
+                .append(" (").append(String.join(", ", columns)).append(") VALUES ");
+        String placeholders = "(" + "?, ".repeat(columns.size() - 1) + "?)";
+        for (int r = 0; r < rowCount; r++) {
+            if (r > 0) {
+                sql.append(", ");
+            }
+            sql.append(placeholders);
+        }
+        return sql.toString();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            for (PreparedStatement statement : fullBatchStatements.values()) {
+                statement.close();
+            }
+        } finally {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.piggybank.dataset;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Destination for generated rows. Each worker owns one sink, so implementations
+ * need not be thread-safe.
+ */
+interface RowSink extends AutoCloseable {
+
+    /**
+     * Write one chunk; tables arrive in foreign-key order
+     */
+    void write(Map<DatasetTable, List<Object[]>> chunk) throws Exception;
+}
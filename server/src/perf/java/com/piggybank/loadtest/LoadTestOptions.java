@@ -0,0 +1,207 @@
+package com.piggybank.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line options for LoadTestRunner, all in --name=value form:
+ *
+ * --users=10,100,1000,5000   concurrent virtual users per level, run in order
+ * --warmup=10s               unrecorded ramp time before each level is measured
+ * --duration=30s             measured time per level
+ * --think-time=0ms           pause between one user's requests
+ * --kids-per-user=2          most kids a seeded user has (each gets 1..n)
+ * --transactions-per-kid=20  average seeded ledger length per kid
+ * --mix=login:5,deposit:25,withdraw:15,kid-details:30,balances:25
+ * --request-timeout=30s      a request slower than this counts as an error
+ * --thread-modes=platform,virtual
+ *                            boot the server once per mode, with Tomcat on platform or
+ *                            virtual threads (virtual needs Java 21), and run every level
+ *                            against each; by default the server runs as configured
+ * --out=target/load-test/load-test-yyyyMMdd-HHmmss.json
+ *
+ * Any --server.*, --spring.*, --management.*, --logging.* or --piggybank.* argument
+ * is passed to the application under test, e.g. --server.tomcat.threads.max=400.
+ * Per-request console warnings (slow requests, logins without a bearer token) are
+ * off by default so console output does not throttle the run.
+ */
+final class LoadTestOptions {
+
+    private List<Integer> userLevels = List.of(10, 100, 1000, 5000);
+    private Duration warmup = Duration.ofSeconds(10);
+    private Duration duration = Duration.ofSeconds(30);
+    private Duration thinkTime = Duration.ZERO;
+    private Duration requestTimeout = Duration.ofSeconds(30);
+    private int kidsPerUser = 2;
+    private int transactionsPerKid = 20;
+    private List<String> threadModes = List.of();
+    private Map<LoadTestRunner.Operation, Integer> mix = parseMix(
+            "login:5,deposit:25,withdraw:15,kid-details:30,balances:25");
+    private Path output = Path.of("target", "load-test", "load-test-"
+            + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+    private final Map<String, String> applicationArgs = new LinkedHashMap<>(Map.of(
+            "logging.level.com.piggybank.filter.RequestLoggingFilter", "ERROR",
+            "logging.level.com.piggybank.security.JwtRequestFilter", "ERROR"));
+
+    private LoadTestOptions() {
+    }
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            if (arg.isBlank()) {
+                continue;
+            }
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+
+            if (name.startsWith("server.") || name.startsWith("spring.") || name.startsWith("management.")
+                    || name.startsWith("logging.") || name.startsWith("piggybank.")) {
+                // Keyed so an explicit argument replaces a default instead of repeating it
+                options.applicationArgs.put(name, value);
+                continue;
+            }
+
+            switch (name) {
+                case "users" -> options.userLevels = parseLevels(value);
+                case "warmup" -> options.warmup = parseDuration(value);
+                case "duration" -> options.duration = parseDuration(value);
+                case "think-time" -> options.thinkTime = parseDuration(value);
+                case "request-timeout" -> options.requestTimeout = parseDuration(value);
+                case "kids-per-user" -> options.kidsPerUser = Integer.parseInt(value);
+                case "transactions-per-kid" -> options.transactionsPerKid = Integer.parseInt(value);
+                case "mix" -> options.mix = parseMix(value);
+                case "thread-modes" -> options.threadModes = parseThreadModes(value);
+                case "out" -> options.output = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        if (options.kidsPerUser < 1) {
+            throw new IllegalArgumentException("--kids-per-user must be at least 1");
+        }
+        if (options.transactionsPerKid < 1) {
+            throw new IllegalArgumentException("--transactions-per-kid must be at least 1");
+        }
+        return options;
+    }
+
+    private static List<Integer> parseLevels(String value) {
+        List<Integer> levels = new ArrayList<>();
+        for (String level : value.split(",")) {
+            int users = Integer.parseInt(level.trim());
+            if (users < 1) {
+                throw new IllegalArgumentException("User levels must be positive");
+            }
+            levels.add(users);
+        }
+        return levels;
+    }
+
+    private static List<String> parseThreadModes(String value) {
+        List<String> modes = new ArrayList<>();
+        for (String mode : value.split(",")) {
+            String trimmed = mode.trim();
+            if (!trimmed.equals("platform") && !trimmed.equals("virtual")) {
+                throw new IllegalArgumentException("Thread modes are platform or virtual but got: " + trimmed);
+            }
+            if (trimmed.equals("virtual") && Runtime.version().feature() < 21) {
+                throw new IllegalArgumentException("Virtual threads need Java 21, running on " + Runtime.version());
+            }
+            modes.add(trimmed);
+        }
+        return modes;
+    }
+
+    static Duration parseDuration(String value) {
+        String trimmed = value.trim().toLowerCase();
+        if (trimmed.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+        }
+        long amount = Long.parseLong(trimmed.substring(0, trimmed.length() - 1));
+        return switch (trimmed.charAt(trimmed.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            default -> throw new IllegalArgumentException("Durations look like 500ms, 30s or 2m: " + value);
+        };
+    }
+
+    private static Map<LoadTestRunner.Operation, Integer> parseMix(String value) {
+        Map<LoadTestRunner.Operation, Integer> weights = new EnumMap<>(LoadTestRunner.Operation.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Mix entries look like deposit:25 but got: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weights must not be negative");
+            }
+            weights.put(LoadTestRunner.Operation.fromKey(parts[0].trim()), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("At least one operation needs a positive weight");
+        }
+        return weights;
+    }
+
+    List<Integer> getUserLevels() {
+        return userLevels;
+    }
+
+    int getMaxUsers() {
+        return userLevels.stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    Duration getWarmup() {
+        return warmup;
+    }
+
+    Duration getDuration() {
+        return duration;
+    }
+
+    Duration getThinkTime() {
+        return thinkTime;
+    }
+
+    Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    int getKidsPerUser() {
+        return kidsPerUser;
+    }
+
+    int getTransactionsPerKid() {
+        return transactionsPerKid;
+    }
+
+    List<String> getThreadModes() {
+        return threadModes;
+    }
+
+    Map<LoadTestRunner.Operation, Integer> getMix() {
+        return mix;
+    }
+
+    Path getOutput() {
+        return output;
+    }
+
+    List<String> getApplicationArgs() {
+        List<String> args = new ArrayList<>(applicationArgs.size());
+        applicationArgs.forEach((name, value) -> args.add("--" + name + "=" + value));
+        return args;
+    }
+}
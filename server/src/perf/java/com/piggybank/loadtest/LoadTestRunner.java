@@ -0,0 +1,402 @@
+package com.piggybank.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.piggybank.benchmark.BenchmarkContext;
+import com.piggybank.config.VirtualThreadPinningMonitor;
+import com.piggybank.dataset.DatasetGenerator;
+import com.piggybank.dataset.DatasetLoader;
+import com.piggybank.dataset.DatasetOptions;
+import com.piggybank.service.JwtTokenService;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end HTTP load test. Boots the application on H2 with an embedded server,
+ * seeds one parent (with kids and a transaction history) per virtual user and drives a weighted mix of login,
+ * deposit, withdraw, kid details and balance requests at each concurrency level.
+ *
+ * Each virtual user is closed-loop: it sends its next request only once the previous
+ * one has completed (plus any think time). Results are printed and written as JSON.
+ * With --thread-modes the whole run is repeated against a server on platform threads
+ * and one on virtual threads, so the two can be compared level by level.
+ *
+ * Run with:
+ *   mvn -P benchmarks -DskipTests test-compile exec:exec@load-test -Dloadtest.args="--users=10,100 --duration=20s"
+ */
+public final class LoadTestRunner {
+
+    private static final String PIN = "1234";
+
+    /**
+     * Requests in the mix, keyed by the names used in --mix
+     */
+    enum Operation {
+        LOGIN("login"),
+        DEPOSIT("deposit"),
+        WITHDRAW("withdraw"),
+        KID_DETAILS("kid-details"),
+        BALANCES("balances");
+
+        private final String key;
+
+        Operation(String key) {
+            this.key = key;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        static Operation fromKey(String key) {
+            for (Operation operation : values()) {
+                if (operation.key.equals(key)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation in mix: " + key);
+        }
+    }
+
+    private final LoadTestOptions options;
+    private final Operation[] weightedOperations;
+    private final List<UserSession> sessions = new ArrayList<>();
+    private ExecutorService clientExecutor;
+    private ScheduledExecutorService thinkTimeScheduler;
+    private HttpClient client;
+    private String baseUrl;
+
+    private LoadTestRunner(LoadTestOptions options) {
+        this.options = options;
+        this.weightedOperations = expandMix(options.getMix());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        LoadTestRunner runner = new LoadTestRunner(options);
+        try {
+            runner.run();
+        } finally {
+            runner.shutdown();
+        }
+        // Tomcat and client threads are not all daemons
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        Instant startedAt = Instant.now();
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        clientExecutor = Executors.newFixedThreadPool(threads, daemonThreads("load-test-client"));
+        thinkTimeScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("load-test-think-time"));
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(clientExecutor)
+                .build();
+
+        List<Map<String, Object>> levels = new ArrayList<>();
+        if (options.getThreadModes().isEmpty()) {
+            levels.addAll(runServer(options.getApplicationArgs()));
+        }
+        for (String threadMode : options.getThreadModes()) {
+            List<String> args = new ArrayList<>(options.getApplicationArgs());
+            args.add("--spring.threads.virtual.enabled=" + threadMode.equals("virtual"));
+            args.add("--piggybank.virtual-threads.pinning-monitor.enabled=" + threadMode.equals("virtual"));
+            levels.addAll(runServer(args));
+        }
+
+        writeResults(startedAt, levels);
+    }
+
+    /**
+     * Boot a fresh server with the given arguments, seed it and run every level against it
+     */
+    private List<Map<String, Object>> runServer(List<String> applicationArgs) throws Exception {
+        ConfigurableApplicationContext context = BenchmarkContext.startWebServer(
+                applicationArgs.toArray(new String[0]));
+        try {
+            baseUrl = "http://localhost:" + BenchmarkContext.localPort();
+            // Spring Boot only switches to virtual threads on Java 21 or later
+            boolean virtual = Runtime.version().feature() >= 21
+                    && context.getEnvironment().getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+            String threadMode = virtual ? "virtual" : "platform";
+            VirtualThreadPinningMonitor pinningMonitor = context.getBean(VirtualThreadPinningMonitor.class);
+            seed();
+
+            List<Map<String, Object>> levels = new ArrayList<>();
+            for (int users : options.getUserLevels()) {
+                System.out.printf("Running %d users on %s threads: %ds warmup, %ds measured%n", users, threadMode,
+                        options.getWarmup().toSeconds(), options.getDuration().toSeconds());
+                long pinnedBefore = pinningMonitor.getPinnedEvents();
+                Map<String, Object> level = new LinkedHashMap<>();
+                level.put("threadMode", threadMode);
+                level.putAll(runLevel(users));
+                if (pinningMonitor.isRunning()) {
+                    // Includes the warmup, when the most distinct pinning sites are first hit
+                    level.put("virtualThreadsPinned", pinningMonitor.getPinnedEvents() - pinnedBefore);
+                }
+                levels.add(level);
+                printLevel(level);
+            }
+            if (pinningMonitor.isRunning()) {
+                System.out.println("  Pinned virtual threads by site: " + pinningMonitor.getPinnedSites());
+            }
+            return levels;
+        } finally {
+            BenchmarkContext.stop();
+            sessions.clear();
+        }
+    }
+
+    /**
+     * Seed one parent per virtual user with the dataset generator, which writes rows
+     * directly instead of going through the services, then issue each parent a token.
+     */
+    private void seed() throws Exception {
+        DatasetOptions dataset = new DatasetOptions();
+        dataset.setUsers(options.getMaxUsers());
+        dataset.setMaxKidsPerUser(options.getKidsPerUser());
+        dataset.setTransactionsPerKid(options.getTransactionsPerKid());
+        dataset.setPin(PIN);
+        DatasetGenerator.IdBase base = new DatasetLoader(dataset, BenchmarkContext.bean(DataSource.class)).load();
+
+        JwtTokenService jwtTokenService = BenchmarkContext.bean(JwtTokenService.class);
+        Map<Long, UserSession> byUserId = new LinkedHashMap<>();
+        BenchmarkContext.bean(JdbcTemplate.class).query("SELECT u.id, u.phone_number, k.id FROM users u "
+                + "JOIN kids k ON k.user_id = u.id WHERE u.id > ? ORDER BY u.id, k.id", resultSet -> {
+            long userId = resultSet.getLong(1);
+            String phoneNumber = resultSet.getString(2);
+            UserSession session = byUserId.computeIfAbsent(userId, id -> new UserSession(phoneNumber,
+                    jwtTokenService.generateToken(userId, phoneNumber), byUserId.size()));
+            session.kidIds.add(resultSet.getLong(3));
+        }, base.getUsers());
+        sessions.addAll(byUserId.values());
+    }
+
+    private Map<String, Object> runLevel(int users) throws InterruptedException {
+        LoadTestStats stats = new LoadTestStats();
+        List<VirtualUser> virtualUsers = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            VirtualUser virtualUser = new VirtualUser(sessions.get(i), stats);
+            virtualUsers.add(virtualUser);
+            virtualUser.next();
+        }
+
+        Thread.sleep(options.getWarmup().toMillis());
+        stats.startRecording();
+        Thread.sleep(options.getDuration().toMillis());
+        stats.stopRecording();
+
+        for (VirtualUser virtualUser : virtualUsers) {
+            virtualUser.running = false;
+        }
+        long drainDeadline = System.nanoTime() + options.getRequestTimeout().plusSeconds(5).toNanos();
+        for (VirtualUser virtualUser : virtualUsers) {
+            try {
+                virtualUser.stopped.get(Math.max(0, drainDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                System.out.println("Some requests did not finish before the next level started");
+                break;
+            } catch (Exception e) {
+                // A failed request already counted as an error
+            }
+        }
+        return stats.summarize(users);
+    }
+
+    private void writeResults(Instant startedAt, List<Map<String, Object>> levels) throws Exception {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("userLevels", options.getUserLevels());
+        config.put("warmupSeconds", options.getWarmup().toMillis() / 1000.0);
+        config.put("durationSeconds", options.getDuration().toMillis() / 1000.0);
+        config.put("thinkTimeMillis", options.getThinkTime().toMillis());
+        config.put("requestTimeoutMillis", options.getRequestTimeout().toMillis());
+        config.put("kidsPerUser", options.getKidsPerUser());
+        config.put("transactionsPerKid", options.getTransactionsPerKid());
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        options.getMix().forEach((operation, weight) -> mix.put(operation.getKey(), weight));
+        config.put("mix", mix);
+        config.put("threadModes", options.getThreadModes());
+        config.put("applicationArgs", options.getApplicationArgs());
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("startedAt", startedAt.toString());
+        results.put("gitCommit", gitCommit());
+        results.put("javaVersion", System.getProperty("java.version"));
+        results.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        results.put("maxHeapMb", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        results.put("config", config);
+        results.put("levels", levels);
+
+        Path output = options.getOutput();
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), results);
+        System.out.println("Results written to " + output.toAbsolutePath());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printLevel(Map<String, Object> level) {
+        Map<String, Object> latency = (Map<String, Object>) level.get("latencyMillis");
+        System.out.printf("  %-8s users=%-5s requests=%-8s rps=%-10s errors=%-6s rejected=%-6s "
+                        + "p50=%sms p99=%sms p99.9=%sms max=%sms%n",
+                level.get("threadMode"), level.get("users"), level.get("requests"), level.get("throughputPerSecond"),
+                level.get("errors"), level.get("rejected"), latency.get("p50"), latency.get("p99"),
+                latency.get("p999"), latency.get("max"));
+    }
+
+    private static String gitCommit() {
+        try {
+            Process process = new ProcessBuilder("git", "rev-parse", "--short", "HEAD")
+                    .redirectErrorStream(true).start();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                return process.waitFor() == 0 && line != null ? line.trim() : "unknown";
+            }
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+
+    private static Operation[] expandMix(Map<Operation, Integer> mix) {
+        List<Operation> expanded = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                expanded.add(operation);
+            }
+        });
+        return expanded.toArray(new Operation[0]);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void shutdown() {
+        if (clientExecutor != null) {
+            clientExecutor.shutdownNow();
+        }
+        if (thinkTimeScheduler != null) {
+            thinkTimeScheduler.shutdownNow();
+        }
+        BenchmarkContext.stop();
+    }
+
+    /**
+     * A seeded parent with a pre-issued token, reused across levels
+     */
+    private static final class UserSession {
+        private final String phoneNumber;
+        private final List<Long> kidIds = new ArrayList<>();
+        private final String authorization;
+        private final SplittableRandom random;
+
+        UserSession(String phoneNumber, String token, int index) {
+            this.phoneNumber = phoneNumber;
+            this.authorization = "Bearer " + token;
+            // Fixed seed per user so runs issue the same request sequence
+            this.random = new SplittableRandom(index);
+        }
+    }
+
+    private final class VirtualUser {
+        private final UserSession session;
+        private final LoadTestStats stats;
+        private final CompletableFuture<Void> stopped = new CompletableFuture<>();
+        private volatile boolean running = true;
+
+        VirtualUser(UserSession session, LoadTestStats stats) {
+            this.session = session;
+            this.stats = stats;
+        }
+
+        void next() {
+            if (!running) {
+                stopped.complete(null);
+                return;
+            }
+            Operation operation = weightedOperations[session.random.nextInt(weightedOperations.length)];
+            HttpRequest request = buildRequest(operation);
+            long started = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        stats.record(operation, System.nanoTime() - started,
+                                error == null ? response.statusCode() : -1);
+                        long thinkMillis = options.getThinkTime().toMillis();
+                        if (thinkMillis > 0 && running) {
+                            thinkTimeScheduler.schedule(this::next, thinkMillis, TimeUnit.MILLISECONDS);
+                        } else {
+                            next();
+                        }
+                    });
+        }
+
+        private HttpRequest buildRequest(Operation operation) {
+            Long kidId = session.kidIds.get(session.random.nextInt(session.kidIds.size()));
+            return switch (operation) {
+                case LOGIN -> post("/api/auth/login", false, "{\"phoneNumber\":\""
+                        + session.phoneNumber + "\",\"pin\":\"" + PIN + "\"}");
+                case DEPOSIT -> post("/api/transactions/deposit", true, "{\"kidId\":" + kidId
+                        + ",\"transactionType\":\"DEPOSIT\",\"amount\":10.00,\"description\":\"Load test deposit\"}");
+                case WITHDRAW -> post("/api/transactions/withdraw", true, "{\"kidId\":" + kidId
+                        + ",\"transactionType\":\"WITHDRAWAL\",\"withdrawalComponent\":\"SPEND\",\"amount\":1.00,"
+                        + "\"description\":\"Load test withdrawal\"}");
+                case KID_DETAILS -> get("/api/transactions/kid/" + kidId);
+                case BALANCES -> get("/api/balances/all");
+            };
+        }
+
+        private HttpRequest post(String path, boolean authenticated, String body) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(options.getRequestTimeout())
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+            if (authenticated) {
+                builder.header("Authorization", session.authorization);
+            }
+            return builder.build();
+        }
+
+        private HttpRequest get(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(options.getRequestTimeout())
+                    .header("Authorization", session.authorization)
+                    .GET()
+                    .build();
+        }
+    }
+}
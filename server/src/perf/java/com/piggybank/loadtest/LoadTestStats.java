@@ -0,0 +1,128 @@
+package com.piggybank.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and outcome counts for one load level. Only responses that
+ * complete while recording is on are counted, so warmup traffic is excluded.
+ */
+final class LoadTestStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Map<LoadTestRunner.Operation, OperationStats> operations =
+            new EnumMap<>(LoadTestRunner.Operation.class);
+    private volatile boolean recording;
+    private long recordingStartNanos;
+    private long recordingEndNanos;
+
+    LoadTestStats() {
+        for (LoadTestRunner.Operation operation : LoadTestRunner.Operation.values()) {
+            operations.put(operation, new OperationStats());
+        }
+    }
+
+    void startRecording() {
+        recordingStartNanos = System.nanoTime();
+        recording = true;
+    }
+
+    void stopRecording() {
+        recording = false;
+        recordingEndNanos = System.nanoTime();
+    }
+
+    /**
+     * Record a completed request. A status of -1 means no response (timeout or I/O error).
+     */
+    void record(LoadTestRunner.Operation operation, long latencyNanos, int status) {
+        if (!recording) {
+            return;
+        }
+        OperationStats stats = operations.get(operation);
+        stats.latency.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS,
+                Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos))));
+        if (status >= 200 && status < 400) {
+            stats.succeeded.increment();
+        } else if (status >= 400 && status < 500) {
+            // Business rejections such as insufficient balance; the server handled them fine
+            stats.rejected.increment();
+        } else {
+            stats.errors.increment();
+        }
+    }
+
+    Map<String, Object> summarize(int users) {
+        double seconds = (recordingEndNanos - recordingStartNanos) / 1_000_000_000.0;
+
+        Histogram overall = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long succeeded = 0;
+        long rejected = 0;
+        long errors = 0;
+        Map<String, Object> byOperation = new LinkedHashMap<>();
+        for (Map.Entry<LoadTestRunner.Operation, OperationStats> entry : operations.entrySet()) {
+            OperationStats stats = entry.getValue();
+            Histogram latency = stats.latency.copy();
+            if (latency.getTotalCount() == 0) {
+                continue;
+            }
+            overall.add(latency);
+            succeeded += stats.succeeded.sum();
+            rejected += stats.rejected.sum();
+            errors += stats.errors.sum();
+            byOperation.put(entry.getKey().getKey(), outcome(latency, stats.succeeded.sum(),
+                    stats.rejected.sum(), stats.errors.sum(), seconds));
+        }
+
+        Map<String, Object> level = new LinkedHashMap<>();
+        level.put("users", users);
+        level.put("measuredSeconds", round(seconds));
+        level.putAll(outcome(overall, succeeded, rejected, errors, seconds));
+        level.put("operations", byOperation);
+        return level;
+    }
+
+    private static Map<String, Object> outcome(Histogram latency, long succeeded, long rejected, long errors,
+            double seconds) {
+        long requests = succeeded + rejected + errors;
+        Map<String, Object> outcome = new LinkedHashMap<>();
+        outcome.put("requests", requests);
+        outcome.put("throughputPerSecond", round(seconds > 0 ? requests / seconds : 0));
+        outcome.put("succeeded", succeeded);
+        outcome.put("rejected", rejected);
+        outcome.put("errors", errors);
+        outcome.put("errorRate", round(requests > 0 ? (double) errors / requests : 0));
+
+        Map<String, Object> percentiles = new LinkedHashMap<>();
+        percentiles.put("mean", millis(latency.getMean()));
+        percentiles.put("p50", millis(latency.getValueAtPercentile(50)));
+        percentiles.put("p90", millis(latency.getValueAtPercentile(90)));
+        percentiles.put("p99", millis(latency.getValueAtPercentile(99)));
+        percentiles.put("p999", millis(latency.getValueAtPercentile(99.9)));
+        percentiles.put("max", millis(latency.getMaxValue()));
+        outcome.put("latencyMillis", percentiles);
+        return outcome;
+    }
+
+    private static double millis(double micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+
+    private static final class OperationStats {
+        private final ConcurrentHistogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+}
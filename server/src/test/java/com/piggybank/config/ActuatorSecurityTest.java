@@ -0,0 +1,85 @@
+package com.piggybank.config;
+
+import com.piggybank.entity.User;
+import com.piggybank.repository.UserRepository;
+import com.piggybank.service.JwtTokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Only the health endpoint is public, without details; the other actuator endpoints need
+ * the scrape token, and a user's JWT is not enough.
+ */
+@SpringBootTest(properties = "piggybank.actuator.scrape-token=" + ActuatorSecurityTest.SCRAPE_TOKEN)
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class ActuatorSecurityTest {
+
+    static final String SCRAPE_TOKEN = "test-scrape-token";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenService jwtTokenService;
+
+    @Test
+    void healthIsPublicWithoutDetails() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"))
+                .andExpect(jsonPath("$.components").doesNotExist());
+        mockMvc.perform(get("/actuator/health").header("Authorization", "Bearer " + userToken("+15550012002")))
+                .andExpect(jsonPath("$.components").doesNotExist());
+
+        mockMvc.perform(get("/actuator/health").header("Authorization", "Bearer " + SCRAPE_TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.components.db.status").value("UP"));
+    }
+
+    @Test
+    void metricsNeedTheScrapeToken() throws Exception {
+        String userToken = userToken("+15550012001");
+        for (String endpoint : new String[] { "/actuator/prometheus", "/actuator/metrics", "/actuator/info" }) {
+            mockMvc.perform(get(endpoint)).andExpect(status().isUnauthorized());
+            mockMvc.perform(get(endpoint).header("Authorization", "Bearer " + userToken))
+                    .andExpect(status().isUnauthorized());
+            mockMvc.perform(get(endpoint).header("Authorization", "Bearer " + SCRAPE_TOKEN + "x"))
+                    .andExpect(status().isUnauthorized());
+            mockMvc.perform(get(endpoint).header("Authorization", "Bearer " + SCRAPE_TOKEN))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void loggersAreNotExposed() throws Exception {
+        String userToken = userToken("+15550012003");
+        mockMvc.perform(post("/actuator/loggers/com.piggybank")
+                        .header("Authorization", "Bearer " + userToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"configuredLevel\":\"TRACE\"}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/actuator/loggers").header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isNotFound());
+    }
+
+    private String userToken(String phoneNumber) {
+        User user = userRepository.save(new User(phoneNumber, "Scraper", "hash"));
+        return jwtTokenService.generateToken(user.getId(), user.getPhoneNumber());
+    }
+}
@@ -0,0 +1,51 @@
+package com.piggybank.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The test JVM sets no node id, so TimeOrderedIds runs on the default of 0 here
+ */
+class NodeIdConfigTest {
+
+    @Test
+    void refusesToStartWithoutNodeIdOutsideDevAndTest() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles("prod");
+
+        assertThatThrownBy(() -> check(environment))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("No node id configured");
+    }
+
+    @Test
+    void allowsDefaultNodeIdForDevTestAndLocalRuns() {
+        MockEnvironment dev = new MockEnvironment();
+        dev.setActiveProfiles("dev", "virtual-threads");
+        MockEnvironment test = new MockEnvironment();
+        test.setActiveProfiles("test");
+
+        assertThatCode(() -> check(dev)).doesNotThrowAnyException();
+        assertThatCode(() -> check(test)).doesNotThrowAnyException();
+        assertThatCode(() -> check(new MockEnvironment())).doesNotThrowAnyException();
+    }
+
+    @Test
+    void rejectsNodeIdThatOnlySpringCanSee() {
+        MockEnvironment environment = new MockEnvironment().withProperty("piggybank.node-id", "3");
+        environment.setActiveProfiles("dev");
+
+        assertThatThrownBy(() -> check(environment))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("PIGGYBANK_NODE_ID");
+    }
+
+    private static void check(MockEnvironment environment) {
+        NodeIdConfig config = new NodeIdConfig();
+        config.setEnvironment(environment);
+        config.checkNodeId();
+    }
+}
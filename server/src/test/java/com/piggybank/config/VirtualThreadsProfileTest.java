@@ -0,0 +1,43 @@
+package com.piggybank.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The virtual-threads profile on whatever runtime runs the tests. On Java 17 it must
+ * be inert: the server starts as usual and the pinning monitor does not start.
+ */
+@SpringBootTest
+@ActiveProfiles({"test", "virtual-threads"})
+class VirtualThreadsProfileTest {
+
+    @Autowired
+    private VirtualThreadPinningMonitor pinningMonitor;
+
+    @Autowired
+    private Environment environment;
+
+    @Test
+    void monitorRunsOnlyOnJava21OrLater() {
+        assertThat(environment.getProperty("piggybank.virtual-threads.pinning-monitor.enabled", Boolean.class))
+                .isTrue();
+        assertThat(pinningMonitor.isRunning()).isEqualTo(Runtime.version().feature() >= 21);
+        assertThat(pinningMonitor.getPinnedEvents()).isZero();
+    }
+
+    @Test
+    void disabledMonitorNeverStarts() {
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor();
+        monitor.setEnabled(false);
+        monitor.start();
+
+        assertThat(monitor.isRunning()).isFalse();
+        assertThat(monitor.getPinnedSites()).isEmpty();
+        monitor.stop();
+    }
+}
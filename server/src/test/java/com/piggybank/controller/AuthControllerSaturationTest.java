@@ -0,0 +1,89 @@
+package com.piggybank.controller;
+
+import com.piggybank.request.LoginRequest;
+import com.piggybank.response.AuthResponse;
+import com.piggybank.service.PinEncryptionService;
+import com.piggybank.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Occupies the single PIN hashing thread with a rehash whose callback blocks, so logins
+ * find the pool saturated
+ */
+@SpringBootTest(properties = {
+        "piggybank.pin-hash.threads=1",
+        "piggybank.pin-hash.queue-capacity=1",
+        "piggybank.pin-hash.max-queue-wait=200ms"
+})
+@ActiveProfiles("test")
+class AuthControllerSaturationTest {
+
+    private static final String PHONE_NUMBER = "+15550022001";
+    private static final String PIN = "1234";
+
+    @Autowired
+    private AuthController authController;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PinEncryptionService pinEncryptionService;
+
+    @Test
+    void loginsGet503WithRetryAfterWhileThePinPoolIsSaturated() throws Exception {
+        userService.registerUser(PHONE_NUMBER, "saturation", PIN);
+        LoginRequest login = new LoginRequest(PHONE_NUMBER, PIN);
+
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            pinEncryptionService.rehashInBackground(PIN, hash -> {
+                running.countDown();
+                await(release);
+            });
+            assertThat(running.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // Queued behind the blocked thread until max-queue-wait runs out
+            long started = System.nanoTime();
+            assertSaturated(authController.login(login));
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isGreaterThanOrEqualTo(200);
+
+            // The abandoned hash still holds the only queue slot, so this one is rejected without waiting
+            started = System.nanoTime();
+            assertSaturated(authController.login(login));
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(200);
+        } finally {
+            release.countDown();
+        }
+
+        ResponseEntity<AuthResponse> response = authController.login(login);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().isSuccess()).isTrue();
+    }
+
+    private static void assertSaturated(ResponseEntity<AuthResponse> response) {
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(response.getBody().isSuccess()).isFalse();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.piggybank.controller;
+
+import com.piggybank.dto.TransactionDTO;
+import com.piggybank.entity.Kid;
+import com.piggybank.entity.Transaction;
+import com.piggybank.entity.User;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.UserRepository;
+import com.piggybank.security.AuthenticatedUser;
+import com.piggybank.service.KidWriteCoordinator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Holds a kid's write stripe on another thread so requests for the kid time out waiting for it
+ */
+@SpringBootTest(properties = "piggybank.write-coordinator.max-wait-ms=100")
+@ActiveProfiles("test")
+class TransactionControllerBusyTest {
+
+    @Autowired
+    private TransactionController transactionController;
+
+    @Autowired
+    private KidWriteCoordinator kidWriteCoordinator;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KidRepository kidRepository;
+
+    @Test
+    void writesThatWaitTooLongForTheKidGet503WithRetryAfter() throws Exception {
+        User user = userRepository.save(new User("+15550004001", "Busy Test", "hash"));
+        Kid kid = kidRepository.save(new Kid("Queued", 9, user));
+        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), user.getPhoneNumber(),
+                Instant.now().plusSeconds(600));
+        TransactionDTO deposit = new TransactionDTO(kid.getId(), Transaction.TransactionType.DEPOSIT,
+                new BigDecimal("5.00"), "Allowance");
+
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService holder = Executors.newSingleThreadExecutor();
+        Future<Object> held = holder.submit(() -> kidWriteCoordinator.execute(kid.getId(), () -> {
+            holding.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        try {
+            assertThat(holding.await(10, TimeUnit.SECONDS)).isTrue();
+
+            assertBusy(transactionController.processDeposit(principal, null, deposit));
+            assertBusy(transactionController.processDeposit(principal, "busy-key", deposit));
+            assertBusy(transactionController.processDepositBatch(principal, List.of(deposit)));
+        } finally {
+            release.countDown();
+            held.get(10, TimeUnit.SECONDS);
+            holder.shutdown();
+        }
+
+        // The rejected idempotent request stored nothing, so its retry goes through
+        assertThat(transactionController.processDeposit(principal, "busy-key", deposit).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+    }
+
+    private static void assertBusy(ResponseEntity<?> response) {
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        TransactionController.ApiResponse body = (TransactionController.ApiResponse) response.getBody();
+        assertThat(body.isSuccess()).isFalse();
+        assertThat(body.getMessage()).contains("try again");
+    }
+}
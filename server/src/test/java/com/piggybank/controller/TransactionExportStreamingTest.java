@@ -0,0 +1,123 @@
+package com.piggybank.controller;
+
+import com.piggybank.entity.Kid;
+import com.piggybank.entity.User;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.UserRepository;
+import com.piggybank.security.AuthenticatedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Streams a million-row ledger through the export endpoint into a sink that only counts
+ * lines, and checks the heap retained while streaming stays far below what holding the
+ * rows would take (about 200 bytes per row as summaries)
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionExportStreamingTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final long MAX_RETAINED_BYTES = ROWS * 50L;
+
+    @Autowired
+    private TransactionController transactionController;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KidRepository kidRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Kid kid;
+
+    @AfterEach
+    void deleteLedger() {
+        if (kid != null) {
+            jdbcTemplate.update("DELETE FROM transactions WHERE kid_id = ?", kid.getId());
+        }
+    }
+
+    @Test
+    void millionRowLedgerStreamsInBoundedMemory() throws Exception {
+        User user = userRepository.save(new User("+15550008001", "Export Test", "hash"));
+        kid = kidRepository.save(new Kid("Exported", 12, user));
+        // H2 generates the rows itself; SYSTEM_RANGE names its column "X"
+        jdbcTemplate.update("INSERT INTO transactions (id, user_id, kid_id, transaction_type, total_amount, "
+                + "charity_amount, spend_amount, savings_amount, investment_amount, description, "
+                + "transaction_date, created_at, created_by) "
+                + "SELECT \"X\", ?, ?, 'DEPOSIT', 10.00, 2.50, 2.50, 2.50, 2.50, 'Deposit ' || \"X\", "
+                + "DATEADD('SECOND', \"X\", TIMESTAMP '2020-01-01 00:00:00'), CURRENT_TIMESTAMP, 'seed' "
+                + "FROM SYSTEM_RANGE(1, " + ROWS + ")", user.getId(), kid.getId());
+        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), user.getPhoneNumber(),
+                Instant.now().plusSeconds(600));
+
+        ResponseEntity<StreamingResponseBody> response =
+                transactionController.exportTransactions(principal, kid.getId(), "csv");
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        // The first pass also fills H2's page cache, which stays allocated, so measure the second
+        response.getBody().writeTo(OutputStream.nullOutputStream());
+        long baseline = retainedHeap();
+        CountingSink sink = new CountingSink();
+        response.getBody().writeTo(sink);
+
+        // Header plus one line per row
+        assertThat(sink.lines).isEqualTo(ROWS + 1);
+        assertThat(sink.maxRetained - baseline).isLessThan(MAX_RETAINED_BYTES);
+    }
+
+    private static long retainedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Counts lines and measures the retained heap every 100,000 lines
+     */
+    private static class CountingSink extends OutputStream {
+        private long lines;
+        private long maxRetained;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                newLine();
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (bytes[i] == '\n') {
+                    newLine();
+                }
+            }
+        }
+
+        private void newLine() {
+            lines++;
+            if (lines % 100_000 == 0) {
+                maxRetained = Math.max(maxRetained, retainedHeap());
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.piggybank.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Producers outrun the writer on a small ring; checks what reaches the audit logger
+ * once stop() has drained it
+ */
+class AsyncEventLoggerTest {
+
+    private static final int PRODUCERS = 8;
+    private static final int EVENTS_PER_PRODUCER = 20_000;
+
+    private final List<ILoggingEvent> written = new CopyOnWriteArrayList<>();
+    private Logger auditLogger;
+    private AppenderBase<ILoggingEvent> appender;
+    private Level previousLevel;
+    private boolean previousAdditive;
+
+    @BeforeEach
+    void captureAuditEvents() {
+        auditLogger = (Logger) LoggerFactory.getLogger(LoggingService.class);
+        previousLevel = auditLogger.getLevel();
+        previousAdditive = auditLogger.isAdditive();
+        auditLogger.setLevel(Level.INFO);
+        auditLogger.setAdditive(false);
+
+        appender = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                written.add(event);
+            }
+        };
+        appender.setContext((LoggerContext) LoggerFactory.getILoggerFactory());
+        appender.start();
+        auditLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void restoreAuditLogger() {
+        auditLogger.detachAppender(appender);
+        auditLogger.setLevel(previousLevel);
+        auditLogger.setAdditive(previousAdditive);
+    }
+
+    @Test
+    void blockPolicyWritesEveryEventInOrderPerProducer() throws Exception {
+        AsyncEventLogger eventLogger = start(AsyncEventLogger.OverflowPolicy.BLOCK);
+        produce(eventLogger);
+        eventLogger.stop();
+
+        assertThat(written).hasSize(PRODUCERS * EVENTS_PER_PRODUCER);
+        assertThat(eventLogger.getDroppedEvents()).isZero();
+        assertThat(eventLogger.getQueuedEvents()).isZero();
+
+        // One writer thread drains the ring in claim order, so each producer's events stay in sequence
+        long[] next = new long[PRODUCERS];
+        for (ILoggingEvent event : written) {
+            Object[] arguments = event.getArgumentArray();
+            int producer = Integer.parseInt(String.valueOf(arguments[2]));
+            assertThat(Long.parseLong(String.valueOf(arguments[3]))).isEqualTo(next[producer]++);
+        }
+    }
+
+    @Test
+    void dropPolicyAccountsForEveryEvent() throws Exception {
+        AsyncEventLogger eventLogger = start(AsyncEventLogger.OverflowPolicy.DROP);
+        produce(eventLogger);
+        eventLogger.stop();
+
+        assertThat(written.size() + eventLogger.getDroppedEvents()).isEqualTo(PRODUCERS * EVENTS_PER_PRODUCER);
+        assertThat(eventLogger.getQueuedEvents()).isZero();
+    }
+
+    @Test
+    void stopFlushesEventsStillQueued() throws Exception {
+        AsyncEventLogger eventLogger = start(AsyncEventLogger.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 64; i++) {
+            eventLogger.balanceDebit(1L, 2L, "SPEND", BigDecimal.ONE, "test");
+        }
+        eventLogger.stop();
+
+        assertThat(written).hasSize(64);
+        assertThat(written.get(0).getFormattedMessage()).contains("Withdrawal SPEND: 1");
+    }
+
+    private static AsyncEventLogger start(AsyncEventLogger.OverflowPolicy policy) {
+        AsyncEventLogger eventLogger = new AsyncEventLogger();
+        eventLogger.setBufferSize(64);
+        eventLogger.setOverflowPolicy(policy);
+        eventLogger.start();
+        return eventLogger;
+    }
+
+    private static void produce(AsyncEventLogger eventLogger) throws InterruptedException {
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        for (int p = 0; p < PRODUCERS; p++) {
+            long producer = p;
+            producers.submit(() -> {
+                for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                    eventLogger.transaction(1L, producer, "DEPOSIT", BigDecimal.valueOf(i), "test");
+                }
+            });
+        }
+        producers.shutdown();
+        assertThat(producers.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+    }
+}
@@ -0,0 +1,210 @@
+package com.piggybank.service;
+
+import com.piggybank.dto.TransactionDTO;
+import com.piggybank.entity.BalanceDiscrepancy;
+import com.piggybank.entity.Kid;
+import com.piggybank.entity.ReconciliationRun;
+import com.piggybank.entity.Transaction;
+import com.piggybank.entity.User;
+import com.piggybank.repository.BalanceDiscrepancyRepository;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.ReconciliationRunRepository;
+import com.piggybank.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Resuming reconciliation runs from their checkpoint and the lease that keeps a run to
+ * one instance. Runs of other instances are faked as rows in reconciliation_runs.
+ */
+@SpringBootTest(properties = {
+        "piggybank.reconciliation.chunk-size=2",
+        "piggybank.reconciliation.max-ledger-rows-per-second=0"
+})
+@ActiveProfiles("test")
+class BalanceReconciliationLeaseTest {
+
+    private static final String OWNER = "this-node";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KidRepository kidRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private BalanceReconciliationService balanceReconciliationService;
+
+    @Autowired
+    private ReconciliationRunRepository reconciliationRunRepository;
+
+    @Autowired
+    private BalanceDiscrepancyRepository balanceDiscrepancyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setOwner() {
+        balanceReconciliationService.setOwner(OWNER);
+    }
+
+    @AfterEach
+    void restoreSettings() {
+        balanceReconciliationService.setThreads(2);
+        balanceReconciliationService.setChunkSize(2);
+        balanceReconciliationService.setMaxLedgerRowsPerSecond(0);
+    }
+
+    @Test
+    void interruptedRunResumesFromItsCheckpoint() {
+        User user = userRepository.save(new User("+15550025001", "Resume", "hash"));
+        Kid first = depositedKid(user, "First");
+        Kid second = depositedKid(user, "Second");
+        Kid third = depositedKid(user, "Third");
+        jdbcTemplate.update("UPDATE kid_balances SET spend_balance = spend_balance + 1, " +
+                "total_balance = total_balance + 1 WHERE kid_id IN (?, ?)", first.getId(), third.getId());
+
+        // Another instance got as far as the second kid, then stopped renewing its lease
+        ReconciliationRun interrupted = new ReconciliationRun(LocalDateTime.now().minusMinutes(30));
+        interrupted.setCheckpointKidId(second.getId());
+        interrupted.setKidsChecked(countKids("WHERE id <= ?", second.getId()));
+        interrupted.setDiscrepancies(1L);
+        interrupted.setOwner("crashed-node");
+        interrupted.setLeaseUntil(LocalDateTime.now().minusMinutes(1));
+        interrupted = reconciliationRunRepository.save(interrupted);
+        // It had also recorded the third kid, past its checkpoint
+        BalanceDiscrepancy beforeCrash = balanceDiscrepancyRepository.save(discrepancy(interrupted, user, third));
+
+        ReconciliationRun run = balanceReconciliationService.reconcile().orElseThrow();
+
+        assertThat(run.getId()).isEqualTo(interrupted.getId());
+        assertThat(run.getStatus()).isEqualTo(ReconciliationRun.Status.COMPLETED);
+        assertThat(run.getOwner()).isEqualTo(OWNER);
+        assertThat(run.getKidsChecked()).isEqualTo(countKids("", null));
+        assertThat(run.getDiscrepancies()).isEqualTo(2L);
+        // The first kid was not checked again; the third was, replacing the record from before the crash
+        List<BalanceDiscrepancy> discrepancies = balanceDiscrepancyRepository.findByRunIdOrderByKidId(run.getId());
+        assertThat(discrepancies).extracting(BalanceDiscrepancy::getKidId).containsExactly(third.getId());
+        assertThat(discrepancies.get(0).getId()).isNotEqualTo(beforeCrash.getId());
+
+        ReconciliationRun stored = reconciliationRunRepository.findById(run.getId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(ReconciliationRun.Status.COMPLETED);
+        assertThat(stored.getLeaseUntil()).isNull();
+    }
+
+    @Test
+    void liveLeaseIsLeftAloneAndAnExpiredOneTakenOver() {
+        User user = userRepository.save(new User("+15550025002", "Lease", "hash"));
+        depositedKid(user, "Leased");
+
+        ReconciliationRun held = new ReconciliationRun(LocalDateTime.now());
+        held.setOwner("other-node");
+        held.setLeaseUntil(LocalDateTime.now().plusMinutes(5));
+        held = reconciliationRunRepository.save(held);
+
+        assertThat(balanceReconciliationService.reconcile()).isEmpty();
+        ReconciliationRun untouched = reconciliationRunRepository.findById(held.getId()).orElseThrow();
+        assertThat(untouched.getStatus()).isEqualTo(ReconciliationRun.Status.RUNNING);
+        assertThat(untouched.getOwner()).isEqualTo("other-node");
+        assertThat(untouched.getCheckpointKidId()).isZero();
+
+        // The other instance stops renewing
+        untouched.setLeaseUntil(LocalDateTime.now().minusSeconds(1));
+        reconciliationRunRepository.save(untouched);
+
+        ReconciliationRun taken = balanceReconciliationService.reconcile().orElseThrow();
+        assertThat(taken.getId()).isEqualTo(held.getId());
+        assertThat(taken.getStatus()).isEqualTo(ReconciliationRun.Status.COMPLETED);
+        assertThat(taken.getOwner()).isEqualTo(OWNER);
+        assertThat(taken.getKidsChecked()).isEqualTo(countKids("", null));
+    }
+
+    @Test
+    void runStopsOnceItsLeaseIsTakenOver() throws Exception {
+        User user = userRepository.save(new User("+15550025003", "Stolen", "hash"));
+        for (int i = 0; i < 4; i++) {
+            depositedKid(user, "Kid" + i);
+        }
+        // One kid per chunk at four ledger rows a second, so the run takes a second or more
+        balanceReconciliationService.setThreads(1);
+        balanceReconciliationService.setChunkSize(1);
+        balanceReconciliationService.setMaxLedgerRowsPerSecond(4);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> reconciling = pool.submit(() -> balanceReconciliationService.reconcile());
+
+            Long runId = null;
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (runId == null && System.currentTimeMillis() < deadline) {
+                runId = jdbcTemplate.query("SELECT id FROM reconciliation_runs " +
+                        "WHERE status = 'RUNNING' AND owner = ? AND checkpoint_kid_id > 0",
+                        (rs, rowNum) -> rs.getLong(1), OWNER).stream().findFirst().orElse(null);
+                Thread.sleep(10);
+            }
+            assertThat(runId).isNotNull();
+            // As if this instance had stalled past its lease and another one took the run over
+            jdbcTemplate.update("UPDATE reconciliation_runs SET owner = 'other-node' WHERE id = ?", runId);
+
+            assertThatThrownBy(() -> reconciling.get(30, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("taken over");
+            ReconciliationRun run = reconciliationRunRepository.findById(runId).orElseThrow();
+            assertThat(run.getStatus()).isEqualTo(ReconciliationRun.Status.RUNNING);
+            assertThat(run.getOwner()).isEqualTo("other-node");
+
+            // Leave no unfinished run behind for the other tests
+            jdbcTemplate.update("UPDATE reconciliation_runs SET status = 'COMPLETED' WHERE id = ?", runId);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Kid depositedKid(User user, String name) {
+        Kid kid = kidRepository.save(new Kid(name, 8, user));
+        transactionService.processDeposit(user.getId(), new TransactionDTO(kid.getId(),
+                Transaction.TransactionType.DEPOSIT, new BigDecimal("10.00"), "Allowance"), "test");
+        return kid;
+    }
+
+    private long countKids(String where, Long kidId) {
+        Object[] args = kidId == null ? new Object[0] : new Object[] { kidId };
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM kids " + where, Long.class, args);
+    }
+
+    private static BalanceDiscrepancy discrepancy(ReconciliationRun run, User user, Kid kid) {
+        BalanceDiscrepancy discrepancy = new BalanceDiscrepancy();
+        discrepancy.setRunId(run.getId());
+        discrepancy.setUserId(user.getId());
+        discrepancy.setKidId(kid.getId());
+        discrepancy.setLedgerTransactionId(0L);
+        discrepancy.setLedgerCharity(BigDecimal.ZERO);
+        discrepancy.setLedgerSpend(BigDecimal.ZERO);
+        discrepancy.setLedgerSavings(BigDecimal.ZERO);
+        discrepancy.setLedgerInvestment(BigDecimal.ZERO);
+        discrepancy.setDetectedAt(LocalDateTime.now().minusMinutes(20));
+        return discrepancy;
+    }
+}
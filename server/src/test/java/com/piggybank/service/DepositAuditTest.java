@@ -0,0 +1,121 @@
+package com.piggybank.service;
+
+import com.piggybank.dto.BatchDepositResultDTO;
+import com.piggybank.dto.TransactionDTO;
+import com.piggybank.entity.Kid;
+import com.piggybank.entity.Transaction;
+import com.piggybank.entity.User;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Deposits, single or batched, leave Envers revisions unless the JDBC fast path is switched
+ * on. Fast-path deposits are unaudited: the transactions row, with its created_at and
+ * created_by, is their only record.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class DepositAuditTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KidRepository kidRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void restoreFastPath() {
+        transactionService.setJdbcDepositFastPath(false);
+    }
+
+    @Test
+    void fastPathDepositsKeepTheRowButNotTheRevision() {
+        User user = userRepository.save(new User("+15550002003", "Single", "hash"));
+        Kid audited = kidRepository.save(new Kid("Audited", 6, user));
+        Kid fast = kidRepository.save(new Kid("Fast", 6, user));
+
+        Transaction viaHibernate = transactionService.processDeposit(user.getId(), deposit(audited, "7.50"), "parent");
+        transactionService.setJdbcDepositFastPath(true);
+        Transaction viaJdbc = transactionService.processDeposit(user.getId(), deposit(fast, "7.50"), "parent");
+
+        assertThat(auditRows(audited)).isEqualTo(1);
+        assertThat(auditRows(fast)).isZero();
+
+        // Both rows carry the same amounts and creation columns
+        Map<String, Object> hibernateRow = transactionRow(viaHibernate);
+        Map<String, Object> jdbcRow = transactionRow(viaJdbc);
+        for (String column : List.of("TOTAL_AMOUNT", "CHARITY_AMOUNT", "SPEND_AMOUNT", "SAVINGS_AMOUNT",
+                "INVESTMENT_AMOUNT", "CREATED_BY")) {
+            assertThat(jdbcRow.get(column)).as(column).isEqualTo(hibernateRow.get(column));
+        }
+        assertThat(jdbcRow.get("CREATED_BY")).isEqualTo("parent");
+        assertThat(jdbcRow.get("CREATED_AT")).isNotNull();
+        assertThat(totalBalance(fast)).isEqualByComparingTo(totalBalance(audited));
+    }
+
+    @Test
+    void batchDepositsAreAuditedByDefault() {
+        User user = userRepository.save(new User("+15550002001", "Audited", "hash"));
+        Kid first = kidRepository.save(new Kid("First", 7, user));
+        Kid second = kidRepository.save(new Kid("Second", 9, user));
+
+        List<BatchDepositResultDTO> results = transactionService.processDepositBatch(user.getId(),
+                List.of(deposit(first, "5.00"), deposit(second, "3.33"), deposit(first, "1.10")), "test");
+
+        assertThat(results).allMatch(BatchDepositResultDTO::isSuccess);
+        assertThat(auditRows(first)).isEqualTo(2);
+        assertThat(auditRows(second)).isEqualTo(1);
+        assertThat(totalBalance(first)).isEqualByComparingTo("6.10");
+        assertThat(totalBalance(second)).isEqualByComparingTo("3.33");
+    }
+
+    @Test
+    void fastPathBatchDepositsSkipEnvers() {
+        User user = userRepository.save(new User("+15550002002", "Fast", "hash"));
+        Kid kid = kidRepository.save(new Kid("Fast", 8, user));
+
+        transactionService.setJdbcDepositFastPath(true);
+        List<BatchDepositResultDTO> results = transactionService.processDepositBatch(user.getId(),
+                List.of(deposit(kid, "2.00"), deposit(kid, "4.00")), "test");
+
+        assertThat(results).allMatch(BatchDepositResultDTO::isSuccess);
+        assertThat(auditRows(kid)).isZero();
+        assertThat(totalBalance(kid)).isEqualByComparingTo("6.00");
+    }
+
+    private int auditRows(Kid kid) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions_aud WHERE kid_id = ?", Integer.class,
+                kid.getId());
+    }
+
+    private Map<String, Object> transactionRow(Transaction transaction) {
+        return jdbcTemplate.queryForMap("SELECT * FROM transactions WHERE id = ?", transaction.getId());
+    }
+
+    private BigDecimal totalBalance(Kid kid) {
+        return jdbcTemplate.queryForObject("SELECT total_balance FROM kid_balances WHERE kid_id = ?",
+                BigDecimal.class, kid.getId());
+    }
+
+    private static TransactionDTO deposit(Kid kid, String amount) {
+        return new TransactionDTO(kid.getId(), Transaction.TransactionType.DEPOSIT, new BigDecimal(amount), "Allowance");
+    }
+}
@@ -0,0 +1,146 @@
+package com.piggybank.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Largest-remainder splits in whole cents: exact totals, the charity-first tie-break,
+ * zero-percent components and the smallest and largest deposits a TransactionDTO accepts.
+ */
+class DepositSplitEngineTest {
+
+    /**
+     * Largest amount allowed by @Digits(integer = 8, fraction = 2) on TransactionDTO.amount
+     */
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("99999999.99");
+
+    private static final String[][] PRESETS = {
+            { "25.00", "25.00", "25.00", "25.00" },
+            { "33.33", "33.33", "33.34", "0.00" },
+            { "10.00", "20.00", "30.00", "40.00" },
+            { "12.34", "56.78", "0.01", "30.87" },
+            { "0.00", "0.00", "0.00", "100.00" },
+            { "1.00", "1.00", "1.00", "1.00" }
+    };
+
+    @Test
+    void partsAlwaysAddUpToTheDeposit() {
+        SplittableRandom random = new SplittableRandom(42);
+        long maxCents = DepositSplitEngine.toCents(MAX_AMOUNT);
+        for (String[] preset : PRESETS) {
+            DepositSplitEngine.SplitPlan plan = plan(preset);
+            for (long cents = 1; cents <= 1_000; cents++) {
+                assertSplitsExactly(plan, cents);
+            }
+            for (int i = 0; i < 10_000; i++) {
+                assertSplitsExactly(plan, random.nextLong(1, maxCents + 1));
+            }
+            assertSplitsExactly(plan, maxCents);
+        }
+    }
+
+    @Test
+    void leftoverCentsGoToEarlierComponentsOnTies() {
+        DepositSplitEngine.SplitPlan even = plan("25.00", "25.00", "25.00", "25.00");
+
+        assertThat(even.split(1)).containsExactly(1, 0, 0, 0);
+        assertThat(even.split(2)).containsExactly(1, 1, 0, 0);
+        assertThat(even.split(3)).containsExactly(1, 1, 1, 0);
+        assertThat(even.split(5)).containsExactly(2, 1, 1, 1);
+        assertThat(even.split(7)).containsExactly(2, 2, 2, 1);
+    }
+
+    @Test
+    void largerRemaindersWinBeforeTheTieBreak() {
+        // Exact shares of 0.10 are 0.01, 0.02, 0.03 and 0.04: nothing left over
+        assertThat(plan("10.00", "20.00", "30.00", "40.00").split(10)).containsExactly(1, 2, 3, 4);
+        // Exact shares of 0.05 are 0.005, 0.01, 0.015 and 0.02: charity and savings tie at half a cent
+        assertThat(plan("10.00", "20.00", "30.00", "40.00").split(5)).containsExactly(1, 1, 1, 2);
+        // Savings' 33.34% share of one cent is the largest remainder
+        assertThat(plan("33.33", "33.33", "33.34", "0.00").split(1)).containsExactly(0, 0, 1, 0);
+        // Same inputs, same result, call after call
+        DepositSplitEngine.SplitPlan plan = plan("12.34", "56.78", "0.01", "30.87");
+        assertThat(plan.split(987_654_321L)).containsExactly(plan.split(987_654_321L));
+    }
+
+    @Test
+    void zeroPercentComponentsNeverReceiveCents() {
+        DepositSplitEngine.SplitPlan halves = plan("50.00", "0.00", "50.00", "0.00");
+        assertThat(halves.split(1)).containsExactly(1, 0, 0, 0);
+        assertThat(halves.split(3)).containsExactly(2, 0, 1, 0);
+
+        DepositSplitEngine.SplitPlan investmentOnly = plan("0.00", "0.00", "0.00", "100.00");
+        assertThat(investmentOnly.split(1)).containsExactly(0, 0, 0, 1);
+        assertThat(investmentOnly.split(12_345)).containsExactly(0, 0, 0, 12_345);
+
+        DepositSplitEngine.SplitPlan noCharity = plan("0.00", "33.33", "33.33", "33.34");
+        for (long cents = 1; cents <= 1_000; cents++) {
+            assertThat(noCharity.split(cents)[DepositSplitEngine.CHARITY]).isZero();
+        }
+    }
+
+    @Test
+    void oneCentDepositGoesToASingleComponent() {
+        long oneCent = DepositSplitEngine.toCents(new BigDecimal("0.01"));
+
+        assertThat(oneCent).isEqualTo(1);
+        for (String[] preset : PRESETS) {
+            long[] parts = plan(preset).split(oneCent);
+            assertThat(parts).containsOnly(0, 1);
+            assertThat(sum(parts)).isEqualTo(1);
+        }
+        assertThat(plan("10.00", "20.00", "30.00", "40.00").split(oneCent)).containsExactly(0, 0, 0, 1);
+    }
+
+    @Test
+    void largestDepositSplitsWithoutOverflow() {
+        long maxCents = DepositSplitEngine.toCents(MAX_AMOUNT);
+
+        assertThat(maxCents).isEqualTo(9_999_999_999L);
+        assertThat(DepositSplitEngine.fromCents(maxCents)).isEqualTo(MAX_AMOUNT);
+        assertThat(plan("25.00", "25.00", "25.00", "25.00").split(maxCents))
+                .containsExactly(2_500_000_000L, 2_500_000_000L, 2_500_000_000L, 2_499_999_999L);
+        assertThat(plan("0.00", "0.00", "0.00", "100.00").split(maxCents))
+                .containsExactly(0, 0, 0, maxCents);
+    }
+
+    @Test
+    void rejectsInvalidPercentagesAndAmounts() {
+        assertThatThrownBy(() -> plan("0.00", "0.00", "0.00", "0.00"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> plan("-1.00", "51.00", "25.00", "25.00"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> plan("25.001", "25.00", "25.00", "24.999"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DepositSplitEngine.toCents(new BigDecimal("1.005")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> plan("25.00", "25.00", "25.00", "25.00").split(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void assertSplitsExactly(DepositSplitEngine.SplitPlan plan, long cents) {
+        long[] parts = plan.split(cents);
+        assertThat(sum(parts)).as("split of %d cents", cents).isEqualTo(cents);
+        for (long part : parts) {
+            assertThat(part).as("split of %d cents", cents).isNotNegative();
+        }
+    }
+
+    private static long sum(long[] parts) {
+        long total = 0;
+        for (long part : parts) {
+            total += part;
+        }
+        return total;
+    }
+
+    private static DepositSplitEngine.SplitPlan plan(String... percentages) {
+        return DepositSplitEngine.compile(new BigDecimal(percentages[0]), new BigDecimal(percentages[1]),
+                new BigDecimal(percentages[2]), new BigDecimal(percentages[3]));
+    }
+}
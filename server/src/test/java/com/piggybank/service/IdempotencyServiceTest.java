@@ -0,0 +1,250 @@
+package com.piggybank.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.piggybank.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Idempotency keys against the real idempotency_keys table: replays, keys reused for
+ * another request, duplicates arriving while the original runs, and expiry.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyServiceTest {
+
+    private static final Long KID_ID = 20_001L;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private KidWriteCoordinator kidWriteCoordinator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void replayReturnsTheStoredResponseWithoutWritingAgain() {
+        AtomicInteger writes = new AtomicInteger();
+        Map<String, Object> request = Map.of("amount", "5.00");
+
+        IdempotencyService.Result first = idempotencyService.execute(20_001L, "replay-key", "deposit", request,
+                KID_ID, countingWrite(writes));
+        IdempotencyService.Result second = idempotencyService.execute(20_001L, "replay-key", "deposit", request,
+                KID_ID, countingWrite(writes));
+
+        assertThat(first.isReplayed()).isFalse();
+        assertThat(second.isReplayed()).isTrue();
+        assertThat(second.getBody()).isEqualTo(objectMapper.valueToTree(first.getBody()));
+        assertThat(writes).hasValue(1);
+
+        // A node without the key in its cache answers from the table
+        IdempotencyService otherNode = newService(Duration.ofHours(1), Duration.ofSeconds(5));
+        try {
+            IdempotencyService.Result fromTable = otherNode.execute(20_001L, "replay-key", "deposit", request,
+                    KID_ID, countingWrite(writes));
+            assertThat(fromTable.isReplayed()).isTrue();
+            assertThat(fromTable.getBody()).isEqualTo(second.getBody());
+            assertThat(writes).hasValue(1);
+        } finally {
+            otherNode.stop();
+        }
+    }
+
+    @Test
+    void sameKeyWithADifferentRequestIsRejected() {
+        AtomicInteger writes = new AtomicInteger();
+        idempotencyService.execute(20_002L, "reused-key", "deposit", Map.of("amount", "5.00"), KID_ID,
+                countingWrite(writes));
+
+        assertThatThrownBy(() -> idempotencyService.execute(20_002L, "reused-key", "deposit",
+                Map.of("amount", "6.00"), KID_ID, countingWrite(writes)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("different request");
+        assertThatThrownBy(() -> idempotencyService.execute(20_002L, "reused-key", "withdraw",
+                Map.of("amount", "5.00"), KID_ID, countingWrite(writes)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(writes).hasValue(1);
+
+        // Keys belong to a user: another user may use the same one
+        IdempotencyService.Result otherUser = idempotencyService.execute(20_003L, "reused-key", "deposit",
+                Map.of("amount", "6.00"), KID_ID, countingWrite(writes));
+        assertThat(otherUser.isReplayed()).isFalse();
+        assertThat(writes).hasValue(2);
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForTheOriginal() throws Exception {
+        AtomicInteger writes = new AtomicInteger();
+        Map<String, Object> request = Map.of("amount", "7.00");
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Object> slowWrite = () -> {
+            writing.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Map.of("write", writes.incrementAndGet());
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<IdempotencyService.Result> original = executor.submit(() -> idempotencyService.execute(20_004L,
+                    "in-flight-key", "deposit", request, KID_ID, slowWrite));
+            assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+
+            Future<IdempotencyService.Result> duplicate = executor.submit(() -> idempotencyService.execute(20_004L,
+                    "in-flight-key", "deposit", request, KID_ID, countingWrite(writes)));
+            Thread.sleep(200);
+            assertThat(duplicate).isNotDone();
+
+            release.countDown();
+            IdempotencyService.Result first = original.get(10, TimeUnit.SECONDS);
+            IdempotencyService.Result second = duplicate.get(10, TimeUnit.SECONDS);
+
+            assertThat(first.isReplayed()).isFalse();
+            assertThat(second.isReplayed()).isTrue();
+            assertThat(second.getBody()).isEqualTo(objectMapper.valueToTree(first.getBody()));
+            assertThat(writes).hasValue(1);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void duplicateGivesUpWhenTheOriginalRunsTooLong() throws Exception {
+        IdempotencyService service = newService(Duration.ofHours(1), Duration.ofMillis(100));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<IdempotencyService.Result> original = executor.submit(() -> service.execute(20_005L,
+                    "slow-key", "deposit", Map.of(), KID_ID, () -> {
+                        writing.countDown();
+                        try {
+                            release.await(30, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return Map.of("done", true);
+                    }));
+            assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> service.execute(20_005L, "slow-key", "deposit", Map.of(), KID_ID,
+                    () -> Map.of("done", false)))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("still running");
+
+            release.countDown();
+            assertThat(original.get(10, TimeUnit.SECONDS).isReplayed()).isFalse();
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            service.stop();
+        }
+    }
+
+    @Test
+    void expiredKeyRunsTheWriteAgain() throws Exception {
+        IdempotencyService service = newService(Duration.ofMillis(300), Duration.ofSeconds(5));
+        AtomicInteger writes = new AtomicInteger();
+        Map<String, Object> request = Map.of("amount", "8.00");
+        try {
+            service.execute(20_006L, "expiring-key", "deposit", request, KID_ID, countingWrite(writes));
+            assertThat(service.execute(20_006L, "expiring-key", "deposit", request, KID_ID, countingWrite(writes))
+                    .isReplayed()).isTrue();
+
+            Thread.sleep(500);
+
+            // The expired record is replaced, not answered from
+            IdempotencyService.Result again = service.execute(20_006L, "expiring-key", "deposit", request,
+                    KID_ID, countingWrite(writes));
+            assertThat(again.isReplayed()).isFalse();
+            assertThat(writes).hasValue(2);
+            assertThat(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(20_006L, "expiring-key"))
+                    .isPresent();
+
+            // Once expired, the purge removes it from the table
+            Thread.sleep(500);
+            assertThat(service.purgeExpired()).isGreaterThanOrEqualTo(1);
+            assertThat(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(20_006L, "expiring-key"))
+                    .isEmpty();
+        } finally {
+            service.stop();
+        }
+    }
+
+    @Test
+    void keyLoadedFromTheTableExpiresWithItsRecord() throws Exception {
+        IdempotencyService shortLived = newService(Duration.ofMillis(400), Duration.ofSeconds(5));
+        // Another node whose own TTL would keep the cached entry for an hour
+        IdempotencyService otherNode = newService(Duration.ofHours(1), Duration.ofSeconds(5));
+        AtomicInteger writes = new AtomicInteger();
+        Map<String, Object> request = Map.of("amount", "9.00");
+        try {
+            shortLived.execute(20_007L, "loaded-key", "deposit", request, KID_ID, countingWrite(writes));
+            assertThat(otherNode.execute(20_007L, "loaded-key", "deposit", request, KID_ID, countingWrite(writes))
+                    .isReplayed()).isTrue();
+
+            Thread.sleep(600);
+
+            IdempotencyService.Result again = otherNode.execute(20_007L, "loaded-key", "deposit", request,
+                    KID_ID, countingWrite(writes));
+            assertThat(again.isReplayed()).isFalse();
+            assertThat(writes).hasValue(2);
+        } finally {
+            shortLived.stop();
+            otherNode.stop();
+        }
+    }
+
+    /**
+     * A second instance over the same table, as on another node, with its own cache
+     */
+    private IdempotencyService newService(Duration ttl, Duration inFlightWait) {
+        IdempotencyService service = new IdempotencyService();
+        service.setIdempotencyRecordRepository(idempotencyRecordRepository);
+        service.setKidWriteCoordinator(kidWriteCoordinator);
+        service.setTransactionManager(transactionManager);
+        service.setObjectMapper(objectMapper);
+        service.setMeterRegistry(new SimpleMeterRegistry());
+        service.setTtl(ttl);
+        service.setCacheMaxSize(100);
+        service.setInFlightWait(inFlightWait);
+        service.setPurgeInterval(Duration.ofHours(1));
+        service.setPurgeBatchSize(100);
+        service.init();
+        return service;
+    }
+
+    private static Supplier<Object> countingWrite(AtomicInteger writes) {
+        return () -> Map.of("write", writes.incrementAndGet());
+    }
+}
@@ -0,0 +1,64 @@
+package com.piggybank.service;
+
+import com.piggybank.security.AuthenticatedUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The verified-token cache: repeat requests reuse the principal until the token expires,
+ * and a cache hit on the signature segment alone never authenticates another token.
+ * Tokens live for 3 seconds here (expiry has whole-second precision).
+ */
+@SpringBootTest(properties = "jwt.expiration=3000")
+@ActiveProfiles("test")
+class JwtTokenServiceTest {
+
+    @Autowired
+    private JwtTokenService jwtTokenService;
+
+    @Test
+    void cachedPrincipalIsDroppedWhenTheTokenExpires() throws Exception {
+        String token = jwtTokenService.generateToken(10_001L, "+15550010001");
+
+        AuthenticatedUser first = jwtTokenService.authenticate(token);
+        AuthenticatedUser second = jwtTokenService.authenticate(token);
+
+        assertThat(first.getUserId()).isEqualTo(10_001L);
+        assertThat(second).isSameAs(first);
+
+        Duration untilExpiry = Duration.between(Instant.now(), first.getExpiresAt());
+        Thread.sleep(Math.max(0, untilExpiry.toMillis()) + 200);
+
+        assertThatThrownBy(() -> jwtTokenService.authenticate(token))
+                .hasMessage("JWT token has expired");
+        assertThat(jwtTokenService.validateToken(token, "+15550010001")).isFalse();
+    }
+
+    @Test
+    void cachedSignatureNeverAuthenticatesADifferentToken() {
+        String victim = jwtTokenService.generateToken(10_002L, "+15550010002");
+        String attacker = jwtTokenService.generateToken(10_003L, "+15550010003");
+        AuthenticatedUser victimUser = jwtTokenService.authenticate(victim);
+
+        // The attacker's header and claims under the victim's cached signature
+        String forged = attacker.substring(0, attacker.lastIndexOf('.'))
+                + victim.substring(victim.lastIndexOf('.'));
+
+        assertThatThrownBy(() -> jwtTokenService.authenticate(forged))
+                .hasMessage("JWT signature validation failed");
+        assertThat(jwtTokenService.validateToken(forged, "+15550010003")).isFalse();
+        assertThat(jwtTokenService.validateToken(forged, "+15550010002")).isFalse();
+
+        // The victim's own entry is untouched
+        assertThat(jwtTokenService.authenticate(victim)).isSameAs(victimUser);
+        assertThat(jwtTokenService.authenticate(attacker).getUserId()).isEqualTo(10_003L);
+    }
+}
@@ -0,0 +1,116 @@
+package com.piggybank.service;
+
+import com.piggybank.dto.KidBalanceDTO;
+import com.piggybank.dto.TransactionDTO;
+import com.piggybank.entity.Kid;
+import com.piggybank.entity.Transaction;
+import com.piggybank.entity.User;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fires concurrent deposits and withdrawals at one kid with the write coordinator off,
+ * so they race on the kid_balances row, and checks the row against the replayed ledger
+ */
+@SpringBootTest(properties = "piggybank.write-coordinator.enabled=false")
+@ActiveProfiles("test")
+class KidBalanceConcurrencyTest {
+
+    private static final int WRITES = 3000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KidRepository kidRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private KidBalanceService kidBalanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentDepositsAndWithdrawalsMatchTheReplayedLedger() throws Exception {
+        User user = userRepository.save(new User("+15550003001", "Stress Test", "hash"));
+        Kid kid = kidRepository.save(new Kid("Racer", 8, user));
+        transactionService.processDeposit(user.getId(), deposit(kid, "4.00"), "test");
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> writes = new ArrayList<>(WRITES);
+        for (int i = 0; i < WRITES; i++) {
+            boolean isDeposit = i % 3 == 0;
+            writes.add(pool.submit(() -> {
+                if (isDeposit) {
+                    transactionService.processDeposit(user.getId(), deposit(kid, "4.00"), "test");
+                } else {
+                    try {
+                        transactionService.processWithdrawal(user.getId(), spendWithdrawal(kid, "1.00"), "test");
+                    } catch (IllegalArgumentException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> write : writes) {
+            // Rethrows anything other than an insufficient balance rejection
+            write.get();
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        // Twice as many withdrawals as the deposits can cover, so some must have been turned away
+        assertThat(rejected.get()).isPositive();
+
+        Map<String, Object> ledger = jdbcTemplate.queryForMap("SELECT " +
+                "SUM(CASE WHEN transaction_type = 'DEPOSIT' THEN charity_amount ELSE 0 END) AS charity, " +
+                "SUM(CASE WHEN transaction_type = 'DEPOSIT' THEN spend_amount ELSE -withdrawal_amount END) AS spend, " +
+                "SUM(CASE WHEN transaction_type = 'DEPOSIT' THEN savings_amount ELSE 0 END) AS savings, " +
+                "SUM(CASE WHEN transaction_type = 'DEPOSIT' THEN investment_amount ELSE 0 END) AS investment, " +
+                "COUNT(CASE WHEN transaction_type = 'WITHDRAWAL' THEN 1 END) AS withdrawals " +
+                "FROM transactions WHERE kid_id = ?", kid.getId());
+        assertThat(((Number) ledger.get("withdrawals")).intValue()).isEqualTo(WRITES * 2 / 3 - rejected.get());
+
+        KidBalanceDTO balance = kidBalanceService.getKidBalanceDetails(user.getId(), kid.getId());
+        assertThat(balance.getCharityBalance()).isEqualByComparingTo((BigDecimal) ledger.get("charity"));
+        assertThat(balance.getSpendBalance()).isEqualByComparingTo((BigDecimal) ledger.get("spend"));
+        assertThat(balance.getSavingsBalance()).isEqualByComparingTo((BigDecimal) ledger.get("savings"));
+        assertThat(balance.getInvestmentBalance()).isEqualByComparingTo((BigDecimal) ledger.get("investment"));
+        assertThat(balance.getSpendBalance()).isNotNegative();
+        assertThat(balance.getTotalBalance()).isEqualByComparingTo(balance.getCharityBalance()
+                .add(balance.getSpendBalance()).add(balance.getSavingsBalance()).add(balance.getInvestmentBalance()));
+    }
+
+    private static TransactionDTO deposit(Kid kid, String amount) {
+        return new TransactionDTO(kid.getId(), Transaction.TransactionType.DEPOSIT, new BigDecimal(amount), "Allowance");
+    }
+
+    private static TransactionDTO spendWithdrawal(Kid kid, String amount) {
+        TransactionDTO withdrawal = new TransactionDTO(kid.getId(), Transaction.TransactionType.WITHDRAWAL,
+                new BigDecimal(amount), "Candy");
+        withdrawal.setWithdrawalComponent(Transaction.ComponentType.SPEND);
+        return withdrawal;
+    }
+}
@@ -0,0 +1,60 @@
+package com.piggybank.service;
+
+import com.piggybank.dto.KidDetailsDTO;
+import com.piggybank.dto.TransactionDTO;
+import com.piggybank.entity.Kid;
+import com.piggybank.entity.Transaction;
+import com.piggybank.entity.User;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * getKidDetails reads the kid with its balances in one query and the recent
+ * transactions in another, however long the ledger is
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class KidDetailsQueryCountTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KidRepository kidRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void getKidDetailsPreparesTwoStatements() {
+        User user = userRepository.save(new User("+15550006001", "Query Count", "hash"));
+        Kid kid = kidRepository.save(new Kid("Counted", 10, user));
+        for (int i = 0; i < 25; i++) {
+            transactionService.processDeposit(user.getId(), new TransactionDTO(kid.getId(),
+                    Transaction.TransactionType.DEPOSIT, new BigDecimal("3.00"), "Deposit " + i), "test");
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        KidDetailsDTO details = transactionService.getKidDetails(user.getId(), kid.getId());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(details.getRecentTransactions()).hasSize(10);
+        assertThat(details.getKidName()).isEqualTo("Counted");
+    }
+}
@@ -0,0 +1,319 @@
+package com.piggybank.service;
+
+import com.piggybank.dto.KidBalanceDTO;
+import com.piggybank.dto.TransactionDTO;
+import com.piggybank.entity.Kid;
+import com.piggybank.entity.Transaction;
+import com.piggybank.entity.User;
+import com.piggybank.entity.id.TimeOrderedIds;
+import com.piggybank.repository.KidBalanceJdbcRepository;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * LEDGER balances against the ledger they are derived from: next to ROW balances, across
+ * snapshot runs, with a deposit in flight while a snapshot runs, and through the startup
+ * conversions between the two sources. The scheduled snapshot job is kept out of the way
+ * so the tests decide when snapshots move, and folds every committed row unless a test
+ * sets a settle time.
+ */
+@SpringBootTest(properties = {
+        "piggybank.balance.source=LEDGER",
+        "piggybank.balance.snapshot.interval=1h",
+        "piggybank.balance.snapshot.settle=0s"
+})
+@ActiveProfiles("test")
+class LedgerBalanceTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KidRepository kidRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private KidBalanceService kidBalanceService;
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private KidBalanceJdbcRepository kidBalanceJdbcRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void restoreSources() {
+        kidBalanceService.setBalanceSource(KidBalanceService.BalanceSource.LEDGER);
+        kidBalanceService.setMaxAppendTime(Duration.ofSeconds(5));
+        balanceSnapshotService.setSettle(Duration.ZERO);
+        transactionService.setJdbcDepositFastPath(false);
+    }
+
+    @Test
+    void rowAndLedgerSourcesGiveTheSameBalances() {
+        User user = userRepository.save(new User("+15550024001", "Sources", "hash"));
+        Kid rowKid = kidRepository.save(new Kid("Row", 8, user));
+        Kid ledgerKid = kidRepository.save(new Kid("Ledger", 8, user));
+
+        kidBalanceService.setBalanceSource(KidBalanceService.BalanceSource.ROW);
+        writeSampleHistory(user, rowKid);
+        kidBalanceService.setBalanceSource(KidBalanceService.BalanceSource.LEDGER);
+        writeSampleHistory(user, ledgerKid);
+
+        assertThat(lastApplied(rowKid)).isNull();
+        assertThat(lastApplied(ledgerKid)).isNotNull();
+        kidBalanceService.setBalanceSource(KidBalanceService.BalanceSource.ROW);
+        KidBalanceDTO rowBalance = kidBalanceService.getKidBalanceDetails(user.getId(), rowKid.getId());
+        kidBalanceService.setBalanceSource(KidBalanceService.BalanceSource.LEDGER);
+        KidBalanceDTO ledgerBalance = kidBalanceService.getKidBalanceDetails(user.getId(), ledgerKid.getId());
+
+        assertMatchesLedger(rowBalance, user, rowKid);
+        assertMatchesLedger(ledgerBalance, user, ledgerKid);
+        assertThat(ledgerBalance.getCharityBalance()).isEqualByComparingTo(rowBalance.getCharityBalance());
+        assertThat(ledgerBalance.getSpendBalance()).isEqualByComparingTo(rowBalance.getSpendBalance());
+        assertThat(ledgerBalance.getSavingsBalance()).isEqualByComparingTo(rowBalance.getSavingsBalance());
+        assertThat(ledgerBalance.getInvestmentBalance()).isEqualByComparingTo(rowBalance.getInvestmentBalance());
+        assertThat(ledgerBalance.getTotalBalance()).isEqualByComparingTo(rowBalance.getTotalBalance());
+    }
+
+    @Test
+    void snapshotsFoldTheWholeLedgerWithoutChangingBalances() {
+        User user = userRepository.save(new User("+15550024002", "Snapshots", "hash"));
+        Kid kid = kidRepository.save(new Kid("Folded", 9, user));
+
+        writeSampleHistory(user, kid);
+        KidBalanceDTO before = kidBalanceService.getKidBalanceDetails(user.getId(), kid.getId());
+        balanceSnapshotService.snapshot();
+        assertSnapshotAtEndOfLedger(user, kid);
+        assertSameBalances(kidBalanceService.getKidBalanceDetails(user.getId(), kid.getId()), before);
+
+        transactionService.processDeposit(user.getId(), deposit(kid, "3.30"), "test");
+        balanceSnapshotService.snapshot();
+        assertSnapshotAtEndOfLedger(user, kid);
+        assertMatchesLedger(kidBalanceService.getKidBalanceDetails(user.getId(), kid.getId()), user, kid);
+    }
+
+    @Test
+    void depositsNeitherLockNorGetFoldedWhileInFlight() throws Exception {
+        User user = userRepository.save(new User("+15550024003", "InFlight", "hash"));
+        Kid kid = kidRepository.save(new Kid("Slow", 7, user));
+        transactionService.processDeposit(user.getId(), deposit(kid, "5.00"), "test");
+        balanceSnapshotService.snapshot();
+        Long position = lastApplied(kid);
+
+        balanceSnapshotService.setSettle(Duration.ofSeconds(2));
+        kidBalanceService.setMaxAppendTime(Duration.ofSeconds(1));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> slowDeposit = pool.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                transactionService.processDeposit(user.getId(), deposit(kid, "20.00"), "test");
+                inserted.countDown();
+                try {
+                    commit.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertThat(inserted.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // Neither another deposit for the kid nor the snapshot job waits for it
+            pool.submit(() -> transactionService.processDeposit(user.getId(), deposit(kid, "1.00"), "test"))
+                    .get(5, TimeUnit.SECONDS);
+            pool.submit(balanceSnapshotService::snapshot).get(5, TimeUnit.SECONDS);
+            assertThat(lastApplied(kid)).isEqualTo(position);
+
+            commit.countDown();
+            slowDeposit.get(10, TimeUnit.SECONDS);
+        } finally {
+            commit.countDown();
+            pool.shutdownNow();
+        }
+        assertThat(kidBalanceService.getKidBalanceDetails(user.getId(), kid.getId()).getTotalBalance())
+                .isEqualByComparingTo("26.00");
+
+        Thread.sleep(2100);
+        balanceSnapshotService.snapshot();
+        assertSnapshotAtEndOfLedger(user, kid);
+        KidBalanceDTO balance = kidBalanceService.getKidBalanceDetails(user.getId(), kid.getId());
+        assertThat(balance.getTotalBalance()).isEqualByComparingTo("26.00");
+        assertMatchesLedger(balance, user, kid);
+    }
+
+    @Test
+    void depositTooSlowToCommitIsRolledBack() {
+        User user = userRepository.save(new User("+15550024006", "Stalled", "hash"));
+        Kid kid = kidRepository.save(new Kid("Stalled", 6, user));
+        kidBalanceService.setMaxAppendTime(Duration.ofMillis(200));
+
+        assertThatThrownBy(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            transactionService.processDeposit(user.getId(), deposit(kid, "9.00"), "test");
+            try {
+                Thread.sleep(400);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        })).isInstanceOf(KidWriteCoordinator.BusyException.class);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions WHERE kid_id = ?", Long.class,
+                kid.getId())).isZero();
+        assertThat(kidBalanceService.getKidBalanceDetails(user.getId(), kid.getId()).getTotalBalance())
+                .isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void snapshotsStopAtTheSettleTimeEvenForFasterClocks() throws Exception {
+        User user = userRepository.save(new User("+15550024004", "Clocks", "hash"));
+        Kid kid = kidRepository.save(new Kid("Ahead", 10, user));
+        Transaction settled = transactionService.processDeposit(user.getId(), deposit(kid, "8.00"), "test");
+
+        // As if written by another node whose clock runs ahead of this one
+        transactionService.setJdbcDepositFastPath(true);
+        Transaction ahead = transactionService.processDeposit(user.getId(), deposit(kid, "2.00"), "test");
+        long aheadId = TimeOrderedIds.lowestIdAt(System.currentTimeMillis() + 5000);
+        jdbcTemplate.update("UPDATE transactions SET id = ? WHERE id = ?", aheadId, ahead.getId());
+
+        balanceSnapshotService.setSettle(Duration.ofSeconds(1));
+        Thread.sleep(1100);
+        balanceSnapshotService.snapshot();
+        assertThat(lastApplied(kid)).isEqualTo(settled.getId());
+
+        Transaction late = transactionService.processDeposit(user.getId(), deposit(kid, "1.00"), "test");
+
+        assertThat(late.getId()).isGreaterThan(settled.getId()).isLessThan(aheadId);
+        assertThat(kidBalanceService.getKidBalanceDetails(user.getId(), kid.getId()).getTotalBalance())
+                .isEqualByComparingTo("11.00");
+    }
+
+    @Test
+    void startupConversionsKeepBalancesInBothDirections() {
+        User user = userRepository.save(new User("+15550024005", "Convert", "hash"));
+        Kid kid = kidRepository.save(new Kid("Switch", 11, user));
+        writeSampleHistory(user, kid);
+        balanceSnapshotService.snapshot();
+        // Ledger rows left after the snapshot must be folded in by the conversion
+        transactionService.processDeposit(user.getId(), deposit(kid, "6.10"), "test");
+        KidBalanceDTO before = kidBalanceService.getKidBalanceDetails(user.getId(), kid.getId());
+
+        // LEDGER to ROW
+        balanceSnapshotService.stop();
+        balanceSnapshotService.setBalanceSource(KidBalanceService.BalanceSource.ROW);
+        balanceSnapshotService.init();
+        kidBalanceService.setBalanceSource(KidBalanceService.BalanceSource.ROW);
+
+        assertThat(kidBalanceJdbcRepository.hasSnapshots()).isFalse();
+        assertThat(lastApplied(kid)).isNull();
+        assertSameBalances(kidBalanceService.getKidBalanceDetails(user.getId(), kid.getId()), before);
+        transactionService.processDeposit(user.getId(), deposit(kid, "4.00"), "test");
+        KidBalanceDTO rowBalance = kidBalanceService.getKidBalanceDetails(user.getId(), kid.getId());
+        assertMatchesLedger(rowBalance, user, kid);
+
+        // ROW back to LEDGER
+        balanceSnapshotService.stop();
+        balanceSnapshotService.setBalanceSource(KidBalanceService.BalanceSource.LEDGER);
+        balanceSnapshotService.init();
+        kidBalanceService.setBalanceSource(KidBalanceService.BalanceSource.LEDGER);
+
+        assertThat(kidBalanceJdbcRepository.hasRowBalances()).isFalse();
+        assertSnapshotAtEndOfLedger(user, kid);
+        assertSameBalances(kidBalanceService.getKidBalanceDetails(user.getId(), kid.getId()), rowBalance);
+        transactionService.processDeposit(user.getId(), deposit(kid, "1.25"), "test");
+        assertMatchesLedger(kidBalanceService.getKidBalanceDetails(user.getId(), kid.getId()), user, kid);
+    }
+
+    /**
+     * Deposits singly and as a batch on both deposit paths, a withdrawal and a rejected withdrawal
+     */
+    private void writeSampleHistory(User user, Kid kid) {
+        transactionService.processDeposit(user.getId(), deposit(kid, "10.00"), "test");
+        transactionService.setJdbcDepositFastPath(true);
+        transactionService.processDeposit(user.getId(), deposit(kid, "7.35"), "test");
+        transactionService.processDepositBatch(user.getId(), List.of(deposit(kid, "0.99"), deposit(kid, "4.02")),
+                "test");
+        transactionService.setJdbcDepositFastPath(false);
+        transactionService.processDepositBatch(user.getId(), List.of(deposit(kid, "1.01"), deposit(kid, "2.99")),
+                "test");
+        transactionService.processWithdrawal(user.getId(), spendWithdrawal(kid, "1.00"), "test");
+        assertThatThrownBy(() -> transactionService.processWithdrawal(user.getId(), spendWithdrawal(kid, "1000.00"),
+                "test")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void assertMatchesLedger(KidBalanceDTO balance, User user, Kid kid) {
+        KidBalanceJdbcRepository.LedgerDelta ledger = kidBalanceJdbcRepository.sumLedgerUpTo(user.getId(), kid.getId(),
+                Long.MAX_VALUE);
+        assertThat(balance.getCharityBalance()).isEqualByComparingTo(ledger.getAmount(Transaction.ComponentType.CHARITY));
+        assertThat(balance.getSpendBalance()).isEqualByComparingTo(ledger.getAmount(Transaction.ComponentType.SPEND));
+        assertThat(balance.getSavingsBalance()).isEqualByComparingTo(ledger.getAmount(Transaction.ComponentType.SAVINGS));
+        assertThat(balance.getInvestmentBalance())
+                .isEqualByComparingTo(ledger.getAmount(Transaction.ComponentType.INVESTMENT));
+        assertThat(balance.getTotalBalance()).isEqualByComparingTo(ledger.getTotalAmount());
+    }
+
+    /**
+     * The snapshot row alone holds the kid's whole ledger
+     */
+    private void assertSnapshotAtEndOfLedger(User user, Kid kid) {
+        Long newestId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM transactions WHERE kid_id = ?", Long.class,
+                kid.getId());
+        assertThat(lastApplied(kid)).isEqualTo(newestId);
+        KidBalanceJdbcRepository.BalanceCheck check = kidBalanceJdbcRepository.findBalanceChecks(List.of(kid.getId()))
+                .get(0);
+        assertThat(check.matchesLedger()).isTrue();
+        assertThat(check.getTotalBalance()).isEqualByComparingTo(kidBalanceJdbcRepository
+                .sumLedgerUpTo(user.getId(), kid.getId(), Long.MAX_VALUE).getTotalAmount());
+    }
+
+    private static void assertSameBalances(KidBalanceDTO actual, KidBalanceDTO expected) {
+        assertThat(actual.getCharityBalance()).isEqualByComparingTo(expected.getCharityBalance());
+        assertThat(actual.getSpendBalance()).isEqualByComparingTo(expected.getSpendBalance());
+        assertThat(actual.getSavingsBalance()).isEqualByComparingTo(expected.getSavingsBalance());
+        assertThat(actual.getInvestmentBalance()).isEqualByComparingTo(expected.getInvestmentBalance());
+        assertThat(actual.getTotalBalance()).isEqualByComparingTo(expected.getTotalBalance());
+    }
+
+    private Long lastApplied(Kid kid) {
+        return jdbcTemplate.queryForObject("SELECT last_applied_transaction_id FROM kid_balances WHERE kid_id = ?",
+                Long.class, kid.getId());
+    }
+
+    private static TransactionDTO deposit(Kid kid, String amount) {
+        return new TransactionDTO(kid.getId(), Transaction.TransactionType.DEPOSIT, new BigDecimal(amount), "Allowance");
+    }
+
+    private static TransactionDTO spendWithdrawal(Kid kid, String amount) {
+        TransactionDTO withdrawal = new TransactionDTO(kid.getId(), Transaction.TransactionType.WITHDRAWAL,
+                new BigDecimal(amount), "Candy");
+        withdrawal.setWithdrawalComponent(Transaction.ComponentType.SPEND);
+        return withdrawal;
+    }
+}
@@ -0,0 +1,117 @@
+package com.piggybank.service;
+
+import com.piggybank.entity.User;
+import com.piggybank.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Logins are counted in memory and written to user_login_stats in batches. The flush
+ * interval is too long to fire here, so writes come from the threshold or flush().
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "piggybank.login-activity.flush-interval=1h",
+        "piggybank.login-activity.flush-threshold=20",
+        "piggybank.login-activity.batch-size=7"
+})
+@ActiveProfiles("test")
+class LoginActivityRecorderTest {
+
+    @Autowired
+    private LoginActivityRecorder loginActivityRecorder;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void loginsAreBatchedInsteadOfUpdatingTheUserRow() {
+        User user = userService.registerUser("+15550021001", "login.test", "1234");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        for (int i = 0; i < 5; i++) {
+            userService.authenticateUser("+15550021001", "1234");
+        }
+
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+        assertThat(loginCount(user.getId())).isNull();
+
+        loginActivityRecorder.flush();
+
+        assertThat(loginCount(user.getId())).isEqualTo(5L);
+    }
+
+    @Test
+    void concurrentLoginsAreAllCountedAcrossThresholdFlushes() throws Exception {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            userIds.add(userRepository.save(new User("+1555002110" + String.format("%02d", i), "Login " + i, "hash"))
+                    .getId());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 2000; i++) {
+            Long userId = userIds.get(i % userIds.size());
+            pool.execute(() -> loginActivityRecorder.recordLogin(userId));
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        loginActivityRecorder.flush();
+
+        assertThat(loginActivityRecorder.getPendingUsers()).isZero();
+        for (Long userId : userIds) {
+            assertThat(loginCount(userId)).isEqualTo(40L);
+        }
+    }
+
+    @Test
+    void failedBatchIsKeptAndWrittenByTheNextFlush() {
+        Long userId = userRepository.save(new User("+15550021200", "Login Retry", "hash")).getId();
+        loginActivityRecorder.recordLogin(userId);
+        loginActivityRecorder.recordLogin(userId);
+
+        jdbcTemplate.execute("ALTER TABLE user_login_stats RENAME TO user_login_stats_offline");
+        try {
+            loginActivityRecorder.flush();
+            assertThat(loginActivityRecorder.getPendingUsers()).isEqualTo(1);
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE user_login_stats_offline RENAME TO user_login_stats");
+        }
+
+        loginActivityRecorder.recordLogin(userId);
+        loginActivityRecorder.flush();
+
+        assertThat(loginActivityRecorder.getPendingUsers()).isZero();
+        assertThat(loginCount(userId)).isEqualTo(3L);
+    }
+
+    private Long loginCount(Long userId) {
+        List<Long> counts = jdbcTemplate.queryForList("SELECT login_count FROM user_login_stats WHERE user_id = ?",
+                Long.class, userId);
+        return counts.isEmpty() ? null : counts.get(0);
+    }
+}
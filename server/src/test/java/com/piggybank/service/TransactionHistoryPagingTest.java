@@ -0,0 +1,150 @@
+package com.piggybank.service;
+
+import com.piggybank.controller.TransactionController;
+import com.piggybank.dto.KidDetailsDTO;
+import com.piggybank.dto.TransactionCursor;
+import com.piggybank.dto.TransactionDTO;
+import com.piggybank.dto.TransactionPageDTO;
+import com.piggybank.entity.Kid;
+import com.piggybank.entity.Transaction;
+import com.piggybank.entity.User;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.UserRepository;
+import com.piggybank.security.AuthenticatedUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Keyset paging through a kid's history where many transactions share a transaction date,
+ * so only the id tiebreaker keeps pages apart, and cursors that must be refused.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionHistoryPagingTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KidRepository kidRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionController transactionController;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void pagesNeitherOverlapNorSkipRowsWithTiedDates() {
+        User user = userRepository.save(new User("+15550007001", "Pager", "hash"));
+        Kid kid = kidRepository.save(new Kid("Paged", 10, user));
+        for (int i = 1; i <= 23; i++) {
+            transactionService.processDeposit(user.getId(), deposit(kid, i + ".00"), "test");
+        }
+        // Three groups of tied dates, so every page boundary but the first falls inside a tie
+        LocalDateTime base = LocalDateTime.of(2026, 3, 1, 12, 0);
+        jdbcTemplate.update("UPDATE transactions SET transaction_date = ? WHERE kid_id = ? AND total_amount <= 8",
+                Timestamp.valueOf(base), kid.getId());
+        jdbcTemplate.update("UPDATE transactions SET transaction_date = ? WHERE kid_id = ? " +
+                "AND total_amount > 8 AND total_amount <= 20", Timestamp.valueOf(base.plusDays(1)), kid.getId());
+        jdbcTemplate.update("UPDATE transactions SET transaction_date = ? WHERE kid_id = ? AND total_amount > 20",
+                Timestamp.valueOf(base.plusDays(2)), kid.getId());
+        List<Long> expected = jdbcTemplate.queryForList("SELECT id FROM transactions WHERE kid_id = ? " +
+                "ORDER BY transaction_date DESC, id DESC", Long.class, kid.getId());
+
+        for (int size : new int[] { 1, 4, 5, 23, 50 }) {
+            List<Long> paged = new ArrayList<>();
+            String cursor = null;
+            int pages = 0;
+            do {
+                TransactionPageDTO page = transactionService.getTransactionHistoryPage(user.getId(), kid.getId(),
+                        cursor, size);
+                assertThat(page.getTransactions()).hasSizeLessThanOrEqualTo(size);
+                for (KidDetailsDTO.TransactionSummaryDTO transaction : page.getTransactions()) {
+                    paged.add(transaction.getTransactionId());
+                }
+                cursor = page.getNextCursor();
+                pages++;
+            } while (cursor != null);
+
+            assertThat(paged).as("page size %d", size).containsExactlyElementsOf(expected);
+            assertThat(new HashSet<>(paged)).hasSize(expected.size());
+            assertThat(pages).isEqualTo(Math.max(1, (expected.size() + size - 1) / size));
+        }
+    }
+
+    @Test
+    void invalidOrTamperedCursorsAreRejectedWith400() {
+        User user = userRepository.save(new User("+15550007002", "Tamperer", "hash"));
+        Kid kid = kidRepository.save(new Kid("Guarded", 11, user));
+        transactionService.processDeposit(user.getId(), deposit(kid, "3.00"), "test");
+        transactionService.processDeposit(user.getId(), deposit(kid, "4.00"), "test");
+        String cursor = transactionService.getTransactionHistoryPage(user.getId(), kid.getId(), null, 1)
+                .getNextCursor();
+        assertThat(cursor).isNotNull();
+        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), user.getPhoneNumber(),
+                Instant.now().plusSeconds(600));
+
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        byte[] badNanos = bytes.clone();
+        ByteBuffer.wrap(badNanos).putInt(Long.BYTES, 1_000_000_000);
+        byte[] badSeconds = bytes.clone();
+        ByteBuffer.wrap(badSeconds).putLong(0, Long.MAX_VALUE);
+
+        for (String tampered : List.of(
+                "not a cursor!",
+                cursor.substring(0, cursor.length() - 2),
+                cursor + "AAAA",
+                encode(badNanos),
+                encode(badSeconds))) {
+            ResponseEntity<?> response = transactionController.getTransactionHistoryPage(principal, kid.getId(),
+                    tampered, 1);
+            assertThat(response.getStatusCode()).as("cursor %s", tampered).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(((TransactionController.ApiResponse) response.getBody()).getMessage())
+                    .isEqualTo("Invalid cursor");
+        }
+
+        assertThat(transactionController.getTransactionHistoryPage(principal, kid.getId(), cursor, 1)
+                .getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(transactionController.getTransactionHistoryPage(principal, kid.getId(), null, 0)
+                .getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void cursorRoundTrips() {
+        TransactionCursor cursor = new TransactionCursor(LocalDateTime.of(2026, 3, 1, 12, 0, 5, 123_456_789), 42L);
+
+        TransactionCursor decoded = TransactionCursor.decode(cursor.encode());
+
+        assertThat(decoded.getTransactionDate()).isEqualTo(cursor.getTransactionDate());
+        assertThat(decoded.getTransactionId()).isEqualTo(42L);
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static TransactionDTO deposit(Kid kid, String amount) {
+        return new TransactionDTO(kid.getId(), Transaction.TransactionType.DEPOSIT, new BigDecimal(amount), "Allowance");
+    }
+}
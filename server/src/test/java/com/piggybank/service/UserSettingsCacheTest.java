@@ -0,0 +1,104 @@
+package com.piggybank.service;
+
+import com.piggybank.dto.UserSettingsDTO;
+import com.piggybank.dto.UserSettingsSnapshot;
+import com.piggybank.entity.User;
+import com.piggybank.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Settings writes evict the cached snapshot again once they commit, so a read that
+ * re-cached the old settings while the write was still open does not outlive it.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserSettingsCacheTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSettingsService userSettingsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void saveEvictsAfterCommit() throws Exception {
+        User user = userRepository.save(new User("+15550009001", "Saver", "hash"));
+        userSettingsService.getOrCreateSettingsSnapshot(user.getId(), "test");
+        assertThat(cachedCharity(user)).isEqualByComparingTo("25.00");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userSettingsService.saveOrUpdateSettings(user.getId(), settings("10.00", "20.00", "30.00", "40.00"),
+                    "test");
+            // A read on another thread still sees the committed settings and caches them
+            assertThat(readOnOtherThread(user).map(UserSettingsSnapshot::getCharityPercentage))
+                    .hasValueSatisfying(charity -> assertThat(charity).isEqualByComparingTo("25.00"));
+        });
+
+        assertThat(cachedCharity(user)).isEqualByComparingTo("10.00");
+        assertThat(userSettingsService.getSettingsSnapshot(user.getId()).orElseThrow().getSplitPlan().split(100))
+                .containsExactly(10, 20, 30, 40);
+    }
+
+    @Test
+    void deleteEvictsAfterCommit() throws Exception {
+        User user = userRepository.save(new User("+15550009002", "Deleter", "hash"));
+        userSettingsService.getOrCreateSettingsSnapshot(user.getId(), "test");
+        assertThat(userSettingsService.getSettingsSnapshot(user.getId())).isPresent();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userSettingsService.deleteSettings(user.getId());
+            assertThat(readOnOtherThread(user)).isPresent();
+        });
+
+        assertThat(userSettingsService.getSettingsSnapshot(user.getId())).isEmpty();
+    }
+
+    @Test
+    void rolledBackSaveLeavesTheCommittedSettingsCached() throws Exception {
+        User user = userRepository.save(new User("+15550009003", "Undoer", "hash"));
+        userSettingsService.getOrCreateSettingsSnapshot(user.getId(), "test");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userSettingsService.saveOrUpdateSettings(user.getId(), settings("40.00", "30.00", "20.00", "10.00"),
+                    "test");
+            // Within the write's own transaction the new settings are visible
+            assertThat(cachedCharity(user)).isEqualByComparingTo("40.00");
+            status.setRollbackOnly();
+        });
+
+        assertThat(cachedCharity(user)).isEqualByComparingTo("25.00");
+    }
+
+    private BigDecimal cachedCharity(User user) {
+        return userSettingsService.getSettingsSnapshot(user.getId()).orElseThrow().getCharityPercentage();
+    }
+
+    private Optional<UserSettingsSnapshot> readOnOtherThread(User user) {
+        try {
+            return CompletableFuture.supplyAsync(() -> userSettingsService.getSettingsSnapshot(user.getId()))
+                    .get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static UserSettingsDTO settings(String charity, String spend, String savings, String investment) {
+        return new UserSettingsDTO(new BigDecimal(charity), new BigDecimal(spend), new BigDecimal(savings),
+                new BigDecimal(investment), 2, 2);
+    }
+}
@@ -0,0 +1,126 @@
+package com.piggybank.service;
+
+import com.piggybank.dto.TransactionDTO;
+import com.piggybank.entity.Kid;
+import com.piggybank.entity.Transaction;
+import com.piggybank.entity.User;
+import com.piggybank.entity.UserSettings;
+import com.piggybank.repository.KidRepository;
+import com.piggybank.repository.UserRepository;
+import com.piggybank.repository.UserSettingsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Races limited withdrawals for one kid with the write coordinator off, so only the
+ * counter's conditional update keeps the monthly limit
+ */
+@SpringBootTest(properties = "piggybank.write-coordinator.enabled=false")
+@ActiveProfiles("test")
+class WithdrawalCounterRaceTest {
+
+    private static final int SAVINGS_LIMIT = 3;
+    private static final int ATTEMPTS = 24;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KidRepository kidRepository;
+
+    @Autowired
+    private UserSettingsRepository userSettingsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentWithdrawalsStopExactlyAtTheMonthlyLimit() throws Exception {
+        User user = userRepository.save(new User("+15550019001", "Counter Race", "hash"));
+        Kid kid = kidRepository.save(new Kid("Saver", 11, user));
+        userSettingsRepository.save(new UserSettings(user.getId(), new BigDecimal("25"), new BigDecimal("25"),
+                new BigDecimal("25"), new BigDecimal("25"), SAVINGS_LIMIT, 0, "test"));
+        transactionService.processDeposit(user.getId(), new TransactionDTO(kid.getId(),
+                Transaction.TransactionType.DEPOSIT, new BigDecimal("400.00"), "Funding"), "test");
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger limited = new AtomicInteger();
+        List<Future<?>> attempts = new ArrayList<>();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            attempts.add(pool.submit(() -> {
+                start.await();
+                try {
+                    transactionService.processWithdrawal(user.getId(),
+                            withdrawal(kid, Transaction.ComponentType.SAVINGS, "1.00"), "test");
+                    succeeded.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    assertThat(e.getMessage()).startsWith("Monthly withdrawal limit reached");
+                    limited.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> attempt : attempts) {
+            attempt.get(1, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        assertThat(succeeded.get()).isEqualTo(SAVINGS_LIMIT);
+        assertThat(limited.get()).isEqualTo(ATTEMPTS - SAVINGS_LIMIT);
+        assertThat(savingsCount(kid)).isEqualTo(SAVINGS_LIMIT);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions WHERE kid_id = ? "
+                + "AND transaction_type = 'WITHDRAWAL'", Integer.class, kid.getId())).isEqualTo(SAVINGS_LIMIT);
+    }
+
+    @Test
+    void rolledBackWithdrawalDoesNotCount() {
+        User user = userRepository.save(new User("+15550019002", "Counter Rollback", "hash"));
+        Kid kid = kidRepository.save(new Kid("Spender", 7, user));
+        userSettingsRepository.save(new UserSettings(user.getId(), new BigDecimal("25"), new BigDecimal("25"),
+                new BigDecimal("25"), new BigDecimal("25"), SAVINGS_LIMIT, 0, "test"));
+        transactionService.processDeposit(user.getId(), new TransactionDTO(kid.getId(),
+                Transaction.TransactionType.DEPOSIT, new BigDecimal("4.00"), "Funding"), "test");
+
+        // More than the 1.00 in savings: counted inside the transaction, then rolled back with it
+        assertThatThrownBy(() -> transactionService.processWithdrawal(user.getId(),
+                withdrawal(kid, Transaction.ComponentType.SAVINGS, "5.00"), "test"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(savingsCount(kid)).isZero();
+    }
+
+    private int savingsCount(Kid kid) {
+        List<Integer> counts = jdbcTemplate.queryForList("SELECT withdrawal_count FROM withdrawal_counters "
+                + "WHERE kid_id = ? AND component = 'SAVINGS'", Integer.class, kid.getId());
+        return counts.isEmpty() ? 0 : counts.get(0);
+    }
+
+    private static TransactionDTO withdrawal(Kid kid, Transaction.ComponentType component, String amount) {
+        TransactionDTO withdrawal = new TransactionDTO(kid.getId(), Transaction.TransactionType.WITHDRAWAL,
+                new BigDecimal(amount), "Withdrawal");
+        withdrawal.setWithdrawalComponent(component);
+        return withdrawal;
+    }
+}